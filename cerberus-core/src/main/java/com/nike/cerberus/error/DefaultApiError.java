@@ -264,6 +264,16 @@ public enum DefaultApiError implements ApiError {
   /** Push notification challenges have not been implemented for OneLogin MFA */
   OKTA_PUSH_MFA_REJECTED(99249, "Push notification request was rejected by user", SC_UNAUTHORIZED),
 
+  /** The pagination cursor could not be decoded. */
+  INVALID_PAGINATION_CURSOR(99250, "The pagination cursor is not valid.", SC_BAD_REQUEST),
+
+  /** A bulk read matched more secrets than can be read in a single request. */
+  TOO_MANY_SECRETS_REQUESTED(
+      99251, "The request matches more secrets than can be read at once.", SC_BAD_REQUEST),
+
+  /** A secret that is written must be a JSON object. */
+  INVALID_SECRET_PAYLOAD(99252, "The secret must be a JSON object.", SC_BAD_REQUEST),
+
   /** Generic not found error. */
   ENTITY_NOT_FOUND(99996, "Not found", SC_NOT_FOUND),
 
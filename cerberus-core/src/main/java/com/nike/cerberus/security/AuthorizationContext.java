@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.security;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * What the permission checks need to know about a principal, worked out once per principal instead
+ * of on every check: the user's groups, both as given and normalized for case insensitive
+ * comparisons, and the ARNs whose permissions an IAM principal holds.
+ */
+public final class AuthorizationContext implements Serializable {
+
+  private static final long serialVersionUID = -2270637640529216853L;
+
+  private final Set<String> userGroups;
+  private final Set<String> normalizedUserGroups;
+  private final String iamPrincipalArn;
+  private final String iamRoleArn;
+  private final String iamRootArn;
+  private final List<String> iamPrincipalArns;
+
+  /**
+   * @param userGroups The comma separated groups of the user, null for IAM principals
+   * @param iamPrincipalArn The ARN of the IAM principal, null for users
+   * @param iamRoleArn The ARN of the role when the IAM principal is an assumed role, otherwise null
+   * @param iamRootArn The ARN of the account root of the IAM principal, null for users
+   */
+  public AuthorizationContext(
+      String userGroups, String iamPrincipalArn, String iamRoleArn, String iamRootArn) {
+
+    this.userGroups =
+        userGroups == null ? ImmutableSet.of() : ImmutableSet.copyOf(userGroups.split(","));
+    normalizedUserGroups =
+        this.userGroups.stream()
+            .map(AuthorizationContext::normalizeUserGroupName)
+            .collect(ImmutableSet.toImmutableSet());
+    this.iamPrincipalArn = iamPrincipalArn;
+    this.iamRoleArn = iamRoleArn;
+    this.iamRootArn = iamRootArn;
+
+    ImmutableList.Builder<String> iamPrincipalArnsBuilder = ImmutableList.builder();
+    if (iamPrincipalArn != null) {
+      iamPrincipalArnsBuilder.add(iamPrincipalArn);
+    }
+    if (iamRoleArn != null) {
+      iamPrincipalArnsBuilder.add(iamRoleArn);
+    }
+    if (iamRootArn != null) {
+      iamPrincipalArnsBuilder.add(iamRootArn);
+    }
+    iamPrincipalArns = iamPrincipalArnsBuilder.build();
+  }
+
+  /**
+   * Normalizes a user group name for case insensitive comparisons, this matches the
+   * USER_GROUP.NORMALIZED_NAME column.
+   *
+   * @param userGroupName The user group name
+   * @return The lower cased user group name
+   */
+  public static String normalizeUserGroupName(String userGroupName) {
+    return userGroupName.toLowerCase(Locale.ROOT);
+  }
+
+  /** @return The groups that the user belongs to, this is empty for IAM principals */
+  public Set<String> getUserGroups() {
+    return userGroups;
+  }
+
+  /** @return The groups that the user belongs to, normalized with normalizeUserGroupName */
+  public Set<String> getNormalizedUserGroups() {
+    return normalizedUserGroups;
+  }
+
+  public String getIamPrincipalArn() {
+    return iamPrincipalArn;
+  }
+
+  public String getIamRoleArn() {
+    return iamRoleArn;
+  }
+
+  public String getIamRootArn() {
+    return iamRootArn;
+  }
+
+  /** @return Whether the IAM principal is an assumed role, i.e. the role ARN is set */
+  public boolean isAssumedRole() {
+    return iamRoleArn != null;
+  }
+
+  /** @return The IAM principal, role and root ARNs that permissions may be granted to */
+  public List<String> getIamPrincipalArns() {
+    return iamPrincipalArns;
+  }
+}
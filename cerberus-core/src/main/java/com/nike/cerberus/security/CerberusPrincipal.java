@@ -22,6 +22,7 @@ import com.nike.cerberus.domain.CerberusAuthToken;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -60,12 +61,36 @@ public class CerberusPrincipal implements Authentication {
 
   private final CerberusAuthToken cerberusAuthToken;
   private final Set<GrantedAuthority> grantedAuthorities;
-
+  private final transient Function<CerberusAuthToken, AuthorizationContext>
+      authorizationContextFactory;
+  private volatile AuthorizationContext authorizationContext;
+
+  /**
+   * Creates a principal whose authorization context only holds the user groups of the token, use
+   * the other constructor when the IAM principal ARNs are needed.
+   */
   public CerberusPrincipal(CerberusAuthToken cerberusAuthToken) {
+    this(cerberusAuthToken, null);
+  }
+
+  /**
+   * @param cerberusAuthToken The token of the principal
+   * @param authorizationContextFactory Builds the authorization context of the token the first
+   *     time it is needed
+   */
+  public CerberusPrincipal(
+      CerberusAuthToken cerberusAuthToken,
+      Function<CerberusAuthToken, AuthorizationContext> authorizationContextFactory) {
     this.cerberusAuthToken = cerberusAuthToken;
+    this.authorizationContextFactory = authorizationContextFactory;
     grantedAuthorities = buildGrantedAuthorities(cerberusAuthToken);
   }
 
+  /** @see AuthorizationContext#normalizeUserGroupName(String) */
+  public static String normalizeUserGroupName(String userGroupName) {
+    return AuthorizationContext.normalizeUserGroupName(userGroupName);
+  }
+
   private Set<GrantedAuthority> buildGrantedAuthorities(CerberusAuthToken cerberusAuthToken) {
     final ImmutableSet.Builder<GrantedAuthority> roleSetBuilder = ImmutableSet.builder();
 
@@ -87,11 +112,28 @@ public class CerberusPrincipal implements Authentication {
     return cerberusAuthToken.getToken();
   }
 
-  public Set<String> getUserGroups() {
-    if (cerberusAuthToken.getGroups() == null) {
-      return new HashSet<>();
+  /** @return The groups and ARNs that the permission checks of this principal are based on */
+  public AuthorizationContext getAuthorizationContext() {
+    // building the context is idempotent, so a concurrent first call may just build it twice
+    AuthorizationContext context = authorizationContext;
+    if (context == null) {
+      context =
+          authorizationContextFactory == null
+              ? new AuthorizationContext(cerberusAuthToken.getGroups(), null, null, null)
+              : authorizationContextFactory.apply(cerberusAuthToken);
+      authorizationContext = context;
     }
-    return new HashSet<>(Arrays.asList(cerberusAuthToken.getGroups().split(",")));
+    return context;
+  }
+
+  /** @return The groups that the user belongs to, this is empty for IAM principals */
+  public Set<String> getUserGroups() {
+    return getAuthorizationContext().getUserGroups();
+  }
+
+  /** @return The groups that the user belongs to, normalized with normalizeUserGroupName */
+  public Set<String> getNormalizedUserGroups() {
+    return getAuthorizationContext().getNormalizedUserGroups();
   }
 
   public PrincipalType getPrincipalType() {
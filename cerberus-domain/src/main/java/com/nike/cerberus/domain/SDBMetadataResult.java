@@ -22,10 +22,11 @@ public class SDBMetadataResult {
 
   private boolean hasNext = false;
   private int nextOffset = 0;
+  private String nextCursor = null;
   private int limit = 0;
   private int offset = 0;
   private int sdbCountInResult;
-  private int totalSDBCount;
+  private Integer totalSDBCount;
   private List<SDBMetadata> safeDepositBoxMetadata;
 
   public boolean isHasNext() {
@@ -44,6 +45,14 @@ public class SDBMetadataResult {
     this.nextOffset = nextOffset;
   }
 
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
   public int getLimit() {
     return limit;
   }
@@ -68,11 +77,11 @@ public class SDBMetadataResult {
     this.sdbCountInResult = sdbCountInResult;
   }
 
-  public int getTotalSDBCount() {
+  public Integer getTotalSDBCount() {
     return totalSDBCount;
   }
 
-  public void setTotalSDBCount(int totalSDBCount) {
+  public void setTotalSDBCount(Integer totalSDBCount) {
     this.totalSDBCount = totalSDBCount;
   }
 
@@ -28,6 +28,7 @@ public class SecureData {
   private OffsetDateTime createdTs;
   private String lastUpdatedBy;
   private OffsetDateTime lastUpdatedTs;
+  private String revisionId;
 
   public String getId() {
     return id;
@@ -100,4 +101,13 @@ public class SecureData {
     this.lastUpdatedTs = lastUpdatedTs;
     return this;
   }
+
+  public String getRevisionId() {
+    return revisionId;
+  }
+
+  public SecureData setRevisionId(String revisionId) {
+    this.revisionId = revisionId;
+    return this;
+  }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.domain;
+
+import java.util.List;
+
+/** Batch permission check response, the results are in the same order as the requested checks. */
+public class SecureDataPermissionCheckResponse {
+
+  private List<SecureDataPermissionCheckResult> results;
+
+  public List<SecureDataPermissionCheckResult> getResults() {
+    return results;
+  }
+
+  public SecureDataPermissionCheckResponse setResults(
+      List<SecureDataPermissionCheckResult> results) {
+    this.results = results;
+    return this;
+  }
+}
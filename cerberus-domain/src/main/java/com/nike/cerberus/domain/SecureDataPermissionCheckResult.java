@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.domain;
+
+/** The decision for a single path and action of a batch permission check. */
+public class SecureDataPermissionCheckResult {
+
+  private String path;
+
+  private String action;
+
+  private SecureDataPermissionDecision decision;
+
+  public String getPath() {
+    return path;
+  }
+
+  public SecureDataPermissionCheckResult setPath(String path) {
+    this.path = path;
+    return this;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public SecureDataPermissionCheckResult setAction(String action) {
+    this.action = action;
+    return this;
+  }
+
+  public SecureDataPermissionDecision getDecision() {
+    return decision;
+  }
+
+  public SecureDataPermissionCheckResult setDecision(SecureDataPermissionDecision decision) {
+    this.decision = decision;
+    return this;
+  }
+}
@@ -22,10 +22,11 @@ public class SecureDataVersionsResult {
 
   private boolean hasNext = false;
   private Integer nextOffset = null;
+  private String nextCursor = null;
   private int limit = 0;
   private int offset = 0;
   private int versionCountInResult;
-  private int totalVersionCount;
+  private Integer totalVersionCount;
   private List<SecureDataVersionSummary> secureDataVersionSummaries;
 
   public boolean isHasNext() {
@@ -46,6 +47,15 @@ public class SecureDataVersionsResult {
     return this;
   }
 
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public SecureDataVersionsResult setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+    return this;
+  }
+
   public int getLimit() {
     return limit;
   }
@@ -73,11 +83,11 @@ public class SecureDataVersionsResult {
     return this;
   }
 
-  public int getTotalVersionCount() {
+  public Integer getTotalVersionCount() {
     return totalVersionCount;
   }
 
-  public SecureDataVersionsResult setTotalVersionCount(int totalVersionCount) {
+  public SecureDataVersionsResult setTotalVersionCount(Integer totalVersionCount) {
     this.totalVersionCount = totalVersionCount;
     return this;
   }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.domain;
+
+import java.io.InputStream;
+
+/** The current version of a secure file, with its content to be read from a stream. */
+public class SecureFileStream {
+
+  private SecureFileSummary summary;
+  private InputStream content;
+
+  public SecureFileSummary getSummary() {
+    return summary;
+  }
+
+  public SecureFileStream setSummary(SecureFileSummary summary) {
+    this.summary = summary;
+    return this;
+  }
+
+  public InputStream getContent() {
+    return content;
+  }
+
+  public SecureFileStream setContent(InputStream content) {
+    this.content = content;
+    return this;
+  }
+}
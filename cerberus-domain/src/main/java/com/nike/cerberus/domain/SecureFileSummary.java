@@ -16,6 +16,7 @@
 
 package com.nike.cerberus.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.OffsetDateTime;
 
 public class SecureFileSummary {
@@ -28,6 +29,7 @@ public class SecureFileSummary {
   private OffsetDateTime createdTs;
   private String lastUpdatedBy;
   private OffsetDateTime lastUpdatedTs;
+  @JsonIgnore private String revisionId;
 
   public String getSdboxId() {
     return sdboxId;
@@ -100,4 +102,13 @@ public class SecureFileSummary {
     this.lastUpdatedTs = lastUpdatedTs;
     return this;
   }
+
+  public String getRevisionId() {
+    return revisionId;
+  }
+
+  public SecureFileSummary setRevisionId(String revisionId) {
+    this.revisionId = revisionId;
+    return this;
+  }
 }
@@ -22,10 +22,11 @@ public class SecureFileSummaryResult {
 
   private boolean hasNext = false;
   private Integer nextOffset = null;
+  private String nextCursor = null;
   private int limit = 0;
   private int offset = 0;
   private int fileCountInResult;
-  private int totalFileCount;
+  private Integer totalFileCount;
   private List<SecureFileSummary> secureFileSummaries;
 
   public boolean isHasNext() {
@@ -46,6 +47,15 @@ public class SecureFileSummaryResult {
     return this;
   }
 
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public SecureFileSummaryResult setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+    return this;
+  }
+
   public int getLimit() {
     return limit;
   }
@@ -73,11 +83,11 @@ public class SecureFileSummaryResult {
     return this;
   }
 
-  public int getTotalFileCount() {
+  public Integer getTotalFileCount() {
     return totalFileCount;
   }
 
-  public SecureFileSummaryResult setTotalFileCount(int totalFileCount) {
+  public SecureFileSummaryResult setTotalFileCount(Integer totalFileCount) {
     this.totalFileCount = totalFileCount;
     return this;
   }
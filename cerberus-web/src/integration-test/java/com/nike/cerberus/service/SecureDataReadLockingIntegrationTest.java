@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.nike.cerberus.dao.SecureDataDao;
+import com.nike.cerberus.domain.Category;
+import com.nike.cerberus.domain.SafeDepositBoxV2;
+import com.nike.cerberus.domain.SecureDataType;
+import com.nike.cerberus.domain.SecureDataVersionsResult;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs against the configured database to show that reading the current version of a secret does
+ * not take a row lock, so version reads neither wait for each other nor for writers.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SecureDataReadLockingIntegrationTest {
+
+  /** Much shorter than the InnoDB lock wait timeout, so a blocked read fails the test */
+  private static final long READ_TIMEOUT_IN_SECONDS = 10;
+
+  private static final String PRINCIPAL = "secure-data-read-locking-test";
+
+  @Autowired private SafeDepositBoxService safeDepositBoxService;
+  @Autowired private CategoryService categoryService;
+  @Autowired private SecureDataDao secureDataDao;
+  @Autowired private SecureDataVersionService secureDataVersionService;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  private TransactionTemplate transactionTemplate;
+  private Category category;
+  private String sdbId;
+  private String path;
+
+  @Before
+  public void before() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    category = categoryService.getAllCategories().get(0);
+
+    SafeDepositBoxV2 sdb =
+        safeDepositBoxService.createSafeDepositBoxV2(
+            SafeDepositBoxV2.Builder.create()
+                .withName("read-locking-" + UUID.randomUUID())
+                .withCategoryId(category.getId())
+                .withOwner(PRINCIPAL)
+                .withUserGroupPermissions(new HashSet<>())
+                .withIamPrincipalPermissions(new HashSet<>())
+                .build(),
+            PRINCIPAL);
+    sdbId = sdb.getId();
+    path = StringUtils.substringAfter(sdb.getPath(), "/") + "secret";
+
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    byte[] ciphertext = "ciphertext".getBytes(StandardCharsets.UTF_8);
+    secureDataDao.writeSecureData(
+        sdbId,
+        path,
+        ciphertext,
+        1,
+        SecureDataType.OBJECT,
+        ciphertext.length,
+        PRINCIPAL,
+        now,
+        PRINCIPAL,
+        now);
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+    safeDepositBoxService.deleteSafeDepositBox(sdbId);
+  }
+
+  @Test
+  public void test_that_version_reads_do_not_block_each_other() throws Exception {
+    assertReadDoesNotWaitWhileTransactionIsOpen(this::readVersionSummaries);
+  }
+
+  @Test
+  public void test_that_version_reads_do_not_wait_for_a_writer_holding_the_row_lock()
+      throws Exception {
+    assertReadDoesNotWaitWhileTransactionIsOpen(
+        () -> assertTrue(secureDataDao.readSecureDataByPathLocking(sdbId, path).isPresent()));
+  }
+
+  /**
+   * Runs the first action in a transaction that is kept open until a version read in a second
+   * transaction has completed.
+   */
+  private void assertReadDoesNotWaitWhileTransactionIsOpen(Runnable firstAction)
+      throws Exception {
+    CountDownLatch firstActionDone = new CountDownLatch(1);
+    CountDownLatch secondReadDone = new CountDownLatch(1);
+
+    Future<Boolean> firstTransaction =
+        executor.submit(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      firstAction.run();
+                      firstActionDone.countDown();
+                      try {
+                        return secondReadDone.await(READ_TIMEOUT_IN_SECONDS * 2, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                      }
+                    }));
+    assertTrue(firstActionDone.await(READ_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+
+    Future<?> secondTransaction =
+        executor.submit(
+            () -> transactionTemplate.executeWithoutResult(status -> readVersionSummaries()));
+    // throws a TimeoutException if the read is waiting on the open transaction
+    secondTransaction.get(READ_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+    secondReadDone.countDown();
+
+    assertTrue(firstTransaction.get(READ_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+  }
+
+  private void readVersionSummaries() {
+    SecureDataVersionsResult result =
+        secureDataVersionService.getSecureDataVersionSummariesByPath(
+            sdbId, path, category.getPath(), 10, 0);
+    assertEquals(1, result.getVersionCountInResult());
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.nike.cerberus.config.ApplicationConfiguration;
+import com.nike.cerberus.domain.SecureDataResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares writing the response of GET /v1/secret by parsing the decrypted secret into a tree with
+ * a new ObjectMapper and serializing the tree again, against writing the secret verbatim as a raw
+ * value, see cerberus.secureData.rawResponse.enabled. Both write the envelope with the application
+ * ObjectMapper to a discarding stream, as the message converter would to the response. Run with
+ * -PjmhProfilers=gc to also compare the allocations per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecureDataResponseBenchmark {
+
+  /** The size of the secret in bytes, from 1 KB to 1 MB */
+  @Param({"1024", "16384", "131072", "1048576"})
+  private int secretSize;
+
+  private final ObjectMapper applicationObjectMapper = ApplicationConfiguration.getObjectMapper();
+  /** Discards the response, unlike OutputStream.nullOutputStream() also once it was closed */
+  private final OutputStream response =
+      new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+      };
+  private final Map<String, String> metadata =
+      Map.of(
+          "created_by", "user",
+          "created_ts", "2020-03-04T05:06:07.089Z",
+          "last_updated_by", "user",
+          "last_updated_ts", "2020-03-04T05:06:07.089Z");
+
+  private String secret;
+
+  @Setup
+  public void setup() {
+    StringBuilder secret = new StringBuilder("{");
+    for (int i = 0; secret.length() < secretSize; i++) {
+      secret.append(i == 0 ? "" : ",").append("\"key-").append(i).append("\":\"");
+      ThreadLocalRandom.current()
+          .ints(100, 'a', 'z' + 1)
+          .forEach(character -> secret.append((char) character));
+      secret.append('"');
+    }
+    this.secret = secret.append('}').toString();
+  }
+
+  @Benchmark
+  public void reparse() throws IOException {
+    writeResponse(new ObjectMapper().readTree(secret));
+  }
+
+  @Benchmark
+  public void rawValue() throws IOException {
+    writeResponse(new RawValue(secret));
+  }
+
+  private void writeResponse(Object data) throws IOException {
+    SecureDataResponse secureDataResponse = new SecureDataResponse();
+    secureDataResponse.setRequestId(UUID.randomUUID().toString());
+    secureDataResponse.setMetadata(metadata);
+    secureDataResponse.setData(data);
+    applicationObjectMapper.writeValue(response, secureDataResponse);
+  }
+}
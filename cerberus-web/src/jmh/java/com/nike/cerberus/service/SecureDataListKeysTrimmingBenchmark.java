@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import com.codahale.metrics.Slf4jReporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nike.cerberus.dao.SecureDataDao;
+import com.nike.cerberus.domain.SecureDataType;
+import com.nike.cerberus.metric.LoggingMetricsService;
+import com.nike.cerberus.metric.MetricsService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures only the in-JVM part of listing the keys of a folder in a 50k secret SDB: trimming every
+ * path below the folder down to the direct children, against taking the direct children as read
+ * from the path tree.
+ *
+ * <p><b>The database side is NOT measured.</b> SecureDataDao is replaced with a stub that answers
+ * from memory with the rows each query would return, so neither the PATH LIKE scan of SECURE_DATA
+ * nor the SECURE_DATA_PATH_NODE query is executed, and the results say nothing about how long
+ * MySQL takes to read and send the rows. Comparing the two listing queries needs a run against a
+ * real MySQL schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecureDataListKeysTrimmingBenchmark {
+
+  private static final String SDB_PATH = "bench-sdb/";
+
+  /** 50 folders of 1,000 secrets each, listing the SDB returns the 50 folders */
+  @Param({"50"})
+  private int folders;
+
+  @Param({"1000"})
+  private int secretsPerFolder;
+
+  private SecureDataService likeScan;
+  private SecureDataService pathTree;
+
+  @Setup
+  public void setup() {
+    List<String> paths = new ArrayList<>();
+    Set<String> childNames = new LinkedHashSet<>();
+    for (int folder = 0; folder < folders; folder++) {
+      for (int secret = 0; secret < secretsPerFolder; secret++) {
+        paths.add(String.format("%sfolder-%d/secret-%d", SDB_PATH, folder, secret));
+      }
+      childNames.add(String.format("folder-%d/", folder));
+    }
+    SecureDataDao secureDataDao =
+        new InMemorySecureDataDao(paths.toArray(new String[0]), childNames.toArray(new String[0]));
+
+    MetricsService metricsService =
+        new LoggingMetricsService(Slf4jReporter.LoggingLevel.DEBUG, 1, TimeUnit.HOURS);
+    likeScan = newSecureDataService(secureDataDao, metricsService, false);
+    pathTree = newSecureDataService(secureDataDao, metricsService, true);
+  }
+
+  @Benchmark
+  public Set<String> likeScan() {
+    return likeScan.listKeys("sdb-id", SDB_PATH);
+  }
+
+  @Benchmark
+  public Set<String> pathTree() {
+    return pathTree.listKeys("sdb-id", SDB_PATH);
+  }
+
+  private static SecureDataService newSecureDataService(
+      SecureDataDao secureDataDao, MetricsService metricsService, boolean pathTreeEnabled) {
+    return new SecureDataService(
+        secureDataDao,
+        null,
+        new ObjectMapper(),
+        null,
+        null,
+        metricsService,
+        pathTreeEnabled,
+        null,
+        1000,
+        null,
+        false,
+        null);
+  }
+
+  /** A stub that returns the rows the two listing queries would return for the SDB folder */
+  private static class InMemorySecureDataDao extends SecureDataDao {
+
+    private final String[] paths;
+    private final String[] childNames;
+
+    InMemorySecureDataDao(String[] paths, String[] childNames) {
+      super(null);
+      this.paths = paths;
+      this.childNames = childNames;
+    }
+
+    @Override
+    public String[] getPathsByPartialPathAndType(
+        String sdbId, String partialPath, SecureDataType type) {
+      return paths.clone();
+    }
+
+    @Override
+    public String[] getPathTreeChildNames(String sdbId, String parentPath, SecureDataType type) {
+      return childNames.clone();
+    }
+  }
+}
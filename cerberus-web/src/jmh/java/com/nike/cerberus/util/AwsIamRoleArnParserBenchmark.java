@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the ARN work done by a single IAM permission check (root ARN, assumed-role check and
+ * role ARN) when run through the DomainConstants regexes, through a fresh single-pass scan and
+ * through the memoized parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AwsIamRoleArnParserBenchmark {
+
+  @Param({
+    "arn:aws:iam::1111111111:role/lamb_dev_health",
+    "arn:aws:sts::2222222222:assumed-role/sir/alfred/role/session-name"
+  })
+  private String arn;
+
+  private AwsIamRoleArnParser awsIamRoleArnParser;
+
+  @Setup
+  public void setup() {
+    awsIamRoleArnParser = new AwsIamRoleArnParser(true, false);
+  }
+
+  @Benchmark
+  public void regex(Blackhole blackhole) {
+    blackhole.consume(awsIamRoleArnParser.convertPrincipalArnToRootArn(arn));
+    if (awsIamRoleArnParser.isAssumedRoleArn(arn)) {
+      blackhole.consume(awsIamRoleArnParser.convertPrincipalArnToRoleArn(arn));
+    }
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    permissionCheck(AwsIamPrincipalArn.parse(arn), blackhole);
+  }
+
+  @Benchmark
+  public void memoized(Blackhole blackhole) {
+    permissionCheck(awsIamRoleArnParser.parse(arn), blackhole);
+  }
+
+  private void permissionCheck(AwsIamPrincipalArn principalArn, Blackhole blackhole) {
+    blackhole.consume(awsIamRoleArnParser.convertPrincipalArnToRootArn(principalArn));
+    if (principalArn.isAssumedRoleArn()) {
+      blackhole.consume(awsIamRoleArnParser.convertPrincipalArnToRoleArn(principalArn));
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import static com.nike.cerberus.util.TokenHasher.HMAC_SHA256_HASH_VERSION;
+import static com.nike.cerberus.util.TokenHasher.PBKDF2_HASH_VERSION;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the cost of the legacy PBKDF2 token hash against the HMAC-SHA256 token hash, using the
+ * default settings from cerberus.yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenHasherBenchmark {
+
+  private TokenHasher tokenHasher;
+  private String token;
+
+  @Setup
+  public void setup() throws Exception {
+    byte[] salt = new byte[64];
+    new SecureRandom().nextBytes(salt);
+    tokenHasher =
+        new TokenHasher(
+            Base64.getEncoder().encodeToString(salt),
+            "PBKDF2WithHmacSHA512",
+            256,
+            100,
+            HMAC_SHA256_HASH_VERSION);
+    token = new AuthTokenGenerator(64).generateSecureToken();
+  }
+
+  @Benchmark
+  public String pbkdf2() {
+    return tokenHasher.hashToken(token, PBKDF2_HASH_VERSION);
+  }
+
+  @Benchmark
+  public String hmacSha256() {
+    return tokenHasher.hashToken(token, HMAC_SHA256_HASH_VERSION);
+  }
+}
@@ -16,23 +16,190 @@
 
 package com.nike.cerberus.aws.sts;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.hash.Hashing;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.util.DateTimeSupplier;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-/** Client for calling AWS STS APIs */
+/**
+ * Client for calling AWS STS APIs
+ *
+ * <p>When the caller identity cache is enabled, identical signed requests that arrive at the same
+ * time share a single call to STS, and the result is cached for as long as the signature is valid,
+ * so that clients that retry or fan out with the same signed headers only cost one STS round trip.
+ *
+ * <p>STS is called without blocking, see {@link AwsStsHttpClient}.
+ */
+@Slf4j
 @Component
 public class AwsStsClient {
+
+  /** STS rejects signed requests with an x-amz-date that is more than 15 minutes old */
+  static final Duration SIGNATURE_VALIDITY = Duration.ofMinutes(15);
+
+  private static final DateTimeFormatter AMZ_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
   private final AwsStsHttpClient httpClient;
+  private final DateTimeSupplier dateTimeSupplier;
+  private final boolean cacheEnabled;
+  private final Cache<String, GetCallerIdentityResponse> callerIdentityCache;
+  private final Map<String, CompletableFuture<GetCallerIdentityResponse>> inFlightRequests =
+      new ConcurrentHashMap<>();
+  private final Histogram latencyHistogram;
+  private final Counter requestCounter;
+  private final Counter coalescedRequestCounter;
 
   @Autowired
-  public AwsStsClient(AwsStsHttpClient httpClient) {
+  public AwsStsClient(
+      AwsStsHttpClient httpClient,
+      DateTimeSupplier dateTimeSupplier,
+      MetricsService metricsService,
+      @Value("${cerberus.auth.iam.sts.cache.enabled:#{false}}") boolean cacheEnabled,
+      Cache<String, GetCallerIdentityResponse> callerIdentityCache) {
     this.httpClient = httpClient;
+    this.dateTimeSupplier = dateTimeSupplier;
+    this.cacheEnabled = cacheEnabled;
+    this.callerIdentityCache = callerIdentityCache;
+
+    latencyHistogram =
+        metricsService.getOrCreateHistogram("cms.auth.sts.getCallerIdentity.latencyInMillis", null);
+    requestCounter =
+        metricsService.getOrCreateCounter("cms.auth.sts.getCallerIdentity.requests", null);
+    coalescedRequestCounter =
+        metricsService.getOrCreateCounter("cms.auth.sts.getCallerIdentity.coalesced", null);
   }
 
   public GetCallerIdentityResponse getCallerIdentity(AwsStsHttpHeader header) {
-    GetCallerIdentityFullResponse response =
-        httpClient.execute(
-            header.getRegion(), header.generateHeaders(), GetCallerIdentityFullResponse.class);
-    return response.getGetCallerIdentityResponse();
+    try {
+      return getCallerIdentityAsync(header).join();
+    } catch (CompletionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  /**
+   * Calls STS without blocking the calling thread.
+   *
+   * @return Future that completes with the caller identity, or exceptionally with an ApiException
+   */
+  public CompletableFuture<GetCallerIdentityResponse> getCallerIdentityAsync(
+      AwsStsHttpHeader header) {
+    requestCounter.inc();
+    if (!cacheEnabled || !isSignatureValid(header)) {
+      // let STS decide what to do with requests that we can't tell are still valid
+      return executeGetCallerIdentity(header);
+    }
+
+    String key = getCacheKey(header);
+    GetCallerIdentityResponse cachedResponse = callerIdentityCache.getIfPresent(key);
+    if (cachedResponse != null) {
+      return CompletableFuture.completedFuture(cachedResponse);
+    }
+
+    CompletableFuture<GetCallerIdentityResponse> future = new CompletableFuture<>();
+    CompletableFuture<GetCallerIdentityResponse> inFlightRequest =
+        inFlightRequests.putIfAbsent(key, future);
+    if (inFlightRequest != null) {
+      coalescedRequestCounter.inc();
+      // a copy, so that one caller cancelling does not affect the others
+      return inFlightRequest.copy();
+    }
+
+    executeGetCallerIdentity(header)
+        .whenComplete(
+            (response, throwable) -> {
+              if (throwable == null) {
+                callerIdentityCache.put(key, response);
+              }
+              inFlightRequests.remove(key, future);
+              if (throwable == null) {
+                future.complete(response);
+              } else {
+                // failures are shared with the coalesced requests but never cached
+                future.completeExceptionally(unwrap(throwable));
+              }
+            });
+    return future.copy();
+  }
+
+  private CompletableFuture<GetCallerIdentityResponse> executeGetCallerIdentity(
+      AwsStsHttpHeader header) {
+    long start = System.currentTimeMillis();
+    CompletableFuture<GetCallerIdentityFullResponse> response;
+    try {
+      response =
+          httpClient.executeAsync(
+              header.getRegion(), header.generateHeaders(), GetCallerIdentityFullResponse.class);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    return response
+        .whenComplete(
+            (fullResponse, throwable) ->
+                latencyHistogram.update(System.currentTimeMillis() - start))
+        .thenApply(GetCallerIdentityFullResponse::getGetCallerIdentityResponse);
+  }
+
+  /** Futures wrap the exceptions of dependent stages in CompletionExceptions */
+  public static RuntimeException unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      throwable = throwable.getCause();
+    }
+    return throwable instanceof RuntimeException
+        ? (RuntimeException) throwable
+        : new CompletionException(throwable);
+  }
+
+  /**
+   * Cached responses are only served to requests whose signature STS would still accept, since the
+   * x-amz-date is part of the cache key this also bounds how long an entry can be served.
+   */
+  private boolean isSignatureValid(AwsStsHttpHeader header) {
+    return getSignatureExpiration(header)
+        .map(expiration -> expiration.isAfter(dateTimeSupplier.get()))
+        .orElse(false);
+  }
+
+  private Optional<OffsetDateTime> getSignatureExpiration(AwsStsHttpHeader header) {
+    try {
+      return Optional.of(
+          LocalDateTime.parse(header.getAmzDate(), AMZ_DATE_FORMAT)
+              .atOffset(ZoneOffset.UTC)
+              .plus(SIGNATURE_VALIDITY));
+    } catch (DateTimeParseException e) {
+      log.debug("Failed to parse x-amz-date header: {}", header.getAmzDate());
+      return Optional.empty();
+    }
+  }
+
+  /** A digest of the signed headers, so that the signatures and tokens are not kept in memory */
+  private String getCacheKey(AwsStsHttpHeader header) {
+    String signedHeaders =
+        String.join(
+            "\n",
+            header.getAuthorization(),
+            header.getAmzDate(),
+            Optional.ofNullable(header.getAmzSecurityToken()).orElse(""));
+    return Hashing.sha256().hashString(signedHeaders, StandardCharsets.UTF_8).toString();
   }
 }
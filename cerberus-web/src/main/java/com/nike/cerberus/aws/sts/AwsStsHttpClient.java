@@ -16,21 +16,40 @@
 
 package com.nike.cerberus.aws.sts;
 
+import com.codahale.metrics.Counter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.nike.backstopper.exception.ApiException;
 import com.nike.cerberus.error.DefaultApiError;
+import com.nike.cerberus.metric.MetricsService;
 import com.nike.cerberus.util.CustomApiError;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.stereotype.Component;
 
-/** A HttpClient for interacting with AWS STS */
+/**
+ * A non-blocking HttpClient for interacting with AWS STS
+ *
+ * <p>Requests are executed asynchronously so that no thread is held while waiting on STS. Each
+ * region gets its own bounded connection pool and a bulkhead that rejects requests once too many
+ * are outstanding for the region, and retries are scheduled on a timer rather than sleeping.
+ */
 @Slf4j
 @Component
 public class AwsStsHttpClient {
@@ -47,42 +66,148 @@ public class AwsStsHttpClient {
   private static final int DEFAULT_RETRY_INTERVAL_IN_MILLIS = 250;
   private static final int DEFAULT_TIMEOUT = 15;
   private static final TimeUnit DEFAULT_TIMEOUT_UNIT = TimeUnit.SECONDS;
+  private static final long CONNECTION_KEEP_ALIVE_IN_MINUTES = 5;
+  private static final String LOCAL_PROFILE = "local";
   private final OkHttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final int maxIdleConnectionsPerRegion;
+  private final int maxConcurrentRequestsPerRegion;
+  private final String endpointOverride;
+  private final Map<String, OkHttpClient> regionHttpClients = new ConcurrentHashMap<>();
+  private final Map<String, Semaphore> regionBulkheads = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService retryScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("sts-retry-%d").setDaemon(true).build());
+  private final Counter retryCounter;
+  private final Counter bulkheadRejectionCounter;
 
-  public AwsStsHttpClient() {
-    objectMapper = new ObjectMapper();
-    objectMapper.findAndRegisterModules();
-    objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.UPPER_CAMEL_CASE);
-    objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
-    httpClient =
-        new OkHttpClient.Builder()
-            .connectTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
-            .writeTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
-            .readTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
-            .build();
+  /**
+   * @param maxRequests The max number of requests in flight to STS across all regions
+   * @param maxRequestsPerRegion The max number of requests in flight to STS in a single region,
+   *     additional requests are queued until a request completes
+   * @param maxIdleConnectionsPerRegion The max number of idle connections kept open to STS in a
+   *     single region
+   * @param maxConcurrentRequestsPerRegion The max number of in flight and queued requests for a
+   *     single region, additional requests are rejected
+   * @param endpointOverride When set, all requests are sent to this endpoint instead of the
+   *     regional STS endpoints, e.g. to load test against a local stand-in for STS. Only honored
+   *     when the local profile is active, so that a deployed CMS always authenticates against STS
+   */
+  @Autowired
+  public AwsStsHttpClient(
+      MetricsService metricsService,
+      @Value("${cerberus.auth.iam.sts.client.maxRequests:#{256}}") int maxRequests,
+      @Value("${cerberus.auth.iam.sts.client.maxRequestsPerRegion:#{64}}")
+          int maxRequestsPerRegion,
+      @Value("${cerberus.auth.iam.sts.client.maxIdleConnectionsPerRegion:#{16}}")
+          int maxIdleConnectionsPerRegion,
+      @Value("${cerberus.auth.iam.sts.client.maxConcurrentRequestsPerRegion:#{512}}")
+          int maxConcurrentRequestsPerRegion,
+      @Value("${cerberus.auth.iam.sts.client.endpointOverride:#{null}}") String endpointOverride,
+      Environment environment) {
+    this(
+        createHttpClient(maxRequests, maxRequestsPerRegion),
+        createObjectMapper(),
+        metricsService,
+        maxIdleConnectionsPerRegion,
+        maxConcurrentRequestsPerRegion,
+        getLocalEndpointOverride(endpointOverride, environment));
   }
 
-  public AwsStsHttpClient(OkHttpClient httpClient, ObjectMapper objectMapper) {
+  public AwsStsHttpClient(
+      OkHttpClient httpClient,
+      ObjectMapper objectMapper,
+      MetricsService metricsService,
+      int maxIdleConnectionsPerRegion,
+      int maxConcurrentRequestsPerRegion,
+      String endpointOverride) {
     this.httpClient = httpClient;
     this.objectMapper = objectMapper;
+    this.maxIdleConnectionsPerRegion = maxIdleConnectionsPerRegion;
+    this.maxConcurrentRequestsPerRegion = maxConcurrentRequestsPerRegion;
+    this.endpointOverride = endpointOverride;
+
+    retryCounter = metricsService.getOrCreateCounter("cms.auth.sts.retries", null);
+    bulkheadRejectionCounter =
+        metricsService.getOrCreateCounter("cms.auth.sts.bulkheadRejections", null);
+  }
+
+  private static String getLocalEndpointOverride(String endpointOverride, Environment environment) {
+    if (endpointOverride == null || environment.acceptsProfiles(Profiles.of(LOCAL_PROFILE))) {
+      return endpointOverride;
+    }
+    log.warn("Ignoring cerberus.auth.iam.sts.client.endpointOverride, it is only honored locally");
+    return null;
+  }
+
+  private static OkHttpClient createHttpClient(int maxRequests, int maxRequestsPerRegion) {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxRequests);
+    // each region is a different host
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerRegion);
+
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
+        .writeTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
+        .readTimeout(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT_UNIT)
+        .build();
+  }
+
+  private static ObjectMapper createObjectMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.findAndRegisterModules();
+    objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.UPPER_CAMEL_CASE);
+    objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    return objectMapper;
   }
 
   /**
-   * Executes the HTTP request based on the input parameters.
+   * Executes the HTTP request based on the input parameters without blocking.
    *
    * @param region The region to call sts get caller identity in.
    * @param headers HTTP Headers to include in the request
    * @param responseClass The class of the response object
-   * @return Response from the server
+   * @return Future that completes with the response from the server, or exceptionally with an
+   *     ApiException
    */
-  public <M> M execute(
+  public <M> CompletableFuture<M> executeAsync(
       final String region, final Map<String, String> headers, final Class<M> responseClass) {
+    Semaphore bulkhead =
+        regionBulkheads.computeIfAbsent(
+            region, key -> new Semaphore(maxConcurrentRequestsPerRegion));
+    if (!bulkhead.tryAcquire()) {
+      bulkheadRejectionCounter.inc();
+      final String msg =
+          String.format("Too many concurrent requests to AWS STS in region: %s", region);
+      return CompletableFuture.failedFuture(
+          ApiException.newBuilder()
+              .withApiErrors(
+                  CustomApiError.createCustomApiError(DefaultApiError.SERVICE_UNAVAILABLE, msg))
+              .withExceptionMessage(msg)
+              .build());
+    }
+
+    CompletableFuture<M> future;
+    try {
+      future =
+          executeRequestWithRetry(
+                  getHttpClient(region),
+                  buildRequest(region, headers),
+                  DEFAULT_AUTH_RETRIES,
+                  DEFAULT_RETRY_INTERVAL_IN_MILLIS)
+              .thenApply(response -> handleResponse(response, responseClass));
+    } catch (RuntimeException e) {
+      bulkhead.release();
+      throw e;
+    }
+    future.whenComplete((response, throwable) -> bulkhead.release());
+    return future;
+  }
+
+  /** Maps the response to the response class, or to an ApiException for error responses */
+  protected <M> M handleResponse(final Response response, final Class<M> responseClass) {
     try {
-      Request request = buildRequest(region, headers);
-      Response response =
-          executeRequestWithRetry(request, DEFAULT_AUTH_RETRIES, DEFAULT_RETRY_INTERVAL_IN_MILLIS);
       if (response.code() >= 400 && response.code() < 500) {
         ApiException.Builder builder = ApiException.newBuilder();
 
@@ -116,10 +241,27 @@ public class AwsStsHttpClient {
     }
   }
 
+  /** Each region gets its own connection pool, while sharing the dispatcher and settings */
+  private OkHttpClient getHttpClient(String region) {
+    return regionHttpClients.computeIfAbsent(
+        region,
+        key ->
+            httpClient
+                .newBuilder()
+                .connectionPool(
+                    new ConnectionPool(
+                        maxIdleConnectionsPerRegion,
+                        CONNECTION_KEEP_ALIVE_IN_MINUTES,
+                        TimeUnit.MINUTES))
+                .build());
+  }
+
   /** Build the request */
   protected Request buildRequest(String region, Map<String, String> headers) {
     String stsEndpointUrl;
-    if (region.startsWith("cn-")) {
+    if (endpointOverride != null) {
+      stsEndpointUrl = endpointOverride;
+    } else if (region.startsWith("cn-")) {
       stsEndpointUrl = String.format(AWS_CN_STS_ENDPOINT_TEMPLATE, region);
     } else {
       stsEndpointUrl = String.format(AWS_STS_ENDPOINT_TEMPLATE, region);
@@ -175,46 +317,79 @@ public class AwsStsHttpClient {
   }
 
   /**
-   * Executes an HTTP request and retries if a 500 level error is returned
+   * Executes an HTTP request without blocking and retries if a 500 level error is returned, the
+   * retries are scheduled with exponential backoff.
    *
+   * @param client The client to execute the request with
    * @param request The request to execute
-   * @param numRetries The maximum number of times to retry
-   * @param sleepIntervalInMillis Time in milliseconds to sleep between retries. Zero for no sleep.
-   * @return Any HTTP response with status code below 500, or the last error response if only 500's
-   *     are returned
-   * @throws IOException If an IOException occurs during the last retry, then rethrow the error
+   * @param numRetries The maximum number of attempts
+   * @param retryIntervalInMillis Time in milliseconds to wait before the first retry, doubled for
+   *     each subsequent retry
+   * @return Future that completes with any HTTP response with status code below 500, or the last
+   *     error response if only 500's are returned, or exceptionally with an ApiException if an
+   *     IOException occurs during the last attempt
    */
-  protected Response executeRequestWithRetry(
-      Request request, int numRetries, int sleepIntervalInMillis) throws IOException {
-    IOException exception = null;
-    Response response = null;
-    for (int retryNumber = 0; retryNumber < numRetries; retryNumber++) {
-      try {
-        response = httpClient.newCall(request).execute();
-        if (response.code() < 500) {
-          return response;
-        }
-      } catch (IOException ioe) {
-        log.debug(
-            String.format("Failed to call %s %s. Retrying...", request.method(), request.url()),
-            ioe);
-        exception = ioe;
-      }
-      sleep(sleepIntervalInMillis * (long) Math.pow(2, retryNumber));
-    }
+  protected CompletableFuture<Response> executeRequestWithRetry(
+      OkHttpClient client, Request request, int numRetries, int retryIntervalInMillis) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    executeAttempt(client, request, 0, numRetries, retryIntervalInMillis, future);
+    return future;
+  }
 
-    if (exception != null) {
-      throw exception;
-    } else {
-      return response;
-    }
+  private void executeAttempt(
+      OkHttpClient client,
+      Request request,
+      int retryNumber,
+      int numRetries,
+      int retryIntervalInMillis,
+      CompletableFuture<Response> future) {
+    boolean isLastAttempt = retryNumber + 1 >= numRetries;
+    client
+        .newCall(request)
+        .enqueue(
+            new Callback() {
+              @Override
+              public void onResponse(Call call, Response response) {
+                if (response.code() < 500 || isLastAttempt) {
+                  future.complete(response);
+                } else {
+                  response.close();
+                  scheduleRetry();
+                }
+              }
+
+              @Override
+              public void onFailure(Call call, IOException ioe) {
+                if (isLastAttempt) {
+                  future.completeExceptionally(toApiException(ioe));
+                } else {
+                  log.debug(
+                      String.format(
+                          "Failed to call %s %s. Retrying...", request.method(), request.url()),
+                      ioe);
+                  scheduleRetry();
+                }
+              }
+
+              private void scheduleRetry() {
+                retryCounter.inc();
+                retryScheduler.schedule(
+                    () ->
+                        executeAttempt(
+                            client,
+                            request,
+                            retryNumber + 1,
+                            numRetries,
+                            retryIntervalInMillis,
+                            future),
+                    retryIntervalInMillis * (long) Math.pow(2, retryNumber),
+                    TimeUnit.MILLISECONDS);
+              }
+            });
   }
 
-  private void sleep(long milliseconds) {
-    try {
-      TimeUnit.MILLISECONDS.sleep(milliseconds);
-    } catch (InterruptedException ie) {
-      log.warn("Sleep interval interrupted.", ie);
-    }
+  @PreDestroy
+  public void executeServerShutdownHook() {
+    retryScheduler.shutdownNow();
   }
 }
@@ -20,6 +20,7 @@ import static com.github.benmanes.caffeine.cache.Caffeine.newBuilder;
 
 import com.codahale.metrics.Counter;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.nike.cerberus.metric.MetricsService;
@@ -48,12 +49,31 @@ public class MetricReportingCache<K, V> implements Cache<K, V> {
       int expireTimeInSeconds,
       MetricsService metricsService,
       Map<String, String> dimensions) {
+    this(namespace, expireTimeInSeconds, -1, metricsService, dimensions);
+  }
+
+  /**
+   * @param maxSize The maximum number of entries to hold before evicting, a negative value means
+   *     the cache is unbounded
+   */
+  public MetricReportingCache(
+      String namespace,
+      int expireTimeInSeconds,
+      long maxSize,
+      MetricsService metricsService,
+      Map<String, String> dimensions) {
     log.info(
-        "Cerberus cache with namespace: {} has been initialized with ttl: {}",
+        "Cerberus cache with namespace: {} has been initialized with ttl: {}, maxSize: {}",
         namespace,
-        expireTimeInSeconds);
+        expireTimeInSeconds,
+        maxSize);
 
-    delegate = newBuilder().expireAfterWrite(expireTimeInSeconds, TimeUnit.SECONDS).build();
+    Caffeine<Object, Object> builder =
+        newBuilder().expireAfterWrite(expireTimeInSeconds, TimeUnit.SECONDS);
+    if (maxSize >= 0) {
+      builder.maximumSize(maxSize);
+    }
+    delegate = builder.build();
 
     // Create Metrics for this cache.
     hitCounter =
@@ -63,6 +83,8 @@ public class MetricReportingCache<K, V> implements Cache<K, V> {
             String.format("cms.cache.%s.miss", namespace), dimensions);
     metricsService.getOrCreateCallbackGauge(
         String.format("cms.cache.%s.size", namespace), () -> delegate.estimatedSize(), dimensions);
+    metricsService.getOrCreateCallbackGauge(
+        String.format("cms.cache.%s.hitRatio", namespace), this::getHitRatio, dimensions);
     metricsService.getOrCreateCallbackGauge(
         String.format("cms.cache.%s.stats.totalHitCount", namespace),
         () -> delegate.stats().hitCount(),
@@ -73,6 +95,13 @@ public class MetricReportingCache<K, V> implements Cache<K, V> {
         dimensions);
   }
 
+  /** @return The share of lookups since startup that were hits, 0 when there were none */
+  private double getHitRatio() {
+    long hits = hitCounter.getCount();
+    long lookups = hits + missCounter.getCount();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
   @Override
   public V getIfPresent(Object key) {
     V value = delegate.getIfPresent(key);
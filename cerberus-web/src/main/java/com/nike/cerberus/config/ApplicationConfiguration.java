@@ -33,18 +33,31 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.nike.backstopper.apierror.projectspecificinfo.ProjectApiErrors;
+import com.nike.backstopper.exception.ApiException;
 import com.nike.backstopper.handler.spring.SpringApiExceptionHandler;
+import com.nike.cerberus.aws.sts.GetCallerIdentityResponse;
 import com.nike.cerberus.cache.MetricReportingCache;
 import com.nike.cerberus.cache.MetricReportingCryptoMaterialsCache;
 import com.nike.cerberus.domain.AwsIamKmsAuthRequest;
+import com.nike.cerberus.domain.CerberusAuthToken;
 import com.nike.cerberus.domain.EncryptedAuthDataWrapper;
+import com.nike.cerberus.domain.SafeDepositBoxSummary;
+import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.error.DefaultApiErrorsImpl;
 import com.nike.cerberus.metric.LoggingMetricsService;
 import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.AwsIamRoleRecord;
 import com.nike.cerberus.security.RequestWasNotAuthenticatedEntryPoint;
+import com.nike.cerberus.util.CustomApiError;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import javax.servlet.FilterChain;
@@ -140,6 +153,104 @@ public class ApplicationConfiguration {
     return new MetricReportingCache<>("auth.kms", maxAge, metricsService, null);
   }
 
+  @Bean
+  public Cache<String, CerberusAuthToken> authTokenCache(
+      MetricsService metricsService,
+      @Value("${cerberus.auth.token.cache.maxAgeInSeconds:60}") int maxAge,
+      @Value("${cerberus.auth.token.cache.maxSize:10000}") long maxSize) {
+
+    return new MetricReportingCache<>("auth.token", maxAge, maxSize, metricsService, null);
+  }
+
+  @Bean
+  public Cache<String, Optional<AwsIamRoleRecord>> iamPrincipalCache(
+      MetricsService metricsService,
+      @Value("${cerberus.auth.iam.principalCache.maxAgeInSeconds:60}") int maxAge,
+      @Value("${cerberus.auth.iam.principalCache.maxSize:10000}") long maxSize) {
+
+    return new MetricReportingCache<>("auth.iam.principal", maxAge, maxSize, metricsService, null);
+  }
+
+  @Bean
+  public Cache<String, GetCallerIdentityResponse> stsCallerIdentityCache(
+      MetricsService metricsService,
+      @Value("${cerberus.auth.iam.sts.cache.maxAgeInSeconds:60}") int maxAge,
+      @Value("${cerberus.auth.iam.sts.cache.maxSize:10000}") long maxSize) {
+
+    return new MetricReportingCache<>("auth.sts", maxAge, maxSize, metricsService, null);
+  }
+
+  @Bean
+  public Cache<String, Boolean> unknownSdbPathCache(
+      MetricsService metricsService,
+      @Value("${cerberus.sdb.pathIndex.unknownPathMaxAgeInSeconds:10}") int maxAge,
+      @Value("${cerberus.sdb.pathIndex.unknownPathMaxSize:10000}") long maxSize) {
+
+    return new MetricReportingCache<>("sdb.path.unknown", maxAge, maxSize, metricsService, null);
+  }
+
+  @Bean
+  public Cache<String, List<SafeDepositBoxSummary>> associatedSdbCache(
+      MetricsService metricsService,
+      @Value("${cerberus.sdb.associatedSdbCache.maxAgeInSeconds:10}") int maxAge,
+      @Value("${cerberus.sdb.associatedSdbCache.maxSize:10000}") long maxSize) {
+
+    return new MetricReportingCache<>("sdb.associated", maxAge, maxSize, metricsService, null);
+  }
+
+  /**
+   * Issues the tokens for sts-identity authentications once STS has responded, so that the servlet
+   * threads are not held while waiting on STS. Authentications that can not be queued are rejected
+   * with a 503.
+   */
+  @Bean(name = "stsAuthenticationExecutor", destroyMethod = "shutdown")
+  public ExecutorService stsAuthenticationExecutor(
+      @Value("${cerberus.auth.iam.sts.authenticationThreads:#{32}}") int authenticationThreads,
+      @Value("${cerberus.auth.iam.sts.authenticationQueueSize:#{1000}}")
+          int authenticationQueueSize) {
+
+    return createBoundedExecutor(
+        "sts-authentication-%d", authenticationThreads, authenticationQueueSize);
+  }
+
+  /**
+   * Decrypts the secrets of bulk reads in parallel, bounded so that a single bulk read cannot
+   * starve the servlet threads of KMS and CPU time. Bulk reads that can not be queued are rejected
+   * with a 503.
+   */
+  @Bean(name = "secretDecryptionExecutor", destroyMethod = "shutdown")
+  public ExecutorService secretDecryptionExecutor(
+      @Value("${cerberus.secureData.bulkRead.decryptionThreads:#{16}}") int decryptionThreads,
+      @Value("${cerberus.secureData.bulkRead.decryptionQueueSize:#{10000}}")
+          int decryptionQueueSize) {
+
+    return createBoundedExecutor("secret-decryption-%d", decryptionThreads, decryptionQueueSize);
+  }
+
+  /**
+   * A fixed size pool with a bounded queue, tasks submitted once the queue is full are rejected
+   * with an ApiException that maps to a 503 rather than queueing without bound.
+   */
+  private static ThreadPoolExecutor createBoundedExecutor(
+      String nameFormat, int threads, int queueSize) {
+
+    return new ThreadPoolExecutor(
+        threads,
+        threads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+        (runnable, executor) -> {
+          String msg = String.format("Too many queued tasks for %s", nameFormat);
+          throw ApiException.newBuilder()
+              .withApiErrors(
+                  CustomApiError.createCustomApiError(DefaultApiError.SERVICE_UNAVAILABLE, msg))
+              .withExceptionMessage(msg)
+              .build();
+        });
+  }
+
   @Bean
   public Region currentRegion() {
     // TODO, this adds a long wait to app boot when local, spring way to avoid this when env =
@@ -40,6 +40,15 @@ public class LambdaFilter extends OncePerRequestFilter {
     shouldDoChainBefore = false;
   }
 
+  /**
+   * When the chain is done before the function and the request uses servlet async processing, the
+   * function is applied once the async dispatch completes instead of the initial dispatch.
+   */
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return !shouldDoChainBefore;
+  }
+
   @Override
   protected void doFilterInternal(
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -55,6 +64,9 @@ public class LambdaFilter extends OncePerRequestFilter {
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     filterChain.doFilter(request, response);
+    if (isAsyncStarted(request)) {
+      return;
+    }
     function.accept(request, response);
   }
 
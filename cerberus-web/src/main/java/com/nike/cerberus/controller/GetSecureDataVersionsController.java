@@ -55,7 +55,10 @@ public class GetSecureDataVersionsController {
   @RequestMapping(value = "/**", method = GET)
   public SecureDataVersionsResult getVersionPathsForSdb(
       @RequestParam(value = "limit", required = false, defaultValue = "100") int limit,
-      @RequestParam(value = "offset", required = false, defaultValue = "0") int offset) {
+      @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "includeTotalCount", required = false, defaultValue = "true")
+          boolean includeTotalCount) {
 
     var result =
         secureDataVersionService.getSecureDataVersionSummariesByPath(
@@ -63,7 +66,9 @@ public class GetSecureDataVersionsController {
             sdbAccessRequest.getPath(),
             sdbAccessRequest.getCategory(),
             limit,
-            offset);
+            offset,
+            cursor,
+            includeTotalCount);
 
     if (result.getSecureDataVersionSummaries().isEmpty()) {
       auditLoggingFilterDetails.setAction(
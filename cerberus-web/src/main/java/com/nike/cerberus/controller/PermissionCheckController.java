@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.controller;
+
+import static com.nike.cerberus.security.CerberusPrincipal.ROLE_USER;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+import com.nike.cerberus.domain.SecureDataPermissionCheckRequest;
+import com.nike.cerberus.domain.SecureDataPermissionCheckResponse;
+import com.nike.cerberus.security.CerberusPrincipal;
+import com.nike.cerberus.service.PermissionValidationService;
+import javax.annotation.security.RolesAllowed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Lets a principal check whether it may read, write or delete many secure data paths in a single
+ * request, instead of probing each path one request at a time.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/permission-check")
+public class PermissionCheckController {
+
+  private final PermissionValidationService permissionValidationService;
+
+  @Autowired
+  public PermissionCheckController(PermissionValidationService permissionValidationService) {
+    this.permissionValidationService = permissionValidationService;
+  }
+
+  @RolesAllowed(ROLE_USER)
+  @RequestMapping(method = POST, consumes = APPLICATION_JSON_VALUE)
+  public SecureDataPermissionCheckResponse checkPermissions(
+      @RequestBody SecureDataPermissionCheckRequest request, Authentication authentication) {
+
+    return new SecureDataPermissionCheckResponse()
+        .setResults(
+            permissionValidationService.checkSecureDataPermissions(
+                (CerberusPrincipal) authentication, request.getChecks()));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.controller;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.nike.cerberus.security.PrincipalHasReadPermsForPath;
+import com.nike.cerberus.service.SecureDataService;
+import com.nike.cerberus.util.SdbAccessRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Reads many secrets of an SDB in a single request, either every secret under the request path or
+ * the given paths relative to it. The secrets are streamed out as a map of relative path to data
+ * as they are decrypted.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/secrets")
+public class SecureDataBulkReadController {
+
+  private final SecureDataService secureDataService;
+  private final ObjectMapper objectMapper;
+  private final SdbAccessRequest sdbAccessRequest; // Request scoped proxy bean
+  private final boolean rawResponseEnabled;
+
+  @Autowired
+  public SecureDataBulkReadController(
+      SecureDataService secureDataService,
+      ObjectMapper objectMapper,
+      SdbAccessRequest sdbAccessRequest,
+      @Value("${cerberus.secureData.rawResponse.enabled:false}") boolean rawResponseEnabled) {
+
+    this.secureDataService = secureDataService;
+    this.objectMapper = objectMapper;
+    this.sdbAccessRequest = sdbAccessRequest;
+    this.rawResponseEnabled = rawResponseEnabled;
+  }
+
+  @PrincipalHasReadPermsForPath
+  @RequestMapping(value = "/**", method = GET)
+  public void readSecrets(
+      @RequestParam(value = "path", required = false) List<String> relativePaths,
+      HttpServletResponse response)
+      throws IOException {
+
+    String partialPath = StringUtils.appendIfMissing(sdbAccessRequest.getPath(), "/");
+    List<String> paths =
+        relativePaths == null
+            ? null
+            : relativePaths.stream()
+                .map(relativePath -> partialPath + StringUtils.stripStart(relativePath, "/"))
+                .distinct()
+                .collect(Collectors.toList());
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    // The generator flushes its buffer to the response as it fills up, so an error before the
+    // first flush is still answered with an error, but an error after it can only cut the
+    // response off, which leaves the JSON incomplete
+    JsonGenerator generator =
+        objectMapper.getFactory().createGenerator(response.getOutputStream());
+    generator.writeStartObject();
+    generator.writeStringField("request_id", UUID.randomUUID().toString());
+    generator.writeObjectFieldStart("data");
+    secureDataService.readSecrets(
+        sdbAccessRequest.getSdbId(),
+        partialPath,
+        paths,
+        (path, plaintext) -> {
+          try {
+            generator.writeFieldName(path.substring(partialPath.length()));
+            writeSecureData(generator, plaintext);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.close();
+  }
+
+  private void writeSecureData(JsonGenerator generator, String secureData) throws IOException {
+    if (rawResponseEnabled) {
+      generator.writeRawValue(secureData);
+      return;
+    }
+    JsonNode data;
+    try {
+      data = objectMapper.readTree(secureData);
+    } catch (JsonProcessingException e) {
+      log.error("Failed to deserialize stored data", e);
+      data = NullNode.getInstance();
+    }
+    generator.writeTree(data);
+  }
+}
@@ -19,7 +19,9 @@ package com.nike.cerberus.controller;
 import static org.springframework.util.MimeTypeUtils.ALL_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.*;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.nike.cerberus.domain.*;
 import com.nike.cerberus.security.CerberusPrincipal;
 import com.nike.cerberus.security.PrincipalHasDeletePermsForPath;
@@ -28,6 +30,7 @@ import com.nike.cerberus.security.PrincipalHasWritePermsForPath;
 import com.nike.cerberus.service.SecureDataService;
 import com.nike.cerberus.service.SecureDataVersionService;
 import com.nike.cerberus.util.SdbAccessRequest;
+import com.nike.cerberus.util.SecureDataEntityTag;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
@@ -35,8 +38,12 @@ import java.util.Set;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -49,30 +56,63 @@ public class SecureDataController {
   private final SecureDataService secureDataService;
   private final SecureDataVersionService secureDataVersionService;
   private final SdbAccessRequest sdbAccessRequest; // Request scoped proxy bean
+  private final ObjectMapper objectMapper;
+  private final boolean rawResponseEnabled;
 
   @Autowired
   public SecureDataController(
       SecureDataService secureDataService,
       SecureDataVersionService secureDataVersionService,
-      SdbAccessRequest sdbAccessRequest) {
+      SdbAccessRequest sdbAccessRequest,
+      ObjectMapper objectMapper,
+      @Value("${cerberus.secureData.rawResponse.enabled:false}") boolean rawResponseEnabled) {
 
     this.secureDataService = secureDataService;
     this.secureDataVersionService = secureDataVersionService;
     this.sdbAccessRequest = sdbAccessRequest;
+    this.objectMapper = objectMapper;
+    this.rawResponseEnabled = rawResponseEnabled;
   }
 
+  /**
+   * Reads the current version of a secret. The response carries an ETag, when a request's
+   * If-None-Match header matches the current ETag it is answered with 304 Not Modified from the
+   * secret's metadata, without reading or decrypting the secret.
+   */
   @PrincipalHasReadPermsForPath
   @RequestMapping(value = "/**", method = GET)
-  public ResponseEntity<?> readSecureData() {
+  public ResponseEntity<?> readSecureData(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    if (ifNoneMatch != null) {
+      Optional<String> entityTag =
+          secureDataService.readEntityTag(
+              sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath(), SecureDataType.OBJECT);
+      if (entityTag.isPresent() && SecureDataEntityTag.matches(ifNoneMatch, entityTag.get())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag.get()).build();
+      }
+    }
+
     Optional<SecureData> secureDataOpt =
         secureDataService.readSecret(sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath());
-    return ResponseEntity.of(
-        secureDataOpt.map(
+    return secureDataOpt
+        .<ResponseEntity<?>>map(
             secureData -> {
-              var data = secureData.getData();
+              // Secrets are validated to be a JSON object when written, so they can be written
+              // verbatim into the response instead of being parsed and serialized again
+              Object data =
+                  rawResponseEnabled
+                      ? new RawValue(secureData.getData())
+                      : parseSecureData(secureData.getData());
               var metadata = secureDataService.parseSecretMetadata(secureData);
-              return generateSecureDataResponse(data, metadata);
-            }));
+              return ResponseEntity.ok()
+                  .eTag(
+                      SecureDataEntityTag.of(
+                          secureData.getPath(),
+                          secureData.getLastUpdatedTs(),
+                          secureData.getRevisionId()))
+                  .body(generateSecureDataResponse(data, metadata));
+            })
+        .orElseGet(() -> ResponseEntity.notFound().build());
   }
 
   @PrincipalHasReadPermsForPath
@@ -80,7 +120,7 @@ public class SecureDataController {
   public ResponseEntity<?> listKeys(@RequestParam(value = "list") String list) {
 
     if (!Boolean.parseBoolean(list)) {
-      return readSecureData(); // TODO
+      return readSecureData(null); // TODO
     }
 
     Set<String> keys =
@@ -104,7 +144,7 @@ public class SecureDataController {
     return ResponseEntity.of(
         secureDataVersionOpt.map(
             secureDataVersion -> {
-              var data = secureDataVersion.getData();
+              var data = parseSecureData(secureDataVersion.getData());
               var metadata = secureDataVersionService.parseVersionMetadata(secureDataVersion);
               return generateSecureDataResponse(data, metadata);
             }));
@@ -135,18 +175,20 @@ public class SecureDataController {
         sdbAccessRequest.getPrincipal().getName());
   }
 
-  private SecureDataResponse generateSecureDataResponse(
-      String secureData, Map<String, String> metadata) {
+  private SecureDataResponse generateSecureDataResponse(Object data, Map<String, String> metadata) {
     SecureDataResponse response = new SecureDataResponse();
     response.setRequestId(UUID.randomUUID().toString());
     response.setMetadata(metadata);
+    response.setData(data);
+    return response;
+  }
 
+  private JsonNode parseSecureData(String secureData) {
     try {
-      response.setData(new ObjectMapper().readTree(secureData));
+      return objectMapper.readTree(secureData);
     } catch (IOException e) {
       log.error("Failed to deserialize stored data", e);
+      return null;
     }
-
-    return response;
   }
 }
@@ -22,6 +22,7 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 import com.nike.backstopper.exception.ApiException;
 import com.nike.cerberus.domain.SecureDataType;
 import com.nike.cerberus.domain.SecureFile;
+import com.nike.cerberus.domain.SecureFileStream;
 import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.security.PrincipalHasDeletePermsForPath;
 import com.nike.cerberus.security.PrincipalHasReadPermsForPath;
@@ -30,13 +31,23 @@ import com.nike.cerberus.service.SecureDataService;
 import com.nike.cerberus.service.SecureDataVersionService;
 import com.nike.cerberus.util.CustomApiError;
 import com.nike.cerberus.util.SdbAccessRequest;
+import com.nike.cerberus.util.SecureDataEntityTag;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
 import javax.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -66,7 +77,8 @@ public class SecureFileController {
 
   @PrincipalHasReadPermsForPath
   @RequestMapping(value = "/**", method = HEAD)
-  public ResponseEntity<Void> headSecureFile() {
+  public ResponseEntity<Void> headSecureFile(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     var secureFileSummary =
         secureDataService
             .readFileMetadataOnly(sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath())
@@ -76,30 +88,133 @@ public class SecureFileController {
                         .withApiErrors(DefaultApiError.ENTITY_NOT_FOUND)
                         .build());
 
+    var entityTag =
+        SecureDataEntityTag.ofFile(
+            secureFileSummary.getPath(),
+            secureFileSummary.getLastUpdatedTs(),
+            secureFileSummary.getRevisionId());
+    if (SecureDataEntityTag.matches(ifNoneMatch, entityTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag).build();
+    }
+
     var mimeType = MediaType.parseMediaType(tika.detect(secureFileSummary.getName()));
 
     return ResponseEntity.ok()
         .contentType(mimeType)
         .contentLength(secureFileSummary.getSizeInBytes())
+        .eTag(entityTag)
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
         .header(
             "Content-Disposition",
             String.format("attachment; filename=\"%s\"", secureFileSummary.getName()))
         .build();
   }
 
+  /**
+   * Reads the current version of a secure file. The response carries an ETag, when a request's
+   * If-None-Match header matches the current ETag it is answered with 304 Not Modified from the
+   * file's metadata, without reading or decrypting the file.
+   *
+   * <p>A Range header with a single byte range is answered with 206 Partial Content holding only
+   * the bytes of the range, unless an If-Range header does not match the current ETag. Requests
+   * for multiple ranges are answered with the whole file.
+   */
   @PrincipalHasReadPermsForPath
   @RequestMapping(value = "/**", method = GET)
-  public ResponseEntity<?> getSecureFile() {
-    var secureFile =
-        secureDataService
-            .readFile(sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath())
-            .orElseThrow(
-                () ->
-                    new ApiException.Builder()
-                        .withApiErrors(DefaultApiError.ENTITY_NOT_FOUND)
-                        .build());
+  public ResponseEntity<?> getSecureFile(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+    if (ifNoneMatch != null) {
+      var entityTag =
+          secureDataService.readEntityTag(
+              sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath(), SecureDataType.FILE);
+      if (entityTag.isPresent() && SecureDataEntityTag.matches(ifNoneMatch, entityTag.get())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag.get()).build();
+      }
+    }
+
+    SecureFileStream secureFile;
+    try {
+      secureFile =
+          secureDataService
+              .openFile(sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath())
+              .orElseThrow(
+                  () ->
+                      new ApiException.Builder()
+                          .withApiErrors(DefaultApiError.ENTITY_NOT_FOUND)
+                          .build());
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to open secure file", ex);
+    }
+
+    var secureFileSummary = secureFile.getSummary();
+    long sizeInBytes = secureFileSummary.getSizeInBytes();
+    var entityTag =
+        SecureDataEntityTag.ofFile(
+            secureFileSummary.getPath(),
+            secureFileSummary.getLastUpdatedTs(),
+            secureFileSummary.getRevisionId());
+    var httpRange =
+        SecureDataEntityTag.matchesIfRange(ifRange, entityTag)
+            ? getSingleHttpRange(range)
+            : Optional.<HttpRange>empty();
+
+    // The content is decrypted as it is written to the response, a chunk at a time. Ranges are
+    // handled here, Spring does not apply them to an InputStreamResource body.
+    var mimeType = MediaType.parseMediaType(tika.detect(secureFileSummary.getName()));
+    ResponseEntity.BodyBuilder responseBuilder;
+    InputStream content;
+    try {
+      if (httpRange.isEmpty()) {
+        responseBuilder = ResponseEntity.ok().contentLength(sizeInBytes);
+        content = secureFile.getContent();
+      } else {
+        long firstBytePos = httpRange.get().getRangeStart(sizeInBytes);
+        if (firstBytePos >= sizeInBytes) {
+          secureFile.getContent().close();
+          return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+              .eTag(entityTag)
+              .header(HttpHeaders.CONTENT_RANGE, String.format("bytes */%d", sizeInBytes))
+              .build();
+        }
+        long lastBytePos = httpRange.get().getRangeEnd(sizeInBytes);
+        long length = lastBytePos - firstBytePos + 1;
+        responseBuilder =
+            ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentLength(length)
+                .header(
+                    HttpHeaders.CONTENT_RANGE,
+                    String.format("bytes %d-%d/%d", firstBytePos, lastBytePos, sizeInBytes));
+        content = secureDataService.readFileRange(secureFile, firstBytePos, length);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to read secure file", ex);
+    }
 
-    return generateSecureFileResponse(secureFile);
+    return responseBuilder
+        .contentType(mimeType)
+        .eTag(entityTag)
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .header(
+            "Content-Disposition",
+            String.format("attachment; filename=\"%s\"", secureFileSummary.getName()))
+        .body(new InputStreamResource(content));
+  }
+
+  /**
+   * @return The range of a Range header with a single byte range, empty if there is no header or it
+   *     is invalid or holds multiple ranges, in which case the header is ignored
+   */
+  private Optional<HttpRange> getSingleHttpRange(String range) {
+    List<HttpRange> httpRanges;
+    try {
+      httpRanges = HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException ex) {
+      log.debug("Ignoring invalid Range header: {}", range);
+      return Optional.empty();
+    }
+    return httpRanges.size() == 1 ? Optional.of(httpRanges.get(0)) : Optional.empty();
   }
 
   @PrincipalHasReadPermsForPath
@@ -119,7 +234,7 @@ public class SecureFileController {
                         .withApiErrors(DefaultApiError.ENTITY_NOT_FOUND)
                         .build());
 
-    return generateSecureFileResponse(secureFile);
+    return generateSecureFileResponse(ResponseEntity.ok(), secureFile);
   }
 
   @PrincipalHasWritePermsForPath
@@ -128,9 +243,12 @@ public class SecureFileController {
       method = {POST, PUT},
       consumes = MULTIPART_FORM_DATA_VALUE)
   public void writeSecureFile(@RequestParam("file-content") MultipartFile file) {
-    byte[] fileContents;
-    try {
-      fileContents = file.getBytes();
+    try (InputStream fileContents = file.getInputStream()) {
+      secureDataService.writeSecureFile(
+          sdbAccessRequest.getSdbId(),
+          sdbAccessRequest.getPath(),
+          fileContents,
+          sdbAccessRequest.getPrincipal().getName());
     } catch (IOException ex) {
       String msg = "Failed to get contents from multipart file";
       throw ApiException.newBuilder()
@@ -140,13 +258,6 @@ public class SecureFileController {
               CustomApiError.createCustomApiError(DefaultApiError.GENERIC_BAD_REQUEST, msg))
           .build();
     }
-
-    secureDataService.writeSecureFile(
-        sdbAccessRequest.getSdbId(),
-        sdbAccessRequest.getPath(),
-        fileContents,
-        fileContents.length,
-        sdbAccessRequest.getPrincipal().getName());
   }
 
   @PrincipalHasDeletePermsForPath
@@ -159,11 +270,12 @@ public class SecureFileController {
         sdbAccessRequest.getPrincipal().getName());
   }
 
-  private ResponseEntity<?> generateSecureFileResponse(@NotNull SecureFile secureFile) {
+  private ResponseEntity<?> generateSecureFileResponse(
+      ResponseEntity.BodyBuilder responseBuilder, @NotNull SecureFile secureFile) {
     byte[] fileContents = secureFile.getData();
     var mimeType = MediaType.parseMediaType(tika.detect(secureFile.getName()));
 
-    return ResponseEntity.ok()
+    return responseBuilder
         .contentType(mimeType)
         .header(
             "Content-Disposition",
@@ -48,9 +48,17 @@ public class SecureFilesSummaryController {
   @RequestMapping(value = "/**", method = GET)
   public SecureFileSummaryResult listSecureFiles(
       @RequestParam(value = "limit", required = false, defaultValue = "100") int limit,
-      @RequestParam(value = "offset", required = false, defaultValue = "0") int offset) {
+      @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "includeTotalCount", required = false, defaultValue = "true")
+          boolean includeTotalCount) {
 
     return secureDataService.listSecureFilesSummaries(
-        sdbAccessRequest.getSdbId(), sdbAccessRequest.getPath(), limit, offset);
+        sdbAccessRequest.getSdbId(),
+        sdbAccessRequest.getPath(),
+        limit,
+        offset,
+        cursor,
+        includeTotalCount);
   }
 }
@@ -54,9 +54,12 @@ public class SdbMetadataController {
   public SDBMetadataResult getMetadata(
       @RequestParam(value = "limit", required = false, defaultValue = "100") int limit,
       @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
-      @RequestParam(value = "sdbName", required = false) String sdbName) {
+      @RequestParam(value = "sdbName", required = false) String sdbName,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "includeTotalCount", required = false, defaultValue = "true")
+          boolean includeTotalCount) {
 
-    return metadataService.getSDBMetadata(limit, offset, sdbName);
+    return metadataService.getSDBMetadata(limit, offset, sdbName, cursor, includeTotalCount);
   }
 
   @RequestMapping(method = PUT)
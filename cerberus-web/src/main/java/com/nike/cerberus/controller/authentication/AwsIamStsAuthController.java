@@ -21,13 +21,21 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 import com.nike.backstopper.exception.ApiException;
 import com.nike.cerberus.aws.sts.AwsStsClient;
 import com.nike.cerberus.aws.sts.AwsStsHttpHeader;
-import com.nike.cerberus.aws.sts.GetCallerIdentityResponse;
 import com.nike.cerberus.domain.AuthTokenResponse;
 import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.event.filter.AuditLoggingFilterDetails;
 import com.nike.cerberus.service.AuthenticationService;
+import com.nike.cerberus.util.CustomApiError;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.scope.ScopedObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -44,29 +52,46 @@ public class AwsIamStsAuthController {
   private final AuthenticationService authenticationService;
   private final AwsStsClient awsStsClient;
   private final AuditLoggingFilterDetails auditLoggingFilterDetails;
+  private final Executor stsAuthenticationExecutor;
+  private final long authenticationTimeoutInMillis;
 
   @Autowired
   public AwsIamStsAuthController(
       AuthenticationService authenticationService,
       AwsStsClient awsStsClient,
-      AuditLoggingFilterDetails auditLoggingFilterDetails) {
+      AuditLoggingFilterDetails auditLoggingFilterDetails,
+      @Qualifier("stsAuthenticationExecutor") Executor stsAuthenticationExecutor,
+      @Value("${cerberus.auth.iam.sts.authenticationTimeoutInMillis:#{30000}}")
+          long authenticationTimeoutInMillis) {
 
     this.authenticationService = authenticationService;
     this.awsStsClient = awsStsClient;
     this.auditLoggingFilterDetails = auditLoggingFilterDetails;
+    this.stsAuthenticationExecutor = stsAuthenticationExecutor;
+    this.authenticationTimeoutInMillis = authenticationTimeoutInMillis;
   }
 
+  /**
+   * Uses servlet async processing, so that the request thread is released while waiting on STS. The
+   * token is then issued on the sts authentication executor, since that requires the database.
+   * Authentications that do not complete within the timeout fail with a 503.
+   */
   @RequestMapping(method = POST)
-  public AuthTokenResponse authenticate(
+  public CompletableFuture<AuthTokenResponse> authenticate(
       @RequestHeader(value = HEADER_X_AMZ_DATE, required = false)
           String headerXAmzDate, // TODO should we make this required = true?
       @RequestHeader(value = HEADER_X_AMZ_SECURITY_TOKEN, required = false)
           String headerXAmzSecurityToken, // TODO should we make this required = true?
       @RequestHeader(value = HEADER_AUTHORIZATION, required = false) String headerAuthorization) {
 
-    String iamPrincipalArn;
-    AuthTokenResponse authResponse;
+    // The request scoped proxy can only be resolved on the request thread
+    AuditLoggingFilterDetails requestAuditLoggingFilterDetails =
+        auditLoggingFilterDetails instanceof ScopedObject
+            ? (AuditLoggingFilterDetails)
+                ((ScopedObject) auditLoggingFilterDetails).getTargetObject()
+            : auditLoggingFilterDetails;
 
+    CompletableFuture<AuthTokenResponse> authResponse;
     try {
       if (headerAuthorization == null || headerXAmzDate == null) {
         throw new ApiException(DefaultApiError.MISSING_AWS_SIGNATURE_HEADERS);
@@ -74,17 +99,44 @@ public class AwsIamStsAuthController {
 
       AwsStsHttpHeader header =
           new AwsStsHttpHeader(headerXAmzDate, headerXAmzSecurityToken, headerAuthorization);
-      GetCallerIdentityResponse getCallerIdentityResponse = awsStsClient.getCallerIdentity(header);
-      iamPrincipalArn = getCallerIdentityResponse.getGetCallerIdentityResult().getArn();
-
-      authResponse = authenticationService.stsAuthenticate(iamPrincipalArn);
+      authResponse =
+          awsStsClient
+              .getCallerIdentityAsync(header)
+              .thenApplyAsync(
+                  getCallerIdentityResponse ->
+                      authenticationService.stsAuthenticate(
+                          getCallerIdentityResponse.getGetCallerIdentityResult().getArn()),
+                  stsAuthenticationExecutor)
+              .orTimeout(authenticationTimeoutInMillis, TimeUnit.MILLISECONDS)
+              .exceptionally(this::handleTimeout);
     } catch (Exception e) {
-      auditLoggingFilterDetails.setAction("Failed to authenticate with AWS IAM STS Auth");
+      requestAuditLoggingFilterDetails.setAction("Failed to authenticate with AWS IAM STS Auth");
       throw e;
     }
 
-    auditLoggingFilterDetails.setAction("Successfully authenticated with AWS IAM STS Auth");
+    return authResponse.whenComplete(
+        (response, throwable) ->
+            requestAuditLoggingFilterDetails.setAction(
+                throwable == null
+                    ? "Successfully authenticated with AWS IAM STS Auth"
+                    : "Failed to authenticate with AWS IAM STS Auth"));
+  }
 
-    return authResponse;
+  private AuthTokenResponse handleTimeout(Throwable throwable) {
+    Throwable cause =
+        throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+    if (cause instanceof TimeoutException) {
+      String msg = "Timed out authenticating with AWS IAM STS Auth";
+      throw ApiException.newBuilder()
+          .withApiErrors(
+              CustomApiError.createCustomApiError(DefaultApiError.SERVICE_UNAVAILABLE, msg))
+          .withExceptionMessage(msg)
+          .build();
+    }
+    throw throwable instanceof CompletionException
+        ? (CompletionException) throwable
+        : new CompletionException(throwable);
   }
 }
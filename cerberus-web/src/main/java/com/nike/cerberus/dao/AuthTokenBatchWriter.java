@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.dao;
+
+import com.codahale.metrics.Histogram;
+import com.nike.cerberus.mapper.AuthTokenMapper;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.AuthTokenRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Groups auth token inserts from concurrent requests into multi-row inserts.
+ *
+ * <p>During authentication storms (e.g. a large fleet restarting) every issued token would
+ * otherwise be its own insert, commit and connection checkout. Requests hand their token record to
+ * a single writer thread which flushes when it has collected maxBatchSize records or
+ * maxBatchDelayInMillis has passed since the first record of the batch arrived. The request thread
+ * blocks until the batch containing its record has been committed, so a token is never returned
+ * to a client before it is persisted.
+ */
+@Slf4j
+@Component
+public class AuthTokenBatchWriter {
+
+  private final AuthTokenMapper authTokenMapper;
+  private final boolean enabled;
+  private final int maxBatchSize;
+  private final long maxBatchDelayInMillis;
+  private final long writeTimeoutInMillis;
+  private final BlockingQueue<PendingWrite> pendingWrites;
+  private final Histogram batchSizeHistogram;
+  private final Histogram flushLatencyHistogram;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  private volatile boolean running = true;
+
+  @Autowired
+  public AuthTokenBatchWriter(
+      AuthTokenMapper authTokenMapper,
+      MetricsService metricsService,
+      @Value("${cerberus.auth.token.batchWriter.enabled:#{false}}") boolean enabled,
+      @Value("${cerberus.auth.token.batchWriter.maxBatchSize:100}") int maxBatchSize,
+      @Value("${cerberus.auth.token.batchWriter.maxBatchDelayInMillis:5}")
+          long maxBatchDelayInMillis,
+      @Value("${cerberus.auth.token.batchWriter.maxQueueSize:5000}") int maxQueueSize,
+      @Value("${cerberus.auth.token.batchWriter.writeTimeoutInMillis:10000}")
+          long writeTimeoutInMillis) {
+
+    this.authTokenMapper = authTokenMapper;
+    this.enabled = enabled;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelayInMillis = maxBatchDelayInMillis;
+    this.writeTimeoutInMillis = writeTimeoutInMillis;
+    pendingWrites = new ArrayBlockingQueue<>(maxQueueSize);
+
+    batchSizeHistogram = metricsService.getOrCreateHistogram("cms.auth.token.batch.size", null);
+    flushLatencyHistogram =
+        metricsService.getOrCreateHistogram("cms.auth.token.batch.flushLatencyInMillis", null);
+    metricsService.getOrCreateCallbackGauge(
+        "cms.auth.token.batch.queueSize", pendingWrites::size, null);
+
+    if (enabled) {
+      log.info(
+          "Auth token batch writer enabled with maxBatchSize: {}, maxBatchDelayInMillis: {}, "
+              + "maxQueueSize: {}",
+          maxBatchSize,
+          maxBatchDelayInMillis,
+          maxQueueSize);
+      executor.submit(this::processPendingWrites);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Queue the record to be inserted with the next batch and wait for that batch to be committed. If
+   * the queue is full the record is inserted directly.
+   *
+   * @param record The token to insert
+   * @return The number of rows inserted
+   */
+  public int write(AuthTokenRecord record) {
+    PendingWrite pendingWrite = new PendingWrite(record);
+    if (!running || !pendingWrites.offer(pendingWrite)) {
+      log.debug("Auth token write queue is full or shutting down, inserting directly");
+      return authTokenMapper.createAuthToken(record);
+    }
+
+    try {
+      pendingWrite.result.get(writeTimeoutInMillis, TimeUnit.MILLISECONDS);
+      return 1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for the auth token to be written", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Failed to write the auth token", e.getCause());
+    } catch (TimeoutException e) {
+      throw new RuntimeException("Timed out waiting for the auth token to be written", e);
+    }
+  }
+
+  private void processPendingWrites() {
+    List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+    while (running || !pendingWrites.isEmpty()) {
+      try {
+        PendingWrite first = pendingWrites.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchDelayInMillis);
+        while (batch.size() < maxBatchSize) {
+          pendingWrites.drainTo(batch, maxBatchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= maxBatchSize || remaining <= 0) {
+            break;
+          }
+          PendingWrite next = pendingWrites.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        log.warn("Auth token batch writer interrupted, flushing remaining writes");
+        running = false;
+      }
+
+      if (!batch.isEmpty()) {
+        flush(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<PendingWrite> batch) {
+    long start = System.nanoTime();
+    try {
+      authTokenMapper.createAuthTokens(
+          batch.stream().map(pendingWrite -> pendingWrite.record).collect(Collectors.toList()));
+      batch.forEach(pendingWrite -> pendingWrite.result.complete(null));
+    } catch (Exception e) {
+      // Fall back to individual inserts so that one bad record does not fail the whole batch
+      log.error("Failed to insert batch of {} auth tokens, retrying individually", batch.size(), e);
+      for (PendingWrite pendingWrite : batch) {
+        try {
+          authTokenMapper.createAuthToken(pendingWrite.record);
+          pendingWrite.result.complete(null);
+        } catch (Exception ex) {
+          pendingWrite.result.completeExceptionally(ex);
+        }
+      }
+    }
+    batchSizeHistogram.update(batch.size());
+    flushLatencyHistogram.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /** Shutdown hook, stops accepting writes and flushes any that are still queued. */
+  @PreDestroy
+  public void executeServerShutdownHook() {
+    running = false;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.error("Auth token batch writer did not finish flushing, shutting down now");
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      log.error("Interrupted waiting for auth token batch writer to finish, shutting down now");
+      executor.shutdownNow();
+    }
+  }
+
+  private static class PendingWrite {
+    private final AuthTokenRecord record;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private PendingWrite(AuthTokenRecord record) {
+      this.record = record;
+    }
+  }
+}
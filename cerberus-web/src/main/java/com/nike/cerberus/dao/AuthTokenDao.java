@@ -18,7 +18,16 @@ package com.nike.cerberus.dao;
 
 import com.nike.cerberus.mapper.AuthTokenMapper;
 import com.nike.cerberus.record.AuthTokenRecord;
+import com.nike.cerberus.record.RevokedAuthTokenRecord;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,23 +38,118 @@ public class AuthTokenDao {
 
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+  private static final String PARTITION_NAME_PREFIX = "p";
+  private static final DateTimeFormatter PARTITION_NAME_FORMAT =
+      new DateTimeFormatterBuilder()
+          .appendPattern("yyyyMMddHH")
+          .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+          .toFormatter();
+  private static final DateTimeFormatter PARTITION_BOUND_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
   private final AuthTokenMapper authTokenMapper;
+  private final AuthTokenBatchWriter authTokenBatchWriter;
 
   @Autowired
-  public AuthTokenDao(AuthTokenMapper authTokenMapper) {
+  public AuthTokenDao(AuthTokenMapper authTokenMapper, AuthTokenBatchWriter authTokenBatchWriter) {
     this.authTokenMapper = authTokenMapper;
+    this.authTokenBatchWriter = authTokenBatchWriter;
   }
 
   public int createAuthToken(AuthTokenRecord record) {
+    if (authTokenBatchWriter.isEnabled()) {
+      return authTokenBatchWriter.write(record);
+    }
     return authTokenMapper.createAuthToken(record);
   }
 
+  /**
+   * Only un-expired tokens are returned, which lets MySQL prune the partitions that only contain
+   * expired tokens when AUTH_TOKENS is partitioned.
+   *
+   * <p>TOKEN_HASH is only guaranteed to be unique by the database when AUTH_TOKENS is not
+   * partitioned, since MySQL requires every unique key of a partitioned table to include the
+   * partitioning column. A hash that matches more than one token is never trusted.
+   */
   public Optional<AuthTokenRecord> getAuthTokenFromHash(String hash) {
-    return Optional.ofNullable(authTokenMapper.getAuthTokenFromHash(hash));
+    List<AuthTokenRecord> records =
+        authTokenMapper.getAuthTokensFromHash(hash, OffsetDateTime.now(ZoneOffset.UTC));
+    if (records.size() > 1) {
+      logger.error("Found more than one auth token with the same hash, rejecting the token");
+      return Optional.empty();
+    }
+    return records.stream().findFirst();
+  }
+
+  public int deleteAuthTokenFromHash(String hash) {
+    return authTokenMapper.deleteAuthTokenFromHash(hash);
+  }
+
+  public boolean isAuthTokensPartitioned() {
+    return !authTokenMapper.getAuthTokenPartitionNames().isEmpty();
+  }
+
+  /**
+   * @return The exclusive upper bounds of the EXPIRES_TS ranges of the AUTH_TOKENS partitions, not
+   *     including the catch all partition
+   */
+  public List<OffsetDateTime> getAuthTokenPartitionUpperBounds() {
+    return authTokenMapper.getAuthTokenPartitionNames().stream()
+        .filter(name -> name.matches(PARTITION_NAME_PREFIX + "\\d{10}"))
+        .map(
+            name ->
+                LocalDateTime.parse(
+                        name.substring(PARTITION_NAME_PREFIX.length()), PARTITION_NAME_FORMAT)
+                    .atOffset(ZoneOffset.UTC))
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Split new partitions off of the catch all partition.
+   *
+   * @param upperBounds The exclusive upper bounds of the new partitions, in ascending order and all
+   *     greater than the existing partitions
+   */
+  public void addAuthTokenPartitions(List<OffsetDateTime> upperBounds) {
+    authTokenMapper.addAuthTokenPartitions(
+        upperBounds.stream()
+            .map(
+                upperBound ->
+                    String.format(
+                        "PARTITION %s VALUES LESS THAN ('%s')",
+                        getPartitionName(upperBound),
+                        upperBound
+                            .withOffsetSameInstant(ZoneOffset.UTC)
+                            .format(PARTITION_BOUND_FORMAT)))
+            .collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Drop partitions, and every token in them.
+   *
+   * @param upperBounds The exclusive upper bounds of the partitions to drop
+   */
+  public void dropAuthTokenPartitions(List<OffsetDateTime> upperBounds) {
+    authTokenMapper.dropAuthTokenPartitions(
+        upperBounds.stream().map(this::getPartitionName).collect(Collectors.joining(", ")));
+  }
+
+  private String getPartitionName(OffsetDateTime upperBound) {
+    return PARTITION_NAME_PREFIX
+        + upperBound.withOffsetSameInstant(ZoneOffset.UTC).format(PARTITION_NAME_FORMAT);
+  }
+
+  public int createRevokedAuthToken(RevokedAuthTokenRecord record) {
+    return authTokenMapper.createRevokedAuthToken(record);
+  }
+
+  public List<RevokedAuthTokenRecord> getUnexpiredRevokedAuthTokens() {
+    return authTokenMapper.getUnexpiredRevokedAuthTokens();
   }
 
-  public void deleteAuthTokenFromHash(String hash) {
-    authTokenMapper.deleteAuthTokenFromHash(hash);
+  public int deleteExpiredRevokedAuthTokens(int limit) {
+    return authTokenMapper.deleteExpiredRevokedAuthTokens(limit);
   }
 
   public int deleteExpiredTokens(int maxDelete, int batchSize, int batchPauseTimeInMillis) {
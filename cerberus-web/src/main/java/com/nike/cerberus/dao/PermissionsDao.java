@@ -17,6 +17,11 @@
 package com.nike.cerberus.dao;
 
 import com.nike.cerberus.mapper.PermissionsMapper;
+import com.nike.cerberus.record.SdbPermissionChangeRecord;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -65,4 +70,54 @@ public class PermissionsDao {
     return permissionsMapper.doesUserHavePermsForRoleAndSdbCaseInsensitive(
         sdbId, rolesThatAllowPermission, userGroupsThatPrincipalBelongsTo);
   }
+
+  /**
+   * @param sdbIds The SDBs to get the permissions of, or null for all SDBs
+   * @return The roles granted to IAM principals on the SDBs
+   */
+  public List<SdbPermissionRecord> getIamPrincipalPermissions(Set<String> sdbIds) {
+    return permissionsMapper.getIamPrincipalPermissions(sdbIds);
+  }
+
+  /**
+   * @param sdbIds The SDBs to get the permissions of, or null for all SDBs
+   * @return The roles granted to user groups on the SDBs
+   */
+  public List<SdbPermissionRecord> getUserGroupPermissions(Set<String> sdbIds) {
+    return permissionsMapper.getUserGroupPermissions(sdbIds);
+  }
+
+  /**
+   * @param sdbIds The SDBs to get the permissions of
+   * @param iamPrincipalArns The ARNs of the IAM principal, its role and its account root
+   * @return The roles granted to the given ARNs on the SDBs
+   */
+  public List<SdbPermissionRecord> getIamPrincipalPermissionsForPrincipals(
+      Set<String> sdbIds, Collection<String> iamPrincipalArns) {
+    return permissionsMapper.getIamPrincipalPermissionsForPrincipals(sdbIds, iamPrincipalArns);
+  }
+
+  /**
+   * @param sdbIds The SDBs to get the permissions of
+   * @param userGroups The groups that the user belongs to
+   * @param caseSensitive Whether the group names are compared case sensitively
+   * @return The roles granted to the given user groups on the SDBs
+   */
+  public List<SdbPermissionRecord> getUserGroupPermissionsForUserGroups(
+      Set<String> sdbIds, Set<String> userGroups, boolean caseSensitive) {
+    return permissionsMapper.getUserGroupPermissionsForUserGroups(
+        sdbIds, userGroups, caseSensitive);
+  }
+
+  public int createSdbPermissionChange(String sdbId, OffsetDateTime createdTs) {
+    return permissionsMapper.createSdbPermissionChange(sdbId, createdTs);
+  }
+
+  public List<SdbPermissionChangeRecord> getSdbPermissionChangesSince(OffsetDateTime createdTs) {
+    return permissionsMapper.getSdbPermissionChangesSince(createdTs);
+  }
+
+  public int deleteSdbPermissionChangesOlderThan(OffsetDateTime createdTs, int limit) {
+    return permissionsMapper.deleteSdbPermissionChangesOlderThan(createdTs, limit);
+  }
 }
@@ -19,6 +19,7 @@ package com.nike.cerberus.dao;
 import com.nike.cerberus.mapper.SafeDepositBoxMapper;
 import com.nike.cerberus.record.SafeDepositBoxRecord;
 import com.nike.cerberus.record.SafeDepositBoxRoleRecord;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -78,6 +79,15 @@ public class SafeDepositBoxDao {
     return safeDepositBoxMapper.getSafeDepositBoxes(limit, offset);
   }
 
+  /**
+   * Lists the SDBs that come after the given SDB when ordered by creation time and then ID, both
+   * descending.
+   */
+  public List<SafeDepositBoxRecord> getSafeDepositBoxesCreatedBefore(
+      final OffsetDateTime createdTs, final String id, final int limit) {
+    return safeDepositBoxMapper.getSafeDepositBoxesCreatedBefore(createdTs, id, limit);
+  }
+
   public Integer getSafeDepositBoxCount() {
     return safeDepositBoxMapper.count();
   }
@@ -121,4 +131,14 @@ public class SafeDepositBoxDao {
   public String getSafeDepositBoxIdByPath(String path) {
     return safeDepositBoxMapper.getSafeDepositBoxIdByPath(path);
   }
+
+  /** @return The ID and path of every SDB, the other fields are not set */
+  public List<SafeDepositBoxRecord> getSafeDepositBoxPaths() {
+    return safeDepositBoxMapper.getSafeDepositBoxPaths();
+  }
+
+  /** @return The ID and path of the SDBs with the given paths, the other fields are not set */
+  public List<SafeDepositBoxRecord> getSafeDepositBoxIdsByPaths(Set<String> paths) {
+    return safeDepositBoxMapper.getSafeDepositBoxIdsByPaths(paths);
+  }
 }
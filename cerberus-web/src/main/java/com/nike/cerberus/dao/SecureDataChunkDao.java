@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.dao;
+
+import com.nike.cerberus.mapper.SecureDataChunkMapper;
+import com.nike.cerberus.util.UuidSupplier;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores ciphertext in fixed size chunk rows, so that it can be written and read as a stream
+ * without holding all of it in memory. The chunks of a ciphertext form a chunk set, which is
+ * referenced from the ENCRYPTED_BLOB of the secure data or version it belongs to.
+ */
+@Component
+public class SecureDataChunkDao {
+
+  private static final byte[] CHUNK_SET_REFERENCE_PREFIX =
+      "cerberus-chunk-set:".getBytes(StandardCharsets.UTF_8);
+
+  private final SecureDataChunkMapper secureDataChunkMapper;
+  private final UuidSupplier uuidSupplier;
+  private final int chunkSizeInBytes;
+
+  @Autowired
+  public SecureDataChunkDao(
+      SecureDataChunkMapper secureDataChunkMapper,
+      UuidSupplier uuidSupplier,
+      @Value("${cerberus.secureData.fileStreaming.chunkSizeInBytes:262144}") int chunkSizeInBytes) {
+    this.secureDataChunkMapper = secureDataChunkMapper;
+    this.uuidSupplier = uuidSupplier;
+    this.chunkSizeInBytes = chunkSizeInBytes;
+  }
+
+  /**
+   * @param encryptedBlob The ENCRYPTED_BLOB of a secure data or version
+   * @return The id of the chunk set the blob references, or empty if the blob is the ciphertext
+   */
+  public static Optional<String> getChunkSetId(byte[] encryptedBlob) {
+    if (encryptedBlob == null
+        || encryptedBlob.length <= CHUNK_SET_REFERENCE_PREFIX.length
+        || !Arrays.equals(
+            CHUNK_SET_REFERENCE_PREFIX,
+            0,
+            CHUNK_SET_REFERENCE_PREFIX.length,
+            encryptedBlob,
+            0,
+            CHUNK_SET_REFERENCE_PREFIX.length)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new String(
+            encryptedBlob,
+            CHUNK_SET_REFERENCE_PREFIX.length,
+            encryptedBlob.length - CHUNK_SET_REFERENCE_PREFIX.length,
+            StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Opens a new chunk set for an SDB, the ciphertext written to the returned stream is stored in
+   * chunks as it is written. Once the stream is closed its reference can be stored as the
+   * ENCRYPTED_BLOB of the secure data or version the ciphertext belongs to.
+   */
+  public ChunkSetOutputStream writeChunkSet(String sdbId) {
+    return new ChunkSetOutputStream(sdbId, uuidSupplier.get());
+  }
+
+  /** @return The ciphertext of the chunk set, reading one chunk at a time */
+  public InputStream readChunkSet(String chunkSetId) {
+    return new ChunkSetInputStream(chunkSetId);
+  }
+
+  /**
+   * @param sdbId The SDB the chunk set belongs to
+   * @param reference The reference to the chunk set, as stored in ENCRYPTED_BLOB
+   * @return true if any secure data or version of the SDB references the chunk set
+   */
+  public boolean isChunkSetReferenced(String sdbId, byte[] reference) {
+    return secureDataChunkMapper.countChunkSetReferences(sdbId, reference) > 0;
+  }
+
+  public void deleteChunkSet(String chunkSetId) {
+    secureDataChunkMapper.deleteChunkSet(chunkSetId);
+  }
+
+  public void deleteChunksBySdbId(String sdbId) {
+    secureDataChunkMapper.deleteChunksBySdbId(sdbId);
+  }
+
+  public class ChunkSetOutputStream extends OutputStream {
+
+    private final String sdbId;
+    private final String chunkSetId;
+    private final byte[] chunk = new byte[chunkSizeInBytes];
+    private int chunkLength = 0;
+    private int chunkIndex = 0;
+    private boolean closed = false;
+
+    ChunkSetOutputStream(String sdbId, String chunkSetId) {
+      this.sdbId = sdbId;
+      this.chunkSetId = chunkSetId;
+    }
+
+    /** @return The reference to the chunk set, to store as the ENCRYPTED_BLOB */
+    public byte[] getReference() {
+      byte[] chunkSetIdBytes = chunkSetId.getBytes(StandardCharsets.UTF_8);
+      byte[] reference =
+          Arrays.copyOf(
+              CHUNK_SET_REFERENCE_PREFIX,
+              CHUNK_SET_REFERENCE_PREFIX.length + chunkSetIdBytes.length);
+      System.arraycopy(
+          chunkSetIdBytes, 0, reference, CHUNK_SET_REFERENCE_PREFIX.length, chunkSetIdBytes.length);
+      return reference;
+    }
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      if (closed) {
+        throw new IllegalStateException("The chunk set was already closed: " + chunkSetId);
+      }
+      while (len > 0) {
+        int copied = Math.min(len, chunk.length - chunkLength);
+        System.arraycopy(b, off, chunk, chunkLength, copied);
+        chunkLength += copied;
+        off += copied;
+        len -= copied;
+        if (chunkLength == chunk.length) {
+          writeChunk();
+        }
+      }
+    }
+
+    /** Writes the last, partial, chunk */
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        if (chunkLength > 0 || chunkIndex == 0) {
+          writeChunk();
+        }
+      }
+    }
+
+    private void writeChunk() {
+      byte[] data = chunkLength == chunk.length ? chunk : Arrays.copyOf(chunk, chunkLength);
+      secureDataChunkMapper.writeChunk(chunkSetId, chunkIndex++, sdbId, data);
+      chunkLength = 0;
+    }
+  }
+
+  private class ChunkSetInputStream extends InputStream {
+
+    private final String chunkSetId;
+    private byte[] chunk = new byte[0];
+    private int chunkPosition = 0;
+    private int chunkIndex = 0;
+
+    private ChunkSetInputStream(String chunkSetId) {
+      this.chunkSetId = chunkSetId;
+    }
+
+    @Override
+    public int read() {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      while (chunk != null && chunkPosition == chunk.length) {
+        chunk = secureDataChunkMapper.readChunk(chunkSetId, chunkIndex++);
+        chunkPosition = 0;
+      }
+      if (chunk == null) {
+        return -1;
+      }
+      int read = Math.min(len, chunk.length - chunkPosition);
+      System.arraycopy(chunk, chunkPosition, b, off, read);
+      chunkPosition += read;
+      return read;
+    }
+  }
+}
@@ -19,11 +19,15 @@ package com.nike.cerberus.dao;
 import com.nike.cerberus.domain.SecureDataType;
 import com.nike.cerberus.mapper.SecureDataMapper;
 import com.nike.cerberus.record.DataKeyInfo;
+import com.nike.cerberus.record.SecureDataPathNodeRecord;
 import com.nike.cerberus.record.SecureDataRecord;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -62,7 +66,7 @@ public class SecureDataDao {
             .setLastUpdatedBy(lastUpdatedBy)
             .setLastUpdatedTs(lastUpdatedTs)
             .setLastRotatedTs(lastUpdatedTs) // This is intentional
-        );
+            .setRevisionId(newRevisionId()));
   }
 
   public void updateSecureData(
@@ -91,7 +95,16 @@ public class SecureDataDao {
             .setCreatedTs(createdTs)
             .setLastUpdatedTs(lastUpdatedTs)
             .setLastUpdatedBy(lastUpdatedBy)
-            .setLastRotatedTs(lastRotatedTs));
+            .setLastRotatedTs(lastRotatedTs)
+            .setRevisionId(newRevisionId()));
+  }
+
+  /**
+   * Every write gets a new revision id, which the entity tags are derived from, since the second
+   * precision LAST_UPDATED_TS does not change between writes within the same second
+   */
+  private static String newRevisionId() {
+    return UUID.randomUUID().toString();
   }
 
   public int updateSecureData(SecureDataRecord secureDataRecord) {
@@ -102,6 +115,10 @@ public class SecureDataDao {
     return Optional.ofNullable(secureDataMapper.readSecureDataByPath(sdbId, path));
   }
 
+  public Optional<SecureDataRecord> readSecureDataByPathLocking(String sdbId, String path) {
+    return Optional.ofNullable(secureDataMapper.readSecureDataByPathLocking(sdbId, path));
+  }
+
   public Optional<SecureDataRecord> readSecureDataByIdLocking(String id) {
     return Optional.ofNullable(secureDataMapper.readSecureDataByIdLocking(id));
   }
@@ -116,6 +133,24 @@ public class SecureDataDao {
     return Optional.ofNullable(secureDataMapper.readMetadataByPathAndType(sdbId, path, type));
   }
 
+  /**
+   * Reads at most limit secure data of the type under the partial path, ordered by path, including
+   * the encrypted payloads.
+   */
+  public List<SecureDataRecord> readSecureDataByPartialPathAndType(
+      String sdbId, String partialPath, SecureDataType type, int limit) {
+    return secureDataMapper.readSecureDataByPartialPathAndType(sdbId, partialPath, type, limit);
+  }
+
+  /** Reads the secure data of the type at the paths, ordered by path, including the payloads. */
+  public List<SecureDataRecord> readSecureDataByPathsAndType(
+      String sdbId, Collection<String> paths, SecureDataType type) {
+    if (paths.isEmpty()) {
+      return List.of();
+    }
+    return secureDataMapper.readSecureDataByPathsAndType(sdbId, paths, type);
+  }
+
   public String[] getPathsByPartialPath(String sdbId, String partialPath) {
     return secureDataMapper.getPathsByPartialPath(sdbId, partialPath);
   }
@@ -129,14 +164,30 @@ public class SecureDataDao {
     return secureDataMapper.getPathsBySdbId(sdbId);
   }
 
-  public List<SecureDataRecord> listSecureDataByPartialPathAndType(
+  /** Lists the secure data under the partial path without the encrypted payloads. */
+  public List<SecureDataRecord> listMetadataByPartialPathAndType(
       String sdbId, String partialPath, SecureDataType type, int limit, int offset) {
-    return secureDataMapper.listSecureDataByPartialPathAndType(
+    return secureDataMapper.listMetadataByPartialPathAndType(
         sdbId, partialPath, type, limit, offset);
   }
 
-  public int countByPartialPathAndType(String partialPath, SecureDataType type) {
-    return secureDataMapper.countByPartialPathAndType(partialPath, type);
+  /**
+   * Lists the secure data under the partial path that comes after the given path when ordered by
+   * creation time and then path, both descending, without the encrypted payloads.
+   */
+  public List<SecureDataRecord> listMetadataByPartialPathAndTypeCreatedBefore(
+      String sdbId,
+      String partialPath,
+      SecureDataType type,
+      OffsetDateTime createdTs,
+      String path,
+      int limit) {
+    return secureDataMapper.listMetadataByPartialPathAndTypeCreatedBefore(
+        sdbId, partialPath, type, createdTs, path, limit);
+  }
+
+  public int countByPartialPathAndType(String sdbId, String partialPath, SecureDataType type) {
+    return secureDataMapper.countByPartialPathAndType(sdbId, partialPath, type);
   }
 
   public int countByType(SecureDataType type) {
@@ -155,6 +206,72 @@ public class SecureDataDao {
     secureDataMapper.deleteSecret(sdbId, path);
   }
 
+  /**
+   * Lists the direct children of a folder from the path tree, folders end with '/'.
+   *
+   * @param parentPath The path of the folder, ending with '/'
+   */
+  public String[] getPathTreeChildNames(String sdbId, String parentPath, SecureDataType type) {
+    return secureDataMapper.getPathNodeNamesByParentPathAndType(sdbId, parentPath, type);
+  }
+
+  /** Adds newly created secure data to the path tree, counting it in each of its folders. */
+  public void addToPathTree(String sdbId, String path, SecureDataType type) {
+    List<SecureDataPathNodeRecord> nodes = getPathNodes(sdbId, path, type);
+    if (!nodes.isEmpty()) {
+      secureDataMapper.incrementPathNodes(nodes);
+    }
+  }
+
+  /**
+   * Removes deleted secure data from the path tree, folders that no longer hold any secure data are
+   * removed with it.
+   */
+  public void removeFromPathTree(String sdbId, String path, SecureDataType type) {
+    List<SecureDataPathNodeRecord> nodes = getPathNodes(sdbId, path, type);
+    if (!nodes.isEmpty()) {
+      secureDataMapper.decrementPathNodes(nodes);
+      secureDataMapper.deleteEmptyPathNodes(nodes);
+    }
+  }
+
+  /**
+   * Removes everything below the partial path from the path tree. The counts of the folders above
+   * the partial path are left as they are, so this is meant for deleting everything in an SDB.
+   */
+  public void deletePathTreeUnderPartialPath(String sdbId, String partialPath) {
+    secureDataMapper.deletePathNodesUnderPartialPath(sdbId, partialPath);
+  }
+
+  /**
+   * Splits a path into one node per path segment after the SDB slug, each keyed by the path of the
+   * folder it is in. e.g. 'my-sdb/foo/bar' is 'foo/' in 'my-sdb/' and 'bar' in 'my-sdb/foo/'.
+   */
+  static List<SecureDataPathNodeRecord> getPathNodes(
+      String sdbId, String path, SecureDataType type) {
+    List<SecureDataPathNodeRecord> nodes = new ArrayList<>();
+    int parentEnd = path.indexOf('/') + 1;
+    if (parentEnd == 0) {
+      return nodes;
+    }
+    boolean isFolder;
+    do {
+      int nameEnd = path.indexOf('/', parentEnd) + 1;
+      isFolder = nameEnd > 0;
+      if (!isFolder) {
+        nameEnd = path.length();
+      }
+      nodes.add(
+          new SecureDataPathNodeRecord()
+              .setSdboxId(sdbId)
+              .setParentPath(path.substring(0, parentEnd))
+              .setType(type)
+              .setName(path.substring(parentEnd, nameEnd)));
+      parentEnd = nameEnd;
+    } while (isFolder);
+    return nodes;
+  }
+
   public int getSumTopLevelKeyValuePairs() {
     Integer val = secureDataMapper.getSumTopLevelKeyValuePairs();
     return val == null ? 0 : val;
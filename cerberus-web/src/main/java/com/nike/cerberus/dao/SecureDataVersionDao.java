@@ -81,6 +81,15 @@ public class SecureDataVersionDao {
     return secureDataVersionMapper.listSecureDataVersionsByPath(path, limit, offset);
   }
 
+  /**
+   * Lists the versions of the path that come after the given version when ordered by action time
+   * and then ID, both descending.
+   */
+  public List<SecureDataVersionRecord> listSecureDataVersionByPathBefore(
+      String path, OffsetDateTime actionTs, String id, int limit) {
+    return secureDataVersionMapper.listSecureDataVersionsByPathBefore(path, actionTs, id, limit);
+  }
+
   public Optional<SecureDataVersionRecord> readSecureDataVersionById(String id) {
     return Optional.ofNullable(secureDataVersionMapper.readSecureDataVersionById(id));
   }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.event;
+
+import java.util.Set;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when SDBs are created, restored or deleted or their permissions change, either through
+ * this instance or, when the permission index is enabled, through another instance.
+ *
+ * <p>Changes made through this instance are published within the transaction that makes them, so
+ * listeners that must only see committed changes should be transactional event listeners.
+ */
+public class SafeDepositBoxChangedEvent extends ApplicationEvent {
+
+  @Getter private final Set<String> safeDepositBoxIds;
+
+  /**
+   * @param source The object that published the event
+   * @param safeDepositBoxIds The IDs of the SDBs that changed
+   */
+  public SafeDepositBoxChangedEvent(Object source, Set<String> safeDepositBoxIds) {
+    super(source);
+    this.safeDepositBoxIds = safeDepositBoxIds;
+  }
+}
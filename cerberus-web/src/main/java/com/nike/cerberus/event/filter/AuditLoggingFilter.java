@@ -110,12 +110,22 @@ public class AuditLoggingFilter extends OncePerRequestFilter {
     return blackListMatcher.matches(request);
   }
 
+  /** Requests that use servlet async processing are logged once the async dispatch completes */
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
   @Override
   protected void doFilterInternal(
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     filterChain.doFilter(request, response);
 
+    if (isAsyncStarted(request)) {
+      return;
+    }
+
     var authentication = SecurityContextHolder.getContext().getAuthentication();
     Object principal = Optional.ofNullable(authentication.getPrincipal()).orElse("Unknown");
 
@@ -33,6 +33,9 @@ public class ExpiredTokenCleanUpJob extends LockingJob {
   private final int maxNumberOfTokensToDeletePerJobRun;
   private final int numberOfTokensToDeletePerBatch;
   private final int batchPauseTimeInMillis;
+  private final boolean partitionsEnabled;
+  private final int partitionSizeInHours;
+  private final int numberOfPartitionsAhead;
 
   @Autowired
   public ExpiredTokenCleanUpJob(
@@ -42,12 +45,21 @@ public class ExpiredTokenCleanUpJob extends LockingJob {
       @Value("${cerberus.jobs.expiredTokenCleanUpJob.numberOfTokensToDeletePerBatch}")
           int numberOfTokensToDeletePerBatch,
       @Value("${cerberus.jobs.expiredTokenCleanUpJob.batchPauseTimeInMillis}")
-          int batchPauseTimeInMillis) {
+          int batchPauseTimeInMillis,
+      @Value("${cerberus.jobs.expiredTokenCleanUpJob.partitions.enabled:#{false}}")
+          boolean partitionsEnabled,
+      @Value("${cerberus.jobs.expiredTokenCleanUpJob.partitions.partitionSizeInHours:#{1}}")
+          int partitionSizeInHours,
+      @Value("${cerberus.jobs.expiredTokenCleanUpJob.partitions.numberOfPartitionsAhead:#{24}}")
+          int numberOfPartitionsAhead) {
 
     this.authTokenService = authTokenService;
     this.maxNumberOfTokensToDeletePerJobRun = maxNumberOfTokensToDeletePerJobRun;
     this.numberOfTokensToDeletePerBatch = numberOfTokensToDeletePerBatch;
     this.batchPauseTimeInMillis = batchPauseTimeInMillis;
+    this.partitionsEnabled = partitionsEnabled;
+    this.partitionSizeInHours = partitionSizeInHours;
+    this.numberOfPartitionsAhead = numberOfPartitionsAhead;
   }
 
   @Override
@@ -58,6 +70,20 @@ public class ExpiredTokenCleanUpJob extends LockingJob {
 
   @Override
   protected void executeLockableCode() {
+    if (partitionsEnabled && authTokenService.isTokenTablePartitioned()) {
+      int numberOfDroppedPartitions =
+          authTokenService.rotateTokenPartitions(
+              partitionSizeInHours, numberOfPartitionsAhead, maxNumberOfTokensToDeletePerJobRun);
+      log.info("Dropped {} token partitions", numberOfDroppedPartitions);
+      return;
+    }
+
+    if (partitionsEnabled) {
+      log.error(
+          "Token partitions are enabled but AUTH_TOKENS is not partitioned, "
+              + "falling back to deleting expired tokens");
+    }
+
     int numberOfDeletedTokens =
         authTokenService.deleteExpiredTokens(
             maxNumberOfTokensToDeletePerJobRun,
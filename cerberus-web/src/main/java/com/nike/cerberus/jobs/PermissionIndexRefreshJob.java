@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.jobs;
+
+import com.nike.cerberus.service.PermissionIndexService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the in-memory SDB permission index on startup and then keeps it up to date with the
+ * permission changes made on any instance. This runs on every instance and does not take the job
+ * lock.
+ */
+@Slf4j
+@ConditionalOnProperty("cerberus.auth.permissionIndex.enabled")
+@Component
+public class PermissionIndexRefreshJob {
+
+  private final PermissionIndexService permissionIndexService;
+
+  @Autowired
+  public PermissionIndexRefreshJob(PermissionIndexService permissionIndexService) {
+    this.permissionIndexService = permissionIndexService;
+  }
+
+  @Scheduled(
+      initialDelay = 0,
+      fixedDelayString = "${cerberus.jobs.permissionIndexRefreshJob.refreshIntervalInMillis:2000}")
+  public void execute() {
+    log.debug("Refreshing the SDB permission index");
+    try {
+      permissionIndexService.refresh();
+    } catch (Exception e) {
+      log.warn("Error refreshing the SDB permission index", e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.jobs;
+
+import com.nike.cerberus.service.AuthTokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically loads the signed auth tokens that have been revoked on any instance into memory, so
+ * that signed tokens can be verified without a database round trip. This runs on every instance
+ * and does not take the job lock.
+ */
+@Slf4j
+@ConditionalOnProperty("cerberus.auth.token.signed.enabled")
+@Component
+public class RevokedAuthTokenPollingJob {
+
+  private final AuthTokenService authTokenService;
+
+  @Autowired
+  public RevokedAuthTokenPollingJob(AuthTokenService authTokenService) {
+    this.authTokenService = authTokenService;
+  }
+
+  @Scheduled(
+      initialDelay = 0,
+      fixedDelayString = "${cerberus.jobs.revokedAuthTokenPollingJob.pollIntervalInMillis:10000}")
+  public void execute() {
+    log.debug("Refreshing revoked signed auth tokens");
+    try {
+      authTokenService.refreshRevokedSignedTokens();
+    } catch (Exception e) {
+      log.warn("Error refreshing revoked signed auth tokens", e);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.jobs;
+
+import com.nike.cerberus.service.SafeDepositBoxPathIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the SDB path index on startup and periodically reconciles it against SAFE_DEPOSIT_BOX, so
+ * that SDBs created or deleted through other instances are picked up. This runs on every instance
+ * and does not take the job lock.
+ */
+@Slf4j
+@ConditionalOnProperty("cerberus.sdb.pathIndex.enabled")
+@Component
+public class SafeDepositBoxPathIndexReconcileJob {
+
+  private final SafeDepositBoxPathIndex safeDepositBoxPathIndex;
+
+  @Autowired
+  public SafeDepositBoxPathIndexReconcileJob(SafeDepositBoxPathIndex safeDepositBoxPathIndex) {
+    this.safeDepositBoxPathIndex = safeDepositBoxPathIndex;
+  }
+
+  @Scheduled(
+      initialDelay = 0,
+      fixedDelayString =
+          "${cerberus.jobs.safeDepositBoxPathIndexReconcileJob.reconcileIntervalInMillis:30000}")
+  public void execute() {
+    log.debug("Reconciling the SDB path index");
+    try {
+      safeDepositBoxPathIndex.reconcile();
+    } catch (Exception e) {
+      log.warn("Error reconciling the SDB path index", e);
+    }
+  }
+}
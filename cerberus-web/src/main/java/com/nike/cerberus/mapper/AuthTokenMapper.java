@@ -17,15 +17,33 @@
 package com.nike.cerberus.mapper;
 
 import com.nike.cerberus.record.AuthTokenRecord;
+import com.nike.cerberus.record.RevokedAuthTokenRecord;
+import java.time.OffsetDateTime;
+import java.util.List;
 import org.apache.ibatis.annotations.Param;
 
 public interface AuthTokenMapper {
 
   int createAuthToken(@Param("record") AuthTokenRecord record);
 
-  AuthTokenRecord getAuthTokenFromHash(@Param("hash") String hash);
+  int createAuthTokens(@Param("records") List<AuthTokenRecord> records);
 
-  void deleteAuthTokenFromHash(@Param("hash") String hash);
+  List<AuthTokenRecord> getAuthTokensFromHash(
+      @Param("hash") String hash, @Param("now") OffsetDateTime now);
+
+  int deleteAuthTokenFromHash(@Param("hash") String hash);
 
   int deleteExpiredTokens(@Param("limit") int limit);
+
+  List<String> getAuthTokenPartitionNames();
+
+  void addAuthTokenPartitions(@Param("partitionDefinitions") String partitionDefinitions);
+
+  void dropAuthTokenPartitions(@Param("partitionNames") String partitionNames);
+
+  int createRevokedAuthToken(@Param("record") RevokedAuthTokenRecord record);
+
+  List<RevokedAuthTokenRecord> getUnexpiredRevokedAuthTokens();
+
+  int deleteExpiredRevokedAuthTokens(@Param("limit") int limit);
 }
@@ -16,6 +16,11 @@
 
 package com.nike.cerberus.mapper;
 
+import com.nike.cerberus.record.SdbPermissionChangeRecord;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import org.apache.ibatis.annotations.Param;
 
@@ -43,4 +48,26 @@ public interface PermissionsMapper {
       @Param("sdbId") String sdbId,
       @Param("rolesThatAllowPermission") Set<String> rolesThatAllowPermission,
       @Param("userGroupsThatPrincipalBelongsTo") Set<String> userGroupsThatPrincipalBelongsTo);
+
+  List<SdbPermissionRecord> getIamPrincipalPermissions(@Param("sdbIds") Set<String> sdbIds);
+
+  List<SdbPermissionRecord> getUserGroupPermissions(@Param("sdbIds") Set<String> sdbIds);
+
+  List<SdbPermissionRecord> getIamPrincipalPermissionsForPrincipals(
+      @Param("sdbIds") Set<String> sdbIds,
+      @Param("iamPrincipalArns") Collection<String> iamPrincipalArns);
+
+  List<SdbPermissionRecord> getUserGroupPermissionsForUserGroups(
+      @Param("sdbIds") Set<String> sdbIds,
+      @Param("userGroups") Set<String> userGroups,
+      @Param("caseSensitive") boolean caseSensitive);
+
+  int createSdbPermissionChange(
+      @Param("sdbId") String sdbId, @Param("createdTs") OffsetDateTime createdTs);
+
+  List<SdbPermissionChangeRecord> getSdbPermissionChangesSince(
+      @Param("createdTs") OffsetDateTime createdTs);
+
+  int deleteSdbPermissionChangesOlderThan(
+      @Param("createdTs") OffsetDateTime createdTs, @Param("limit") int limit);
 }
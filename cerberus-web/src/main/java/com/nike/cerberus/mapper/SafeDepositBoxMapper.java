@@ -18,6 +18,7 @@ package com.nike.cerberus.mapper;
 
 import com.nike.cerberus.record.SafeDepositBoxRecord;
 import com.nike.cerberus.record.SafeDepositBoxRoleRecord;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Set;
 import org.apache.ibatis.annotations.Param;
@@ -69,6 +70,11 @@ public interface SafeDepositBoxMapper {
   List<SafeDepositBoxRecord> getSafeDepositBoxes(
       @Param("limit") int limit, @Param("offset") int offset);
 
+  List<SafeDepositBoxRecord> getSafeDepositBoxesCreatedBefore(
+      @Param("createdTs") OffsetDateTime createdTs,
+      @Param("id") String id,
+      @Param("limit") int limit);
+
   int count();
 
   String getSafeDepositBoxIdByName(@Param("name") String name);
@@ -76,4 +82,8 @@ public interface SafeDepositBoxMapper {
   String getSafeDepositBoxNameById(@Param("id") String id);
 
   String getSafeDepositBoxIdByPath(@Param("path") String path);
+
+  List<SafeDepositBoxRecord> getSafeDepositBoxPaths();
+
+  List<SafeDepositBoxRecord> getSafeDepositBoxIdsByPaths(@Param("paths") Set<String> paths);
 }
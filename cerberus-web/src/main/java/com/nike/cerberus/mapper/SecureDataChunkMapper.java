@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+public interface SecureDataChunkMapper {
+
+  int writeChunk(
+      @Param("chunkSetId") String chunkSetId,
+      @Param("chunkIndex") int chunkIndex,
+      @Param("sdbId") String sdbId,
+      @Param("data") byte[] data);
+
+  byte[] readChunk(@Param("chunkSetId") String chunkSetId, @Param("chunkIndex") int chunkIndex);
+
+  int countChunkSetReferences(
+      @Param("sdbId") String sdbId, @Param("reference") byte[] reference);
+
+  int deleteChunkSet(@Param("chunkSetId") String chunkSetId);
+
+  int deleteChunksBySdbId(@Param("sdbId") String sdbId);
+}
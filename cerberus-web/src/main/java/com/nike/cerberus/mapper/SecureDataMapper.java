@@ -18,8 +18,10 @@ package com.nike.cerberus.mapper;
 
 import com.nike.cerberus.domain.SecureDataType;
 import com.nike.cerberus.record.DataKeyInfo;
+import com.nike.cerberus.record.SecureDataPathNodeRecord;
 import com.nike.cerberus.record.SecureDataRecord;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import org.apache.ibatis.annotations.Param;
@@ -32,6 +34,9 @@ public interface SecureDataMapper {
 
   SecureDataRecord readSecureDataByPath(@Param("sdbId") String sdbId, @Param("path") String path);
 
+  SecureDataRecord readSecureDataByPathLocking(
+      @Param("sdbId") String sdbId, @Param("path") String path);
+
   SecureDataRecord readSecureDataByIdLocking(@Param("id") String id);
 
   SecureDataRecord readSecureDataByPathAndType(
@@ -40,6 +45,17 @@ public interface SecureDataMapper {
   SecureDataRecord readMetadataByPathAndType(
       @Param("sdbId") String sdbId, @Param("path") String path, @Param("type") SecureDataType type);
 
+  List<SecureDataRecord> readSecureDataByPartialPathAndType(
+      @Param("sdbId") String sdbId,
+      @Param("partialPath") String partialPath,
+      @Param("type") SecureDataType type,
+      @Param("limit") int limit);
+
+  List<SecureDataRecord> readSecureDataByPathsAndType(
+      @Param("sdbId") String sdbId,
+      @Param("paths") Collection<String> paths,
+      @Param("type") SecureDataType type);
+
   String[] getPathsByPartialPath(
       @Param("sdbId") String sdbId, @Param("partialPath") String partialPath);
 
@@ -48,15 +64,25 @@ public interface SecureDataMapper {
       @Param("partialPath") String partialPath,
       @Param("type") SecureDataType type);
 
-  List<SecureDataRecord> listSecureDataByPartialPathAndType(
+  List<SecureDataRecord> listMetadataByPartialPathAndType(
       @Param("sdbId") String sdbId,
       @Param("partialPath") String partialPath,
       @Param("type") SecureDataType type,
       @Param("limit") int limit,
       @Param("offset") int offset);
 
+  List<SecureDataRecord> listMetadataByPartialPathAndTypeCreatedBefore(
+      @Param("sdbId") String sdbId,
+      @Param("partialPath") String partialPath,
+      @Param("type") SecureDataType type,
+      @Param("createdTs") OffsetDateTime createdTs,
+      @Param("path") String path,
+      @Param("limit") int limit);
+
   int countByPartialPathAndType(
-      @Param("partialPath") String partialPath, @Param("type") SecureDataType type);
+      @Param("sdbId") String sdbId,
+      @Param("partialPath") String partialPath,
+      @Param("type") SecureDataType type);
 
   int countByType(@Param("type") SecureDataType type);
 
@@ -69,6 +95,20 @@ public interface SecureDataMapper {
 
   int deleteSecret(@Param("sdbId") String sdbId, @Param("path") String path);
 
+  String[] getPathNodeNamesByParentPathAndType(
+      @Param("sdbId") String sdbId,
+      @Param("parentPath") String parentPath,
+      @Param("type") SecureDataType type);
+
+  int incrementPathNodes(@Param("nodes") List<SecureDataPathNodeRecord> nodes);
+
+  int decrementPathNodes(@Param("nodes") List<SecureDataPathNodeRecord> nodes);
+
+  int deleteEmptyPathNodes(@Param("nodes") List<SecureDataPathNodeRecord> nodes);
+
+  int deletePathNodesUnderPartialPath(
+      @Param("sdbId") String sdbId, @Param("partialPath") String partialPath);
+
   Integer getSumTopLevelKeyValuePairs();
 
   List<DataKeyInfo> getOldestDataKeyInfo(
@@ -17,6 +17,7 @@
 package com.nike.cerberus.mapper;
 
 import com.nike.cerberus.record.SecureDataVersionRecord;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Set;
 import org.apache.ibatis.annotations.Param;
@@ -32,6 +33,12 @@ public interface SecureDataVersionMapper {
   List<SecureDataVersionRecord> listSecureDataVersionsByPath(
       @Param("path") String path, @Param("limit") int limit, @Param("offset") int offset);
 
+  List<SecureDataVersionRecord> listSecureDataVersionsByPathBefore(
+      @Param("path") String path,
+      @Param("actionTs") OffsetDateTime actionTs,
+      @Param("id") String id,
+      @Param("limit") int limit);
+
   SecureDataVersionRecord readSecureDataVersionById(@Param("id") String id);
 
   SecureDataVersionRecord readSecureDataVersionByIdLocking(@Param("id") String id);
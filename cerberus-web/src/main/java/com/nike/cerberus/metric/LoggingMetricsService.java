@@ -18,6 +18,7 @@ package com.nike.cerberus.metric;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
 import java.util.Map;
@@ -56,6 +57,11 @@ public class LoggingMetricsService implements MetricsService {
         getMetricNameFromNameAndDimensions(name, dimensions), () -> supplier::get);
   }
 
+  @Override
+  public Histogram getOrCreateHistogram(String name, Map<String, String> dimensions) {
+    return metricRegistry.histogram(getMetricNameFromNameAndDimensions(name, dimensions));
+  }
+
   private String getMetricNameFromNameAndDimensions(
       String name, Map<String, String> optionalDimensions) {
     var metricNameBuilder = new StringBuilder(name);
@@ -18,6 +18,7 @@ package com.nike.cerberus.metric;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -26,4 +27,6 @@ public interface MetricsService {
 
   Gauge getOrCreateCallbackGauge(
       String name, Supplier<Number> supplier, Map<String, String> dimensions);
+
+  Histogram getOrCreateHistogram(String name, Map<String, String> dimensions);
 }
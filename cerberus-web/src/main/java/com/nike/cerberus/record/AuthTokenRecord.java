@@ -24,6 +24,8 @@ public class AuthTokenRecord {
 
   private String tokenHash;
 
+  private Integer hashVersion;
+
   private OffsetDateTime createdTs;
 
   private OffsetDateTime expiresTs;
@@ -56,6 +58,15 @@ public class AuthTokenRecord {
     return this;
   }
 
+  public Integer getHashVersion() {
+    return hashVersion;
+  }
+
+  public AuthTokenRecord setHashVersion(Integer hashVersion) {
+    this.hashVersion = hashVersion;
+    return this;
+  }
+
   public OffsetDateTime getCreatedTs() {
     return createdTs;
   }
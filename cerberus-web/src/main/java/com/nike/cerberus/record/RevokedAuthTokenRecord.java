@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.record;
+
+import java.time.OffsetDateTime;
+
+public class RevokedAuthTokenRecord {
+
+  private String id;
+
+  private OffsetDateTime createdTs;
+
+  private OffsetDateTime expiresTs;
+
+  public String getId() {
+    return id;
+  }
+
+  public RevokedAuthTokenRecord setId(String id) {
+    this.id = id;
+    return this;
+  }
+
+  public OffsetDateTime getCreatedTs() {
+    return createdTs;
+  }
+
+  public RevokedAuthTokenRecord setCreatedTs(OffsetDateTime createdTs) {
+    this.createdTs = createdTs;
+    return this;
+  }
+
+  public OffsetDateTime getExpiresTs() {
+    return expiresTs;
+  }
+
+  public RevokedAuthTokenRecord setExpiresTs(OffsetDateTime expiresTs) {
+    this.expiresTs = expiresTs;
+    return this;
+  }
+}
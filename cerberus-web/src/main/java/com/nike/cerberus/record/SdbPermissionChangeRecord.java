@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.record;
+
+import java.time.OffsetDateTime;
+
+/** POJO for representing a SDB_PERMISSION_CHANGES record. */
+public class SdbPermissionChangeRecord {
+
+  private Long version;
+
+  private String sdboxId;
+
+  private OffsetDateTime createdTs;
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public SdbPermissionChangeRecord setVersion(Long version) {
+    this.version = version;
+    return this;
+  }
+
+  public String getSdboxId() {
+    return sdboxId;
+  }
+
+  public SdbPermissionChangeRecord setSdboxId(String sdboxId) {
+    this.sdboxId = sdboxId;
+    return this;
+  }
+
+  public OffsetDateTime getCreatedTs() {
+    return createdTs;
+  }
+
+  public SdbPermissionChangeRecord setCreatedTs(OffsetDateTime createdTs) {
+    this.createdTs = createdTs;
+    return this;
+  }
+}
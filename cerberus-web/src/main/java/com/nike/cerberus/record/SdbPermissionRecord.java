@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.record;
+
+/**
+ * POJO for representing a single role granted to an IAM principal or user group on a safe deposit
+ * box. This is used to build the in-memory permission index and to answer batch permission checks.
+ */
+public class SdbPermissionRecord {
+
+  private String sdboxId;
+
+  private String principalName;
+
+  private String roleName;
+
+  public String getSdboxId() {
+    return sdboxId;
+  }
+
+  public SdbPermissionRecord setSdboxId(String sdboxId) {
+    this.sdboxId = sdboxId;
+    return this;
+  }
+
+  public String getPrincipalName() {
+    return principalName;
+  }
+
+  public SdbPermissionRecord setPrincipalName(String principalName) {
+    this.principalName = principalName;
+    return this;
+  }
+
+  public String getRoleName() {
+    return roleName;
+  }
+
+  public SdbPermissionRecord setRoleName(String roleName) {
+    this.roleName = roleName;
+    return this;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.record;
+
+import com.nike.cerberus.domain.SecureDataType;
+
+/** POJO for representing a SECURE_DATA_PATH_NODE record. */
+public class SecureDataPathNodeRecord {
+
+  private String sdboxId;
+
+  private String parentPath;
+
+  private SecureDataType type;
+
+  private String name;
+
+  private Integer descendantCount;
+
+  public String getSdboxId() {
+    return sdboxId;
+  }
+
+  public SecureDataPathNodeRecord setSdboxId(String sdboxId) {
+    this.sdboxId = sdboxId;
+    return this;
+  }
+
+  public String getParentPath() {
+    return parentPath;
+  }
+
+  public SecureDataPathNodeRecord setParentPath(String parentPath) {
+    this.parentPath = parentPath;
+    return this;
+  }
+
+  public SecureDataType getType() {
+    return type;
+  }
+
+  public SecureDataPathNodeRecord setType(SecureDataType type) {
+    this.type = type;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public SecureDataPathNodeRecord setName(String name) {
+    this.name = name;
+    return this;
+  }
+
+  public Integer getDescendantCount() {
+    return descendantCount;
+  }
+
+  public SecureDataPathNodeRecord setDescendantCount(Integer descendantCount) {
+    this.descendantCount = descendantCount;
+    return this;
+  }
+}
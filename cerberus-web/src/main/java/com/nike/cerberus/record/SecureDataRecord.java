@@ -34,6 +34,7 @@ public class SecureDataRecord {
   private OffsetDateTime lastUpdatedTs;
   private String lastUpdatedBy;
   private OffsetDateTime lastRotatedTs;
+  private String revisionId;
 
   public Integer getId() {
     return id;
@@ -143,4 +144,13 @@ public class SecureDataRecord {
     this.lastRotatedTs = lastRotatedTs;
     return this;
   }
+
+  public String getRevisionId() {
+    return revisionId;
+  }
+
+  public SecureDataRecord setRevisionId(String revisionId) {
+    this.revisionId = revisionId;
+    return this;
+  }
 }
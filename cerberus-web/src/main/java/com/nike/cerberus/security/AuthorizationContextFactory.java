@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.security;
+
+import com.nike.cerberus.PrincipalType;
+import com.nike.cerberus.domain.CerberusAuthToken;
+import com.nike.cerberus.util.AwsIamPrincipalArn;
+import com.nike.cerberus.util.AwsIamRoleArnParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the principals of authenticated requests, with an authorization context that works out
+ * the role and account root ARNs of IAM principals the first time a permission check needs them.
+ */
+@Component
+public class AuthorizationContextFactory {
+
+  private final AwsIamRoleArnParser awsIamRoleArnParser;
+
+  @Autowired
+  public AuthorizationContextFactory(AwsIamRoleArnParser awsIamRoleArnParser) {
+    this.awsIamRoleArnParser = awsIamRoleArnParser;
+  }
+
+  /**
+   * @param cerberusAuthToken The token of the authenticated request
+   * @return The principal of the token
+   */
+  public CerberusPrincipal createPrincipal(CerberusAuthToken cerberusAuthToken) {
+    return new CerberusPrincipal(cerberusAuthToken, this::createAuthorizationContext);
+  }
+
+  /**
+   * @param cerberusAuthToken The token of a principal
+   * @return The user groups of the token, or for IAM principals the ARNs that permissions may be
+   *     granted to
+   */
+  public AuthorizationContext createAuthorizationContext(CerberusAuthToken cerberusAuthToken) {
+    if (cerberusAuthToken.getPrincipalType() != PrincipalType.IAM) {
+      return new AuthorizationContext(cerberusAuthToken.getGroups(), null, null, null);
+    }
+
+    String iamPrincipalArn = cerberusAuthToken.getPrincipal();
+    AwsIamPrincipalArn principalArn = awsIamRoleArnParser.parse(iamPrincipalArn);
+    String iamRootArn = awsIamRoleArnParser.convertPrincipalArnToRootArn(principalArn);
+    String iamRoleArn =
+        principalArn.isAssumedRoleArn()
+            ? awsIamRoleArnParser.convertPrincipalArnToRoleArn(principalArn)
+            : null;
+    return new AuthorizationContext(
+        cerberusAuthToken.getGroups(), iamPrincipalArn, iamRoleArn, iamRootArn);
+  }
+}
@@ -29,11 +29,15 @@ import org.springframework.security.web.util.matcher.RequestMatcher;
 public class DatabaseTokenAuthenticationProcessingFilter extends CerberusAuthenticationFilter {
 
   private final AuthTokenService authTokenService;
+  private final AuthorizationContextFactory authorizationContextFactory;
 
   public DatabaseTokenAuthenticationProcessingFilter(
-      AuthTokenService authTokenService, RequestMatcher requiresAuthenticationRequestMatcher) {
+      AuthTokenService authTokenService,
+      AuthorizationContextFactory authorizationContextFactory,
+      RequestMatcher requiresAuthenticationRequestMatcher) {
     super(requiresAuthenticationRequestMatcher);
     this.authTokenService = authTokenService;
+    this.authorizationContextFactory = authorizationContextFactory;
   }
 
   /**
@@ -50,6 +54,10 @@ public class DatabaseTokenAuthenticationProcessingFilter extends CerberusAuthent
     return Optional.ofNullable(request.getHeader(HEADER_X_CERBERUS_TOKEN))
         .or(() -> Optional.ofNullable(request.getHeader(LEGACY_AUTH_TOKN_HEADER)))
         // If the token is present then use the auth service to map it to a Cerberus Principal
-        .flatMap(token -> authTokenService.getCerberusAuthToken(token).map(CerberusPrincipal::new));
+        .flatMap(
+            token ->
+                authTokenService
+                    .getCerberusAuthToken(token)
+                    .map(authorizationContextFactory::createPrincipal));
   }
 }
@@ -60,6 +60,8 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
   @Autowired private AuthTokenService authTokenService;
 
+  @Autowired private AuthorizationContextFactory authorizationContextFactory;
+
   @Autowired
   private CerberusPrincipalAuthenticationProvider cerberusPrincipalAuthenticationProvider;
 
@@ -96,7 +98,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     var requestDoesNotRequireAuthMatcher = getDoesRequestsRequireAuthMatcher();
     var dbTokenFilter =
         new DatabaseTokenAuthenticationProcessingFilter(
-            authTokenService, requestDoesNotRequireAuthMatcher);
+            authTokenService, authorizationContextFactory, requestDoesNotRequireAuthMatcher);
 
     // Disable CSRF (cross site request forgery)
     http.csrf().disable();
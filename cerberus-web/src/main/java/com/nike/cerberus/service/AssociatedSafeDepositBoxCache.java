@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static com.nike.cerberus.service.PermissionValidationService.USER_GROUPS_CASE_SENSITIVE;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.hash.Hashing;
+import com.nike.cerberus.domain.SafeDepositBoxSummary;
+import com.nike.cerberus.event.SafeDepositBoxChangedEvent;
+import com.nike.cerberus.security.CerberusPrincipal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Caches the SDBs associated with each principal, keyed by the IAM principal ARN or by a hash of
+ * the sorted user groups, so that repeated listings do not run the association query.
+ *
+ * <p>Every SafeDepositBoxChangedEvent drops all of the cached listings once the change has been
+ * committed. The cache keys include a generation that each event increments, so a listing loaded
+ * from the database before the change committed is never served after it. Changes made through
+ * other instances are only seen through the events of the permission index, when it is disabled
+ * they are picked up once the cached listings expire.
+ */
+@Slf4j
+@Component
+public class AssociatedSafeDepositBoxCache {
+
+  private final Cache<String, List<SafeDepositBoxSummary>> associatedSdbCache;
+  private final boolean userGroupsCaseSensitive;
+  private final boolean enabled;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  @Autowired
+  public AssociatedSafeDepositBoxCache(
+      Cache<String, List<SafeDepositBoxSummary>> associatedSdbCache,
+      @Value(USER_GROUPS_CASE_SENSITIVE) boolean userGroupsCaseSensitive,
+      @Value("${cerberus.sdb.associatedSdbCache.enabled:false}") boolean enabled) {
+
+    this.associatedSdbCache = associatedSdbCache;
+    this.userGroupsCaseSensitive = userGroupsCaseSensitive;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Gets the SDBs associated with the principal from the cache, loading them when they are not
+   * cached.
+   *
+   * @param principal The authenticated principal
+   * @param loader Loads the SDBs associated with the principal from the database
+   * @return The summaries of the associated SDBs, the list is not modifiable
+   */
+  public List<SafeDepositBoxSummary> get(
+      CerberusPrincipal principal, Supplier<List<SafeDepositBoxSummary>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    String key = generation.get() + ":" + getPrincipalKey(principal);
+    return associatedSdbCache.get(key, k -> Collections.unmodifiableList(loader.get()));
+  }
+
+  /** Drops the cached listings once the transaction that changed the SDBs has committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSafeDepositBoxChanged(SafeDepositBoxChangedEvent event) {
+    if (!enabled) {
+      return;
+    }
+
+    generation.incrementAndGet();
+    associatedSdbCache.invalidateAll();
+    log.debug(
+        "Invalidated the cached SDB listings after {} SDBs changed",
+        event.getSafeDepositBoxIds().size());
+  }
+
+  private String getPrincipalKey(CerberusPrincipal principal) {
+    switch (principal.getPrincipalType()) {
+      case IAM:
+        return "iam:" + principal.getAuthorizationContext().getIamPrincipalArn();
+      case USER:
+        Set<String> userGroups =
+            userGroupsCaseSensitive
+                ? principal.getUserGroups()
+                : principal.getNormalizedUserGroups();
+        // the groups are sorted so that the key does not depend on the order they were given in
+        String sortedUserGroups = String.join("\n", new TreeSet<>(userGroups));
+        return "user:" + Hashing.sha256().hashString(sortedUserGroups, StandardCharsets.UTF_8);
+      default:
+        return principal.getPrincipalType() + ":" + principal.getName();
+    }
+  }
+}
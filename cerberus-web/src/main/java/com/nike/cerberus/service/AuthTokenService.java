@@ -17,22 +17,34 @@
 package com.nike.cerberus.service;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.nike.cerberus.util.TokenHasher.PBKDF2_HASH_VERSION;
 import static org.springframework.transaction.annotation.Isolation.READ_UNCOMMITTED;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.nike.cerberus.PrincipalType;
 import com.nike.cerberus.dao.AuthTokenDao;
 import com.nike.cerberus.domain.CerberusAuthToken;
 import com.nike.cerberus.record.AuthTokenRecord;
+import com.nike.cerberus.record.RevokedAuthTokenRecord;
 import com.nike.cerberus.util.AuthTokenGenerator;
+import com.nike.cerberus.util.AuthTokenSigner;
 import com.nike.cerberus.util.DateTimeSupplier;
 import com.nike.cerberus.util.TokenHasher;
 import com.nike.cerberus.util.UuidSupplier;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -47,6 +59,13 @@ public class AuthTokenService {
   private final AuthTokenGenerator authTokenGenerator;
   private final AuthTokenDao authTokenDao;
   private final DateTimeSupplier dateTimeSupplier;
+  private final boolean cacheEnabled;
+  private final Cache<String, CerberusAuthToken> authTokenCache;
+  private final AuthTokenSigner authTokenSigner;
+
+  // ids of revoked signed tokens mapped to when the token expires, refreshed from the db by the
+  // RevokedAuthTokenPollingJob, so that revocations made on other instances are honored
+  private final Map<String, OffsetDateTime> revokedSignedTokens = new ConcurrentHashMap<>();
 
   @Autowired
   public AuthTokenService(
@@ -54,16 +73,26 @@ public class AuthTokenService {
       TokenHasher tokenHasher,
       AuthTokenGenerator authTokenGenerator,
       AuthTokenDao authTokenDao,
-      DateTimeSupplier dateTimeSupplier) {
+      DateTimeSupplier dateTimeSupplier,
+      @Value("${cerberus.auth.token.cache.enabled:#{false}}") boolean cacheEnabled,
+      Cache<String, CerberusAuthToken> authTokenCache,
+      AuthTokenSigner authTokenSigner) {
 
     this.uuidSupplier = uuidSupplier;
     this.tokenHasher = tokenHasher;
     this.authTokenGenerator = authTokenGenerator;
     this.authTokenDao = authTokenDao;
     this.dateTimeSupplier = dateTimeSupplier;
+    this.cacheEnabled = cacheEnabled;
+    this.authTokenCache = authTokenCache;
+    this.authTokenSigner = authTokenSigner;
   }
 
-  @Transactional
+  /**
+   * Not transactional, the token is a single insert that may be batched with other inserts by the
+   * {@link com.nike.cerberus.dao.AuthTokenBatchWriter}, so the request thread should not hold a
+   * connection of its own.
+   */
   public CerberusAuthToken generateToken(
       String principal,
       PrincipalType principalType,
@@ -75,13 +104,11 @@ public class AuthTokenService {
     checkArgument(StringUtils.isNotBlank(principal), "The principal must be set and not empty");
 
     String id = uuidSupplier.get();
-    String token = authTokenGenerator.generateSecureToken();
     OffsetDateTime now = dateTimeSupplier.get();
 
     AuthTokenRecord tokenRecord =
         new AuthTokenRecord()
             .setId(id)
-            .setTokenHash(tokenHasher.hashToken(token))
             .setCreatedTs(now)
             .setExpiresTs(now.plusMinutes(ttlInMinutes))
             .setPrincipal(principal)
@@ -90,6 +117,16 @@ public class AuthTokenService {
             .setGroups(groups)
             .setRefreshCount(refreshCount);
 
+    // signed tokens carry their own data, so there is nothing to store
+    if (authTokenSigner.isEnabled()) {
+      return getCerberusAuthTokenFromRecord(authTokenSigner.sign(tokenRecord), tokenRecord);
+    }
+
+    String token = authTokenGenerator.generateSecureToken();
+    tokenRecord
+        .setTokenHash(tokenHasher.hashToken(token))
+        .setHashVersion(tokenHasher.getHashVersion());
+
     authTokenDao.createAuthToken(tokenRecord);
 
     return getCerberusAuthTokenFromRecord(token, tokenRecord);
@@ -109,11 +146,33 @@ public class AuthTokenService {
         .build();
   }
 
+  /**
+   * Looks up the token, when the token cache is enabled previously verified tokens are served from
+   * memory, skipping the token hashing and the database read. A cached token is never served past
+   * its expiration, and is only ever eventually consistent with revocations made on other instances
+   * up to the configured cache TTL.
+   *
+   * @param token The un-hashed token
+   * @return The token if it exists and has not expired
+   */
   public Optional<CerberusAuthToken> getCerberusAuthToken(String token) {
-    Optional<AuthTokenRecord> tokenRecord =
-        authTokenDao.getAuthTokenFromHash(tokenHasher.hashToken(token));
-
     OffsetDateTime now = OffsetDateTime.now();
+    if (AuthTokenSigner.isSignedToken(token)) {
+      return getCerberusAuthTokenFromSignedToken(token, now);
+    }
+
+    if (cacheEnabled) {
+      CerberusAuthToken cachedToken = authTokenCache.getIfPresent(token);
+      if (cachedToken != null) {
+        if (cachedToken.getExpires().isAfter(now)) {
+          return Optional.of(cachedToken);
+        }
+        authTokenCache.invalidate(token);
+      }
+    }
+
+    Optional<AuthTokenRecord> tokenRecord = getAuthTokenRecord(token);
+
     if (tokenRecord.isPresent() && tokenRecord.get().getExpiresTs().isBefore(now)) {
       logger.warn(
           "Returning empty optional, because token was expired, expired: {}, now: {}",
@@ -122,14 +181,95 @@ public class AuthTokenService {
       return Optional.empty();
     }
 
+    Optional<CerberusAuthToken> cerberusAuthToken =
+        tokenRecord.map(authTokenRecord -> getCerberusAuthTokenFromRecord(token, authTokenRecord));
+
+    if (cacheEnabled) {
+      cerberusAuthToken.ifPresent(authToken -> authTokenCache.put(token, authToken));
+    }
+
+    return cerberusAuthToken;
+  }
+
+  /**
+   * Verifies a signed token without going to the database, the token must have a valid signature,
+   * must not be expired and must not have been revoked.
+   */
+  private Optional<CerberusAuthToken> getCerberusAuthTokenFromSignedToken(
+      String token, OffsetDateTime now) {
+    Optional<AuthTokenRecord> tokenRecord = authTokenSigner.verify(token);
+
+    if (tokenRecord.isPresent() && tokenRecord.get().getExpiresTs().isBefore(now)) {
+      logger.warn(
+          "Returning empty optional, because signed token was expired, expired: {}, now: {}",
+          tokenRecord.get().getExpiresTs(),
+          now);
+      return Optional.empty();
+    }
+
+    if (tokenRecord.isPresent() && revokedSignedTokens.containsKey(tokenRecord.get().getId())) {
+      logger.warn("Returning empty optional, because signed token was revoked");
+      return Optional.empty();
+    }
+
     return tokenRecord.map(
         authTokenRecord -> getCerberusAuthTokenFromRecord(token, authTokenRecord));
   }
 
+  /**
+   * Looks up the token record using the configured hash scheme, falling back to the legacy PBKDF2
+   * scheme so that tokens issued before the hash scheme was changed remain valid until they expire.
+   */
+  private Optional<AuthTokenRecord> getAuthTokenRecord(String token) {
+    Optional<AuthTokenRecord> tokenRecord =
+        authTokenDao.getAuthTokenFromHash(tokenHasher.hashToken(token));
+
+    if (tokenRecord.isEmpty() && tokenHasher.getHashVersion() != PBKDF2_HASH_VERSION) {
+      tokenRecord =
+          authTokenDao.getAuthTokenFromHash(tokenHasher.hashToken(token, PBKDF2_HASH_VERSION));
+    }
+
+    return tokenRecord;
+  }
+
   @Transactional
   public void revokeToken(String token) {
+    if (AuthTokenSigner.isSignedToken(token)) {
+      authTokenSigner.verify(token).ifPresent(this::revokeSignedToken);
+      return;
+    }
+
+    if (cacheEnabled) {
+      authTokenCache.invalidate(token);
+    }
     String hash = tokenHasher.hashToken(token);
-    authTokenDao.deleteAuthTokenFromHash(hash);
+    int deleted = authTokenDao.deleteAuthTokenFromHash(hash);
+
+    if (deleted == 0 && tokenHasher.getHashVersion() != PBKDF2_HASH_VERSION) {
+      authTokenDao.deleteAuthTokenFromHash(tokenHasher.hashToken(token, PBKDF2_HASH_VERSION));
+    }
+  }
+
+  private void revokeSignedToken(AuthTokenRecord tokenRecord) {
+    authTokenDao.createRevokedAuthToken(
+        new RevokedAuthTokenRecord()
+            .setId(tokenRecord.getId())
+            .setCreatedTs(dateTimeSupplier.get())
+            .setExpiresTs(tokenRecord.getExpiresTs()));
+    revokedSignedTokens.put(tokenRecord.getId(), tokenRecord.getExpiresTs());
+  }
+
+  /**
+   * Reloads the revoked signed tokens from the database and forgets about revocations of tokens
+   * that have since expired, since expired tokens are rejected anyways.
+   */
+  public void refreshRevokedSignedTokens() {
+    authTokenDao
+        .getUnexpiredRevokedAuthTokens()
+        .forEach(record -> revokedSignedTokens.put(record.getId(), record.getExpiresTs()));
+
+    OffsetDateTime now = OffsetDateTime.now();
+    revokedSignedTokens.values().removeIf(expires -> expires.isBefore(now));
   }
 
   @Transactional(
@@ -137,6 +277,69 @@ public class AuthTokenService {
       //             = true // auto commit each batched / chunked delete TODO verify spring way
       )
   public int deleteExpiredTokens(int maxDelete, int batchSize, int batchPauseTimeInMillis) {
+    deleteExpiredRevokedTokens(maxDelete);
     return authTokenDao.deleteExpiredTokens(maxDelete, batchSize, batchPauseTimeInMillis);
   }
+
+  /** @return True if AUTH_TOKENS has been partitioned, so that partitions can be rotated */
+  public boolean isTokenTablePartitioned() {
+    return authTokenDao.isAuthTokensPartitioned();
+  }
+
+  /**
+   * Expires tokens by dropping whole AUTH_TOKENS partitions instead of deleting rows, and makes
+   * sure that partitions exist ahead of time for the tokens that will be issued. Dropping a
+   * partition is a metadata operation, so unlike the batched row deletes it does not generate undo
+   * log or row lock contention with the token inserts.
+   *
+   * @param partitionSizeInHours The width of the EXPIRES_TS range of each partition
+   * @param numberOfPartitionsAhead The number of partitions that should exist after the current one
+   * @param maxDelete The max number of expired revoked signed tokens to delete
+   * @return The number of partitions that were dropped
+   */
+  public int rotateTokenPartitions(
+      int partitionSizeInHours, int numberOfPartitionsAhead, int maxDelete) {
+    deleteExpiredRevokedTokens(maxDelete);
+
+    OffsetDateTime now = dateTimeSupplier.get().withOffsetSameInstant(ZoneOffset.UTC);
+    List<OffsetDateTime> existingUpperBounds = authTokenDao.getAuthTokenPartitionUpperBounds();
+
+    // a partition only holds tokens that expire before its upper bound
+    List<OffsetDateTime> expiredUpperBounds =
+        existingUpperBounds.stream()
+            .filter(upperBound -> !upperBound.isAfter(now))
+            .collect(Collectors.toList());
+    if (!expiredUpperBounds.isEmpty()) {
+      authTokenDao.dropAuthTokenPartitions(expiredUpperBounds);
+    }
+
+    OffsetDateTime maxExistingUpperBound =
+        existingUpperBounds.isEmpty()
+            ? now
+            : existingUpperBounds.get(existingUpperBounds.size() - 1);
+    OffsetDateTime currentBucketStart =
+        now.truncatedTo(ChronoUnit.DAYS)
+            .plusHours((now.getHour() / partitionSizeInHours) * partitionSizeInHours);
+    List<OffsetDateTime> newUpperBounds = new ArrayList<>();
+    for (int i = 1; i <= numberOfPartitionsAhead + 1; i++) {
+      OffsetDateTime upperBound = currentBucketStart.plusHours((long) i * partitionSizeInHours);
+      if (upperBound.isAfter(maxExistingUpperBound)) {
+        newUpperBounds.add(upperBound);
+      }
+    }
+    if (!newUpperBounds.isEmpty()) {
+      authTokenDao.addAuthTokenPartitions(newUpperBounds);
+    }
+
+    logger.info(
+        "Dropped {} expired token partitions and added {} token partitions",
+        expiredUpperBounds.size(),
+        newUpperBounds.size());
+    return expiredUpperBounds.size();
+  }
+
+  private void deleteExpiredRevokedTokens(int maxDelete) {
+    int numberOfDeletedRevokedTokens = authTokenDao.deleteExpiredRevokedAuthTokens(maxDelete);
+    logger.info("Deleted {} expired revoked signed tokens", numberOfDeletedRevokedTokens);
+  }
 }
@@ -102,6 +102,8 @@ public class AuthenticationService {
   private final int maxTokenRefreshCount;
   private final boolean cacheEnabled;
   private final Cache<AwsIamKmsAuthRequest, EncryptedAuthDataWrapper> kmsAuthCache;
+  private final boolean iamPrincipalCacheEnabled;
+  private final Cache<String, Optional<AwsIamRoleRecord>> iamPrincipalCache;
 
   // package exposed for testing, todo maybe fix?
   String adminRoleArns;
@@ -125,7 +127,10 @@ public class AuthenticationService {
       @Value("${cerberus.auth.iam.token.ttl}") String iamTokenTTL,
       AwsIamRoleService awsIamRoleService,
       @Value("${cerberus.auth.iam.kms.cache.enabled:#{false}}") boolean cacheEnabled,
-      Cache<AwsIamKmsAuthRequest, EncryptedAuthDataWrapper> kmsAuthCache) {
+      Cache<AwsIamKmsAuthRequest, EncryptedAuthDataWrapper> kmsAuthCache,
+      @Value("${cerberus.auth.iam.principalCache.enabled:#{false}}")
+          boolean iamPrincipalCacheEnabled,
+      Cache<String, Optional<AwsIamRoleRecord>> iamPrincipalCache) {
 
     this.awsIamRoleDao = awsIamRoleDao;
     this.authServiceConnector = authConnector;
@@ -143,6 +148,8 @@ public class AuthenticationService {
     this.awsIamRoleService = awsIamRoleService;
     this.cacheEnabled = cacheEnabled;
     this.kmsAuthCache = kmsAuthCache;
+    this.iamPrincipalCacheEnabled = iamPrincipalCacheEnabled;
+    this.iamPrincipalCache = iamPrincipalCache;
   }
 
   /**
@@ -716,10 +723,21 @@ public class AuthenticationService {
    * not found, then also search for the base role that the principal assumes (i.e.
    * arn:aws:iam::1111111111:role/example)
    *
+   * <p>When the IAM principal cache is enabled the result, including when no role was found, is
+   * cached until the IAM principals associated with SDBs change, see {@link
+   * AwsIamRoleService#invalidateIamPrincipalCache()}.
+   *
    * @param iamPrincipalArn - The authenticating IAM principal ARN
    * @return - The associated IAM role record
    */
   protected Optional<AwsIamRoleRecord> findIamRoleAssociatedWithSdb(String iamPrincipalArn) {
+    if (iamPrincipalCacheEnabled) {
+      return iamPrincipalCache.get(iamPrincipalArn, this::resolveIamRoleAssociatedWithSdb);
+    }
+    return resolveIamRoleAssociatedWithSdb(iamPrincipalArn);
+  }
+
+  private Optional<AwsIamRoleRecord> resolveIamRoleAssociatedWithSdb(String iamPrincipalArn) {
     Optional<AwsIamRoleRecord> iamRole = awsIamRoleDao.getIamRole(iamPrincipalArn);
 
     // if the arn is not already in 'role' format, and cannot be found,
@@ -18,14 +18,20 @@ package com.nike.cerberus.service;
 
 import static com.nike.cerberus.service.AuthenticationService.SYSTEM_USER;
 
+import com.codahale.metrics.Counter;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.nike.cerberus.dao.AwsIamRoleDao;
+import com.nike.cerberus.metric.MetricsService;
 import com.nike.cerberus.record.AwsIamRoleRecord;
 import com.nike.cerberus.util.DateTimeSupplier;
 import com.nike.cerberus.util.UuidSupplier;
 import java.time.OffsetDateTime;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Component
 public class AwsIamRoleService {
@@ -33,14 +39,23 @@ public class AwsIamRoleService {
   private final AwsIamRoleDao awsIamRoleDao;
   private final UuidSupplier uuidSupplier;
   private final DateTimeSupplier dateTimeSupplier;
+  private final Cache<String, Optional<AwsIamRoleRecord>> iamPrincipalCache;
+  private final Counter iamPrincipalCacheInvalidationCounter;
 
   @Autowired
   public AwsIamRoleService(
-      AwsIamRoleDao awsIamRoleDao, UuidSupplier uuidSupplier, DateTimeSupplier dateTimeSupplier) {
+      AwsIamRoleDao awsIamRoleDao,
+      UuidSupplier uuidSupplier,
+      DateTimeSupplier dateTimeSupplier,
+      Cache<String, Optional<AwsIamRoleRecord>> iamPrincipalCache,
+      MetricsService metricsService) {
 
     this.awsIamRoleDao = awsIamRoleDao;
     this.uuidSupplier = uuidSupplier;
     this.dateTimeSupplier = dateTimeSupplier;
+    this.iamPrincipalCache = iamPrincipalCache;
+    iamPrincipalCacheInvalidationCounter =
+        metricsService.getOrCreateCounter("cms.cache.auth.iam.principal.invalidations", null);
   }
 
   @Transactional
@@ -58,4 +73,25 @@ public class AwsIamRoleService {
 
     return awsIamRoleRecord;
   }
+
+  /**
+   * Invalidates the cached resolutions of IAM principals to IAM role records, this must be called
+   * whenever the IAM principals associated with SDBs change. When called within a transaction the
+   * cache is invalidated again once the transaction has committed, so that a concurrent login
+   * cannot cache the state from before the commit.
+   */
+  public void invalidateIamPrincipalCache() {
+    iamPrincipalCacheInvalidationCounter.inc();
+    iamPrincipalCache.invalidateAll();
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              iamPrincipalCache.invalidateAll();
+            }
+          });
+    }
+  }
 }
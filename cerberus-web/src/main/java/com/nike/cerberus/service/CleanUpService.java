@@ -43,13 +43,19 @@ public class CleanUpService {
 
   private final DateTimeSupplier dateTimeSupplier;
 
+  private final AwsIamRoleService awsIamRoleService;
+
   @Autowired
   public CleanUpService(
-      KmsService kmsService, AwsIamRoleDao awsIamRoleDao, DateTimeSupplier dateTimeSupplier) {
+      KmsService kmsService,
+      AwsIamRoleDao awsIamRoleDao,
+      DateTimeSupplier dateTimeSupplier,
+      AwsIamRoleService awsIamRoleService) {
 
     this.kmsService = kmsService;
     this.awsIamRoleDao = awsIamRoleDao;
     this.dateTimeSupplier = dateTimeSupplier;
+    this.awsIamRoleService = awsIamRoleService;
   }
 
   /**
@@ -129,5 +135,9 @@ public class CleanUpService {
                 e);
           }
         });
+
+    if (!orphanedIamRoleIds.isEmpty()) {
+      awsIamRoleService.invalidateIamPrincipalCache();
+    }
   }
 }
@@ -21,14 +21,28 @@ import com.amazonaws.encryptionsdk.kms.KmsMasterKey;
 import com.amazonaws.encryptionsdk.kms.KmsMasterKeyProvider;
 import com.amazonaws.encryptionsdk.multi.MultipleProviderFactory;
 import com.amazonaws.regions.Region;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.google.common.collect.Lists;
+import com.nike.cerberus.metric.MetricsService;
 import com.nike.cerberus.util.CiphertextUtils;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.slf4j.Logger;
@@ -45,6 +59,20 @@ public class EncryptionService {
   /** Property name for current SDB path in the EncryptionContext */
   public static final String SDB_PATH_PROPERTY_NAME = "sdb_path";
 
+  /**
+   * Property name for the compression of the plaintext in the EncryptionContext, absent when the
+   * plaintext is not compressed
+   */
+  public static final String CONTENT_ENCODING_PROPERTY_NAME = "content_encoding";
+
+  public static final String DEFLATE_CONTENT_ENCODING = "deflate";
+
+  /**
+   * More than the size of the header of any message CMS writes, which holds one encrypted data key
+   * per CMK
+   */
+  private static final int MAX_MESSAGE_HEADER_SIZE_IN_BYTES = 64 * 1024;
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
   private final AwsCrypto awsCrypto;
@@ -52,6 +80,11 @@ public class EncryptionService {
   private final Region currentRegion;
   private final CryptoMaterialsManager decryptCryptoMaterialsManager;
   private final CryptoMaterialsManager encryptCryptoMaterialsManager;
+  private final boolean compressionEnabled;
+  private final int compressionMinSizeInBytes;
+  private final Histogram compressionRatioHistogram;
+  private final Counter compressionPlaintextBytesCounter;
+  private final Counter compressionCompressedBytesCounter;
 
   @Autowired
   public EncryptionService(
@@ -61,13 +94,25 @@ public class EncryptionService {
           CryptoMaterialsManager decryptCryptoMaterialsManager,
       @Qualifier("encryptCryptoMaterialsManager")
           CryptoMaterialsManager encryptCryptoMaterialsManager,
-      Region currentRegion) {
+      Region currentRegion,
+      MetricsService metricsService,
+      @Value("${cerberus.encryption.compression.enabled:false}") boolean compressionEnabled,
+      @Value("${cerberus.encryption.compression.minSizeInBytes:256}")
+          int compressionMinSizeInBytes) {
     this.currentRegion = currentRegion;
     this.awsCrypto = awsCrypto;
     log.info("CMK ARNs " + cmkArns);
     this.cmkArnList = splitArns(cmkArns);
     this.decryptCryptoMaterialsManager = decryptCryptoMaterialsManager;
     this.encryptCryptoMaterialsManager = encryptCryptoMaterialsManager;
+    this.compressionEnabled = compressionEnabled;
+    this.compressionMinSizeInBytes = compressionMinSizeInBytes;
+    compressionRatioHistogram =
+        metricsService.getOrCreateHistogram("cms.encryption.compression.ratioInPercent", null);
+    compressionPlaintextBytesCounter =
+        metricsService.getOrCreateCounter("cms.encryption.compression.plaintextBytes", null);
+    compressionCompressedBytesCounter =
+        metricsService.getOrCreateCounter("cms.encryption.compression.compressedBytes", null);
   }
 
   /**
@@ -81,18 +126,89 @@ public class EncryptionService {
    * @param sdbPath the SDB path where these secrets are being stored (added to EncryptionContext)
    */
   public String encrypt(String plainTextPayload, String sdbPath) {
-    return awsCrypto
-        .encryptString(
-            encryptCryptoMaterialsManager, plainTextPayload, buildEncryptionContext(sdbPath))
-        .getResult();
+    Optional<byte[]> compressed = compress(plainTextPayload.getBytes(StandardCharsets.UTF_8));
+    if (compressed.isEmpty()) {
+      return awsCrypto
+          .encryptString(
+              encryptCryptoMaterialsManager, plainTextPayload, buildEncryptionContext(sdbPath))
+          .getResult();
+    }
+    // The same Base64 encoding of the message as encryptString
+    return Base64.getEncoder()
+        .encodeToString(
+            awsCrypto
+                .encryptData(
+                    encryptCryptoMaterialsManager,
+                    compressed.get(),
+                    buildCompressedEncryptionContext(sdbPath))
+                .getResult());
   }
 
   public byte[] encrypt(byte[] bytes, String sdbPath) {
+    Optional<byte[]> compressed = compress(bytes);
+    if (compressed.isEmpty()) {
+      return awsCrypto
+          .encryptData(encryptCryptoMaterialsManager, bytes, buildEncryptionContext(sdbPath))
+          .getResult();
+    }
     return awsCrypto
-        .encryptData(encryptCryptoMaterialsManager, bytes, buildEncryptionContext(sdbPath))
+        .encryptData(
+            encryptCryptoMaterialsManager,
+            compressed.get(),
+            buildCompressedEncryptionContext(sdbPath))
         .getResult();
   }
 
+  /**
+   * Returns a stream that encrypts the bytes written to it into the ciphertext stream, in the same
+   * 'AWS Encryption SDK Message Format' as encrypt(byte[], String), one frame at a time. Closing it
+   * writes the end of the message and closes the ciphertext stream. When compression is enabled
+   * the bytes are compressed before they are encrypted, whatever their size.
+   *
+   * @param ciphertext the stream to write the ciphertext to
+   * @param sdbPath the SDB path where the data is being stored (added to EncryptionContext)
+   */
+  public OutputStream encryptingStream(OutputStream ciphertext, String sdbPath) {
+    if (!compressionEnabled) {
+      return awsCrypto.createEncryptingStream(
+          encryptCryptoMaterialsManager, ciphertext, buildEncryptionContext(sdbPath));
+    }
+    return new DeflaterOutputStream(
+        awsCrypto.createEncryptingStream(
+            encryptCryptoMaterialsManager, ciphertext, buildCompressedEncryptionContext(sdbPath))) {
+      @Override
+      public void finish() throws IOException {
+        super.finish();
+        recordCompression(def.getBytesRead(), def.getBytesWritten());
+      }
+    };
+  }
+
+  /**
+   * Returns a stream of the plaintext of the ciphertext stream, decrypting one frame at a time.
+   * The message header is read and its EncryptionContext validated before the stream is returned.
+   *
+   * @param ciphertext the stream of the ciphertext, in the 'AWS Encryption SDK Message Format'
+   * @param sdbPath the current SDB path
+   */
+  public InputStream decryptingStream(InputStream ciphertext, String sdbPath) throws IOException {
+    // Read ahead enough of the ciphertext to parse the message header, which is then read again
+    // by the decrypting stream
+    BufferedInputStream bufferedCiphertext =
+        new BufferedInputStream(ciphertext, MAX_MESSAGE_HEADER_SIZE_IN_BYTES);
+    bufferedCiphertext.mark(MAX_MESSAGE_HEADER_SIZE_IN_BYTES);
+    byte[] messageStart = bufferedCiphertext.readNBytes(MAX_MESSAGE_HEADER_SIZE_IN_BYTES);
+    bufferedCiphertext.reset();
+
+    ParsedCiphertext parsedCiphertext = CiphertextUtils.parse(messageStart);
+    validateEncryptionContext(parsedCiphertext, sdbPath);
+    List<String> cmkArns = CiphertextUtils.getCustomerMasterKeyArns(parsedCiphertext);
+    InputStream plaintext =
+        awsCrypto.createDecryptingStream(
+            getCryptoMaterialsManager(cmkArns, currentRegion), bufferedCiphertext);
+    return isCompressed(parsedCiphertext) ? new InflaterInputStream(plaintext) : plaintext;
+  }
+
   /**
    * Decrypt the encryptedPayload.
    *
@@ -142,7 +258,9 @@ public class EncryptionService {
     CryptoMaterialsManager cryptoMaterialsManager =
         getCryptoMaterialsManager(cmkArns, currentRegion);
     return new String(
-        awsCrypto.decryptData(cryptoMaterialsManager, parsedCiphertext).getResult(),
+        decompress(
+            parsedCiphertext,
+            awsCrypto.decryptData(cryptoMaterialsManager, parsedCiphertext).getResult()),
         StandardCharsets.UTF_8);
   }
 
@@ -194,7 +312,9 @@ public class EncryptionService {
     List<String> cmkArns = CiphertextUtils.getCustomerMasterKeyArns(parsedCiphertext);
     CryptoMaterialsManager cryptoMaterialsManager =
         getCryptoMaterialsManager(cmkArns, currentRegion);
-    return awsCrypto.decryptData(cryptoMaterialsManager, parsedCiphertext).getResult();
+    return decompress(
+        parsedCiphertext,
+        awsCrypto.decryptData(cryptoMaterialsManager, parsedCiphertext).getResult());
   }
 
   /**
@@ -210,10 +330,67 @@ public class EncryptionService {
     List<String> cmkArns = CiphertextUtils.getCustomerMasterKeyArns(parsedCiphertext);
     MasterKeyProvider<KmsMasterKey> decryptProvider = initializeKeyProvider(cmkArns, currentRegion);
     return new String(
-        awsCrypto.decryptData(decryptProvider, parsedCiphertext).getResult(),
+        decompress(
+            parsedCiphertext,
+            awsCrypto.decryptData(decryptProvider, parsedCiphertext).getResult()),
         StandardCharsets.UTF_8);
   }
 
+  /**
+   * Compresses a plaintext before it is encrypted.
+   *
+   * @return The compressed plaintext, empty if compression is disabled, the plaintext is too small
+   *     or compressing it does not make it smaller
+   */
+  private Optional<byte[]> compress(byte[] plaintext) {
+    if (!compressionEnabled || plaintext.length < compressionMinSizeInBytes) {
+      return Optional.empty();
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(plaintext.length / 2);
+    try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressed)) {
+      deflaterOutputStream.write(plaintext);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to compress the plaintext", e);
+    }
+    recordCompression(plaintext.length, compressed.size());
+    return compressed.size() < plaintext.length
+        ? Optional.of(compressed.toByteArray())
+        : Optional.empty();
+  }
+
+  private void recordCompression(long plaintextSizeInBytes, long compressedSizeInBytes) {
+    if (plaintextSizeInBytes > 0) {
+      compressionRatioHistogram.update(compressedSizeInBytes * 100 / plaintextSizeInBytes);
+    }
+    compressionPlaintextBytesCounter.inc(plaintextSizeInBytes);
+    compressionCompressedBytesCounter.inc(compressedSizeInBytes);
+  }
+
+  /** Decompresses a decrypted plaintext, if the EncryptionContext marks it as compressed */
+  private static byte[] decompress(ParsedCiphertext parsedCiphertext, byte[] plaintext) {
+    if (!isCompressed(parsedCiphertext)) {
+      return plaintext;
+    }
+    try (InflaterInputStream inflaterInputStream =
+        new InflaterInputStream(new ByteArrayInputStream(plaintext))) {
+      return inflaterInputStream.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to decompress the plaintext", e);
+    }
+  }
+
+  private static boolean isCompressed(ParsedCiphertext parsedCiphertext) {
+    String contentEncoding =
+        parsedCiphertext.getEncryptionContextMap().get(CONTENT_ENCODING_PROPERTY_NAME);
+    if (contentEncoding == null) {
+      return false;
+    }
+    if (!DEFLATE_CONTENT_ENCODING.equals(contentEncoding)) {
+      throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+    }
+    return true;
+  }
+
   /**
    * Validate the encryptionContext for the parsedCiphertext includes the expected sdbPath.
    *
@@ -300,4 +477,10 @@ public class EncryptionService {
     context.put(SDB_PATH_PROPERTY_NAME, sdbPath);
     return context;
   }
+
+  private Map<String, String> buildCompressedEncryptionContext(String sdbPath) {
+    Map<String, String> context = buildEncryptionContext(sdbPath);
+    context.put(CONTENT_ENCODING_PROPERTY_NAME, DEFLATE_CONTENT_ENCODING);
+    return context;
+  }
 }
@@ -44,14 +44,22 @@ public class IamPrincipalPermissionService {
 
   private final AwsIamRoleDao awsIamRoleDao;
 
+  private final AwsIamRoleService awsIamRoleService;
+
+  private final PermissionIndexService permissionIndexService;
+
   @Autowired
   public IamPrincipalPermissionService(
       final UuidSupplier uuidSupplier,
       final RoleService roleService,
-      final AwsIamRoleDao awsIamRoleDao) {
+      final AwsIamRoleDao awsIamRoleDao,
+      final AwsIamRoleService awsIamRoleService,
+      final PermissionIndexService permissionIndexService) {
     this.uuidSupplier = uuidSupplier;
     this.roleService = roleService;
     this.awsIamRoleDao = awsIamRoleDao;
+    this.awsIamRoleService = awsIamRoleService;
+    this.permissionIndexService = permissionIndexService;
   }
 
   /**
@@ -123,6 +131,8 @@ public class IamPrincipalPermissionService {
     permissionRecord.setCreatedTs(dateTime);
     permissionRecord.setLastUpdatedTs(dateTime);
     awsIamRoleDao.createIamRolePermission(permissionRecord);
+    awsIamRoleService.invalidateIamPrincipalCache();
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   /**
@@ -176,6 +186,8 @@ public class IamPrincipalPermissionService {
     record.setLastUpdatedBy(user);
     record.setLastUpdatedTs(dateTime);
     awsIamRoleDao.updateIamRolePermission(record);
+    awsIamRoleService.invalidateIamPrincipalCache();
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   /**
@@ -213,6 +225,8 @@ public class IamPrincipalPermissionService {
     }
 
     awsIamRoleDao.deleteIamRolePermission(safeDepositBoxId, iamRole.get().getId());
+    awsIamRoleService.invalidateIamPrincipalCache();
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   public Set<IamPrincipalPermission> getIamPrincipalPermissions(final String safeDepositBoxId) {
@@ -244,5 +258,7 @@ public class IamPrincipalPermissionService {
   @Transactional
   public void deleteIamPrincipalPermissions(final String safeDepositBoxId) {
     awsIamRoleDao.deleteIamRolePermissions(safeDepositBoxId);
+    awsIamRoleService.invalidateIamPrincipalCache();
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 }
@@ -21,6 +21,7 @@ import com.nike.cerberus.domain.*;
 import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.error.InvalidCategoryNameApiError;
 import com.nike.cerberus.error.InvalidRoleNameApiError;
+import com.nike.cerberus.util.PaginationCursor;
 import com.nike.cerberus.util.UuidSupplier;
 import java.util.*;
 import org.slf4j.Logger;
@@ -175,18 +176,63 @@ public class MetadataService {
    * @return SDBMetadataResult of meta data.
    */
   public SDBMetadataResult getSDBMetadata(int limit, int offset, String sdbNameFilter) {
+    return getSDBMetadata(limit, offset, sdbNameFilter, null, true);
+  }
+
+  /**
+   * Method for retrieving metadata about SDBs sorted by created date.
+   *
+   * <p>When a cursor is given the page starts right after the SDB the cursor was created from and
+   * the offset is ignored. When the total count is not requested or a cursor is given one extra SDB
+   * is read to determine if there is a next page, instead of counting every SDB.
+   *
+   * @param limit The int limit for paginating.
+   * @param offset The int offset for paginating.
+   * @param cursor The nextCursor of the previous page, or null
+   * @param includeTotalCount Whether the total number of SDBs should be counted
+   * @return SDBMetadataResult of meta data.
+   */
+  public SDBMetadataResult getSDBMetadata(
+      int limit, int offset, String sdbNameFilter, String cursor, boolean includeTotalCount) {
+    boolean useCursor = cursor != null && sdbNameFilter == null;
+    boolean probeForNextPage = sdbNameFilter == null && (useCursor || !includeTotalCount);
+    int fetchLimit = probeForNextPage ? limit + 1 : limit;
+
     SDBMetadataResult result = new SDBMetadataResult();
     result.setLimit(Optional.ofNullable(sdbNameFilter).map(it -> 1).orElse(limit));
     result.setOffset(Optional.ofNullable(sdbNameFilter).map(it -> 1).orElse(offset));
-    result.setTotalSDBCount(
-        Optional.ofNullable(sdbNameFilter)
-            .map(it -> 1)
-            .orElseGet(safeDepositBoxService::getTotalNumberOfSafeDepositBoxes));
-    result.setHasNext(result.getTotalSDBCount() > (offset + limit));
+    if (includeTotalCount) {
+      result.setTotalSDBCount(
+          Optional.ofNullable(sdbNameFilter)
+              .map(it -> 1)
+              .orElseGet(safeDepositBoxService::getTotalNumberOfSafeDepositBoxes));
+    }
+
+    List<SDBMetadata> sdbMetadataList =
+        useCursor
+            ? getSDBMetadataListCreatedBefore(PaginationCursor.decode(cursor), fetchLimit)
+            : getSDBMetadataList(fetchLimit, offset, sdbNameFilter);
+    if (sdbNameFilter != null) {
+      // A single SDB is looked up by its name, there is never a next page
+      result.setHasNext(false);
+    } else if (probeForNextPage) {
+      result.setHasNext(sdbMetadataList.size() > limit);
+      if (result.isHasNext()) {
+        sdbMetadataList = new LinkedList<>(sdbMetadataList.subList(0, limit));
+      }
+    } else {
+      result.setHasNext(result.getTotalSDBCount() > (offset + limit));
+    }
+
     if (result.isHasNext()) {
-      result.setNextOffset(offset + limit);
+      if (!useCursor) {
+        result.setNextOffset(offset + limit);
+      }
+      if (!sdbMetadataList.isEmpty()) {
+        SDBMetadata last = sdbMetadataList.get(sdbMetadataList.size() - 1);
+        result.setNextCursor(new PaginationCursor(last.getCreatedTs(), last.getId()).encode());
+      }
     }
-    List<SDBMetadata> sdbMetadataList = getSDBMetadataList(limit, offset, sdbNameFilter);
     result.setSafeDepositBoxMetadata(sdbMetadataList);
     result.setSdbCountInResult(sdbMetadataList.size());
 
@@ -201,13 +247,6 @@ public class MetadataService {
    * @return A list of SDB Metadata
    */
   protected List<SDBMetadata> getSDBMetadataList(int limit, int offset, String sdbNameFilter) {
-    List<SDBMetadata> sdbs = new LinkedList<>();
-
-    // Collect the categories.
-    Map<String, String> catIdToStringMap = categoryService.getCategoryIdToCategoryNameMap();
-    // Collect the roles
-    Map<String, String> roleIdToStringMap = roleService.getRoleIdToStringMap();
-
     List<SafeDepositBoxV2> safeDepositBoxes =
         Optional.ofNullable(sdbNameFilter)
             .map(
@@ -224,6 +263,30 @@ public class MetadataService {
                                                 .build()))))
             .orElseGet(() -> safeDepositBoxService.getSafeDepositBoxes(limit, offset));
 
+    return toSDBMetadataList(safeDepositBoxes);
+  }
+
+  /**
+   * Gets a list of SBD Metadata's that come after the SDB the cursor was created from
+   *
+   * @param cursor The cursor of the last SDB of the previous page
+   * @param limit The limit for the results
+   * @return A list of SDB Metadata
+   */
+  protected List<SDBMetadata> getSDBMetadataListCreatedBefore(PaginationCursor cursor, int limit) {
+    return toSDBMetadataList(
+        safeDepositBoxService.getSafeDepositBoxesCreatedBefore(
+            cursor.getTimestamp(), cursor.getKey(), limit));
+  }
+
+  private List<SDBMetadata> toSDBMetadataList(List<SafeDepositBoxV2> safeDepositBoxes) {
+    List<SDBMetadata> sdbs = new LinkedList<>();
+
+    // Collect the categories.
+    Map<String, String> catIdToStringMap = categoryService.getCategoryIdToCategoryNameMap();
+    // Collect the roles
+    Map<String, String> roleIdToStringMap = roleService.getRoleIdToStringMap();
+
     // for each SDB collect the user and iam permissions and add to result
     safeDepositBoxes.forEach(
         sdb -> {
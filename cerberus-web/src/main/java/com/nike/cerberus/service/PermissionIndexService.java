@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static com.nike.cerberus.security.CerberusPrincipal.normalizeUserGroupName;
+
+import com.nike.cerberus.dao.PermissionsDao;
+import com.nike.cerberus.event.SafeDepositBoxChangedEvent;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.SdbPermissionChangeRecord;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import com.nike.cerberus.util.DateTimeSupplier;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory index of the roles that IAM principals and user groups hold on each SDB, so that
+ * permission checks do not need to query the database.
+ *
+ * <p>Every permission write records the SDB in the SDB_PERMISSION_CHANGES table, whose auto
+ * incremented VERSION is the change-version counter. Each instance polls the changes made within a
+ * trailing look back window and reloads the permissions of the SDBs whose versions it has not
+ * applied yet, the window covers transactions that were assigned a version before a version that
+ * has already been seen but committed after it. The whole index is rebuilt periodically and
+ * whenever it has gone without a successful refresh for longer than the max staleness.
+ *
+ * <p>When the index can not answer, because it is disabled, has not been built yet, is stale or an
+ * SDB was changed on this instance and has not been reloaded yet, the lookups return empty and
+ * callers fall back to querying the database.
+ *
+ * <p>Every permission change is published as a SafeDepositBoxChangedEvent, as are the changes made
+ * through other instances once a refresh has picked them up.
+ */
+@Slf4j
+@Component
+public class PermissionIndexService {
+
+  private static final int MAX_CHANGES_TO_DELETE_PER_REFRESH = 1000;
+
+  private final PermissionsDao permissionsDao;
+  private final DateTimeSupplier dateTimeSupplier;
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final boolean enabled;
+  private final Duration maxStaleness;
+  private final Duration changeLookback;
+  private final Duration changeRetention;
+  private final Duration fullRefreshInterval;
+
+  /** Key under which the SDBs changed by the current transaction are bound to it */
+  private final Object transactionResourceKey = new Object();
+
+  /** SDB ID to permissions, null until the index has been built */
+  private volatile Map<String, SdbPermissions> permissionsBySdbId;
+
+  private volatile OffsetDateTime lastRefreshedTs;
+  private OffsetDateTime lastFullRefreshTs;
+
+  /** Versions applied since the start of the look back window, guarded by this */
+  private final Map<Long, OffsetDateTime> appliedChanges = new HashMap<>();
+
+  private final AtomicLong highestAppliedVersion = new AtomicLong();
+
+  /** SDBs changed on this instance that have not been reloaded since, to the time they changed */
+  private final Map<String, Long> changedSdbIds = new ConcurrentHashMap<>();
+
+  private final AtomicLong changeSequence = new AtomicLong();
+
+  @Autowired
+  public PermissionIndexService(
+      PermissionsDao permissionsDao,
+      DateTimeSupplier dateTimeSupplier,
+      MetricsService metricsService,
+      ApplicationEventPublisher applicationEventPublisher,
+      @Value("${cerberus.auth.permissionIndex.enabled:false}") boolean enabled,
+      @Value("${cerberus.auth.permissionIndex.maxStalenessInSeconds:30}")
+          long maxStalenessInSeconds,
+      @Value("${cerberus.auth.permissionIndex.changeLookbackInSeconds:60}")
+          long changeLookbackInSeconds,
+      @Value("${cerberus.auth.permissionIndex.changeRetentionInHours:24}")
+          long changeRetentionInHours,
+      @Value("${cerberus.auth.permissionIndex.fullRefreshIntervalInSeconds:3600}")
+          long fullRefreshIntervalInSeconds) {
+
+    this.permissionsDao = permissionsDao;
+    this.dateTimeSupplier = dateTimeSupplier;
+    this.applicationEventPublisher = applicationEventPublisher;
+    this.enabled = enabled;
+    this.maxStaleness = Duration.ofSeconds(maxStalenessInSeconds);
+    this.changeLookback = Duration.ofSeconds(changeLookbackInSeconds);
+    this.changeRetention = Duration.ofHours(changeRetentionInHours);
+    this.fullRefreshInterval = Duration.ofSeconds(fullRefreshIntervalInSeconds);
+
+    if (enabled) {
+      metricsService.getOrCreateCallbackGauge(
+          "cms.permissionIndex.sdbs",
+          () -> {
+            Map<String, SdbPermissions> index = permissionsBySdbId;
+            return index == null ? 0 : index.size();
+          },
+          null);
+      metricsService.getOrCreateCallbackGauge(
+          "cms.permissionIndex.version", highestAppliedVersion::get, null);
+    }
+  }
+
+  /**
+   * Checks the index for whether any of the given IAM principal ARNs holds one of the given roles
+   * on the SDB.
+   *
+   * @param sdbId The SDB to check
+   * @param roles The role names that allow the action
+   * @param iamPrincipalArns The ARNs to check, e.g. the principal, role and account root ARNs
+   * @return Whether the permission is granted, empty if the index can not answer
+   */
+  public Optional<Boolean> doesIamPrincipalHaveRoleForSdb(
+      String sdbId, Set<String> roles, Collection<String> iamPrincipalArns) {
+    return getSdbPermissions(sdbId)
+        .map(
+            permissions -> {
+              for (String iamPrincipalArn : iamPrincipalArns) {
+                if (hasAnyRole(permissions.iamPrincipalRoles.get(iamPrincipalArn), roles)) {
+                  return true;
+                }
+              }
+              return false;
+            });
+  }
+
+  /**
+   * Checks the index for whether any of the given user groups holds one of the given roles on the
+   * SDB.
+   *
+   * @param sdbId The SDB to check
+   * @param roles The role names that allow the action
+   * @param userGroups The groups of the user, when not case sensitive these must already be
+   *     normalized with CerberusPrincipal.normalizeUserGroupName
+   * @param caseSensitive Whether the user group names should be compared case sensitively
+   * @return Whether the permission is granted, empty if the index can not answer
+   */
+  public Optional<Boolean> doesUserGroupHaveRoleForSdb(
+      String sdbId, Set<String> roles, Collection<String> userGroups, boolean caseSensitive) {
+    return getSdbPermissions(sdbId)
+        .map(
+            permissions -> {
+              for (String userGroup : userGroups) {
+                Set<String> groupRoles =
+                    caseSensitive
+                        ? permissions.userGroupRoles.get(userGroup)
+                        : permissions.normalizedUserGroupRoles.get(userGroup);
+                if (hasAnyRole(groupRoles, roles)) {
+                  return true;
+                }
+              }
+              return false;
+            });
+  }
+
+  /**
+   * Records that the permissions of an SDB have changed, this must be called by every write to the
+   * IAM principal or user group permissions. Within a transaction the change is recorded once per
+   * SDB, and the SDB is answered from the database on this instance from the time the transaction
+   * commits until the index has reloaded it. The change is published even when the index is
+   * disabled.
+   *
+   * @param sdbId The SDB whose permissions changed
+   */
+  public void recordPermissionChange(String sdbId) {
+    applicationEventPublisher.publishEvent(new SafeDepositBoxChangedEvent(this, Set.of(sdbId)));
+    if (!enabled) {
+      return;
+    }
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      permissionsDao.createSdbPermissionChange(sdbId, dateTimeSupplier.get());
+      markChanged(Set.of(sdbId));
+      return;
+    }
+
+    @SuppressWarnings("unchecked")
+    Set<String> sdbIdsChangedByTransaction =
+        (Set<String>) TransactionSynchronizationManager.getResource(transactionResourceKey);
+    if (sdbIdsChangedByTransaction == null) {
+      Set<String> sdbIds = new HashSet<>();
+      TransactionSynchronizationManager.bindResource(transactionResourceKey, sdbIds);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              markChanged(sdbIds);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(transactionResourceKey);
+            }
+          });
+      sdbIdsChangedByTransaction = sdbIds;
+    }
+
+    if (sdbIdsChangedByTransaction.add(sdbId)) {
+      permissionsDao.createSdbPermissionChange(sdbId, dateTimeSupplier.get());
+    }
+  }
+
+  /**
+   * Brings the index up to date, rebuilding it when it has not been built yet, the full refresh
+   * interval has passed or the last successful refresh is older than the max staleness, and
+   * otherwise reloading the SDBs that changed since the last refresh.
+   */
+  public synchronized void refresh() {
+    OffsetDateTime now = dateTimeSupplier.get();
+    if (permissionsBySdbId == null
+        || lastRefreshedTs.isBefore(now.minus(maxStaleness))
+        || lastFullRefreshTs.isBefore(now.minus(fullRefreshInterval))) {
+      rebuild(now);
+    } else {
+      applyChanges(now);
+    }
+    lastRefreshedTs = now;
+  }
+
+  private void rebuild(OffsetDateTime now) {
+    Map<String, Long> changedSdbIdsAtStart = Map.copyOf(changedSdbIds);
+
+    Map<String, SdbPermissions> index = new ConcurrentHashMap<>(load(null));
+    permissionsBySdbId = index;
+    lastFullRefreshTs = now;
+    appliedChanges.clear();
+    changedSdbIdsAtStart.forEach(changedSdbIds::remove);
+
+    int deleted =
+        permissionsDao.deleteSdbPermissionChangesOlderThan(
+            now.minus(changeRetention), MAX_CHANGES_TO_DELETE_PER_REFRESH);
+    log.info(
+        "Rebuilt the permission index with {} SDBs, deleted {} old permission changes",
+        index.size(),
+        deleted);
+  }
+
+  private void applyChanges(OffsetDateTime now) {
+    Map<String, Long> changedSdbIdsAtStart = Map.copyOf(changedSdbIds);
+    OffsetDateTime since = lastRefreshedTs.minus(changeLookback);
+    List<SdbPermissionChangeRecord> changes = permissionsDao.getSdbPermissionChangesSince(since);
+
+    Set<String> sdbIdsToReload = new HashSet<>(changedSdbIdsAtStart.keySet());
+    Set<String> sdbIdsWithNewChanges = new HashSet<>();
+    for (SdbPermissionChangeRecord change : changes) {
+      if (!appliedChanges.containsKey(change.getVersion())) {
+        sdbIdsToReload.add(change.getSdboxId());
+        sdbIdsWithNewChanges.add(change.getSdboxId());
+      }
+    }
+
+    if (!sdbIdsToReload.isEmpty()) {
+      Map<String, SdbPermissions> loaded = load(sdbIdsToReload);
+      Map<String, SdbPermissions> index = permissionsBySdbId;
+      for (String sdbId : sdbIdsToReload) {
+        SdbPermissions permissions = loaded.get(sdbId);
+        if (permissions == null) {
+          index.remove(sdbId);
+        } else {
+          index.put(sdbId, permissions);
+        }
+      }
+      changedSdbIdsAtStart.forEach(changedSdbIds::remove);
+      log.debug("Reloaded the permissions of {} SDBs", sdbIdsToReload.size());
+    }
+    if (!sdbIdsWithNewChanges.isEmpty()) {
+      applicationEventPublisher.publishEvent(
+          new SafeDepositBoxChangedEvent(this, sdbIdsWithNewChanges));
+    }
+
+    for (SdbPermissionChangeRecord change : changes) {
+      appliedChanges.put(change.getVersion(), change.getCreatedTs());
+      highestAppliedVersion.accumulateAndGet(change.getVersion(), Math::max);
+    }
+    // the next refresh will only look back to the start of this one
+    OffsetDateTime nextSince = now.minus(changeLookback);
+    appliedChanges.values().removeIf(createdTs -> createdTs.isBefore(nextSince));
+  }
+
+  private Map<String, SdbPermissions> load(Set<String> sdbIds) {
+    Map<String, SdbPermissions> loaded = new HashMap<>();
+    for (SdbPermissionRecord record : permissionsDao.getIamPrincipalPermissions(sdbIds)) {
+      loaded
+          .computeIfAbsent(record.getSdboxId(), sdbId -> new SdbPermissions())
+          .addIamPrincipalRole(record.getPrincipalName(), record.getRoleName());
+    }
+    for (SdbPermissionRecord record : permissionsDao.getUserGroupPermissions(sdbIds)) {
+      loaded
+          .computeIfAbsent(record.getSdboxId(), sdbId -> new SdbPermissions())
+          .addUserGroupRole(record.getPrincipalName(), record.getRoleName());
+    }
+    return loaded;
+  }
+
+  private void markChanged(Set<String> sdbIds) {
+    long sequence = changeSequence.incrementAndGet();
+    sdbIds.forEach(sdbId -> changedSdbIds.put(sdbId, sequence));
+  }
+
+  private Optional<SdbPermissions> getSdbPermissions(String sdbId) {
+    Map<String, SdbPermissions> index = permissionsBySdbId;
+    OffsetDateTime refreshedTs = lastRefreshedTs;
+    if (index == null
+        || refreshedTs == null
+        || changedSdbIds.containsKey(sdbId)
+        || refreshedTs.isBefore(dateTimeSupplier.get().minus(maxStaleness))) {
+      return Optional.empty();
+    }
+    return Optional.of(index.getOrDefault(sdbId, SdbPermissions.NONE));
+  }
+
+  private static boolean hasAnyRole(Set<String> grantedRoles, Set<String> roles) {
+    if (grantedRoles == null) {
+      return false;
+    }
+    for (String role : roles) {
+      if (grantedRoles.contains(role)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The roles granted on a single SDB, never modified once it has been added to the index. */
+  private static final class SdbPermissions {
+
+    private static final SdbPermissions NONE = new SdbPermissions();
+
+    private final Map<String, Set<String>> iamPrincipalRoles = new HashMap<>();
+    private final Map<String, Set<String>> userGroupRoles = new HashMap<>();
+    private final Map<String, Set<String>> normalizedUserGroupRoles = new HashMap<>();
+
+    private void addIamPrincipalRole(String iamPrincipalArn, String role) {
+      iamPrincipalRoles.computeIfAbsent(iamPrincipalArn, arn -> new HashSet<>()).add(role);
+    }
+
+    private void addUserGroupRole(String userGroup, String role) {
+      userGroupRoles.computeIfAbsent(userGroup, group -> new HashSet<>()).add(role);
+      normalizedUserGroupRoles
+          .computeIfAbsent(normalizeUserGroupName(userGroup), group -> new HashSet<>())
+          .add(role);
+    }
+  }
+}
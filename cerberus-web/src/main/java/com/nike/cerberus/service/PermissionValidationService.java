@@ -17,25 +17,38 @@
 package com.nike.cerberus.service;
 
 import static com.nike.cerberus.record.RoleRecord.*;
+import static com.nike.cerberus.security.CerberusPrincipal.normalizeUserGroupName;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 import com.google.common.collect.Sets;
 import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.PrincipalType;
 import com.nike.cerberus.SecureDataAction;
 import com.nike.cerberus.dao.PermissionsDao;
+import com.nike.cerberus.domain.SecureDataPermissionCheck;
+import com.nike.cerberus.domain.SecureDataPermissionCheckResult;
+import com.nike.cerberus.domain.SecureDataPermissionDecision;
 import com.nike.cerberus.domain.UserGroupPermission;
 import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.event.filter.AuditLoggingFilterDetails;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import com.nike.cerberus.security.AuthorizationContext;
 import com.nike.cerberus.security.CerberusPrincipal;
-import com.nike.cerberus.util.AwsIamRoleArnParser;
 import com.nike.cerberus.util.CustomApiError;
 import com.nike.cerberus.util.SdbAccessRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -50,31 +63,48 @@ public class PermissionValidationService {
   public static final String USER_GROUPS_CASE_SENSITIVE =
       "${cerberus.auth.user.groups.caseSensitive}";
 
+  /**
+   * The endpoints that can use {@link #doesPrincipalHaveSdbPermissionsForAction(String)}, matched
+   * on whole path segments so that e.g. /v1/secrets is not allowed just for starting with
+   * /v1/secret
+   */
+  private static final List<String> SECURE_DATA_SERVLET_PATHS =
+      List.of(
+          "/v1/secret",
+          "/v1/secrets",
+          "/v1/secret-versions",
+          "/v1/sdb-secret-version-paths",
+          "/v1/secure-file",
+          "/v1/secure-files");
+
   private final UserGroupPermissionService userGroupPermissionService;
   private final PermissionsDao permissionsDao;
   private final boolean userGroupsCaseSensitive;
-  private final AwsIamRoleArnParser awsIamRoleArnParser;
   private final SafeDepositBoxService safeDepositBoxService;
   private final SdbAccessRequest sdbAccessRequest;
   private final AuditLoggingFilterDetails auditLoggingFilterDetails;
+  private final PermissionIndexService permissionIndexService;
+  private final int maxPermissionChecks;
 
   @Autowired
   public PermissionValidationService(
       UserGroupPermissionService userGroupPermissionService,
       PermissionsDao permissionsDao,
       @Value(USER_GROUPS_CASE_SENSITIVE) boolean userGroupsCaseSensitive,
-      AwsIamRoleArnParser awsIamRoleArnParser,
       SafeDepositBoxService safeDepositBoxService,
       SdbAccessRequest sdbAccessRequest,
-      AuditLoggingFilterDetails auditLoggingFilterDetails) {
+      AuditLoggingFilterDetails auditLoggingFilterDetails,
+      PermissionIndexService permissionIndexService,
+      @Value("${cerberus.sdb.permissionCheck.maxChecks:100}") int maxPermissionChecks) {
 
     this.userGroupPermissionService = userGroupPermissionService;
     this.permissionsDao = permissionsDao;
     this.userGroupsCaseSensitive = userGroupsCaseSensitive;
-    this.awsIamRoleArnParser = awsIamRoleArnParser;
     this.safeDepositBoxService = safeDepositBoxService;
     this.sdbAccessRequest = sdbAccessRequest;
     this.auditLoggingFilterDetails = auditLoggingFilterDetails;
+    this.permissionIndexService = permissionIndexService;
+    this.maxPermissionChecks = maxPermissionChecks;
   }
 
   /**
@@ -97,7 +127,9 @@ public class PermissionValidationService {
         principalHasOwnerPermissions =
             userGroupsCaseSensitive
                 ? principal.getUserGroups().contains(sdb.getOwner())
-                : containsIgnoreCase(principal.getUserGroups(), sdb.getOwner());
+                : sdb.getOwner() != null
+                    && principal.getNormalizedUserGroups().contains(
+                        normalizeUserGroupName(sdb.getOwner()));
         break;
     }
 
@@ -125,16 +157,14 @@ public class PermissionValidationService {
       case USER:
         // if the the principal is a user principal ensure that one of the users groups is
         // associated with the sdb
-        Set<UserGroupPermission> userGroupPermissions =
-            userGroupPermissionService.getUserGroupPermissions(sdbId);
-        Set<String> userGroups =
-            userGroupPermissions.stream()
-                .map(UserGroupPermission::getName)
-                .collect(Collectors.toSet());
         principalHasPermissionAssociationWithSdb =
-            userGroupsCaseSensitive
-                ? doesHaveIntersection(userGroups, principal.getUserGroups())
-                : doesHaveIntersectionIgnoreCase(userGroups, principal.getUserGroups());
+            permissionIndexService
+                .doesUserGroupHaveRoleForSdb(
+                    sdbId,
+                    Sets.newHashSet(ROLE_READ, ROLE_OWNER, ROLE_WRITE),
+                    getUserGroups(principal),
+                    userGroupsCaseSensitive)
+                .orElseGet(() -> isUserGroupAssociatedWithSdb(principal, sdbId));
         break;
     }
     return principalHasPermissionAssociationWithSdb;
@@ -149,11 +179,19 @@ public class PermissionValidationService {
         break;
       case USER:
         hasPermission =
-            userGroupsCaseSensitive
-                ? permissionsDao.doesUserPrincipalHaveRoleForSdb(
-                    sdbId, action.getAllowedRoles(), principal.getUserGroups())
-                : permissionsDao.doesUserHavePermsForRoleAndSdbCaseInsensitive(
-                    sdbId, action.getAllowedRoles(), principal.getUserGroups());
+            permissionIndexService
+                .doesUserGroupHaveRoleForSdb(
+                    sdbId,
+                    action.getAllowedRoles(),
+                    getUserGroups(principal),
+                    userGroupsCaseSensitive)
+                .orElseGet(
+                    () ->
+                        userGroupsCaseSensitive
+                            ? permissionsDao.doesUserPrincipalHaveRoleForSdb(
+                                sdbId, action.getAllowedRoles(), getUserGroups(principal))
+                            : permissionsDao.doesUserHavePermsForRoleAndSdbCaseInsensitive(
+                                sdbId, action.getAllowedRoles(), getUserGroups(principal)));
         break;
       default:
         log.error(
@@ -175,48 +213,198 @@ public class PermissionValidationService {
 
   protected boolean doesIamPrincipalHavePermission(
       CerberusPrincipal principal, String sdbId, Set<String> roles) {
-    String iamPrincipalArn = principal.getName();
-    String iamRootArn = awsIamRoleArnParser.convertPrincipalArnToRootArn(iamPrincipalArn);
-    if (awsIamRoleArnParser.isAssumedRoleArn(iamPrincipalArn)) {
-      String iamRoleArn = awsIamRoleArnParser.convertPrincipalArnToRoleArn(iamPrincipalArn);
-      return permissionsDao.doesAssumedRoleHaveRoleForSdb(
-          sdbId, iamPrincipalArn, iamRoleArn, iamRootArn, roles);
+    AuthorizationContext context = principal.getAuthorizationContext();
+    return permissionIndexService
+        .doesIamPrincipalHaveRoleForSdb(sdbId, roles, context.getIamPrincipalArns())
+        .orElseGet(
+            () ->
+                context.isAssumedRole()
+                    ? permissionsDao.doesAssumedRoleHaveRoleForSdb(
+                        sdbId,
+                        context.getIamPrincipalArn(),
+                        context.getIamRoleArn(),
+                        context.getIamRootArn(),
+                        roles)
+                    : permissionsDao.doesIamPrincipalHaveRoleForSdb(
+                        sdbId, context.getIamPrincipalArn(), context.getIamRootArn(), roles));
+  }
+
+  /**
+   * Checks the permissions of a principal for many secure data paths at once. The SDB IDs of all of
+   * the paths are resolved together, and when the permission index can not answer, the roles that
+   * the principal holds on all of the SDBs are loaded with a single query.
+   *
+   * @param principal The authenticated principal
+   * @param checks The paths and actions to check, e.g. 'app/my-sdb/some/secret' and 'read'
+   * @return The result of each check, in the same order as the checks
+   */
+  public List<SecureDataPermissionCheckResult> checkSecureDataPermissions(
+      CerberusPrincipal principal, List<SecureDataPermissionCheck> checks) {
+
+    if (checks == null || checks.isEmpty() || checks.size() > maxPermissionChecks) {
+      String msg =
+          String.format(
+              "Between 1 and %s permission checks must be requested.", maxPermissionChecks);
+      throw ApiException.newBuilder()
+          .withApiErrors(
+              CustomApiError.createCustomApiError(DefaultApiError.GENERIC_BAD_REQUEST, msg))
+          .withExceptionMessage(msg)
+          .build();
+    }
+
+    List<String> sdbBasePaths = new ArrayList<>(checks.size());
+    List<SecureDataAction> actions = new ArrayList<>(checks.size());
+    for (SecureDataPermissionCheck check : checks) {
+      sdbBasePaths.add(check == null ? null : getSdbBasePath(check.getPath()));
+      actions.add(check == null ? null : parseSecureDataAction(check.getAction()));
+    }
+    Map<String, String> sdbIds =
+        safeDepositBoxService.getSafeDepositBoxIdsByPaths(
+            sdbBasePaths.stream().filter(Objects::nonNull).collect(Collectors.toSet()));
+
+    // answer what we can from the permission index, and remember the SDBs it could not answer for
+    SecureDataPermissionDecision[] decisions = new SecureDataPermissionDecision[checks.size()];
+    Set<String> sdbIdsToLoad = new HashSet<>();
+    for (int i = 0; i < checks.size(); i++) {
+      String sdbId = sdbBasePaths.get(i) == null ? null : sdbIds.get(sdbBasePaths.get(i));
+      if (sdbBasePaths.get(i) == null || actions.get(i) == null) {
+        decisions[i] = SecureDataPermissionDecision.INVALID;
+      } else if (sdbId == null) {
+        decisions[i] = SecureDataPermissionDecision.SDB_NOT_FOUND;
+      } else {
+        Optional<Boolean> hasPermission =
+            getIndexedPermission(principal, sdbId, actions.get(i).getAllowedRoles());
+        if (hasPermission.isPresent()) {
+          decisions[i] = toDecision(hasPermission.get());
+        } else {
+          sdbIdsToLoad.add(sdbId);
+        }
+      }
+    }
+
+    Map<String, Set<String>> rolesBySdbId =
+        sdbIdsToLoad.isEmpty()
+            ? Map.of()
+            : getRolesForSdbs(principal, sdbIdsToLoad);
+
+    List<SecureDataPermissionCheckResult> results = new ArrayList<>(checks.size());
+    for (int i = 0; i < checks.size(); i++) {
+      SecureDataPermissionCheck check = checks.get(i);
+      SecureDataPermissionDecision decision = decisions[i];
+      if (decision == null) {
+        Set<String> roles =
+            rolesBySdbId.getOrDefault(sdbIds.get(sdbBasePaths.get(i)), Collections.emptySet());
+        decision = toDecision(doesHaveIntersection(actions.get(i).getAllowedRoles(), roles));
+      }
+      results.add(
+          new SecureDataPermissionCheckResult()
+              .setPath(check == null ? null : check.getPath())
+              .setAction(check == null ? null : check.getAction())
+              .setDecision(decision));
+    }
+
+    log.debug(
+        "Principal: {}, Type: {}, checked permissions for {} paths, {} SDBs loaded from the db",
+        principal.getName(),
+        principal.getPrincipalType().getName(),
+        checks.size(),
+        sdbIdsToLoad.size());
+
+    return results;
+  }
+
+  private Optional<Boolean> getIndexedPermission(
+      CerberusPrincipal principal, String sdbId, Set<String> roles) {
+    switch (principal.getPrincipalType()) {
+      case IAM:
+        return permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            sdbId, roles, principal.getAuthorizationContext().getIamPrincipalArns());
+      case USER:
+        return permissionIndexService.doesUserGroupHaveRoleForSdb(
+            sdbId, roles, getUserGroups(principal), userGroupsCaseSensitive);
+      default:
+        return Optional.of(false);
+    }
+  }
+
+  /** @return The roles the principal holds on each of the SDBs, SDBs without a role are left out */
+  private Map<String, Set<String>> getRolesForSdbs(
+      CerberusPrincipal principal, Set<String> sdbIds) {
+    List<SdbPermissionRecord> permissions;
+    if (principal.getPrincipalType() == PrincipalType.IAM) {
+      permissions =
+          permissionsDao.getIamPrincipalPermissionsForPrincipals(
+              sdbIds, principal.getAuthorizationContext().getIamPrincipalArns());
+    } else if (principal.getPrincipalType() == PrincipalType.USER
+        && !principal.getUserGroups().isEmpty()) {
+      permissions =
+          permissionsDao.getUserGroupPermissionsForUserGroups(
+              sdbIds, getUserGroups(principal), userGroupsCaseSensitive);
     } else {
-      return permissionsDao.doesIamPrincipalHaveRoleForSdb(
-          sdbId, iamPrincipalArn, iamRootArn, roles);
+      return Map.of();
     }
+
+    return permissions.stream()
+        .collect(
+            Collectors.groupingBy(
+                SdbPermissionRecord::getSdboxId,
+                Collectors.mapping(SdbPermissionRecord::getRoleName, Collectors.toSet())));
   }
 
   /**
-   * Does a case-insensitive check to see if the collection contains the given String
-   *
-   * @param items List of strings from which to search
-   * @param object String for which to search
-   * @return True if the object exists in the array, false if not
+   * @param path A secure data path, e.g. 'app/my-sdb/some/secret'
+   * @return The SDB base path of the path, e.g. 'app/my-sdb/', or null if the path has no SDB
    */
-  private boolean containsIgnoreCase(Collection<String> items, String object) {
-    return items.stream().anyMatch(item -> item.equalsIgnoreCase(object));
+  private String getSdbBasePath(String path) {
+    if (isBlank(path)) {
+      return null;
+    }
+    String[] parts = StringUtils.strip(path.replace("//", "/"), "/").split("/", 3);
+    if (parts.length < 2 || isBlank(parts[0]) || isBlank(parts[1])) {
+      return null;
+    }
+    return String.format("%s/%s/", parts[0], parts[1]);
+  }
+
+  private SecureDataAction parseSecureDataAction(String action) {
+    return Arrays.stream(SecureDataAction.values())
+        .filter(secureDataAction -> secureDataAction.name().equalsIgnoreCase(action))
+        .findFirst()
+        .orElse(null);
+  }
+
+  private SecureDataPermissionDecision toDecision(boolean hasPermission) {
+    return hasPermission
+        ? SecureDataPermissionDecision.ALLOWED
+        : SecureDataPermissionDecision.DENIED;
+  }
+
+  private boolean isUserGroupAssociatedWithSdb(CerberusPrincipal principal, String sdbId) {
+    Set<UserGroupPermission> userGroupPermissions =
+        userGroupPermissionService.getUserGroupPermissions(sdbId);
+    return userGroupPermissions.stream()
+        .map(UserGroupPermission::getName)
+        .map(name -> userGroupsCaseSensitive ? name : normalizeUserGroupName(name))
+        .anyMatch(getUserGroups(principal)::contains);
   }
 
   /**
-   * Checks if any string is contained in both the first collection and the second collection
-   *
-   * @return True if both collections contain any one string, false if not
+   * @return The groups of the user, normalized with CerberusPrincipal.normalizeUserGroupName when
+   *     user groups are not case sensitive
    */
-  private boolean doesHaveIntersection(Collection<String> co1, Collection<String> co2) {
-    return co2.stream().anyMatch(co1::contains);
+  private Set<String> getUserGroups(CerberusPrincipal principal) {
+    return userGroupsCaseSensitive
+        ? principal.getUserGroups()
+        : principal.getNormalizedUserGroups();
   }
 
   /**
-   * Checks (ignoring case) if any string is contained in both the first collection and the second
-   * collection
+   * Checks if any string is contained in both the first collection and the second collection
    *
    * @return True if both collections contain any one string, false if not
    */
-  private boolean doesHaveIntersectionIgnoreCase(Collection<String> co1, Collection<String> co2) {
-    Set<String> co1LowerCase = co1.stream().map(String::toLowerCase).collect(Collectors.toSet());
-
-    return co2.stream().map(String::toLowerCase).anyMatch(co1LowerCase::contains);
+  private boolean doesHaveIntersection(Collection<String> co1, Collection<String> co2) {
+    return co2.stream().anyMatch(co1::contains);
   }
 
   public boolean doesPrincipalHaveSdbPermissionsForAction(String action) {
@@ -231,8 +419,10 @@ public class PermissionValidationService {
 
     var requestPath = request.getServletPath();
 
-    List.of("/v1/secret", "/v1/sdb-secret-version-paths", "/v1/secure-file").stream()
-        .filter(requestPath::startsWith)
+    SECURE_DATA_SERVLET_PATHS.stream()
+        .filter(
+            servletPath ->
+                requestPath.equals(servletPath) || requestPath.startsWith(servletPath + "/"))
         .findAny()
         .orElseThrow(
             () ->
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.nike.cerberus.dao.SafeDepositBoxDao;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.SafeDepositBoxRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory index of SDB base paths, e.g. 'app/my-sdb/', to SDB IDs so that the secure data
+ * endpoints do not need a database round trip to resolve the SDB of each request.
+ *
+ * <p>SDBs created, restored or deleted through this instance are applied to the index once the
+ * transaction commits. Changes made through other instances are picked up when the index is
+ * reconciled against SAFE_DEPOSIT_BOX, paths that are not in the index are looked up in the
+ * database, and paths that do not exist are remembered for a short time so that requests for bad
+ * paths do not all reach the database.
+ */
+@Slf4j
+@Component
+public class SafeDepositBoxPathIndex {
+
+  private final SafeDepositBoxDao safeDepositBoxDao;
+  private final Cache<String, Boolean> unknownSdbPathCache;
+  private final boolean enabled;
+
+  private volatile Map<String, String> sdbIdsByPath = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SafeDepositBoxPathIndex(
+      SafeDepositBoxDao safeDepositBoxDao,
+      Cache<String, Boolean> unknownSdbPathCache,
+      MetricsService metricsService,
+      @Value("${cerberus.sdb.pathIndex.enabled:false}") boolean enabled) {
+
+    this.safeDepositBoxDao = safeDepositBoxDao;
+    this.unknownSdbPathCache = unknownSdbPathCache;
+    this.enabled = enabled;
+
+    if (enabled) {
+      metricsService.getOrCreateCallbackGauge(
+          "cms.sdb.pathIndex.size", () -> sdbIdsByPath.size(), null);
+    }
+  }
+
+  /**
+   * Resolves the ID of the SDB with the given base path.
+   *
+   * @param path The base path of the SDB, e.g. 'app/my-sdb/'
+   * @return The SDB ID, empty if no SDB has the path
+   */
+  public Optional<String> getSafeDepositBoxIdByPath(String path) {
+    if (!enabled) {
+      return Optional.ofNullable(safeDepositBoxDao.getSafeDepositBoxIdByPath(path));
+    }
+
+    String sdbId = sdbIdsByPath.get(path);
+    if (sdbId != null) {
+      return Optional.of(sdbId);
+    }
+    if (unknownSdbPathCache.getIfPresent(path) != null) {
+      return Optional.empty();
+    }
+
+    sdbId = safeDepositBoxDao.getSafeDepositBoxIdByPath(path);
+    if (sdbId == null) {
+      unknownSdbPathCache.put(path, Boolean.TRUE);
+      return Optional.empty();
+    }
+    sdbIdsByPath.put(path, sdbId);
+    return Optional.of(sdbId);
+  }
+
+  /**
+   * Resolves the IDs of the SDBs with the given base paths, the paths that are not in the index
+   * are looked up in the database with a single query.
+   *
+   * @param paths The base paths of the SDBs, e.g. 'app/my-sdb/'
+   * @return The SDB IDs keyed by path, paths that do not belong to an SDB are left out
+   */
+  public Map<String, String> getSafeDepositBoxIdsByPaths(Set<String> paths) {
+    Map<String, String> sdbIds = new HashMap<>();
+    Set<String> pathsToLoad = new HashSet<>();
+    for (String path : paths) {
+      String sdbId = enabled ? sdbIdsByPath.get(path) : null;
+      if (sdbId != null) {
+        sdbIds.put(path, sdbId);
+      } else if (!enabled || unknownSdbPathCache.getIfPresent(path) == null) {
+        pathsToLoad.add(path);
+      }
+    }
+    if (pathsToLoad.isEmpty()) {
+      return sdbIds;
+    }
+
+    // MySQL compares PATH case-insensitively, so each row is mapped back to every requested path
+    // that it matched rather than to the path as it is stored
+    Map<String, List<String>> pathsToLoadIgnoringCase =
+        new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (String path : pathsToLoad) {
+      pathsToLoadIgnoringCase.computeIfAbsent(path, key -> new ArrayList<>()).add(path);
+    }
+    for (SafeDepositBoxRecord record : safeDepositBoxDao.getSafeDepositBoxIdsByPaths(pathsToLoad)) {
+      for (String path : pathsToLoadIgnoringCase.getOrDefault(record.getPath(), List.of())) {
+        sdbIds.put(path, record.getId());
+      }
+    }
+    if (enabled) {
+      // only the paths that no row matched are remembered as unknown, a path that differs from
+      // its SDB path in case would otherwise be denied by the single path lookup as well
+      for (String path : pathsToLoad) {
+        String sdbId = sdbIds.get(path);
+        if (sdbId == null) {
+          unknownSdbPathCache.put(path, Boolean.TRUE);
+        } else {
+          sdbIdsByPath.put(path, sdbId);
+        }
+      }
+    }
+    return sdbIds;
+  }
+
+  /**
+   * Adds an SDB to the index, when called within a transaction the SDB is added once the
+   * transaction has committed.
+   *
+   * @param sdbId The SDB ID
+   * @param path The base path of the SDB
+   */
+  public void put(String sdbId, String path) {
+    if (!enabled) {
+      return;
+    }
+    afterCommit(
+        () -> {
+          sdbIdsByPath.values().remove(sdbId);
+          sdbIdsByPath.put(path, sdbId);
+          unknownSdbPathCache.invalidate(path);
+        });
+  }
+
+  /**
+   * Removes an SDB from the index, it is removed right away and again once the transaction has
+   * committed, so that a concurrent lookup can not add it back before the commit.
+   *
+   * @param sdbId The SDB ID
+   */
+  public void remove(String sdbId) {
+    if (!enabled) {
+      return;
+    }
+    sdbIdsByPath.values().remove(sdbId);
+    afterCommit(() -> sdbIdsByPath.values().remove(sdbId));
+  }
+
+  /** Replaces the index with the paths currently in SAFE_DEPOSIT_BOX. */
+  public void reconcile() {
+    if (!enabled) {
+      return;
+    }
+    Map<String, String> reconciled = new ConcurrentHashMap<>();
+    for (SafeDepositBoxRecord record : safeDepositBoxDao.getSafeDepositBoxPaths()) {
+      reconciled.put(record.getPath(), record.getId());
+    }
+
+    Map<String, String> previous = sdbIdsByPath;
+    sdbIdsByPath = reconciled;
+    if (!previous.equals(reconciled)) {
+      log.info(
+          "Reconciled the SDB path index, {} paths before and {} paths after",
+          previous.size(),
+          reconciled.size());
+    }
+  }
+
+  private void afterCommit(Runnable runnable) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              runnable.run();
+            }
+          });
+    } else {
+      runnable.run();
+    }
+  }
+}
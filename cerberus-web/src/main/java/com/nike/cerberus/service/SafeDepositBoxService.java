@@ -26,15 +26,18 @@ import com.nike.cerberus.dao.SecureDataVersionDao;
 import com.nike.cerberus.dao.UserGroupDao;
 import com.nike.cerberus.domain.*;
 import com.nike.cerberus.error.DefaultApiError;
+import com.nike.cerberus.event.SafeDepositBoxChangedEvent;
 import com.nike.cerberus.event.filter.AuditLoggingFilterDetails;
 import com.nike.cerberus.record.RoleRecord;
 import com.nike.cerberus.record.SafeDepositBoxRecord;
 import com.nike.cerberus.record.UserGroupRecord;
+import com.nike.cerberus.security.AuthorizationContext;
 import com.nike.cerberus.security.CerberusPrincipal;
 import com.nike.cerberus.util.*;
 import java.time.OffsetDateTime;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -42,6 +45,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -64,6 +68,9 @@ public class SafeDepositBoxService {
   private final SecureDataVersionDao secureDataVersionDao;
   private final Boolean userGroupsCaseSensitive;
   private final AuditLoggingFilterDetails auditLoggingFilterDetails;
+  private final SafeDepositBoxPathIndex safeDepositBoxPathIndex;
+  private final AssociatedSafeDepositBoxCache associatedSafeDepositBoxCache;
+  private final ApplicationEventPublisher applicationEventPublisher;
 
   @Autowired
   public SafeDepositBoxService(
@@ -81,7 +88,10 @@ public class SafeDepositBoxService {
       SecureDataVersionDao secureDataVersionDao,
       @Value(USER_GROUPS_CASE_SENSITIVE) Boolean userGroupsCaseSensitive,
       SdbAccessRequest sdbAccessRequest,
-      AuditLoggingFilterDetails auditLoggingFilterDetails) {
+      AuditLoggingFilterDetails auditLoggingFilterDetails,
+      SafeDepositBoxPathIndex safeDepositBoxPathIndex,
+      AssociatedSafeDepositBoxCache associatedSafeDepositBoxCache,
+      ApplicationEventPublisher applicationEventPublisher) {
 
     this.safeDepositBoxDao = safeDepositBoxDao;
     this.userGroupDao = userGroupDao;
@@ -97,6 +107,9 @@ public class SafeDepositBoxService {
     this.secureDataVersionDao = secureDataVersionDao;
     this.userGroupsCaseSensitive = userGroupsCaseSensitive;
     this.auditLoggingFilterDetails = auditLoggingFilterDetails;
+    this.safeDepositBoxPathIndex = safeDepositBoxPathIndex;
+    this.associatedSafeDepositBoxCache = associatedSafeDepositBoxCache;
+    this.applicationEventPublisher = applicationEventPublisher;
   }
 
   /**
@@ -108,28 +121,31 @@ public class SafeDepositBoxService {
   public List<SafeDepositBoxSummary> getAssociatedSafeDepositBoxes(
       final CerberusPrincipal principal) {
 
+    return associatedSafeDepositBoxCache.get(
+        principal, () -> loadAssociatedSafeDepositBoxes(principal));
+  }
+
+  private List<SafeDepositBoxSummary> loadAssociatedSafeDepositBoxes(
+      final CerberusPrincipal principal) {
+
     List<SafeDepositBoxRecord> sdbRecords;
 
     switch (principal.getPrincipalType()) {
       case IAM:
-        String principalName = principal.getName();
-        String rootArn = awsIamRoleArnParser.convertPrincipalArnToRootArn(principalName);
-        if (awsIamRoleArnParser.isAssumedRoleArn(principalName)) {
-          String iamRoleArn = awsIamRoleArnParser.convertPrincipalArnToRoleArn(principalName);
-          sdbRecords =
-              safeDepositBoxDao.getAssumedRoleAssociatedSafeDepositBoxes(
-                  principalName, iamRoleArn, rootArn);
-        } else {
-          sdbRecords =
-              safeDepositBoxDao.getIamPrincipalAssociatedSafeDepositBoxes(principalName, rootArn);
-        }
+        AuthorizationContext context = principal.getAuthorizationContext();
+        sdbRecords =
+            context.isAssumedRole()
+                ? safeDepositBoxDao.getAssumedRoleAssociatedSafeDepositBoxes(
+                    context.getIamPrincipalArn(), context.getIamRoleArn(), context.getIamRootArn())
+                : safeDepositBoxDao.getIamPrincipalAssociatedSafeDepositBoxes(
+                    context.getIamPrincipalArn(), context.getIamRootArn());
         break;
       case USER:
         sdbRecords =
             userGroupsCaseSensitive
                 ? safeDepositBoxDao.getUserAssociatedSafeDepositBoxes(principal.getUserGroups())
                 : safeDepositBoxDao.getUserAssociatedSafeDepositBoxesIgnoreCase(
-                    principal.getUserGroups());
+                    principal.getNormalizedUserGroups());
         break;
       default:
         throw new ApiException(DefaultApiError.UNKNOWN_PRINCIPAL_TYPE);
@@ -257,6 +273,9 @@ public class SafeDepositBoxService {
     }
 
     safeDepositBoxDao.createSafeDepositBox(boxRecordToStore);
+    safeDepositBoxPathIndex.put(boxRecordToStore.getId(), boxRecordToStore.getPath());
+    applicationEventPublisher.publishEvent(
+        new SafeDepositBoxChangedEvent(this, Set.of(boxRecordToStore.getId())));
 
     userGroupPermissionService.grantUserGroupPermissions(
         boxRecordToStore.getId(), userGroupPermissionSet, user, now);
@@ -346,9 +365,12 @@ public class SafeDepositBoxService {
     String sdbPathWithoutCategory = StringUtils.substringAfter(box.getPath(), "/");
     secureDataService.deleteAllSecretsThatStartWithGivenPartialPath(id, sdbPathWithoutCategory);
     secureDataVersionDao.deleteAllVersionsThatStartWithPartialPath(sdbPathWithoutCategory);
+    secureDataService.deleteAllFileChunks(id);
 
     // 3. Remove metadata
     safeDepositBoxDao.deleteSafeDepositBox(id);
+    safeDepositBoxPathIndex.remove(id);
+    applicationEventPublisher.publishEvent(new SafeDepositBoxChangedEvent(this, Set.of(id)));
   }
 
   private Optional<String> extractOwner(Set<UserGroupPermission> userGroupPermissions) {
@@ -675,6 +697,23 @@ public class SafeDepositBoxService {
     return result;
   }
 
+  /**
+   * A paginatable method for retrieving the SDBs created before the given SDB, ordered by creation
+   * time and then ID, both descending
+   *
+   * @param createdTs The created timestamp of the last SDB of the previous page
+   * @param id The ID of the last SDB of the previous page
+   * @param limit The maximum number of SDBs to fetch
+   */
+  public List<SafeDepositBoxV2> getSafeDepositBoxesCreatedBefore(
+      OffsetDateTime createdTs, String id, int limit) {
+    List<SafeDepositBoxRecord> records =
+        safeDepositBoxDao.getSafeDepositBoxesCreatedBefore(createdTs, id, limit);
+    List<SafeDepositBoxV2> result = new LinkedList<>();
+    records.forEach(safeDepositBoxRecord -> result.add(getSDBFromRecordV2(safeDepositBoxRecord)));
+    return result;
+  }
+
   /**
    * @param name Safe Deposit Box name
    * @return The id for the box
@@ -690,7 +729,17 @@ public class SafeDepositBoxService {
    * @return The SDB's Id
    */
   public Optional<String> getSafeDepositBoxIdByPath(String path) {
-    return Optional.ofNullable(safeDepositBoxDao.getSafeDepositBoxIdByPath(path));
+    return safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(path);
+  }
+
+  /**
+   * Fetches the SDB ids for many base paths at once
+   *
+   * @param paths The base paths for the SDBs
+   * @return The SDB ids keyed by base path, paths without an SDB are left out
+   */
+  public Map<String, String> getSafeDepositBoxIdsByPaths(Set<String> paths) {
+    return safeDepositBoxPathIndex.getSafeDepositBoxIdsByPaths(paths);
   }
 
   /**
@@ -725,6 +774,7 @@ public class SafeDepositBoxService {
         safeDepositBoxDao.getSafeDepositBox(safeDepositBox.getId());
     if (existingBoxRecord.isPresent()) {
       safeDepositBoxDao.fullUpdateSafeDepositBox(boxToStore);
+      safeDepositBoxPathIndex.put(boxToStore.getId(), boxToStore.getPath());
       SafeDepositBoxV2 existingBox = getSDBFromRecordV2(existingBoxRecord.get());
       updateOwner(safeDepositBox.getId(), safeDepositBox.getOwner(), adminUser, now);
       modifyUserGroupPermissions(
@@ -733,6 +783,7 @@ public class SafeDepositBoxService {
           existingBox, safeDepositBox.getIamPrincipalPermissions(), adminUser, now);
     } else {
       safeDepositBoxDao.createSafeDepositBox(boxToStore);
+      safeDepositBoxPathIndex.put(boxToStore.getId(), boxToStore.getPath());
       addOwnerPermission(safeDepositBox.getUserGroupPermissions(), safeDepositBox.getOwner());
       userGroupPermissionService.grantUserGroupPermissions(
           safeDepositBox.getId(), safeDepositBox.getUserGroupPermissions(), adminUser, now);
@@ -740,6 +791,8 @@ public class SafeDepositBoxService {
       iamPrincipalPermissionService.grantIamPrincipalPermissions(
           safeDepositBox.getId(), safeDepositBox.getIamPrincipalPermissions(), adminUser, now);
     }
+    applicationEventPublisher.publishEvent(
+        new SafeDepositBoxChangedEvent(this, Set.of(safeDepositBox.getId())));
   }
 
   /**
@@ -17,12 +17,17 @@
 package com.nike.cerberus.service;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.dao.SecureDataChunkDao;
 import com.nike.cerberus.dao.SecureDataDao;
 import com.nike.cerberus.dao.SecureDataVersionDao;
 import com.nike.cerberus.domain.*;
@@ -32,15 +37,30 @@ import com.nike.cerberus.record.DataKeyInfo;
 import com.nike.cerberus.record.SecureDataRecord;
 import com.nike.cerberus.record.SecureDataVersionRecord;
 import com.nike.cerberus.util.DateTimeSupplier;
+import com.nike.cerberus.util.PaginationCursor;
+import com.nike.cerberus.util.SecureDataEntityTag;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 @Component
 public class SecureDataService {
@@ -52,6 +72,17 @@ public class SecureDataService {
   private final SecureDataVersionDao secureDataVersionDao;
   private final Counter reencryptSuccessCounter;
   private final Counter reencryptFailCounter;
+  private final boolean pathTreeEnabled;
+  private final Executor secretDecryptionExecutor;
+  private final int bulkReadMaxSecrets;
+  private final Counter bulkReadRequestCounter;
+  private final Counter bulkReadSecretCounter;
+  private final Histogram bulkReadDecryptLatencyHistogram;
+  private final Counter partialFileReadCounter;
+  private final Histogram partialFileReadSizeHistogram;
+  private final SecureDataChunkDao secureDataChunkDao;
+  private final boolean fileStreamingEnabled;
+  private final TransactionOperations transactionOperations;
 
   protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -62,22 +93,45 @@ public class SecureDataService {
       ObjectMapper objectMapper,
       DateTimeSupplier dateTimeSupplier,
       SecureDataVersionDao secureDataVersionDao,
-      MetricsService metricsService) {
+      MetricsService metricsService,
+      @Value("${cerberus.secureData.pathTree.enabled:false}") boolean pathTreeEnabled,
+      @Qualifier("secretDecryptionExecutor") Executor secretDecryptionExecutor,
+      @Value("${cerberus.secureData.bulkRead.maxSecrets:1000}") int bulkReadMaxSecrets,
+      SecureDataChunkDao secureDataChunkDao,
+      @Value("${cerberus.secureData.fileStreaming.enabled:false}") boolean fileStreamingEnabled,
+      TransactionOperations transactionOperations) {
     this.secureDataDao = secureDataDao;
     this.encryptionService = encryptionService;
     this.objectMapper = objectMapper;
     this.dateTimeSupplier = dateTimeSupplier;
     this.secureDataVersionDao = secureDataVersionDao;
+    this.pathTreeEnabled = pathTreeEnabled;
+    this.secretDecryptionExecutor = secretDecryptionExecutor;
+    this.bulkReadMaxSecrets = bulkReadMaxSecrets;
+    this.secureDataChunkDao = secureDataChunkDao;
+    this.fileStreamingEnabled = fileStreamingEnabled;
+    this.transactionOperations = transactionOperations;
     reencryptSuccessCounter =
         metricsService.getOrCreateCounter("cms.encryption.reencrypt.success", null);
     reencryptFailCounter = metricsService.getOrCreateCounter("cms.encryption.reencrypt.fail", null);
+    bulkReadRequestCounter =
+        metricsService.getOrCreateCounter("cms.secureData.bulkRead.requests", null);
+    bulkReadSecretCounter =
+        metricsService.getOrCreateCounter("cms.secureData.bulkRead.secrets", null);
+    bulkReadDecryptLatencyHistogram =
+        metricsService.getOrCreateHistogram(
+            "cms.secureData.bulkRead.decrypt.latencyInMicros", null);
+    partialFileReadCounter =
+        metricsService.getOrCreateCounter("cms.secureFile.partialContent.responses", null);
+    partialFileReadSizeHistogram =
+        metricsService.getOrCreateHistogram("cms.secureFile.partialContent.sizeInBytes", null);
   }
 
   @Transactional
   public void writeSecret(String sdbId, String path, String plainTextPayload, String principal) {
     log.debug("Writing secure data: SDB ID: {}, Path: {}", sdbId, path);
 
-    int topLevelKVPairCount = getTopLevelKVPairCount(plainTextPayload);
+    int topLevelKVPairCount = getValidatedTopLevelKVPairCount(plainTextPayload);
     byte[] plaintextBytes = plainTextPayload.getBytes(StandardCharsets.UTF_8);
     int sizeInBytes = plaintextBytes.length;
 
@@ -87,10 +141,10 @@ public class SecureDataService {
     byte[] ciphertextBytes = ciphertext.getBytes(StandardCharsets.UTF_8);
     OffsetDateTime now = dateTimeSupplier.get();
 
-    // Fetch the current version if there is one, so that on update it can be moved to the versions
-    // table
+    // Fetch and lock the current version if there is one, so that on update it can be moved to the
+    // versions table
     Optional<SecureDataRecord> secureDataRecordOpt =
-        secureDataDao.readSecureDataByPath(sdbId, path);
+        secureDataDao.readSecureDataByPathLocking(sdbId, path);
     if (secureDataRecordOpt.isPresent()) {
       SecureDataRecord secureData = secureDataRecordOpt.get();
       if (secureData.getType() != SecureDataType.OBJECT) {
@@ -136,6 +190,7 @@ public class SecureDataService {
           now,
           principal,
           now);
+      secureDataDao.addToPathTree(sdbId, path, SecureDataType.OBJECT);
     }
   }
 
@@ -145,13 +200,47 @@ public class SecureDataService {
     log.debug("Writing secure file: SDB ID: {}, Path: {}", sdbId, path);
 
     byte[] ciphertextBytes = encryptionService.encrypt(bytes, path);
+    writeSecureFileCiphertext(sdbId, path, ciphertextBytes, sizeInBytes, principal);
+  }
+
+  /**
+   * Writes a secure file from a stream. When file streaming is enabled the content is encrypted as
+   * it is read and the ciphertext is stored in chunks as it is encrypted, so that only a chunk of
+   * the file is held in memory at a time. Otherwise the file is read fully and stored in a single
+   * blob.
+   */
+  @Transactional
+  public void writeSecureFile(String sdbId, String path, InputStream content, String principal)
+      throws IOException {
+    if (!fileStreamingEnabled) {
+      byte[] bytes = content.readAllBytes();
+      writeSecureFile(sdbId, path, bytes, bytes.length, principal);
+      return;
+    }
+
+    log.debug("Writing secure file in chunks: SDB ID: {}, Path: {}", sdbId, path);
+    CountingInputStream plaintext = new CountingInputStream(content);
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet = secureDataChunkDao.writeChunkSet(sdbId);
+    try (OutputStream ciphertext = encryptionService.encryptingStream(chunkSet, path)) {
+      plaintext.transferTo(ciphertext);
+    }
+    writeSecureFileCiphertext(
+        sdbId,
+        path,
+        chunkSet.getReference(),
+        Math.toIntExact(plaintext.getCount()),
+        principal);
+  }
+
+  private void writeSecureFileCiphertext(
+      String sdbId, String path, byte[] ciphertextBytes, int sizeInBytes, String principal) {
     int topLevelKVPairCount = 0;
     OffsetDateTime now = dateTimeSupplier.get();
 
-    // Fetch the current version if there is one, so that on update it can be moved to the versions
-    // table
+    // Fetch and lock the current version if there is one, so that on update it can be moved to the
+    // versions table
     Optional<SecureDataRecord> secureDataRecordOpt =
-        secureDataDao.readSecureDataByPath(sdbId, path);
+        secureDataDao.readSecureDataByPathLocking(sdbId, path);
     if (secureDataRecordOpt.isPresent()) {
       SecureDataRecord secureData = secureDataRecordOpt.get();
       if (secureData.getType() != SecureDataType.FILE) {
@@ -197,26 +286,37 @@ public class SecureDataService {
           now,
           principal,
           now);
+      secureDataDao.addToPathTree(sdbId, path, SecureDataType.FILE);
     }
   }
 
   /**
-   * Attempts to deserialize the plain text payload and determine how many key value pairs it
-   * contains, in order to capture this metadata metric for KPI reporting.
+   * Validates that the payload of a secret is a single JSON object, so that it can be served by
+   * writing it verbatim into responses rather than being parsed on every read.
    *
    * @param plainTextPayload the json payload
    * @return The number of top level key value pairs the json payload contains
    */
-  protected int getTopLevelKVPairCount(String plainTextPayload) {
-    int kvCount = 1;
-    try {
-      Map<String, Object> data =
-          objectMapper.readValue(plainTextPayload, new TypeReference<HashMap<String, Object>>() {});
-      kvCount = data.size();
-    } catch (Exception e) {
-      log.error("Failed to get top level kv pair count metric from plainTextPayload", e);
+  private int getValidatedTopLevelKVPairCount(String plainTextPayload) {
+    try (JsonParser parser = objectMapper.getFactory().createParser(plainTextPayload)) {
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        int kvCount = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          parser.nextToken();
+          parser.skipChildren();
+          kvCount++;
+        }
+        if (parser.currentToken() == JsonToken.END_OBJECT && parser.nextToken() == null) {
+          return kvCount;
+        }
+      }
+    } catch (IOException e) {
+      log.debug("Rejecting a secret that is not valid JSON", e);
     }
-    return kvCount;
+    throw ApiException.newBuilder()
+        .withApiErrors(DefaultApiError.INVALID_SECRET_PAYLOAD)
+        .withExceptionMessage("The secret must be a JSON object")
+        .build();
   }
 
   public Optional<SecureData> readSecret(String sdbId, String path) {
@@ -242,11 +342,78 @@ public class SecureDataService {
             .setLastUpdatedBy(secureDataRecord.getLastUpdatedBy())
             .setLastUpdatedTs(secureDataRecord.getLastUpdatedTs())
             .setPath(secureDataRecord.getPath())
-            .setSdboxId(secureDataRecord.getSdboxId());
+            .setSdboxId(secureDataRecord.getSdboxId())
+            .setRevisionId(secureDataRecord.getRevisionId());
 
     return Optional.of(secureData);
   }
 
+  /**
+   * Reads the current version of many secrets of an SDB with a single query, and decrypts them in
+   * parallel on the secret decryption executor.
+   *
+   * @param partialPath The path the secrets are read under, e.g. 'my-sdb/some/folder/'
+   * @param paths The paths of the secrets to read, or null to read every secret under the partial
+   *     path. Paths that do not exist are skipped.
+   * @param consumer Called on the calling thread with the path and the plaintext of each secret, in
+   *     path order, as soon as that secret is decrypted
+   */
+  public void readSecrets(
+      String sdbId,
+      String partialPath,
+      Collection<String> paths,
+      BiConsumer<String, String> consumer) {
+    log.debug("Reading secure data in bulk: Path: {}", partialPath);
+    if (paths != null && paths.size() > bulkReadMaxSecrets) {
+      throw ApiException.newBuilder()
+          .withApiErrors(DefaultApiError.TOO_MANY_SECRETS_REQUESTED)
+          .build();
+    }
+
+    List<SecureDataRecord> secureDataRecords =
+        paths == null
+            ? secureDataDao.readSecureDataByPartialPathAndType(
+                sdbId, partialPath, SecureDataType.OBJECT, bulkReadMaxSecrets + 1)
+            : secureDataDao.readSecureDataByPathsAndType(sdbId, paths, SecureDataType.OBJECT);
+    if (secureDataRecords.size() > bulkReadMaxSecrets) {
+      throw ApiException.newBuilder()
+          .withApiErrors(DefaultApiError.TOO_MANY_SECRETS_REQUESTED)
+          .build();
+    }
+    bulkReadRequestCounter.inc();
+
+    List<CompletableFuture<String>> plaintexts = new ArrayList<>(secureDataRecords.size());
+    try {
+      // the executor rejects the decryption with a 503 once its queue is full
+      for (SecureDataRecord secureDataRecord : secureDataRecords) {
+        plaintexts.add(
+            CompletableFuture.supplyAsync(
+                () -> decryptSecret(secureDataRecord), secretDecryptionExecutor));
+      }
+      for (int i = 0; i < secureDataRecords.size(); i++) {
+        consumer.accept(secureDataRecords.get(i).getPath(), plaintexts.get(i).join());
+      }
+    } catch (RuntimeException e) {
+      // Don't spend the executor on secrets that will not be written out
+      plaintexts.forEach(plaintext -> plaintext.cancel(false));
+      if (e instanceof CompletionException && e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private String decryptSecret(SecureDataRecord secureDataRecord) {
+    long start = System.nanoTime();
+    // Convert the ciphertext to a String first, as readSecret does
+    String ciphertext = new String(secureDataRecord.getEncryptedBlob(), StandardCharsets.UTF_8);
+    String plaintext = encryptionService.decrypt(ciphertext, secureDataRecord.getPath());
+    bulkReadDecryptLatencyHistogram.update(
+        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    bulkReadSecretCounter.inc();
+    return plaintext;
+  }
+
   public Optional<SecureFileCurrent> readFile(String sdbId, String path) {
     log.debug("Reading secure file: Path: {}", path);
     Optional<SecureDataRecord> secureDataRecordOpt =
@@ -257,7 +424,7 @@ public class SecureDataService {
 
     SecureDataRecord secureDataRecord = secureDataRecordOpt.get();
     byte[] plaintextBytes =
-        encryptionService.decrypt(secureDataRecord.getEncryptedBlob(), secureDataRecord.getPath());
+        decryptFile(secureDataRecord.getEncryptedBlob(), secureDataRecord.getPath());
 
     SecureFileCurrent secureFile =
         new SecureFileCurrent()
@@ -274,6 +441,103 @@ public class SecureDataService {
     return Optional.of(secureFile);
   }
 
+  /**
+   * Reads the current version of a secure file with its content decrypted as it is read from the
+   * returned stream, which must be closed. Files stored in chunks are read one chunk at a time.
+   */
+  public Optional<SecureFileStream> openFile(String sdbId, String path) throws IOException {
+    log.debug("Opening secure file: Path: {}", path);
+    Optional<SecureDataRecord> secureDataRecordOpt =
+        secureDataDao.readSecureDataByPathAndType(sdbId, path, SecureDataType.FILE);
+    if (!secureDataRecordOpt.isPresent()) {
+      return Optional.empty();
+    }
+
+    SecureDataRecord secureDataRecord = secureDataRecordOpt.get();
+    SecureFileSummary summary =
+        new SecureFileSummary()
+            .setCreatedBy(secureDataRecord.getCreatedBy())
+            .setCreatedTs(secureDataRecord.getCreatedTs())
+            .setSizeInBytes(secureDataRecord.getSizeInBytes())
+            .setName(StringUtils.substringAfterLast(secureDataRecord.getPath(), "/"))
+            .setLastUpdatedBy(secureDataRecord.getLastUpdatedBy())
+            .setLastUpdatedTs(secureDataRecord.getLastUpdatedTs())
+            .setPath(secureDataRecord.getPath())
+            .setSdboxId(secureDataRecord.getSdboxId())
+            .setRevisionId(secureDataRecord.getRevisionId());
+
+    return Optional.of(
+        new SecureFileStream()
+            .setSummary(summary)
+            .setContent(
+                openFileContent(secureDataRecord.getEncryptedBlob(), secureDataRecord.getPath())));
+  }
+
+  /**
+   * Narrows the content of an opened secure file to a range of its bytes. The bytes before the
+   * range are decrypted but discarded, reading stops at the end of the range so that the chunks
+   * after it are neither read nor decrypted.
+   *
+   * @param secureFile The secure file returned by openFile, its content must not have been read
+   * @param firstBytePos The position of the first byte of the range
+   * @param length The number of bytes in the range, which must all be within the file
+   * @return The stream of the bytes in the range, which must be closed
+   */
+  public InputStream readFileRange(SecureFileStream secureFile, long firstBytePos, long length)
+      throws IOException {
+    InputStream content = secureFile.getContent();
+    try {
+      ByteStreams.skipFully(content, firstBytePos);
+    } catch (IOException e) {
+      content.close();
+      throw e;
+    }
+    partialFileReadCounter.inc();
+    partialFileReadSizeHistogram.update(length);
+    return ByteStreams.limit(content, length);
+  }
+
+  /**
+   * Decrypts the ENCRYPTED_BLOB of a secure file or secure file version, whether it holds the
+   * ciphertext or references the chunks it is stored in.
+   */
+  public byte[] decryptFile(byte[] encryptedBlob, String path) {
+    if (SecureDataChunkDao.getChunkSetId(encryptedBlob).isEmpty()) {
+      return encryptionService.decrypt(encryptedBlob, path);
+    }
+    try (InputStream content = openFileContent(encryptedBlob, path)) {
+      return content.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read secure file: " + path, e);
+    }
+  }
+
+  private InputStream openFileContent(byte[] encryptedBlob, String path) throws IOException {
+    InputStream ciphertext =
+        SecureDataChunkDao.getChunkSetId(encryptedBlob)
+            .map(secureDataChunkDao::readChunkSet)
+            .orElseGet(() -> new ByteArrayInputStream(encryptedBlob));
+    return encryptionService.decryptingStream(ciphertext, path);
+  }
+
+  /**
+   * Reads the entity tag of the current version of a secret or secure file from its metadata,
+   * without reading or decrypting the payload.
+   *
+   * @return The entity tag, empty if there is no secure data of the type at the path
+   */
+  public Optional<String> readEntityTag(String sdbId, String path, SecureDataType type) {
+    return secureDataDao
+        .readMetadataByPathAndType(sdbId, path, type)
+        .map(
+            record ->
+                type == SecureDataType.FILE
+                    ? SecureDataEntityTag.ofFile(
+                        record.getPath(), record.getLastUpdatedTs(), record.getRevisionId())
+                    : SecureDataEntityTag.of(
+                        record.getPath(), record.getLastUpdatedTs(), record.getRevisionId()));
+  }
+
   public Optional<SecureFileSummary> readFileMetadataOnly(String sdbId, String path) {
     log.debug("Reading secure file metadata: Path: {}", path);
     Optional<SecureDataRecord> secureDataRecordOpt =
@@ -292,7 +556,8 @@ public class SecureDataService {
             .setLastUpdatedBy(secureDataRecord.getLastUpdatedBy())
             .setLastUpdatedTs(secureDataRecord.getLastUpdatedTs())
             .setPath(secureDataRecord.getPath())
-            .setSdboxId(secureDataRecord.getSdboxId());
+            .setSdboxId(secureDataRecord.getSdboxId())
+            .setRevisionId(secureDataRecord.getRevisionId());
 
     return Optional.of(secureFile);
   }
@@ -320,6 +585,9 @@ public class SecureDataService {
    * <p>if you call listKeys with partialPath = "app/foo" or "app/foo/" you will receive the
    * following set of keys ["bar/", "bam"]
    *
+   * <p>When the path tree is enabled only the direct children of the partial path are read,
+   * otherwise every path below it is read and trimmed down to the direct children.
+   *
    * @param partialPath path to a node in the data structure that potentially has children
    * @return Array of keys if the key is a data node it will not end with "/"
    */
@@ -328,6 +596,12 @@ public class SecureDataService {
       partialPath = partialPath + "/";
     }
 
+    if (pathTreeEnabled) {
+      String[] childNames =
+          secureDataDao.getPathTreeChildNames(sdbId, partialPath, SecureDataType.OBJECT);
+      return childNames == null ? new HashSet<>() : new HashSet<>(Arrays.asList(childNames));
+    }
+
     Set<String> keys = new HashSet<>();
     String[] pArray =
         secureDataDao.getPathsByPartialPathAndType(sdbId, partialPath, SecureDataType.OBJECT);
@@ -356,15 +630,64 @@ public class SecureDataService {
    */
   public SecureFileSummaryResult listSecureFilesSummaries(
       String sdbId, String partialPath, int limit, int offset) {
+    return listSecureFilesSummaries(sdbId, partialPath, limit, offset, null, true);
+  }
+
+  /**
+   * Lists the summaries of the secure files under the partial path, newest first.
+   *
+   * <p>When a cursor is given the page starts right after the file the cursor was created from and
+   * the offset is ignored. When the total count is not requested or a cursor is given one extra
+   * file is read to determine if there is a next page, instead of counting every file.
+   *
+   * @param cursor The nextCursor of the previous page, or null
+   * @param includeTotalCount Whether the total number of files should be counted
+   */
+  public SecureFileSummaryResult listSecureFilesSummaries(
+      String sdbId,
+      String partialPath,
+      int limit,
+      int offset,
+      String cursor,
+      boolean includeTotalCount) {
     if (!partialPath.endsWith("/")) {
       partialPath = partialPath + "/";
     }
 
-    int totalNumFiles = secureDataDao.countByPartialPathAndType(partialPath, SecureDataType.FILE);
+    boolean probeForNextPage = cursor != null || !includeTotalCount;
+    int fetchLimit = probeForNextPage ? limit + 1 : limit;
+    List<SecureDataRecord> secureDataRecords;
+    if (cursor == null) {
+      secureDataRecords =
+          secureDataDao.listMetadataByPartialPathAndType(
+              sdbId, partialPath, SecureDataType.FILE, fetchLimit, offset);
+    } else {
+      PaginationCursor paginationCursor = PaginationCursor.decode(cursor);
+      secureDataRecords =
+          secureDataDao.listMetadataByPartialPathAndTypeCreatedBefore(
+              sdbId,
+              partialPath,
+              SecureDataType.FILE,
+              paginationCursor.getTimestamp(),
+              paginationCursor.getKey(),
+              fetchLimit);
+    }
+
+    SecureFileSummaryResult result = new SecureFileSummaryResult();
+    if (includeTotalCount) {
+      result.setTotalFileCount(
+          secureDataDao.countByPartialPathAndType(sdbId, partialPath, SecureDataType.FILE));
+    }
+    if (probeForNextPage) {
+      result.setHasNext(secureDataRecords.size() > limit);
+      if (result.isHasNext()) {
+        secureDataRecords = secureDataRecords.subList(0, limit);
+      }
+    } else {
+      result.setHasNext(result.getTotalFileCount() > (offset + limit));
+    }
+
     List<SecureFileSummary> fileSummaries = Lists.newArrayList();
-    List<SecureDataRecord> secureDataRecords =
-        secureDataDao.listSecureDataByPartialPathAndType(
-            sdbId, partialPath, SecureDataType.FILE, limit, offset);
     secureDataRecords.forEach(
         secureDataRecord -> {
           fileSummaries.add(
@@ -379,15 +702,18 @@ public class SecureDataService {
                   .setSdboxId(secureDataRecord.getSdboxId()));
         });
 
-    SecureFileSummaryResult result = new SecureFileSummaryResult();
     result.setLimit(limit);
     result.setOffset(offset);
     result.setSecureFileSummaries(fileSummaries);
     result.setFileCountInResult(fileSummaries.size());
-    result.setTotalFileCount(totalNumFiles);
-    result.setHasNext(result.getTotalFileCount() > (offset + limit));
     if (result.isHasNext()) {
-      result.setNextOffset(offset + limit);
+      if (cursor == null) {
+        result.setNextOffset(offset + limit);
+      }
+      if (!secureDataRecords.isEmpty()) {
+        SecureDataRecord last = secureDataRecords.get(secureDataRecords.size() - 1);
+        result.setNextCursor(new PaginationCursor(last.getCreatedTs(), last.getPath()).encode());
+      }
     }
 
     return result;
@@ -414,6 +740,15 @@ public class SecureDataService {
   public void deleteAllSecretsThatStartWithGivenPartialPath(String sdbId, String subPath) {
     log.warn("Deleting all secrets under path: {} for sdbId: {}", subPath, sdbId);
     secureDataDao.deleteAllSecretsThatStartWithGivenPartialPath(sdbId, subPath);
+    secureDataDao.deletePathTreeUnderPartialPath(sdbId, subPath);
+  }
+
+  /**
+   * Deletes the chunks of every secure file and secure file version of an SDB, once the secure data
+   * and versions that reference them are deleted.
+   */
+  public void deleteAllFileChunks(String sdbId) {
+    secureDataChunkDao.deleteChunksBySdbId(sdbId);
   }
 
   /**
@@ -421,6 +756,7 @@ public class SecureDataService {
    *
    * @param path The sub path to delete all secrets that have paths that start with
    */
+  @Transactional
   public void deleteSecret(String sdbId, String path, SecureDataType type, String principal) {
     OffsetDateTime now = dateTimeSupplier.get();
     SecureDataRecord secureDataRecord =
@@ -441,6 +777,7 @@ public class SecureDataService {
         now);
 
     secureDataDao.deleteSecret(sdbId, path);
+    secureDataDao.removeFromPathTree(sdbId, path, secureDataRecord.getType());
   }
 
   public int getTotalNumberOfKeyValuePairs() {
@@ -457,6 +794,10 @@ public class SecureDataService {
     return !(createdBySameAsUpdatedBy && createdTsSameAsUpdatedTs);
   }
 
+  /**
+   * Reads the current secure data at the path without locking it, for callers that do not write
+   * it.
+   */
   public Optional<SecureDataRecord> getSecureDataRecordForPath(String sdbId, String path) {
     return secureDataDao.readSecureDataByPath(sdbId, path);
   }
@@ -526,8 +867,16 @@ public class SecureDataService {
         "Re-encrypted {} secure data and {} secure data version entries.", counter[0], counter[1]);
   }
 
-  @Transactional
+  /**
+   * Re-encrypts the current version of a secret or secure file in its own transaction, which holds
+   * the lock on its row until the re-encrypted ciphertext is stored. It is called on this from
+   * rotateDataKeys, so a @Transactional annotation would not be applied.
+   */
   protected void reencryptData(String id) {
+    transactionOperations.executeWithoutResult(status -> reencryptDataInTransaction(id));
+  }
+
+  private void reencryptDataInTransaction(String id) {
     log.debug("Re-encrypting secure data/file id: {}", id);
     Optional<SecureDataRecord> secureDataRecordOpt = secureDataDao.readSecureDataByIdLocking(id);
     if (!secureDataRecordOpt.isPresent()) {
@@ -537,16 +886,31 @@ public class SecureDataService {
     SecureDataRecord secureDataRecord = secureDataRecordOpt.get();
     byte[] ciphertextBytes = secureDataRecord.getEncryptedBlob();
     byte[] reencryptedBytes =
-        reencrypt(secureDataRecord.getType(), ciphertextBytes, secureDataRecord.getPath());
+        reencrypt(
+            secureDataRecord.getType(),
+            ciphertextBytes,
+            secureDataRecord.getSdboxId(),
+            secureDataRecord.getPath());
     OffsetDateTime now = dateTimeSupplier.get();
 
     secureDataRecord.setLastRotatedTs(now);
     secureDataRecord.setEncryptedBlob(reencryptedBytes);
-    secureDataDao.updateSecureData(secureDataRecord);
+    if (secureDataDao.updateSecureData(secureDataRecord) == 0) {
+      deleteNewChunkSet(reencryptedBytes);
+      throw new IllegalStateException("Failed to update re-encrypted secure data id: " + id);
+    }
+    deleteReplacedChunkSet(secureDataRecord.getSdboxId(), ciphertextBytes);
   }
 
-  @Transactional
+  /**
+   * Re-encrypts a version of a secret or secure file in its own transaction, see reencryptData.
+   */
   protected void reencryptDataVersion(String versionId) {
+    transactionOperations.executeWithoutResult(
+        status -> reencryptDataVersionInTransaction(versionId));
+  }
+
+  private void reencryptDataVersionInTransaction(String versionId) {
     log.debug("Re-encrypting secure data/file version id: {}", versionId);
 
     // Lock isn't required when it's the only operation that does update, but just in case.
@@ -559,15 +923,59 @@ public class SecureDataService {
     SecureDataVersionRecord secureDataVersion = secureDataVersionRecord.get();
     String path = secureDataVersion.getPath();
     byte[] ciphertextBytes = secureDataVersion.getEncryptedBlob();
-    byte[] reencryptedBytes = reencrypt(secureDataVersion.getType(), ciphertextBytes, path);
+    byte[] reencryptedBytes =
+        reencrypt(
+            secureDataVersion.getType(), ciphertextBytes, secureDataVersion.getSdboxId(), path);
     OffsetDateTime now = dateTimeSupplier.get();
 
     secureDataVersion.setLastRotatedTs(now);
     secureDataVersion.setEncryptedBlob(reencryptedBytes);
-    secureDataVersionDao.updateSecureDataVersion(secureDataVersion);
+    if (secureDataVersionDao.updateSecureDataVersion(secureDataVersion) == 0) {
+      deleteNewChunkSet(reencryptedBytes);
+      throw new IllegalStateException(
+          "Failed to update re-encrypted secure data version id: " + versionId);
+    }
+    deleteReplacedChunkSet(secureDataVersion.getSdboxId(), ciphertextBytes);
+  }
+
+  /**
+   * Deletes the chunk set a re-encrypted blob referenced, once the reference to the new chunk set
+   * is stored and only if no secure data or version references it anymore
+   */
+  private void deleteReplacedChunkSet(String sdbId, byte[] replacedCiphertextBytes) {
+    SecureDataChunkDao.getChunkSetId(replacedCiphertextBytes)
+        .ifPresent(
+            chunkSetId -> {
+              if (secureDataChunkDao.isChunkSetReferenced(sdbId, replacedCiphertextBytes)) {
+                log.warn(
+                    "Not deleting re-encrypted chunk set that is still referenced: {}",
+                    chunkSetId);
+              } else {
+                secureDataChunkDao.deleteChunkSet(chunkSetId);
+              }
+            });
+  }
+
+  /** Deletes the chunk set written by a re-encryption whose reference could not be stored */
+  private void deleteNewChunkSet(byte[] reencryptedBytes) {
+    SecureDataChunkDao.getChunkSetId(reencryptedBytes)
+        .ifPresent(secureDataChunkDao::deleteChunkSet);
+  }
+
+  /** Re-encrypts a file stored in chunks into a new chunk set, one chunk at a time */
+  private byte[] reencryptChunkSet(byte[] ciphertextBytes, String sdbId, String path) {
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet = secureDataChunkDao.writeChunkSet(sdbId);
+    try (InputStream plaintext = openFileContent(ciphertextBytes, path);
+        OutputStream ciphertext = encryptionService.encryptingStream(chunkSet, path)) {
+      plaintext.transferTo(ciphertext);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to re-encrypt secure file: " + path, e);
+    }
+    return chunkSet.getReference();
   }
 
-  private byte[] reencrypt(SecureDataType secureDataType, byte[] ciphertextBytes, String path) {
+  private byte[] reencrypt(
+      SecureDataType secureDataType, byte[] ciphertextBytes, String sdbId, String path) {
     byte[] reencryptedBytes;
     if (SecureDataType.OBJECT == secureDataType) {
       // Make sure to convert ciphertext to a String first, then decrypt, because Amazon throws an
@@ -576,7 +984,10 @@ public class SecureDataService {
       String reencryptedCiphertext = encryptionService.reencrypt(ciphertext, path);
       reencryptedBytes = reencryptedCiphertext.getBytes(StandardCharsets.UTF_8);
     } else if (SecureDataType.FILE == secureDataType) {
-      reencryptedBytes = encryptionService.reencrypt(ciphertextBytes, path);
+      reencryptedBytes =
+          SecureDataChunkDao.getChunkSetId(ciphertextBytes).isPresent()
+              ? reencryptChunkSet(ciphertextBytes, sdbId, path)
+              : encryptionService.reencrypt(ciphertextBytes, path);
     } else {
       throw new IllegalStateException("Unrecognized data type found at path" + path);
     }
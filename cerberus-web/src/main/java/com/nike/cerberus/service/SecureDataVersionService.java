@@ -22,6 +22,7 @@ import com.nike.cerberus.dao.SecureDataVersionDao;
 import com.nike.cerberus.domain.*;
 import com.nike.cerberus.record.SecureDataRecord;
 import com.nike.cerberus.record.SecureDataVersionRecord;
+import com.nike.cerberus.util.PaginationCursor;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
@@ -105,7 +106,8 @@ public class SecureDataVersionService {
 
     SecureDataVersionRecord secureDataVersion = secureDataVersionRecord.get();
     byte[] encryptedBlob = secureDataVersion.getEncryptedBlob();
-    byte[] unencryptedBlob = encryptionService.decrypt(encryptedBlob, secureDataVersion.getPath());
+    byte[] unencryptedBlob =
+        secureDataService.decryptFile(encryptedBlob, secureDataVersion.getPath());
 
     return Optional.of(
         new SecureFileVersion()
@@ -124,31 +126,83 @@ public class SecureDataVersionService {
 
   public SecureDataVersionsResult getSecureDataVersionSummariesByPath(
       String sdbId, String pathToSecureData, String sdbCategory, int limit, int offset) {
+    return getSecureDataVersionSummariesByPath(
+        sdbId, pathToSecureData, sdbCategory, limit, offset, null, true);
+  }
+
+  /**
+   * Lists the summaries of the versions of a secret or file, with the current version first.
+   *
+   * <p>When a cursor is given the page starts right after the version the cursor was created from
+   * and the offset is ignored. When the total count is not requested or a cursor is given one extra
+   * version is read to determine if there is a next page, instead of counting every version.
+   *
+   * @param cursor The nextCursor of the previous page, or null
+   * @param includeTotalCount Whether the total number of versions should be counted
+   */
+  public SecureDataVersionsResult getSecureDataVersionSummariesByPath(
+      String sdbId,
+      String pathToSecureData,
+      String sdbCategory,
+      int limit,
+      int offset,
+      String cursor,
+      boolean includeTotalCount) {
 
+    boolean probeForNextPage = cursor != null || !includeTotalCount;
     List<SecureDataVersionSummary> secureDataVersionSummaries = Lists.newArrayList();
     List<SecureDataVersionRecord> secureDataVersions = Lists.newArrayList();
-    int actualLimit = limit;
+    int actualLimit = probeForNextPage ? limit + 1 : limit;
     int actualOffset = offset;
-    int totalNumVersionsForPath = secureDataVersionDao.getTotalNumVersionsForPath(pathToSecureData);
-
-    // retrieve current secrets versions from secure data table
-    Optional<SecureDataVersionRecord> currentSecureDataVersionOpt =
-        getCurrentSecureDataVersion(sdbId, pathToSecureData);
-    if (currentSecureDataVersionOpt.isPresent()) {
-      if (offset == 0) {
-        SecureDataVersionRecord currentSecureDataVersion = currentSecureDataVersionOpt.get();
-        secureDataVersions.add(currentSecureDataVersion);
-        actualLimit--;
-      } else {
-        actualOffset--;
-      }
-      totalNumVersionsForPath++;
-    } // else, the secret has been deleted and the last version should already be in the list
+    Integer totalNumVersionsForPath =
+        includeTotalCount
+            ? secureDataVersionDao.getTotalNumVersionsForPath(pathToSecureData)
+            : null;
+
+    if (cursor == null || includeTotalCount) {
+      // retrieve current secrets versions from secure data table
+      Optional<SecureDataVersionRecord> currentSecureDataVersionOpt =
+          getCurrentSecureDataVersion(sdbId, pathToSecureData);
+      if (currentSecureDataVersionOpt.isPresent()) {
+        // the current version is always on the first page, which is never read with a cursor
+        if (cursor == null && offset == 0) {
+          SecureDataVersionRecord currentSecureDataVersion = currentSecureDataVersionOpt.get();
+          secureDataVersions.add(currentSecureDataVersion);
+          actualLimit--;
+        } else if (cursor == null) {
+          actualOffset--;
+        }
+        if (includeTotalCount) {
+          totalNumVersionsForPath++;
+        }
+      } // else, the secret has been deleted and the last version should already be in the list
+    }
 
     // retrieve previous secrets versions from the secure data versions table
-    secureDataVersions.addAll(
-        secureDataVersionDao.listSecureDataVersionByPath(
-            pathToSecureData, actualLimit, actualOffset));
+    if (cursor == null) {
+      secureDataVersions.addAll(
+          secureDataVersionDao.listSecureDataVersionByPath(
+              pathToSecureData, actualLimit, actualOffset));
+    } else {
+      PaginationCursor paginationCursor = PaginationCursor.decode(cursor);
+      // the current version has no row in the versions table so the next page starts at the newest
+      secureDataVersions.addAll(
+          StringUtils.equals(paginationCursor.getKey(), DEFAULT_ID_FOR_CURRENT_VERSIONS)
+              ? secureDataVersionDao.listSecureDataVersionByPath(pathToSecureData, actualLimit, 0)
+              : secureDataVersionDao.listSecureDataVersionByPathBefore(
+                  pathToSecureData,
+                  paginationCursor.getTimestamp(),
+                  paginationCursor.getKey(),
+                  actualLimit));
+    }
+
+    boolean hasNext =
+        probeForNextPage
+            ? secureDataVersions.size() > limit
+            : totalNumVersionsForPath > offset + limit;
+    if (probeForNextPage && hasNext) {
+      secureDataVersions = secureDataVersions.subList(0, limit);
+    }
 
     secureDataVersions.forEach(
         versionRecord ->
@@ -165,30 +219,23 @@ public class SecureDataVersionService {
                     .setVersionCreatedBy(versionRecord.getVersionCreatedBy())
                     .setVersionCreatedTs(versionRecord.getVersionCreatedTs())));
 
-    return generateSecureDataVersionsResult(
-        secureDataVersionSummaries, totalNumVersionsForPath, limit, offset);
-  }
-
-  public SecureDataVersionsResult generateSecureDataVersionsResult(
-      List<SecureDataVersionSummary> summaries,
-      int totalNumVersionsForPath,
-      int limit,
-      int offset) {
-
-    int nextOffset = limit + offset;
-    boolean hasNext = totalNumVersionsForPath > nextOffset;
-
     SecureDataVersionsResult result =
         new SecureDataVersionsResult()
             .setLimit(limit)
             .setOffset(offset)
             .setTotalVersionCount(totalNumVersionsForPath)
-            .setVersionCountInResult(summaries.size())
+            .setVersionCountInResult(secureDataVersionSummaries.size())
             .setHasNext(hasNext)
-            .setSecureDataVersionSummaries(summaries);
+            .setSecureDataVersionSummaries(secureDataVersionSummaries);
 
     if (hasNext) {
-      result.setNextOffset(nextOffset);
+      if (cursor == null) {
+        result.setNextOffset(offset + limit);
+      }
+      if (!secureDataVersions.isEmpty()) {
+        SecureDataVersionRecord last = secureDataVersions.get(secureDataVersions.size() - 1);
+        result.setNextCursor(new PaginationCursor(last.getActionTs(), last.getId()).encode());
+      }
     }
 
     return result;
@@ -46,15 +46,19 @@ public class UserGroupPermissionService {
 
   private final UserGroupDao userGroupDao;
 
+  private final PermissionIndexService permissionIndexService;
+
   @Autowired
   public UserGroupPermissionService(
       final UuidSupplier uuidSupplier,
       final RoleService roleService,
-      final UserGroupDao userGroupDao) {
+      final UserGroupDao userGroupDao,
+      final PermissionIndexService permissionIndexService) {
 
     this.uuidSupplier = uuidSupplier;
     this.roleService = roleService;
     this.userGroupDao = userGroupDao;
+    this.permissionIndexService = permissionIndexService;
   }
 
   /**
@@ -126,6 +130,7 @@ public class UserGroupPermissionService {
     permissionsRecord.setCreatedTs(dateTime);
     permissionsRecord.setLastUpdatedTs(dateTime);
     userGroupDao.createUserGroupPermission(permissionsRecord);
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   /**
@@ -180,6 +185,7 @@ public class UserGroupPermissionService {
     record.setLastUpdatedBy(user);
     record.setLastUpdatedTs(dateTime);
     userGroupDao.updateUserGroupPermission(record);
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   /**
@@ -217,6 +223,7 @@ public class UserGroupPermissionService {
     }
 
     userGroupDao.deleteUserGroupPermission(safeDepositBoxId, userGroupRecord.get().getId());
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 
   public Set<UserGroupPermission> getUserGroupPermissions(final String safeDepositBoxId) {
@@ -266,5 +273,6 @@ public class UserGroupPermissionService {
   @Transactional
   public void deleteUserGroupPermissions(final String safeDepositBoxId) {
     userGroupDao.deleteUserGroupPermissions(safeDepositBoxId);
+    permissionIndexService.recordPermissionChange(safeDepositBoxId);
   }
 }
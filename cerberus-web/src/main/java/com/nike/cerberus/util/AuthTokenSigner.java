@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nike.cerberus.record.AuthTokenRecord;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Signs and verifies stateless auth tokens.
+ *
+ * <p>A signed token carries the data that would otherwise be stored in the AUTH_TOKENS table, so it
+ * can be verified without a database round trip. The format is
+ * {@code cbs1.<key id>.<base64url json claims>.<base64url HMAC-SHA256 signature>}, which can never
+ * collide with the alphanumeric database backed tokens.
+ *
+ * <p>Signing keys are configured as a comma separated list of {@code <key id>:<base64 secret>}
+ * pairs. The first key is used to sign new tokens and all of the keys are accepted when verifying,
+ * so keys can be rotated by prepending a new key and removing the old one after the token TTL has
+ * passed.
+ */
+@Slf4j
+@Component
+public class AuthTokenSigner {
+
+  public static final String SIGNED_TOKEN_PREFIX = "cbs1.";
+
+  private static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
+  private static final int MIN_KEY_LENGTH_IN_BYTES = 32;
+
+  private static final String CLAIM_ID = "jti";
+  private static final String CLAIM_PRINCIPAL = "sub";
+  private static final String CLAIM_PRINCIPAL_TYPE = "typ";
+  private static final String CLAIM_GROUPS = "grp";
+  private static final String CLAIM_IS_ADMIN = "adm";
+  private static final String CLAIM_REFRESH_COUNT = "rfc";
+  private static final String CLAIM_CREATED = "iat";
+  private static final String CLAIM_EXPIRES = "exp";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final boolean enabled;
+  private final String signingKeyId;
+  private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+
+  @Autowired
+  public AuthTokenSigner(
+      @Value("${cerberus.auth.token.signed.enabled:#{false}}") boolean enabled,
+      @Value("${cerberus.auth.token.signed.keys:#{null}}") String signingKeys) {
+    this.enabled = enabled;
+
+    if (StringUtils.isNotBlank(signingKeys)) {
+      for (String signingKey : signingKeys.split(",")) {
+        String[] parts = signingKey.trim().split(":", 2);
+        if (parts.length != 2 || StringUtils.isBlank(parts[0]) || parts[0].contains(".")) {
+          throw new IllegalArgumentException(
+              "cerberus.auth.token.signed.keys must be a comma separated list of "
+                  + "<key id>:<base64 secret>");
+        }
+        byte[] secret = Base64.getDecoder().decode(parts[1]);
+        if (secret.length < MIN_KEY_LENGTH_IN_BYTES) {
+          throw new IllegalArgumentException(
+              "Signing key: "
+                  + parts[0]
+                  + " must be at least "
+                  + MIN_KEY_LENGTH_IN_BYTES
+                  + " bytes but was "
+                  + secret.length);
+        }
+        keys.put(parts[0], new SecretKeySpec(secret, HMAC_SHA256_ALGORITHM));
+      }
+    }
+
+    if (enabled && keys.isEmpty()) {
+      throw new IllegalArgumentException(
+          "cerberus.auth.token.signed.keys must be set when signed auth tokens are enabled");
+    }
+    signingKeyId = keys.keySet().stream().findFirst().orElse(null);
+  }
+
+  /** @return True if new tokens should be issued as signed tokens */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param token The token presented by the client
+   * @return True if the token is in the signed token format
+   */
+  public static boolean isSignedToken(String token) {
+    return token != null && token.startsWith(SIGNED_TOKEN_PREFIX);
+  }
+
+  /**
+   * Create a signed token containing the data from the token record
+   *
+   * @param tokenRecord The token data
+   * @return The signed token
+   */
+  public String sign(AuthTokenRecord tokenRecord) {
+    Map<String, Object> claims = new LinkedHashMap<>();
+    claims.put(CLAIM_ID, tokenRecord.getId());
+    claims.put(CLAIM_PRINCIPAL, tokenRecord.getPrincipal());
+    claims.put(CLAIM_PRINCIPAL_TYPE, tokenRecord.getPrincipalType());
+    claims.put(CLAIM_GROUPS, tokenRecord.getGroups());
+    claims.put(CLAIM_IS_ADMIN, tokenRecord.getIsAdmin());
+    claims.put(CLAIM_REFRESH_COUNT, tokenRecord.getRefreshCount());
+    claims.put(CLAIM_CREATED, tokenRecord.getCreatedTs().toEpochSecond());
+    claims.put(CLAIM_EXPIRES, tokenRecord.getExpiresTs().toEpochSecond());
+
+    try {
+      String unsignedToken =
+          SIGNED_TOKEN_PREFIX
+              + signingKeyId
+              + "."
+              + Base64.getUrlEncoder()
+                  .withoutPadding()
+                  .encodeToString(objectMapper.writeValueAsBytes(claims));
+      return unsignedToken + "." + signature(keys.get(signingKeyId), unsignedToken);
+    } catch (Exception e) {
+      throw new RuntimeException("There was a problem signing the token", e);
+    }
+  }
+
+  /**
+   * Verify the signature of a signed token and extract its data. The expiration is not checked.
+   *
+   * @param token The signed token
+   * @return The token data, or empty if the token is malformed or the signature is invalid
+   */
+  public Optional<AuthTokenRecord> verify(String token) {
+    if (!isSignedToken(token)) {
+      return Optional.empty();
+    }
+
+    String[] parts = token.substring(SIGNED_TOKEN_PREFIX.length()).split("\\.");
+    if (parts.length != 3 || !keys.containsKey(parts[0])) {
+      log.warn("Rejecting signed token that is malformed or signed with an unknown key");
+      return Optional.empty();
+    }
+
+    try {
+      String unsignedToken = token.substring(0, token.lastIndexOf('.'));
+      byte[] expected =
+          signature(keys.get(parts[0]), unsignedToken).getBytes(StandardCharsets.US_ASCII);
+      if (!MessageDigest.isEqual(expected, parts[2].getBytes(StandardCharsets.US_ASCII))) {
+        log.warn("Rejecting signed token with an invalid signature");
+        return Optional.empty();
+      }
+
+      JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+      return Optional.of(
+          new AuthTokenRecord()
+              .setId(claims.path(CLAIM_ID).asText())
+              .setPrincipal(claims.path(CLAIM_PRINCIPAL).asText())
+              .setPrincipalType(claims.path(CLAIM_PRINCIPAL_TYPE).asText())
+              .setGroups(claims.path(CLAIM_GROUPS).textValue())
+              .setIsAdmin(claims.path(CLAIM_IS_ADMIN).asBoolean())
+              .setRefreshCount(claims.path(CLAIM_REFRESH_COUNT).asInt())
+              .setCreatedTs(toDateTime(claims.path(CLAIM_CREATED).asLong()))
+              .setExpiresTs(toDateTime(claims.path(CLAIM_EXPIRES).asLong())));
+    } catch (Exception e) {
+      log.warn("Rejecting signed token that could not be parsed", e);
+      return Optional.empty();
+    }
+  }
+
+  private String signature(SecretKeySpec key, String unsignedToken) throws Exception {
+    Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+    mac.init(key);
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(mac.doFinal(unsignedToken.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private OffsetDateTime toDateTime(long epochSecond) {
+    return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import com.nike.cerberus.domain.DomainConstants;
+
+/**
+ * An IAM principal ARN broken into its parts by a single left-to-right scan, so that the role, root
+ * and assumed-role questions a permission check asks can be answered without running the
+ * DomainConstants regexes again.
+ *
+ * <p>The scan accepts exactly the ARNs that the DomainConstants patterns accept, with one
+ * exception: ARNs containing a line terminator are never parsed, where the regexes would have
+ * allowed a single trailing one.
+ */
+public final class AwsIamPrincipalArn {
+
+  private static final String ARN_PREFIX = "arn:";
+  private static final String IAM_SERVICE = "iam";
+  private static final String STS_SERVICE = "sts";
+  private static final String ROOT_RESOURCE = "root";
+  private static final String ROLE_PREFIX = "role/";
+  private static final String ASSUMED_ROLE_PREFIX = "assumed-role/";
+  private static final String GROUP_PREFIX = "group";
+  private static final String[] ALLOWED_TYPE_PREFIXES = {
+    "role", "user", "federated-user", "assumed-role"
+  };
+
+  private final String arn;
+  private final String partition;
+  private final String service;
+  private final String accountId;
+  private final String resource;
+  private final String type;
+  private final String roleName;
+  private final String session;
+  private final boolean roleArn;
+  private final boolean assumedRoleArn;
+  private final boolean genericAssumedRoleArn;
+  private final boolean accountRootArn;
+  private final boolean allowed;
+  private final String convertedRoleArn;
+  private final String convertedRootArn;
+
+  private AwsIamPrincipalArn(
+      String arn, String partition, String service, String accountId, String resource) {
+    this.arn = arn;
+    this.partition = partition;
+    this.service = service;
+    this.accountId = accountId;
+    this.resource = resource;
+
+    if (resource == null) {
+      type = null;
+      roleName = null;
+      session = null;
+      roleArn = false;
+      assumedRoleArn = false;
+      genericAssumedRoleArn = false;
+      accountRootArn = false;
+      allowed = false;
+      convertedRoleArn = null;
+      convertedRootArn = null;
+      return;
+    }
+
+    boolean isIam = IAM_SERVICE.equals(service);
+    boolean isSts = STS_SERVICE.equals(service);
+    int firstSlash = resource.indexOf('/');
+    type = firstSlash < 0 ? resource : resource.substring(0, firstSlash);
+
+    accountRootArn = isIam && ROOT_RESOURCE.equals(resource);
+    roleArn =
+        isIam && resource.startsWith(ROLE_PREFIX) && resource.length() > ROLE_PREFIX.length();
+    genericAssumedRoleArn =
+        isSts
+            && resource.startsWith(ASSUMED_ROLE_PREFIX)
+            && resource.length() > ASSUMED_ROLE_PREFIX.length();
+
+    // assumed-role/(?<roleName>.+)/.+ : the role name runs up to the last slash that is followed by
+    // at least one character
+    int sessionSlash =
+        genericAssumedRoleArn ? resource.lastIndexOf('/', resource.length() - 2) : -1;
+    assumedRoleArn = sessionSlash > ASSUMED_ROLE_PREFIX.length();
+
+    allowed = isAllowed(resource, firstSlash);
+
+    if (roleArn) {
+      roleName = resource.substring(ROLE_PREFIX.length());
+      session = null;
+      convertedRoleArn = arn;
+    } else if (genericAssumedRoleArn) {
+      roleName =
+          assumedRoleArn ? resource.substring(ASSUMED_ROLE_PREFIX.length(), sessionSlash) : null;
+      session = assumedRoleArn ? resource.substring(sessionSlash + 1) : null;
+      convertedRoleArn = assumedRoleArn ? formatRoleArn(partition, accountId, roleName) : null;
+    } else {
+      // (?!group).+?/(?<roleName>.+) : the role name is everything after the first slash that is
+      // not the first character of the resource
+      int roleNameSlash = resource.startsWith(GROUP_PREFIX) ? -1 : resource.indexOf('/', 1);
+      boolean canGenerateRole = roleNameSlash > 0 && roleNameSlash < resource.length() - 1;
+      roleName = canGenerateRole ? resource.substring(roleNameSlash + 1) : null;
+      session = null;
+      convertedRoleArn = canGenerateRole ? formatRoleArn(partition, accountId, roleName) : null;
+    }
+
+    if (accountRootArn) {
+      convertedRootArn = arn;
+    } else if (allowed) {
+      convertedRootArn = String.format("arn:%s:iam::%s:root", partition, accountId);
+    } else {
+      convertedRootArn = null;
+    }
+  }
+
+  /**
+   * Parses an ARN in a single pass. This never throws, ARNs that are not IAM principal ARNs in an
+   * AWS partition produce an instance for which {@link #isValid()} is false.
+   *
+   * @param arn The ARN to parse
+   * @return The parsed ARN
+   */
+  public static AwsIamPrincipalArn parse(final String arn) {
+    if (arn == null || !arn.startsWith(ARN_PREFIX)) {
+      return invalid(arn);
+    }
+    int length = arn.length();
+    for (int i = 0; i < length; i++) {
+      char c = arn.charAt(i);
+      if (isLineTerminator(c)) {
+        return invalid(arn);
+      }
+    }
+
+    int partitionStart = ARN_PREFIX.length();
+    int partitionEnd = arn.indexOf(':', partitionStart);
+    if (partitionEnd < 0) {
+      return invalid(arn);
+    }
+    String partition;
+    if (regionMatches(
+        arn, partitionStart, partitionEnd, DomainConstants.AWS_GLOBAL_PARTITION_NAME)) {
+      partition = DomainConstants.AWS_GLOBAL_PARTITION_NAME;
+    } else if (regionMatches(
+        arn, partitionStart, partitionEnd, DomainConstants.AWS_CHINA_PARTITION_NAME)) {
+      partition = DomainConstants.AWS_CHINA_PARTITION_NAME;
+    } else {
+      return invalid(arn);
+    }
+
+    int serviceStart = partitionEnd + 1;
+    int serviceEnd = serviceStart + 3;
+    String service;
+    if (regionMatches(arn, serviceStart, serviceEnd, IAM_SERVICE)) {
+      service = IAM_SERVICE;
+    } else if (regionMatches(arn, serviceStart, serviceEnd, STS_SERVICE)) {
+      service = STS_SERVICE;
+    } else {
+      return invalid(arn);
+    }
+
+    // the region is always empty for IAM principals
+    if (!arn.startsWith("::", serviceEnd)) {
+      return invalid(arn);
+    }
+
+    int accountStart = serviceEnd + 2;
+    int accountEnd = accountStart;
+    while (accountEnd < length && isAsciiDigit(arn.charAt(accountEnd))) {
+      accountEnd++;
+    }
+    if (accountEnd == accountStart || accountEnd >= length || arn.charAt(accountEnd) != ':') {
+      return invalid(arn);
+    }
+
+    return new AwsIamPrincipalArn(
+        arn,
+        partition,
+        service,
+        arn.substring(accountStart, accountEnd),
+        arn.substring(accountEnd + 1));
+  }
+
+  private static AwsIamPrincipalArn invalid(String arn) {
+    return new AwsIamPrincipalArn(arn, null, null, null, null);
+  }
+
+  private static boolean isAllowed(String resource, int firstSlash) {
+    // (role|user|federated-user|assumed-role).*/.+(?<!\s)
+    if (firstSlash < 0 || firstSlash == resource.length() - 1) {
+      return false;
+    }
+    if (isRegexWhitespace(resource.charAt(resource.length() - 1))) {
+      return false;
+    }
+    for (String typePrefix : ALLOWED_TYPE_PREFIXES) {
+      if (resource.startsWith(typePrefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  /** Line terminators are rejected up front, so these are the remaining characters of \s */
+  private static boolean isRegexWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+  }
+
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean regionMatches(String arn, int start, int end, String expected) {
+    return end - start == expected.length()
+        && end <= arn.length()
+        && arn.startsWith(expected, start);
+  }
+
+  private static String formatRoleArn(String partition, String accountId, String roleName) {
+    return String.format(DomainConstants.AWS_IAM_ROLE_ARN_TEMPLATE, partition, accountId, roleName);
+  }
+
+  /** @return The ARN that was parsed */
+  public String getArn() {
+    return arn;
+  }
+
+  /** @return True if the ARN starts with a supported partition, service and account ID */
+  public boolean isValid() {
+    return resource != null;
+  }
+
+  /** @return 'aws' or 'aws-cn', null if the ARN is not valid */
+  public String getPartition() {
+    return partition;
+  }
+
+  /** @return 'iam' or 'sts', null if the ARN is not valid */
+  public String getService() {
+    return service;
+  }
+
+  public String getAccountId() {
+    return accountId;
+  }
+
+  /** @return Everything after the account ID, e.g. 'assumed-role/example/role-session' */
+  public String getResource() {
+    return resource;
+  }
+
+  /** @return The resource up to the first slash, e.g. 'role', 'assumed-role' or 'root' */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @return The role name of a role or assumed-role ARN, or the name a role would be generated from
+   *     for other principal types. Null if no role name can be derived.
+   */
+  public String getRoleName() {
+    return roleName;
+  }
+
+  /** @return The session name of an assumed-role ARN, null for other principal types */
+  public String getSession() {
+    return session;
+  }
+
+  /** @return True if the ARN is in format 'arn:aws:iam::000000000:role/example' */
+  public boolean isRoleArn() {
+    return roleArn;
+  }
+
+  /**
+   * @return True if the ARN is in format
+   *     'arn:aws:sts::000000000:assumed-role/example/role-session'
+   */
+  public boolean isAssumedRoleArn() {
+    return assumedRoleArn;
+  }
+
+  /** @return True if the ARN is in format 'arn:aws:sts::000000000:assumed-role/...' */
+  public boolean isGenericAssumedRoleArn() {
+    return genericAssumedRoleArn;
+  }
+
+  /** @return True if the ARN is in format 'arn:aws:iam::000000000:root' */
+  public boolean isAccountRootArn() {
+    return accountRootArn;
+  }
+
+  /** @return True if the ARN is a principal type that is allowed in the DB and KMS key policies */
+  public boolean isAllowed() {
+    return allowed;
+  }
+
+  /** @return The role ARN this principal converts to, null if it can not be converted */
+  String getConvertedRoleArn() {
+    return convertedRoleArn;
+  }
+
+  /** @return The account root ARN this principal converts to, null if it can not be converted */
+  String getConvertedRootArn() {
+    return convertedRootArn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return arn != null && arn.equals(((AwsIamPrincipalArn) o).arn);
+  }
+
+  @Override
+  public int hashCode() {
+    return arn == null ? 0 : arn.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return arn;
+  }
+}
@@ -16,6 +16,8 @@
 
 package com.nike.cerberus.util;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.nike.backstopper.exception.ApiException;
 import com.nike.cerberus.domain.DomainConstants;
 import com.nike.cerberus.error.DefaultApiError;
@@ -28,8 +30,16 @@ import org.springframework.stereotype.Component;
 /** Utility class for concatenating and parsing AWS IAM role ARNs. */
 @Component
 public class AwsIamRoleArnParser {
+
+  /** Upper bound on the number of distinct principal ARNs whose parse results are kept. */
+  static final int PARSED_ARN_CACHE_MAX_SIZE = 10_000;
+
   private final boolean awsChinaEnabled;
   private final boolean awsGlobalEnabled;
+  private final LoadingCache<String, AwsIamPrincipalArn> parsedArnCache =
+      Caffeine.newBuilder()
+          .maximumSize(PARSED_ARN_CACHE_MAX_SIZE)
+          .build(AwsIamPrincipalArn::parse);
 
   public AwsIamRoleArnParser(
       @Value("${cerberus.partitions.awsGlobal.enabled}") boolean awsGlobalEnabled,
@@ -38,6 +48,20 @@ public class AwsIamRoleArnParser {
     this.awsChinaEnabled = awsChinaEnabled;
   }
 
+  /**
+   * Parses an ARN once and remembers the result, so that repeated checks against the same principal
+   * do not scan the string again.
+   *
+   * @param arn - ARN to parse
+   * @return - The parsed ARN, never null
+   */
+  public AwsIamPrincipalArn parse(final String arn) {
+    if (arn == null) {
+      return AwsIamPrincipalArn.parse(null);
+    }
+    return parsedArnCache.get(arn);
+  }
+
   /**
    * Gets account ID from a 'role' ARN
    *
@@ -136,6 +160,31 @@ public class AwsIamRoleArnParser {
     return String.format(DomainConstants.AWS_IAM_ROLE_ARN_TEMPLATE, partition, accountId, roleName);
   }
 
+  /**
+   * Converts a parsed principal ARN to a role ARN, behaves the same as {@link
+   * #convertPrincipalArnToRoleArn(String)} without matching the ARN again.
+   *
+   * @param principalArn - Parsed principal ARN to convert
+   * @return - Role ARN
+   */
+  public String convertPrincipalArnToRoleArn(final AwsIamPrincipalArn principalArn) {
+
+    if (principalArn.isRoleArn()) {
+      return principalArn.getArn();
+    }
+
+    if (principalArn.getConvertedRoleArn() == null) {
+      throw invalidArnException(
+          principalArn.getArn(),
+          principalArn.isGenericAssumedRoleArn()
+              ? DomainConstants.IAM_ASSUMED_ROLE_ARN_PATTERN
+              : DomainConstants.IAM_PRINCIPAL_ARN_PATTERN_ROLE_GENERATION);
+    }
+    partitionCheck(principalArn.getPartition());
+
+    return principalArn.getConvertedRoleArn();
+  }
+
   public String convertPrincipalArnToRootArn(final String principalArn) {
 
     if (isAccountRootArn(principalArn)) {
@@ -153,6 +202,28 @@ public class AwsIamRoleArnParser {
     return String.format("arn:%s:iam::%s:root", partition, accountId);
   }
 
+  /**
+   * Converts a parsed principal ARN to its account root ARN, behaves the same as {@link
+   * #convertPrincipalArnToRootArn(String)} without matching the ARN again.
+   *
+   * @param principalArn - Parsed principal ARN to convert
+   * @return - Account root ARN
+   */
+  public String convertPrincipalArnToRootArn(final AwsIamPrincipalArn principalArn) {
+
+    if (principalArn.isAccountRootArn()) {
+      return principalArn.getArn();
+    }
+
+    if (!principalArn.isAllowed()) {
+      throw invalidArnException(
+          principalArn.getArn(), DomainConstants.IAM_PRINCIPAL_ARN_PATTERN_ALLOWED);
+    }
+    partitionCheck(principalArn.getPartition());
+
+    return principalArn.getConvertedRootArn();
+  }
+
   /**
    * Strip out a description from the supplied ARN, e.g. "123456789/role-name" or the empty string
    */
@@ -193,16 +264,20 @@ public class AwsIamRoleArnParser {
     final Matcher iamRoleArnMatcher = pattern.matcher(input);
 
     if (!iamRoleArnMatcher.find()) {
-      throw ApiException.newBuilder()
-          .withApiErrors(new InvalidIamRoleArnApiError(input))
-          .withExceptionMessage("ARN does not match pattern: " + pattern.toString())
-          .build();
+      throw invalidArnException(input, pattern);
     }
     partitionCheck(iamRoleArnMatcher.group("partition"));
 
     return iamRoleArnMatcher.group(groupName);
   }
 
+  private ApiException invalidArnException(final String input, final Pattern pattern) {
+    return ApiException.newBuilder()
+        .withApiErrors(new InvalidIamRoleArnApiError(input))
+        .withExceptionMessage("ARN does not match pattern: " + pattern.toString())
+        .build();
+  }
+
   private void partitionCheck(String partition) {
     if (isAwsGlobalPartition((partition)) && !awsGlobalEnabled) {
       throw ApiException.newBuilder().withApiErrors(DefaultApiError.AWS_GLOBAL_NOT_ALLOWED).build();
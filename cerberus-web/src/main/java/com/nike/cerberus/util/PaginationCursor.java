@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.error.DefaultApiError;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * An opaque position in a listing that is ordered by a timestamp and then by a unique key, both
+ * descending. The next page is read with a seek predicate on the last item of the previous page
+ * instead of an offset, so every page costs the same however deep it is.
+ */
+public final class PaginationCursor {
+
+  private static final char SEPARATOR = ':';
+
+  private final OffsetDateTime timestamp;
+  private final String key;
+
+  /**
+   * @param timestamp The timestamp of the last item of the page, only millisecond precision is kept
+   * @param key The unique key of the last item of the page
+   */
+  public PaginationCursor(OffsetDateTime timestamp, String key) {
+    this.timestamp = timestamp;
+    this.key = key;
+  }
+
+  public OffsetDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /** @return The cursor as a URL safe string that can be passed back to decode */
+  public String encode() {
+    String cursor = Long.toString(timestamp.toInstant().toEpochMilli()) + SEPARATOR + key;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param cursor A cursor created by encode
+   * @return The decoded cursor
+   * @throws ApiException When the cursor was not created by encode
+   */
+  public static PaginationCursor decode(String cursor) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separatorIndex = decoded.indexOf(SEPARATOR);
+      if (separatorIndex < 1 || separatorIndex == decoded.length() - 1) {
+        throw invalidCursor(cursor);
+      }
+      long epochMilli = Long.parseLong(decoded.substring(0, separatorIndex));
+      return new PaginationCursor(
+          OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC),
+          decoded.substring(separatorIndex + 1));
+    } catch (IllegalArgumentException e) {
+      throw invalidCursor(cursor);
+    }
+  }
+
+  private static ApiException invalidCursor(String cursor) {
+    return ApiException.newBuilder()
+        .withApiErrors(DefaultApiError.INVALID_PAGINATION_CURSOR)
+        .withExceptionMessage("Failed to decode pagination cursor: " + cursor)
+        .build();
+  }
+}
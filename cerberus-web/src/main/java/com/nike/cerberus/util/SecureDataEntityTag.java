@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import java.time.OffsetDateTime;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Entity tags for the current version of a secret or secure file, derived from its metadata so that
+ * they can be computed without reading or decrypting the payload. Every write changes the revision
+ * id and the last updated timestamp, re-encrypting with a new data key changes neither since the
+ * plaintext stays the same.
+ *
+ * <p>The tags of secrets are weak since the JSON of a secret may be serialized differently between
+ * responses. The tags of secure files are strong since a file is always served byte for byte as it
+ * was written, which allows them to be used in If-Range headers. The last updated timestamp only
+ * has second precision, so secure data that was last written before revision ids were stored has
+ * a tag that may not change between writes within the same second. Such a file only gets a weak
+ * tag, so that If-Range is not honored for it.
+ */
+public final class SecureDataEntityTag {
+
+  private SecureDataEntityTag() {}
+
+  /**
+   * @param path The path of the secure data, the tag is only ever compared for the same path
+   * @param lastUpdatedTs The last updated timestamp of the secure data
+   * @param revisionId The revision id of the secure data, which changes on every write
+   * @return The weak entity tag, quoted as it is sent in the ETag header
+   */
+  public static String of(String path, OffsetDateTime lastUpdatedTs, String revisionId) {
+    return "W/" + getOpaqueTag(path, lastUpdatedTs, revisionId);
+  }
+
+  /**
+   * @param path The path of the secure file, the tag is only ever compared for the same path
+   * @param lastUpdatedTs The last updated timestamp of the secure file
+   * @param revisionId The revision id of the secure file, which changes on every write
+   * @return The strong entity tag, or the weak tag when there is no revision id, quoted as it is
+   *     sent in the ETag header
+   */
+  public static String ofFile(String path, OffsetDateTime lastUpdatedTs, String revisionId) {
+    if (StringUtils.isEmpty(revisionId)) {
+      return of(path, lastUpdatedTs, revisionId);
+    }
+    return getOpaqueTag(path, lastUpdatedTs, revisionId);
+  }
+
+  private static String getOpaqueTag(String path, OffsetDateTime lastUpdatedTs, String revisionId) {
+    long lastUpdatedMillis = lastUpdatedTs.toInstant().toEpochMilli();
+    return StringUtils.isEmpty(revisionId)
+        ? String.format("\"%08x-%x\"", path.hashCode(), lastUpdatedMillis)
+        : String.format("\"%08x-%x-%s\"", path.hashCode(), lastUpdatedMillis, revisionId);
+  }
+
+  /**
+   * @param ifNoneMatch The value of the If-None-Match header, may be null
+   * @param entityTag The current entity tag
+   * @return true when any of the tags in the header matches the current one by weak comparison
+   */
+  public static boolean matches(String ifNoneMatch, String entityTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaqueTag = stripWeakIndicator(entityTag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if ("*".equals(trimmed) || opaqueTag.equals(stripWeakIndicator(trimmed))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param ifRange The value of the If-Range header, may be null
+   * @param entityTag The current entity tag
+   * @return true when a Range header should be honored, i.e. when there is no If-Range header or
+   *     it matches the current tag by strong comparison. An If-Range header with a date never
+   *     matches since no Last-Modified header is sent, the full representation is sent instead.
+   */
+  public static boolean matchesIfRange(String ifRange, String entityTag) {
+    if (ifRange == null) {
+      return true;
+    }
+    String trimmed = ifRange.trim();
+    return !trimmed.startsWith("W/") && !entityTag.startsWith("W/") && trimmed.equals(entityTag);
+  }
+
+  private static String stripWeakIndicator(String entityTag) {
+    return entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+  }
+}
@@ -16,10 +16,13 @@
 
 package com.nike.cerberus.util;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.codec.binary.Hex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,6 +35,12 @@ import org.springframework.stereotype.Component;
  * anyone that has access to the database. Tokens have a configurable TTL, e.g. 1 hour, so the
  * hashing only needs to be secure enough to protect them for the duration of the TTL.
  *
+ * <p>Two hash schemes are supported and the version of the scheme used is stored alongside the
+ * hash. Version 1 is the original PBKDF2 key stretching scheme, version 2 is a keyed HMAC-SHA256
+ * using the salt as the key. Since tokens are long randomly generated values, key stretching does
+ * not add meaningful protection and HMAC is orders of magnitude cheaper to compute on every
+ * request.
+ *
  * <p>https://www.owasp.org/index.php/Hashing_Java
  * https://stackoverflow.com/questions/29431884/java-security-pbekeyspec-how-many-iterations-are-enough
  */
@@ -44,11 +53,24 @@ public class TokenHasher {
   public static final String HASH_KEY_LENGTH_CONFIG_PARAM = "${cerberus.auth.token.hash.keyLength}";
   public static final String HASH_ITERATIONS_CONFIG_PARAM =
       "${cerberus.auth.token.hash.iterations}";
+  public static final String HASH_VERSION_CONFIG_PARAM =
+      "${cerberus.auth.token.hash.version:#{1}}";
+
+  // hash scheme versions
+  public static final int PBKDF2_HASH_VERSION = 1;
+  public static final int HMAC_SHA256_HASH_VERSION = 2;
+
+  private static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
 
   private final byte[] salt;
   private final String algorithm;
   private final int keyLength;
   private final int iterations;
+  private final int hashVersion;
+
+  // neither of these are thread safe, so keep one per thread rather than creating one per hash
+  private final ThreadLocal<SecretKeyFactory> secretKeyFactory;
+  private final ThreadLocal<Mac> hmac;
 
   /**
    * Hash auth tokens
@@ -57,17 +79,20 @@ public class TokenHasher {
    * @param algorithm the algorithm to use
    * @param keyLength the key length
    * @param iterations the number of iterations
+   * @param hashVersion the version of the hash scheme to use for new tokens
    */
   @Autowired
   public TokenHasher(
       @Value(HASH_SALT_CONFIG_PARAM) final String hashSalt,
       @Value(HASH_ALGORITHM_CONFIG_PARAM) final String algorithm,
       @Value(HASH_KEY_LENGTH_CONFIG_PARAM) final int keyLength,
-      @Value(HASH_ITERATIONS_CONFIG_PARAM) final int iterations) {
+      @Value(HASH_ITERATIONS_CONFIG_PARAM) final int iterations,
+      @Value(HASH_VERSION_CONFIG_PARAM) final int hashVersion) {
     this.salt = Base64.getDecoder().decode(hashSalt);
     this.algorithm = algorithm;
     this.keyLength = keyLength;
     this.iterations = iterations;
+    this.hashVersion = hashVersion;
 
     if (salt.length < 64) {
       throw new IllegalArgumentException(
@@ -78,20 +103,62 @@ public class TokenHasher {
     } else if (iterations < 100) {
       throw new IllegalArgumentException(
           HASH_ITERATIONS_CONFIG_PARAM + " must be at 100 but was " + iterations);
+    } else if (hashVersion != PBKDF2_HASH_VERSION && hashVersion != HMAC_SHA256_HASH_VERSION) {
+      throw new IllegalArgumentException(
+          HASH_VERSION_CONFIG_PARAM + " must be 1 or 2 but was " + hashVersion);
     }
+
+    secretKeyFactory =
+        ThreadLocal.withInitial(
+            () -> {
+              try {
+                return SecretKeyFactory.getInstance(algorithm);
+              } catch (Exception e) {
+                throw new RuntimeException("There was a problem creating the key factory", e);
+              }
+            });
+    hmac =
+        ThreadLocal.withInitial(
+            () -> {
+              try {
+                Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+                mac.init(new SecretKeySpec(salt, HMAC_SHA256_ALGORITHM));
+                return mac;
+              } catch (Exception e) {
+                throw new RuntimeException("There was a problem creating the hmac", e);
+              }
+            });
+  }
+
+  /** @return The version of the hash scheme that new tokens are hashed with */
+  public int getHashVersion() {
+    return hashVersion;
   }
 
   /**
-   * Perform one way hash
+   * Perform one way hash with the configured hash scheme
    *
    * @param token The token to hash
    * @return The hashed token
    */
   public String hashToken(final String token) {
+    return hashToken(token, hashVersion);
+  }
+
+  /**
+   * Perform one way hash with the given hash scheme
+   *
+   * @param token The token to hash
+   * @param hashVersion The version of the hash scheme to use
+   * @return The hashed token
+   */
+  public String hashToken(final String token, final int hashVersion) {
     try {
-      final SecretKeyFactory skf = SecretKeyFactory.getInstance(algorithm);
+      if (hashVersion == HMAC_SHA256_HASH_VERSION) {
+        return Hex.encodeHexString(hmac.get().doFinal(token.getBytes(StandardCharsets.UTF_8)));
+      }
       final PBEKeySpec spec = new PBEKeySpec(token.toCharArray(), salt, iterations, keyLength);
-      final SecretKey key = skf.generateSecret(spec);
+      final SecretKey key = secretKeyFactory.get().generateSecret(spec);
       return Hex.encodeHexString(key.getEncoded());
     } catch (Exception e) {
       throw new RuntimeException("There was a problem hashing the token", e);
@@ -0,0 +1,16 @@
+###
+#
+# Records which SDBs had their permissions changed, so that each instance can refresh its in-memory
+# permission index incrementally. VERSION is the change-version counter.
+#
+###
+
+CREATE TABLE SDB_PERMISSION_CHANGES(
+  VERSION BIGINT NOT NULL AUTO_INCREMENT,
+  SDBOX_ID CHAR(36) NOT NULL,
+  CREATED_TS DATETIME(3) NOT NULL,
+  PRIMARY KEY (VERSION)
+)
+  ENGINE = InnoDB DEFAULT CHARSET = utf8;
+
+ALTER TABLE SDB_PERMISSION_CHANGES ADD INDEX `IX_SDB_PERMISSION_CHANGES_CREATED_TS` (CREATED_TS);
\ No newline at end of file
@@ -0,0 +1,14 @@
+###
+#
+# Adds the lower cased user group name, so that case insensitive user group lookups can use an index
+# instead of comparing UPPER(NAME) for every row. It is maintained by CMS rather than generated,
+# since generated columns are not available in MySQL 5.6.
+#
+###
+
+ALTER TABLE USER_GROUP
+ADD COLUMN NORMALIZED_NAME VARCHAR(255) BINARY NOT NULL DEFAULT '';
+
+UPDATE USER_GROUP SET NORMALIZED_NAME = LOWER(NAME);
+
+ALTER TABLE USER_GROUP ADD INDEX `IX_USER_GRP_NORMALIZED_NAME` (NORMALIZED_NAME);
\ No newline at end of file
@@ -0,0 +1,8 @@
+###
+#
+# Adds an index for listing and counting the secure data of one type under a path within an SDB,
+# e.g. the secure file summaries, which otherwise scan every SDB's rows under the path prefix.
+#
+###
+
+ALTER TABLE SECURE_DATA ADD INDEX `IX_SECURE_DATA_SDBOX_ID_TYPE_PATH` (SDBOX_ID, `TYPE`, PATH);
\ No newline at end of file
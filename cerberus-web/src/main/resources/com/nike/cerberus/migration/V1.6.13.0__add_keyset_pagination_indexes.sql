@@ -0,0 +1,10 @@
+###
+#
+# Adds indexes in the order the secret versions and the SDB metadata are paginated in, so a page
+# that starts after a cursor is read with an index range scan instead of skipping every prior row.
+#
+###
+
+ALTER TABLE SECURE_DATA_VERSION ADD INDEX `IX_SECURE_DATA_VERSION_PATH_ACTION_TS_ID` (PATH, ACTION_TS, ID);
+
+ALTER TABLE SAFE_DEPOSIT_BOX ADD INDEX `IX_SAFE_DEPOSIT_BOX_CREATED_TS_ID` (CREATED_TS, ID);
\ No newline at end of file
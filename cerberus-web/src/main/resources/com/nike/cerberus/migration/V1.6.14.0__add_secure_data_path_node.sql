@@ -0,0 +1,47 @@
+###
+#
+# Adds the secure data path tree, one row per direct child of each folder, so that listing the keys
+# of a folder reads only its children instead of every path below it. NAME is the child's path
+# segment, with a trailing '/' when it is a folder, and DESCENDANT_COUNT is the number of secure data
+# rows at or below it, the row is deleted once the count reaches zero. It is maintained by CMS in the
+# same transaction as SECURE_DATA and backfilled here by splitting every path on '/'.
+#
+###
+
+CREATE TABLE SECURE_DATA_PATH_NODE(
+  SDBOX_ID CHAR(36) NOT NULL,
+  PARENT_PATH VARCHAR(255) NOT NULL,
+  `TYPE` VARCHAR(255) NOT NULL,
+  NAME VARCHAR(255) NOT NULL,
+  DESCENDANT_COUNT INT NOT NULL,
+  PRIMARY KEY (PARENT_PATH, `TYPE`, NAME)
+)
+  ENGINE = InnoDB DEFAULT CHARSET = utf8;
+
+ALTER TABLE SECURE_DATA_PATH_NODE
+  ADD FOREIGN KEY (SDBOX_ID) REFERENCES SAFE_DEPOSIT_BOX(ID);
+
+# Not a temporary table, since MySQL can not refer to a temporary table twice in one query
+CREATE TABLE HEX_DIGITS (D INT NOT NULL);
+INSERT INTO HEX_DIGITS (D) VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15);
+
+INSERT INTO SECURE_DATA_PATH_NODE (SDBOX_ID, PARENT_PATH, `TYPE`, NAME, DESCENDANT_COUNT)
+SELECT
+  SD.SDBOX_ID,
+  CONCAT(SUBSTRING_INDEX(SD.PATH, '/', N.N), '/'),
+  SD.`TYPE`,
+  IF(N.N + 1 < SD.SEGMENTS,
+     CONCAT(SUBSTRING_INDEX(SUBSTRING_INDEX(SD.PATH, '/', N.N + 1), '/', -1), '/'),
+     SUBSTRING_INDEX(SD.PATH, '/', -1)),
+  COUNT(*)
+FROM
+  (SELECT SDBOX_ID, PATH, `TYPE`, LENGTH(PATH) - LENGTH(REPLACE(PATH, '/', '')) + 1 AS SEGMENTS
+   FROM SECURE_DATA) SD
+  JOIN
+  # 0 to 255, a path of at most 255 characters has at most 256 segments
+  (SELECT HIGH.D * 16 + LOW.D AS N
+   FROM HEX_DIGITS LOW CROSS JOIN HEX_DIGITS HIGH) N
+  ON N.N >= 1 AND N.N < SD.SEGMENTS
+GROUP BY 1, 2, 3, 4;
+
+DROP TABLE HEX_DIGITS;
\ No newline at end of file
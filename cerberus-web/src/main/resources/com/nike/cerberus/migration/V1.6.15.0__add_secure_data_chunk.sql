@@ -0,0 +1,20 @@
+###
+#
+# Adds chunked storage for the ciphertext of secure files that are streamed, so that neither writing nor reading them
+# holds the whole file in memory. The ciphertext is split into fixed size chunks, numbered from 0 by CHUNK_INDEX, and
+# the ENCRYPTED_BLOB of the SECURE_DATA or SECURE_DATA_VERSION row holds a reference to the CHUNK_SET_ID instead. A
+# chunk set is written once and belongs to a single row, updating a file writes a new chunk set.
+#
+###
+
+CREATE TABLE SECURE_DATA_CHUNK(
+  CHUNK_SET_ID CHAR(36) NOT NULL,
+  CHUNK_INDEX INT NOT NULL,
+  SDBOX_ID CHAR(36) NOT NULL,
+  DATA MEDIUMBLOB NOT NULL,
+  PRIMARY KEY (CHUNK_SET_ID, CHUNK_INDEX)
+)
+  ENGINE = InnoDB DEFAULT CHARSET = utf8;
+
+ALTER TABLE SECURE_DATA_CHUNK
+  ADD FOREIGN KEY (SDBOX_ID) REFERENCES SAFE_DEPOSIT_BOX(ID);
\ No newline at end of file
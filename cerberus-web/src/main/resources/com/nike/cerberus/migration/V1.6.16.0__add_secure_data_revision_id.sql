@@ -0,0 +1,10 @@
+###
+#
+# Adds an id that is replaced with a new random id on every write of a secret or secure file, so that entity tags change
+# with every write. LAST_UPDATED_TS only has second precision, so two writes within the same second, or a delete and a
+# re-create, would otherwise get the same entity tag. Re-encrypting keeps the id, since the content stays the same.
+# Existing rows keep an empty id until they are next written.
+#
+###
+
+ALTER TABLE SECURE_DATA ADD COLUMN REVISION_ID CHAR(36) NOT NULL DEFAULT '';
\ No newline at end of file
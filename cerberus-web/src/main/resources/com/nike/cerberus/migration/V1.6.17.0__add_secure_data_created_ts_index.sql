@@ -0,0 +1,8 @@
+###
+#
+# Adds an index in the order the secure files of an SDB are paginated in, newest first, so a page that starts after a
+# (CREATED_TS, PATH) cursor is read with an index range scan instead of sorting every file of the SDB.
+#
+###
+
+ALTER TABLE SECURE_DATA ADD INDEX `IX_SECURE_DATA_SDBOX_ID_TYPE_CREATED_TS_PATH` (SDBOX_ID, `TYPE`, CREATED_TS, PATH);
\ No newline at end of file
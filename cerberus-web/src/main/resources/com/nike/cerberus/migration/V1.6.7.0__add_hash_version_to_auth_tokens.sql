@@ -0,0 +1,2 @@
+ALTER TABLE AUTH_TOKENS
+  ADD COLUMN HASH_VERSION TINYINT NOT NULL DEFAULT 1;
\ No newline at end of file
@@ -0,0 +1,15 @@
+###
+#
+# Create the revocation list for signed auth tokens, signed tokens are not stored in AUTH_TOKENS
+#
+###
+
+CREATE TABLE REVOKED_AUTH_TOKENS(
+  ID CHAR(36) NOT NULL,
+  CREATED_TS DATETIME NOT NULL,
+  EXPIRES_TS DATETIME NOT NULL,
+  PRIMARY KEY (ID)
+)
+  ENGINE = InnoDB DEFAULT CHARSET = utf8;
+
+ALTER TABLE REVOKED_AUTH_TOKENS ADD INDEX `IX_REVOKED_AUTH_TOKENS_EXPIRES_TS` (EXPIRES_TS);
\ No newline at end of file
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.aws.sts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Counter;
+import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.error.DefaultApiError;
+import com.nike.cerberus.metric.MetricsService;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+public class AwsStsHttpClientTest {
+
+  private static final Map<String, String> HEADERS =
+      Map.of(
+          AwsStsHttpHeader.HEADER_AUTHORIZATION, "test authorization",
+          AwsStsHttpHeader.HEADER_X_AMZ_DATE, "20200101T000000Z");
+
+  private LocalStsServer localStsServer;
+  private MetricsService metricsService;
+
+  @Before
+  public void setup() throws Exception {
+    localStsServer = new LocalStsServer(0);
+    metricsService = mock(MetricsService.class);
+    when(metricsService.getOrCreateCounter(anyString(), any())).thenReturn(new Counter());
+  }
+
+  @After
+  public void tearDown() {
+    localStsServer.close();
+  }
+
+  @Test
+  public void test_executeAsync_parses_the_caller_identity() {
+    AwsStsHttpClient httpClient = createHttpClient(10);
+
+    GetCallerIdentityFullResponse response =
+        httpClient.executeAsync("us-west-2", HEADERS, GetCallerIdentityFullResponse.class).join();
+
+    assertEquals(
+        LocalStsServer.DEFAULT_ARN,
+        response.getGetCallerIdentityResponse().getGetCallerIdentityResult().getArn());
+  }
+
+  @Test
+  public void test_executeAsync_retries_server_errors() {
+    AwsStsHttpClient httpClient = createHttpClient(10);
+    localStsServer.failNextRequests(2);
+
+    GetCallerIdentityFullResponse response =
+        httpClient.executeAsync("us-west-2", HEADERS, GetCallerIdentityFullResponse.class).join();
+
+    assertEquals(
+        LocalStsServer.DEFAULT_ARN,
+        response.getGetCallerIdentityResponse().getGetCallerIdentityResult().getArn());
+    assertEquals(3, localStsServer.getRequestCount());
+  }
+
+  @Test
+  public void test_executeAsync_maps_client_errors_to_api_errors() {
+    AwsStsHttpClient httpClient = createHttpClient(10);
+
+    ApiException apiException =
+        getApiException(
+            httpClient.executeAsync("us-west-2", Map.of(), GetCallerIdentityFullResponse.class));
+
+    assertTrue(apiException.getApiErrors().contains(DefaultApiError.SIGNATURE_DOES_NOT_MATCH));
+    assertEquals(1, localStsServer.getRequestCount());
+  }
+
+  @Test
+  public void test_executeAsync_rejects_requests_once_the_region_bulkhead_is_full() {
+    AwsStsHttpClient httpClient = createHttpClient(1);
+    localStsServer.setLatencyInMillis(500);
+
+    CompletableFuture<GetCallerIdentityFullResponse> first =
+        httpClient.executeAsync("us-west-2", HEADERS, GetCallerIdentityFullResponse.class);
+    CompletableFuture<GetCallerIdentityFullResponse> second =
+        httpClient.executeAsync("us-west-2", HEADERS, GetCallerIdentityFullResponse.class);
+
+    assertTrue(
+        getApiException(second).getApiErrors().stream()
+            .anyMatch(
+                error ->
+                    error
+                        .getErrorCode()
+                        .equals(DefaultApiError.SERVICE_UNAVAILABLE.getErrorCode())));
+    first.join();
+    // the other regions and the released permit are not affected
+    httpClient.executeAsync("us-east-1", HEADERS, GetCallerIdentityFullResponse.class).join();
+    httpClient.executeAsync("us-west-2", HEADERS, GetCallerIdentityFullResponse.class).join();
+  }
+
+  @Test
+  public void test_the_endpoint_override_is_ignored_outside_of_the_local_profile() {
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.setActiveProfiles("prod");
+    AwsStsHttpClient httpClient =
+        new AwsStsHttpClient(
+            metricsService, 256, 64, 16, 10, localStsServer.getEndpoint(), environment);
+
+    assertEquals(
+        "https://sts.us-west-2.amazonaws.com/",
+        httpClient.buildRequest("us-west-2", HEADERS).url().toString());
+  }
+
+  private AwsStsHttpClient createHttpClient(int maxConcurrentRequestsPerRegion) {
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.setActiveProfiles("local");
+    return new AwsStsHttpClient(
+        metricsService,
+        256,
+        64,
+        16,
+        maxConcurrentRequestsPerRegion,
+        localStsServer.getEndpoint(),
+        environment);
+  }
+
+  private ApiException getApiException(CompletableFuture<?> future) {
+    try {
+      future.join();
+      fail("expected ApiException");
+      return null;
+    } catch (CompletionException e) {
+      return (ApiException) e.getCause();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.aws.sts;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for AWS STS GetCallerIdentity, so that the sts-identity auth path can be tested
+ * and load tested offline, see cerberus.auth.iam.sts.client.endpointOverride.
+ *
+ * <p>Run with ./gradlew :cerberus-web:runLocalSts -PstsPort=8099 -PstsLatencyInMillis=200
+ */
+public class LocalStsServer implements AutoCloseable {
+
+  static final String DEFAULT_ARN = "arn:aws:iam::111111111111:role/local-sts-stand-in";
+
+  private static final String GET_CALLER_IDENTITY_RESPONSE_TEMPLATE =
+      "{\"GetCallerIdentityResponse\":{\"GetCallerIdentityResult\":"
+          + "{\"Account\":\"111111111111\",\"Arn\":\"%s\",\"UserId\":\"AROALOCALSTSSTANDIN\"},"
+          + "\"ResponseMetadata\":{\"RequestId\":\"local\"}}}";
+  private static final String MISSING_SIGNATURE_RESPONSE =
+      "{\"Error\":{\"Code\":\"SignatureDoesNotMatch\",\"Message\":\"Missing Authorization header\","
+          + "\"Type\":\"Sender\"},\"RequestId\":\"local\"}";
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger remainingFailures = new AtomicInteger();
+  private volatile String arn = DEFAULT_ARN;
+  private volatile long latencyInMillis;
+
+  /** @param port The port to listen on, 0 for any free port */
+  public LocalStsServer(int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  public String getEndpoint() {
+    return String.format("http://localhost:%d", server.getAddress().getPort());
+  }
+
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /** The ARN of the caller identity returned for every signed request */
+  public LocalStsServer setArn(String arn) {
+    this.arn = arn;
+    return this;
+  }
+
+  /** How long to wait before responding to each request */
+  public LocalStsServer setLatencyInMillis(long latencyInMillis) {
+    this.latencyInMillis = latencyInMillis;
+    return this;
+  }
+
+  /** Respond to the next requests with a 503, as STS does when it is throttling or unavailable */
+  public LocalStsServer failNextRequests(int numberOfRequests) {
+    remainingFailures.set(numberOfRequests);
+    return this;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+    exchange.getRequestBody().readAllBytes();
+
+    if (latencyInMillis > 0) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(latencyInMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (remainingFailures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+      respond(exchange, 503, "Service Unavailable");
+    } else if (exchange.getRequestHeaders().getFirst(AwsStsHttpHeader.HEADER_AUTHORIZATION)
+        == null) {
+      respond(exchange, 403, MISSING_SIGNATURE_RESPONSE);
+    } else {
+      respond(exchange, 200, String.format(GET_CALLER_IDENTITY_RESPONSE_TEMPLATE, arn));
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 8099;
+    long latencyInMillis = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+    LocalStsServer server = new LocalStsServer(port).setLatencyInMillis(latencyInMillis);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    System.out.printf(
+        "Local STS stand-in listening on %s with %dms latency%n",
+        server.getEndpoint(), latencyInMillis);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
+import com.nike.cerberus.mapper.AuthTokenMapper;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.AuthTokenRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class AuthTokenBatchWriterTest {
+
+  private AuthTokenMapper authTokenMapper;
+  private MetricsService metricsService;
+  private Histogram batchSizeHistogram;
+  private AuthTokenBatchWriter authTokenBatchWriter;
+
+  @Before
+  public void before() {
+    authTokenMapper = mock(AuthTokenMapper.class);
+    metricsService = mock(MetricsService.class);
+    batchSizeHistogram = new Histogram(new UniformReservoir());
+    when(metricsService.getOrCreateHistogram("cms.auth.token.batch.size", null))
+        .thenReturn(batchSizeHistogram);
+    when(metricsService.getOrCreateHistogram("cms.auth.token.batch.flushLatencyInMillis", null))
+        .thenReturn(new Histogram(new UniformReservoir()));
+  }
+
+  @After
+  public void after() {
+    if (authTokenBatchWriter != null) {
+      authTokenBatchWriter.executeServerShutdownHook();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void test_that_concurrent_writes_are_grouped_into_batches() throws Exception {
+    authTokenBatchWriter =
+        new AuthTokenBatchWriter(authTokenMapper, metricsService, true, 100, 200, 1000, 10000);
+
+    ExecutorService requestThreads = Executors.newFixedThreadPool(10);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      AuthTokenRecord record = new AuthTokenRecord().setId(String.valueOf(i));
+      results.add(requestThreads.submit(() -> authTokenBatchWriter.write(record)));
+    }
+    for (Future<Integer> result : results) {
+      assertThat(result.get()).isEqualTo(1);
+    }
+    requestThreads.shutdown();
+
+    ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+    verify(authTokenMapper, atLeastOnce()).createAuthTokens(batches.capture());
+    int totalRecords = batches.getAllValues().stream().mapToInt(List::size).sum();
+    assertThat(totalRecords).isEqualTo(10);
+    assertThat(batches.getAllValues().size()).isLessThan(10);
+    assertThat(batchSizeHistogram.getCount()).isEqualTo(batches.getAllValues().size());
+    verify(authTokenMapper, never()).createAuthToken(any(AuthTokenRecord.class));
+  }
+
+  @Test
+  public void test_that_a_failed_batch_is_retried_as_individual_inserts() {
+    authTokenBatchWriter =
+        new AuthTokenBatchWriter(authTokenMapper, metricsService, true, 100, 1, 1000, 10000);
+    doThrow(new RuntimeException("batch failed")).when(authTokenMapper).createAuthTokens(anyList());
+    AuthTokenRecord record = new AuthTokenRecord().setId("id");
+
+    assertThat(authTokenBatchWriter.write(record)).isEqualTo(1);
+
+    verify(authTokenMapper).createAuthToken(record);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void test_that_write_fails_when_the_record_cannot_be_inserted() {
+    authTokenBatchWriter =
+        new AuthTokenBatchWriter(authTokenMapper, metricsService, true, 100, 1, 1000, 10000);
+    doThrow(new RuntimeException("batch failed")).when(authTokenMapper).createAuthTokens(anyList());
+    doThrow(new RuntimeException("insert failed"))
+        .when(authTokenMapper)
+        .createAuthToken(any(AuthTokenRecord.class));
+
+    authTokenBatchWriter.write(new AuthTokenRecord().setId("id"));
+  }
+
+  @Test
+  public void test_that_the_writer_is_not_enabled_by_default() {
+    authTokenBatchWriter =
+        new AuthTokenBatchWriter(authTokenMapper, metricsService, false, 100, 5, 1000, 10000);
+
+    assertThat(authTokenBatchWriter.isEnabled()).isFalse();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.nike.cerberus.mapper.AuthTokenMapper;
+import com.nike.cerberus.record.AuthTokenRecord;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthTokenDaoTest {
+
+  private final String tokenHash = "TOKEN_HASH";
+
+  private AuthTokenMapper authTokenMapper;
+
+  private AuthTokenDao authTokenDao;
+
+  @Before
+  public void before() {
+    authTokenMapper = mock(AuthTokenMapper.class);
+    authTokenDao = new AuthTokenDao(authTokenMapper, mock(AuthTokenBatchWriter.class));
+  }
+
+  @Test
+  public void getAuthTokenFromHash_returns_the_token_when_the_hash_is_unique() {
+    AuthTokenRecord record = new AuthTokenRecord().setId("a").setTokenHash(tokenHash);
+    when(authTokenMapper.getAuthTokensFromHash(eq(tokenHash), any(OffsetDateTime.class)))
+        .thenReturn(List.of(record));
+
+    Optional<AuthTokenRecord> actual = authTokenDao.getAuthTokenFromHash(tokenHash);
+
+    assertThat(actual).contains(record);
+  }
+
+  @Test
+  public void getAuthTokenFromHash_returns_empty_when_the_hash_is_not_unique() {
+    when(authTokenMapper.getAuthTokensFromHash(eq(tokenHash), any(OffsetDateTime.class)))
+        .thenReturn(
+            List.of(
+                new AuthTokenRecord().setId("a").setTokenHash(tokenHash),
+                new AuthTokenRecord().setId("b").setTokenHash(tokenHash)));
+
+    Optional<AuthTokenRecord> actual = authTokenDao.getAuthTokenFromHash(tokenHash);
+
+    assertThat(actual).isEmpty();
+  }
+
+  @Test
+  public void isAuthTokensPartitioned_is_false_when_the_table_has_no_partitions() {
+    when(authTokenMapper.getAuthTokenPartitionNames()).thenReturn(List.of());
+
+    assertThat(authTokenDao.isAuthTokensPartitioned()).isFalse();
+  }
+}
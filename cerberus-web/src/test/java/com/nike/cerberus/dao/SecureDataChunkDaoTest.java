@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.nike.cerberus.mapper.SecureDataChunkMapper;
+import com.nike.cerberus.util.UuidSupplier;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class SecureDataChunkDaoTest {
+
+  private final String sdbId = "sdb id";
+  private final String chunkSetId = "chunk set id";
+
+  @Mock private SecureDataChunkMapper secureDataChunkMapper;
+  @Mock private UuidSupplier uuidSupplier;
+
+  private final Map<Integer, byte[]> chunks = new HashMap<>();
+
+  private SecureDataChunkDao subject;
+
+  @Before
+  public void setUp() throws Exception {
+    initMocks(this);
+
+    when(uuidSupplier.get()).thenReturn(chunkSetId);
+    doAnswer(
+            invocation -> {
+              byte[] data = (byte[]) invocation.getArguments()[3];
+              chunks.put((Integer) invocation.getArguments()[1], data.clone());
+              return 1;
+            })
+        .when(secureDataChunkMapper)
+        .writeChunk(anyString(), anyInt(), anyString(), any(byte[].class));
+    when(secureDataChunkMapper.readChunk(anyString(), anyInt()))
+        .thenAnswer(invocation -> chunks.get((Integer) invocation.getArguments()[1]));
+
+    subject = new SecureDataChunkDao(secureDataChunkMapper, uuidSupplier, 10);
+  }
+
+  @Test
+  public void writeChunkSet_stores_the_ciphertext_in_chunks_that_read_back_as_a_stream()
+      throws Exception {
+    byte[] ciphertext = new byte[25];
+    new Random(42).nextBytes(ciphertext);
+
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet = subject.writeChunkSet(sdbId);
+    chunkSet.write(ciphertext, 0, 7);
+    chunkSet.write(ciphertext[7]);
+    chunkSet.write(ciphertext, 8, 17);
+    chunkSet.close();
+
+    verify(secureDataChunkMapper, times(3))
+        .writeChunk(anyString(), anyInt(), anyString(), any(byte[].class));
+    assertThat(chunks.get(0)).hasSize(10);
+    assertThat(chunks.get(2)).hasSize(5);
+    try (InputStream read = subject.readChunkSet(chunkSetId)) {
+      assertThat(read.readAllBytes()).isEqualTo(ciphertext);
+    }
+  }
+
+  @Test
+  public void writeChunkSet_stores_an_empty_chunk_for_empty_ciphertext() throws Exception {
+    subject.writeChunkSet(sdbId).close();
+
+    assertThat(chunks).containsOnlyKeys(0);
+    try (InputStream read = subject.readChunkSet(chunkSetId)) {
+      assertThat(read.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void getChunkSetId_returns_the_id_from_the_reference_of_a_chunk_set() {
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet = subject.writeChunkSet(sdbId);
+
+    assertThat(SecureDataChunkDao.getChunkSetId(chunkSet.getReference())).hasValue(chunkSetId);
+  }
+
+  @Test
+  public void getChunkSetId_returns_empty_for_ciphertext() {
+    assertThat(SecureDataChunkDao.getChunkSetId("ciphertext".getBytes(StandardCharsets.UTF_8)))
+        .isEmpty();
+    assertThat(SecureDataChunkDao.getChunkSetId(new byte[0])).isEmpty();
+    assertThat(SecureDataChunkDao.getChunkSetId(null)).isEmpty();
+  }
+}
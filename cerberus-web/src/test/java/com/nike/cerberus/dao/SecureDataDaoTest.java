@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.nike.cerberus.domain.SecureDataType;
+import com.nike.cerberus.mapper.SecureDataMapper;
+import com.nike.cerberus.record.SecureDataPathNodeRecord;
+import com.nike.cerberus.record.SecureDataRecord;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class SecureDataDaoTest {
+
+  private final String sdbId = "sdb id";
+
+  @Mock private SecureDataMapper secureDataMapper;
+
+  private SecureDataDao subject;
+
+  @Before
+  public void setUp() throws Exception {
+    initMocks(this);
+
+    subject = new SecureDataDao(secureDataMapper);
+  }
+
+  @Test
+  public void getPathNodes_returns_one_node_per_segment_after_the_sdb_slug() {
+    List<SecureDataPathNodeRecord> nodes =
+        SecureDataDao.getPathNodes(sdbId, "my-sdb/foo/bar/bam", SecureDataType.OBJECT);
+
+    assertThat(describe(nodes))
+        .containsExactly("my-sdb/ foo/", "my-sdb/foo/ bar/", "my-sdb/foo/bar/ bam");
+    assertThat(nodes)
+        .allMatch(node -> sdbId.equals(node.getSdboxId()))
+        .allMatch(node -> node.getType() == SecureDataType.OBJECT);
+  }
+
+  @Test
+  public void getPathNodes_matches_listing_every_path_below_the_folder_for_empty_segments() {
+    assertThat(describe(SecureDataDao.getPathNodes(sdbId, "my-sdb/a//b", SecureDataType.FILE)))
+        .containsExactly("my-sdb/ a/", "my-sdb/a/ /", "my-sdb/a// b");
+    assertThat(describe(SecureDataDao.getPathNodes(sdbId, "my-sdb/a/", SecureDataType.FILE)))
+        .containsExactly("my-sdb/ a/", "my-sdb/a/ ");
+    assertThat(SecureDataDao.getPathNodes(sdbId, "my-sdb", SecureDataType.FILE)).isEmpty();
+  }
+
+  @Test
+  public void every_write_gets_a_new_revision_id_even_within_the_same_second() {
+    OffsetDateTime now = OffsetDateTime.parse("2020-03-04T05:06:07Z");
+    byte[] ciphertext = new byte[] {1};
+
+    subject.writeSecureData(
+        sdbId, "my-sdb/secret", ciphertext, 1, SecureDataType.OBJECT, 1, "me", now, "me", now);
+    subject.updateSecureData(
+        sdbId, "my-sdb/secret", ciphertext, 1, SecureDataType.OBJECT, 1, "me", now, "me", now, now);
+
+    ArgumentCaptor<SecureDataRecord> written = ArgumentCaptor.forClass(SecureDataRecord.class);
+    verify(secureDataMapper).writeSecureData(written.capture());
+    ArgumentCaptor<SecureDataRecord> updated = ArgumentCaptor.forClass(SecureDataRecord.class);
+    verify(secureDataMapper).updateSecureData(updated.capture());
+    assertThat(written.getValue().getRevisionId()).isNotEmpty();
+    assertThat(updated.getValue().getRevisionId())
+        .isNotEmpty()
+        .isNotEqualTo(written.getValue().getRevisionId());
+  }
+
+  @Test
+  public void readSecureDataByPathsAndType_does_not_query_for_no_paths() {
+    assertThat(subject.readSecureDataByPathsAndType(sdbId, List.of(), SecureDataType.OBJECT))
+        .isEmpty();
+
+    verify(secureDataMapper, never())
+        .readSecureDataByPathsAndType(anyString(), anyCollectionOf(String.class), any());
+  }
+
+  @Test
+  public void addToPathTree_increments_every_node_of_the_path() {
+    subject.addToPathTree(sdbId, "my-sdb/foo/bar", SecureDataType.OBJECT);
+
+    ArgumentCaptor<List> nodes = ArgumentCaptor.forClass(List.class);
+    verify(secureDataMapper).incrementPathNodes(nodes.capture());
+    assertThat(describe(nodes.getValue())).containsExactly("my-sdb/ foo/", "my-sdb/foo/ bar");
+  }
+
+  @Test
+  public void removeFromPathTree_decrements_and_then_deletes_the_empty_nodes_of_the_path() {
+    subject.removeFromPathTree(sdbId, "my-sdb/foo/bar", SecureDataType.OBJECT);
+
+    ArgumentCaptor<List> decremented = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List> deleted = ArgumentCaptor.forClass(List.class);
+    verify(secureDataMapper).decrementPathNodes(decremented.capture());
+    verify(secureDataMapper).deleteEmptyPathNodes(deleted.capture());
+    assertThat(describe(decremented.getValue()))
+        .containsExactly("my-sdb/ foo/", "my-sdb/foo/ bar");
+    assertThat(describe(deleted.getValue())).containsExactly("my-sdb/ foo/", "my-sdb/foo/ bar");
+  }
+
+  @Test
+  public void removeFromPathTree_does_nothing_for_a_path_without_nodes() {
+    subject.removeFromPathTree(sdbId, "my-sdb", SecureDataType.OBJECT);
+
+    verify(secureDataMapper, never())
+        .decrementPathNodes(anyListOf(SecureDataPathNodeRecord.class));
+    verify(secureDataMapper, never())
+        .deleteEmptyPathNodes(anyListOf(SecureDataPathNodeRecord.class));
+  }
+
+  private static List<String> describe(List<SecureDataPathNodeRecord> nodes) {
+    return nodes.stream()
+        .map(node -> node.getParentPath() + " " + node.getName())
+        .collect(Collectors.toList());
+  }
+}
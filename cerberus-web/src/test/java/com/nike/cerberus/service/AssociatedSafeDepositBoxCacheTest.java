@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nike.cerberus.PrincipalType;
+import com.nike.cerberus.domain.SafeDepositBoxSummary;
+import com.nike.cerberus.event.SafeDepositBoxChangedEvent;
+import com.nike.cerberus.security.AuthorizationContext;
+import com.nike.cerberus.security.CerberusPrincipal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AssociatedSafeDepositBoxCacheTest {
+
+  private static final String ROLE_ARN = "arn:aws:iam::1111111111:role/reader";
+  private static final String ROOT_ARN = "arn:aws:iam::1111111111:root";
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Supplier<List<SafeDepositBoxSummary>> loader =
+      () -> {
+        loads.incrementAndGet();
+        return List.of(new SafeDepositBoxSummary().setId("sdb-id"));
+      };
+
+  private AssociatedSafeDepositBoxCache associatedSafeDepositBoxCache;
+
+  @Before
+  public void before() {
+    associatedSafeDepositBoxCache = createCache(true);
+  }
+
+  @Test
+  public void test_that_the_sdbs_of_a_principal_are_only_loaded_once() {
+    CerberusPrincipal principal = iamPrincipal(ROLE_ARN);
+
+    associatedSafeDepositBoxCache.get(principal, loader);
+    List<SafeDepositBoxSummary> summaries = associatedSafeDepositBoxCache.get(principal, loader);
+
+    assertEquals(1, loads.get());
+    assertEquals("sdb-id", summaries.get(0).getId());
+  }
+
+  @Test
+  public void test_that_users_with_the_same_groups_in_any_order_share_a_listing() {
+    associatedSafeDepositBoxCache.get(user(Set.of("Group-A", "group-b")), loader);
+    associatedSafeDepositBoxCache.get(user(Set.of("group-b", "Group-A")), loader);
+    associatedSafeDepositBoxCache.get(user(Set.of("Group-A")), loader);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void test_that_different_iam_principals_do_not_share_a_listing() {
+    associatedSafeDepositBoxCache.get(iamPrincipal(ROLE_ARN), loader);
+    associatedSafeDepositBoxCache.get(iamPrincipal(ROLE_ARN + "-2"), loader);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void test_that_a_change_drops_the_cached_listings() {
+    CerberusPrincipal principal = iamPrincipal(ROLE_ARN);
+    associatedSafeDepositBoxCache.get(principal, loader);
+
+    associatedSafeDepositBoxCache.onSafeDepositBoxChanged(
+        new SafeDepositBoxChangedEvent(this, Set.of("sdb-id")));
+    associatedSafeDepositBoxCache.get(principal, loader);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void test_that_nothing_is_cached_when_disabled() {
+    AssociatedSafeDepositBoxCache disabled = createCache(false);
+    CerberusPrincipal principal = iamPrincipal(ROLE_ARN);
+
+    disabled.get(principal, loader);
+    disabled.get(principal, loader);
+
+    assertEquals(2, loads.get());
+  }
+
+  private AssociatedSafeDepositBoxCache createCache(boolean enabled) {
+    return new AssociatedSafeDepositBoxCache(Caffeine.newBuilder().build(), true, enabled);
+  }
+
+  private CerberusPrincipal iamPrincipal(String iamPrincipalArn) {
+    CerberusPrincipal principal = mock(CerberusPrincipal.class);
+    doReturn(PrincipalType.IAM).when(principal).getPrincipalType();
+    doReturn(new AuthorizationContext(null, iamPrincipalArn, null, ROOT_ARN))
+        .when(principal)
+        .getAuthorizationContext();
+    return principal;
+  }
+
+  private CerberusPrincipal user(Set<String> userGroups) {
+    CerberusPrincipal principal = mock(CerberusPrincipal.class);
+    doReturn(PrincipalType.USER).when(principal).getPrincipalType();
+    doReturn(userGroups).when(principal).getUserGroups();
+    return principal;
+  }
+}
@@ -17,21 +17,31 @@
 package com.nike.cerberus.service;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.nike.cerberus.PrincipalType;
 import com.nike.cerberus.dao.AuthTokenDao;
 import com.nike.cerberus.domain.CerberusAuthToken;
 import com.nike.cerberus.record.AuthTokenRecord;
+import com.nike.cerberus.record.RevokedAuthTokenRecord;
 import com.nike.cerberus.util.AuthTokenGenerator;
+import com.nike.cerberus.util.AuthTokenSigner;
 import com.nike.cerberus.util.DateTimeSupplier;
 import com.nike.cerberus.util.TokenHasher;
 import com.nike.cerberus.util.UuidSupplier;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import junit.framework.AssertionFailedError;
@@ -47,16 +57,25 @@ public class AuthTokenServiceTest {
   @Mock private AuthTokenGenerator authTokenGenerator;
   @Mock private AuthTokenDao authTokenDao;
   @Mock private DateTimeSupplier dateTimeSupplier;
+  @Mock private AuthTokenSigner authTokenSigner;
 
   AuthTokenService authTokenService;
 
   @Before
   public void before() {
     initMocks(this);
+    when(tokenHasher.getHashVersion()).thenReturn(TokenHasher.PBKDF2_HASH_VERSION);
 
     authTokenService =
         new AuthTokenService(
-            uuidSupplier, tokenHasher, authTokenGenerator, authTokenDao, dateTimeSupplier);
+            uuidSupplier,
+            tokenHasher,
+            authTokenGenerator,
+            authTokenDao,
+            dateTimeSupplier,
+            false,
+            Caffeine.newBuilder().build(),
+            authTokenSigner);
   }
 
   @Test
@@ -186,4 +205,331 @@ public class AuthTokenServiceTest {
     authTokenService.deleteExpiredTokens(maxDelete, batchSize, batchPauseTimeInMillis);
     verify(authTokenDao).deleteExpiredTokens(maxDelete, batchSize, batchPauseTimeInMillis);
   }
+
+  @Test
+  public void test_that_rotateTokenPartitions_drops_expired_partitions_and_adds_upcoming_ones() {
+    when(dateTimeSupplier.get()).thenReturn(OffsetDateTime.parse("2020-01-01T05:30:00Z"));
+    when(authTokenDao.getAuthTokenPartitionUpperBounds())
+        .thenReturn(
+            List.of(
+                OffsetDateTime.parse("2020-01-01T05:00:00Z"),
+                OffsetDateTime.parse("2020-01-01T06:00:00Z"),
+                OffsetDateTime.parse("2020-01-01T07:00:00Z")));
+
+    int numberOfDroppedPartitions = authTokenService.rotateTokenPartitions(1, 3, 10);
+
+    assertEquals(1, numberOfDroppedPartitions);
+    verify(authTokenDao).deleteExpiredRevokedAuthTokens(10);
+    verify(authTokenDao)
+        .dropAuthTokenPartitions(List.of(OffsetDateTime.parse("2020-01-01T05:00:00Z")));
+    verify(authTokenDao)
+        .addAuthTokenPartitions(
+            List.of(
+                OffsetDateTime.parse("2020-01-01T08:00:00Z"),
+                OffsetDateTime.parse("2020-01-01T09:00:00Z")));
+  }
+
+  @Test
+  public void test_that_getCerberusAuthToken_serves_repeat_reads_from_the_cache_when_enabled() {
+    Cache<String, CerberusAuthToken> authTokenCache = Caffeine.newBuilder().build();
+    authTokenService =
+        new AuthTokenService(
+            uuidSupplier,
+            tokenHasher,
+            authTokenGenerator,
+            authTokenDao,
+            dateTimeSupplier,
+            true,
+            authTokenCache,
+            authTokenSigner);
+
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    OffsetDateTime now = OffsetDateTime.now();
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+    when(authTokenDao.getAuthTokenFromHash(fakeHash))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setTokenHash(fakeHash)
+                    .setCreatedTs(now)
+                    .setExpiresTs(now.plusHours(1))
+                    .setPrincipal("test-user@domain.com")
+                    .setPrincipalType(PrincipalType.USER.getName())
+                    .setIsAdmin(false)
+                    .setRefreshCount(0)));
+
+    assertTrue(authTokenService.getCerberusAuthToken(tokenId).isPresent());
+    assertTrue(authTokenService.getCerberusAuthToken(tokenId).isPresent());
+
+    verify(tokenHasher, times(1)).hashToken(tokenId);
+    verify(authTokenDao, times(1)).getAuthTokenFromHash(fakeHash);
+  }
+
+  @Test
+  public void test_that_getCerberusAuthToken_does_not_serve_expired_tokens_from_the_cache() {
+    Cache<String, CerberusAuthToken> authTokenCache = Caffeine.newBuilder().build();
+    authTokenService =
+        new AuthTokenService(
+            uuidSupplier,
+            tokenHasher,
+            authTokenGenerator,
+            authTokenDao,
+            dateTimeSupplier,
+            true,
+            authTokenCache,
+            authTokenSigner);
+
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    authTokenCache.put(
+        tokenId,
+        CerberusAuthToken.builder()
+            .token(tokenId)
+            .expires(OffsetDateTime.now().minusSeconds(1))
+            .build());
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+    when(authTokenDao.getAuthTokenFromHash(fakeHash)).thenReturn(Optional.empty());
+
+    assertTrue(
+        "optional should be empty", !authTokenService.getCerberusAuthToken(tokenId).isPresent());
+    assertNull(authTokenCache.getIfPresent(tokenId));
+  }
+
+  @Test
+  public void test_that_revokeToken_invalidates_the_cached_token() {
+    Cache<String, CerberusAuthToken> authTokenCache = Caffeine.newBuilder().build();
+    authTokenService =
+        new AuthTokenService(
+            uuidSupplier,
+            tokenHasher,
+            authTokenGenerator,
+            authTokenDao,
+            dateTimeSupplier,
+            true,
+            authTokenCache,
+            authTokenSigner);
+
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    authTokenCache.put(
+        tokenId,
+        CerberusAuthToken.builder()
+            .token(tokenId)
+            .expires(OffsetDateTime.now().plusHours(1))
+            .build());
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+
+    authTokenService.revokeToken(tokenId);
+
+    assertNull(authTokenCache.getIfPresent(tokenId));
+    verify(authTokenDao).deleteAuthTokenFromHash(fakeHash);
+  }
+
+  @Test
+  public void test_that_getCerberusAuthToken_does_not_use_the_cache_when_disabled() {
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    OffsetDateTime now = OffsetDateTime.now();
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+    when(authTokenDao.getAuthTokenFromHash(fakeHash))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setCreatedTs(now)
+                    .setExpiresTs(now.plusHours(1))
+                    .setPrincipalType(PrincipalType.USER.getName())
+                    .setIsAdmin(false)
+                    .setRefreshCount(0)));
+
+    authTokenService.getCerberusAuthToken(tokenId);
+    authTokenService.getCerberusAuthToken(tokenId);
+
+    verify(authTokenDao, times(2)).getAuthTokenFromHash(fakeHash);
+  }
+
+  @Test
+  public void test_that_getCerberusAuthToken_falls_back_to_the_legacy_hash_when_not_found() {
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    final String fakeLegacyHash = "lkjlkj1243asdfasdfkjadlkfjasdlkf";
+    OffsetDateTime now = OffsetDateTime.now();
+    when(tokenHasher.getHashVersion()).thenReturn(TokenHasher.HMAC_SHA256_HASH_VERSION);
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+    when(tokenHasher.hashToken(tokenId, TokenHasher.PBKDF2_HASH_VERSION))
+        .thenReturn(fakeLegacyHash);
+    when(authTokenDao.getAuthTokenFromHash(fakeHash)).thenReturn(Optional.empty());
+    when(authTokenDao.getAuthTokenFromHash(fakeLegacyHash))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setTokenHash(fakeLegacyHash)
+                    .setHashVersion(TokenHasher.PBKDF2_HASH_VERSION)
+                    .setCreatedTs(now)
+                    .setExpiresTs(now.plusHours(1))
+                    .setPrincipalType(PrincipalType.USER.getName())
+                    .setIsAdmin(false)
+                    .setRefreshCount(0)));
+
+    Optional<CerberusAuthToken> tokenOptional = authTokenService.getCerberusAuthToken(tokenId);
+
+    assertTrue("optional should be populated", tokenOptional.isPresent());
+    verify(authTokenDao).getAuthTokenFromHash(fakeHash);
+    verify(authTokenDao).getAuthTokenFromHash(fakeLegacyHash);
+  }
+
+  @Test
+  public void test_that_revokeToken_falls_back_to_the_legacy_hash_when_nothing_was_deleted() {
+    final String tokenId = "abc-123-def-456";
+    final String fakeHash = "kjadlkfjasdlkf;jlkj1243asdfasdf";
+    final String fakeLegacyHash = "lkjlkj1243asdfasdfkjadlkfjasdlkf";
+    when(tokenHasher.getHashVersion()).thenReturn(TokenHasher.HMAC_SHA256_HASH_VERSION);
+    when(tokenHasher.hashToken(tokenId)).thenReturn(fakeHash);
+    when(tokenHasher.hashToken(tokenId, TokenHasher.PBKDF2_HASH_VERSION))
+        .thenReturn(fakeLegacyHash);
+    when(authTokenDao.deleteAuthTokenFromHash(fakeHash)).thenReturn(0);
+
+    authTokenService.revokeToken(tokenId);
+
+    verify(authTokenDao).deleteAuthTokenFromHash(fakeHash);
+    verify(authTokenDao).deleteAuthTokenFromHash(fakeLegacyHash);
+  }
+
+  @Test
+  public void test_that_generateToken_records_the_hash_version() {
+    when(uuidSupplier.get()).thenReturn(UUID.randomUUID().toString());
+    when(authTokenGenerator.generateSecureToken()).thenReturn("abc-123-def-456");
+    when(dateTimeSupplier.get()).thenReturn(OffsetDateTime.now());
+    when(tokenHasher.getHashVersion()).thenReturn(TokenHasher.HMAC_SHA256_HASH_VERSION);
+
+    authTokenService.generateToken("principal", PrincipalType.USER, false, "group", 5, 0);
+
+    verify(authTokenDao)
+        .createAuthToken(
+            argThat(
+                new ArgumentMatcher<AuthTokenRecord>() {
+                  @Override
+                  public boolean matches(Object argument) {
+                    return ((AuthTokenRecord) argument).getHashVersion()
+                        == TokenHasher.HMAC_SHA256_HASH_VERSION;
+                  }
+                }));
+  }
+
+  @Test
+  public void
+      test_that_generateToken_issues_a_signed_token_without_writing_to_the_db_when_enabled() {
+    OffsetDateTime now = OffsetDateTime.now();
+    when(uuidSupplier.get()).thenReturn("id");
+    when(dateTimeSupplier.get()).thenReturn(now);
+    when(authTokenSigner.isEnabled()).thenReturn(true);
+    when(authTokenSigner.sign(any(AuthTokenRecord.class))).thenReturn("cbs1.signed-token");
+
+    CerberusAuthToken token =
+        authTokenService.generateToken("principal", PrincipalType.IAM, false, "group", 60, 0);
+
+    assertEquals("cbs1.signed-token", token.getToken());
+    assertEquals(now.plusMinutes(60), token.getExpires());
+    verify(authTokenDao, never()).createAuthToken(any(AuthTokenRecord.class));
+    verify(authTokenGenerator, never()).generateSecureToken();
+  }
+
+  @Test
+  public void test_that_getCerberusAuthToken_verifies_signed_tokens_without_the_db() {
+    final String token = "cbs1.signed-token";
+    OffsetDateTime now = OffsetDateTime.now();
+    when(authTokenSigner.verify(token))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setId("id")
+                    .setCreatedTs(now)
+                    .setExpiresTs(now.plusHours(1))
+                    .setPrincipal("principal")
+                    .setPrincipalType(PrincipalType.IAM.getName())
+                    .setIsAdmin(false)
+                    .setRefreshCount(0)));
+
+    Optional<CerberusAuthToken> tokenOptional = authTokenService.getCerberusAuthToken(token);
+
+    assertTrue("optional should be populated", tokenOptional.isPresent());
+    assertEquals(token, tokenOptional.get().getToken());
+    assertEquals("principal", tokenOptional.get().getPrincipal());
+    verify(tokenHasher, never()).hashToken(anyString());
+    verify(authTokenDao, never()).getAuthTokenFromHash(anyString());
+  }
+
+  @Test
+  public void test_that_expired_signed_tokens_are_rejected() {
+    final String token = "cbs1.signed-token";
+    when(authTokenSigner.verify(token))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setId("id")
+                    .setExpiresTs(OffsetDateTime.now().minusSeconds(1))
+                    .setPrincipalType(PrincipalType.IAM.getName())));
+
+    assertTrue(
+        "optional should be empty", !authTokenService.getCerberusAuthToken(token).isPresent());
+  }
+
+  @Test
+  public void test_that_revoked_signed_tokens_are_rejected() {
+    final String token = "cbs1.signed-token";
+    OffsetDateTime now = OffsetDateTime.now();
+    AuthTokenRecord tokenRecord =
+        new AuthTokenRecord()
+            .setId("id")
+            .setCreatedTs(now)
+            .setExpiresTs(now.plusHours(1))
+            .setPrincipal("principal")
+            .setPrincipalType(PrincipalType.USER.getName())
+            .setIsAdmin(false)
+            .setRefreshCount(0);
+    when(authTokenSigner.verify(token)).thenReturn(Optional.of(tokenRecord));
+    when(dateTimeSupplier.get()).thenReturn(now);
+
+    authTokenService.revokeToken(token);
+
+    assertTrue(
+        "optional should be empty", !authTokenService.getCerberusAuthToken(token).isPresent());
+    verify(authTokenDao)
+        .createRevokedAuthToken(
+            argThat(
+                new ArgumentMatcher<RevokedAuthTokenRecord>() {
+                  @Override
+                  public boolean matches(Object argument) {
+                    return ((RevokedAuthTokenRecord) argument).getId().equals("id");
+                  }
+                }));
+    verify(authTokenDao, never()).deleteAuthTokenFromHash(anyString());
+  }
+
+  @Test
+  public void test_that_signed_tokens_revoked_on_other_instances_are_rejected_after_refresh() {
+    final String token = "cbs1.signed-token";
+    OffsetDateTime now = OffsetDateTime.now();
+    when(authTokenSigner.verify(token))
+        .thenReturn(
+            Optional.of(
+                new AuthTokenRecord()
+                    .setId("id")
+                    .setCreatedTs(now)
+                    .setExpiresTs(now.plusHours(1))
+                    .setPrincipal("principal")
+                    .setPrincipalType(PrincipalType.IAM.getName())
+                    .setIsAdmin(false)
+                    .setRefreshCount(0)));
+    when(authTokenDao.getUnexpiredRevokedAuthTokens())
+        .thenReturn(
+            List.of(new RevokedAuthTokenRecord().setId("id").setExpiresTs(now.plusHours(1))));
+
+    assertTrue(authTokenService.getCerberusAuthToken(token).isPresent());
+
+    authTokenService.refreshRevokedSignedTokens();
+
+    assertTrue(
+        "optional should be empty", !authTokenService.getCerberusAuthToken(token).isPresent());
+  }
 }
@@ -29,6 +29,7 @@ import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nike.backstopper.exception.ApiException;
 import com.nike.cerberus.PrincipalType;
@@ -113,6 +114,8 @@ public class AuthenticationServiceTest {
             "1h",
             awsIamRoleService,
             false,
+            null,
+            false,
             null);
   }
 
@@ -282,6 +285,52 @@ public class AuthenticationServiceTest {
     assertEquals(awsIamRoleRecord, result.get());
   }
 
+  @Test
+  public void test_that_findIamRoleAssociatedWithSdb_serves_repeat_lookups_from_the_cache() {
+    authenticationService =
+        new AuthenticationService(
+            awsIamRoleDao,
+            authConnector,
+            kmsService,
+            kmsClientFactory,
+            objectMapper,
+            "foo",
+            "groups",
+            MAX_LIMIT,
+            dateTimeSupplier,
+            awsIamRoleArnParser,
+            authTokenService,
+            "1h",
+            "1h",
+            awsIamRoleService,
+            false,
+            null,
+            true,
+            Caffeine.newBuilder().build());
+
+    String principalArn = "arn:aws:iam::0000000000:role/path";
+    String rootArn = "arn:aws:iam::0000000000:root";
+    AwsIamRoleRecord awsIamRoleRecord = mock(AwsIamRoleRecord.class);
+    when(awsIamRoleDao.getIamRole(principalArn)).thenReturn(Optional.of(awsIamRoleRecord));
+    when(awsIamRoleDao.getIamRole("unknown")).thenReturn(Optional.empty());
+    when(awsIamRoleDao.getIamRole(rootArn)).thenReturn(Optional.empty());
+    when(awsIamRoleArnParser.isRoleArn(anyString())).thenReturn(true);
+    when(awsIamRoleArnParser.convertPrincipalArnToRootArn("unknown")).thenReturn(rootArn);
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals(
+          awsIamRoleRecord, authenticationService.findIamRoleAssociatedWithSdb(principalArn).get());
+    }
+    // principals that are not associated with any SDB are cached as well
+    for (int i = 0; i < 2; i++) {
+      assertFalse(authenticationService.findIamRoleAssociatedWithSdb("unknown").isPresent());
+    }
+
+    verify(awsIamRoleDao, times(1)).getIamRole(principalArn);
+    verify(awsIamRoleDao, times(1)).getIamRole("unknown");
+    verify(awsIamRoleDao, times(1)).getIamRole(rootArn);
+  }
+
   @Test
   public void test_that_findIamRoleAssociatedWithSdb_returns_empty_optional_when_roles_not_found() {
 
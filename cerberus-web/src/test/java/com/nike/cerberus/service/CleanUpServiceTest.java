@@ -46,6 +46,8 @@ public class CleanUpServiceTest {
 
   @Mock private DateTimeSupplier dateTimeSupplier;
 
+  @Mock private AwsIamRoleService awsIamRoleService;
+
   private OffsetDateTime now = OffsetDateTime.now(UTC);
 
   @Before
@@ -53,7 +55,8 @@ public class CleanUpServiceTest {
 
     initMocks(this);
 
-    cleanUpService = new CleanUpService(kmsService, awsIamRoleDao, dateTimeSupplier);
+    cleanUpService =
+        new CleanUpService(kmsService, awsIamRoleDao, dateTimeSupplier, awsIamRoleService);
   }
 
   @Test
@@ -118,6 +121,7 @@ public class CleanUpServiceTest {
 
     verify(awsIamRoleDao).getOrphanedIamRoles();
     verify(awsIamRoleDao).deleteIamRoleById(iamRoleRecordId);
+    verify(awsIamRoleService).invalidateIamPrincipalCache();
   }
 
   @Test
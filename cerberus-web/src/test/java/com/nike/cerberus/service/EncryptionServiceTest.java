@@ -16,17 +16,50 @@
 
 package com.nike.cerberus.service;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.amazonaws.encryptionsdk.AwsCrypto;
+import com.amazonaws.encryptionsdk.CryptoMaterialsManager;
+import com.amazonaws.encryptionsdk.DefaultCryptoMaterialsManager;
+import com.amazonaws.encryptionsdk.ParsedCiphertext;
+import com.amazonaws.encryptionsdk.jce.JceMasterKey;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.util.CiphertextUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Random;
+import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 public class EncryptionServiceTest {
 
+  private static final String CMK_ARNS =
+      "arn:aws:kms:us-east-1:11111111:key/1111111-1d89-43ce-957b-0f705990e9d0,arn:aws:kms:us-west-2:11111111:key/11111111-aecd-4089-85e0-18536efa5c90";
+  private static final String SDB_PATH = "my-sdb/some/secret";
+  private static final String SECRET =
+      "{\"key\":\"" + Strings.repeat("a repetitive value ", 100) + "\"}";
+
+  private final Histogram compressionRatioHistogram = new Histogram(new UniformReservoir());
+
   @Test
   public void test_that_provider_has_current_region_first() {
     String arns =
@@ -36,4 +69,103 @@ public class EncryptionServiceTest {
             Lists.newArrayList(StringUtils.split(arns, ",")), Region.getRegion(Regions.US_WEST_2));
     assertTrue(list.get(0).contains(Regions.US_WEST_2.getName()));
   }
+
+  @Test
+  public void test_that_payloads_are_compressed_before_they_are_encrypted() {
+    EncryptionService encryptionService = newEncryptionService(true);
+
+    String ciphertext = encryptionService.encrypt(SECRET, SDB_PATH);
+
+    ParsedCiphertext parsedCiphertext = CiphertextUtils.parse(ciphertext);
+    assertEquals(
+        EncryptionService.DEFLATE_CONTENT_ENCODING,
+        parsedCiphertext
+            .getEncryptionContextMap()
+            .get(EncryptionService.CONTENT_ENCODING_PROPERTY_NAME));
+    assertTrue(compressionRatioHistogram.getSnapshot().getMax() < 10);
+    assertEquals(SECRET, encryptionService.decrypt(ciphertext, SDB_PATH));
+    byte[] bytes = SECRET.getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(
+        bytes, encryptionService.decrypt(encryptionService.encrypt(bytes, SDB_PATH), SDB_PATH));
+  }
+
+  @Test
+  public void test_that_small_and_incompressible_payloads_are_not_compressed() {
+    EncryptionService encryptionService = newEncryptionService(true);
+    byte[] incompressible = new byte[1024];
+    new Random(42).nextBytes(incompressible);
+
+    assertFalse(isCompressed(encryptionService.encrypt("{\"key\":\"value\"}", SDB_PATH)));
+    byte[] ciphertext = encryptionService.encrypt(incompressible, SDB_PATH);
+    assertFalse(isCompressed(ciphertext));
+    assertArrayEquals(incompressible, encryptionService.decrypt(ciphertext, SDB_PATH));
+  }
+
+  @Test
+  public void test_that_uncompressed_and_compressed_payloads_are_read_whether_enabled_or_not() {
+    EncryptionService compressing = newEncryptionService(true);
+    EncryptionService notCompressing = newEncryptionService(false);
+
+    String uncompressed = notCompressing.encrypt(SECRET, SDB_PATH);
+    String compressed = compressing.encrypt(SECRET, SDB_PATH);
+
+    assertFalse(isCompressed(uncompressed));
+    assertEquals(SECRET, compressing.decrypt(uncompressed, SDB_PATH));
+    assertEquals(SECRET, notCompressing.decrypt(compressed, SDB_PATH));
+    assertTrue(isCompressed(compressing.reencrypt(uncompressed, SDB_PATH)));
+  }
+
+  @Test
+  public void test_that_streams_are_compressed_before_they_are_encrypted() throws Exception {
+    EncryptionService encryptionService = newEncryptionService(true);
+    byte[] bytes = SECRET.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+
+    try (OutputStream encrypting = encryptionService.encryptingStream(ciphertext, SDB_PATH)) {
+      encrypting.write(bytes);
+    }
+
+    assertTrue(isCompressed(ciphertext.toByteArray()));
+    assertArrayEquals(bytes, encryptionService.decrypt(ciphertext.toByteArray(), SDB_PATH));
+    try (InputStream decrypting =
+        encryptionService.decryptingStream(
+            new ByteArrayInputStream(ciphertext.toByteArray()), SDB_PATH)) {
+      assertArrayEquals(bytes, decrypting.readAllBytes());
+    }
+  }
+
+  private EncryptionService newEncryptionService(boolean compressionEnabled) {
+    MetricsService metricsService = mock(MetricsService.class);
+    when(metricsService.getOrCreateCounter(anyString(), any())).thenReturn(new Counter());
+    when(metricsService.getOrCreateHistogram(anyString(), any()))
+        .thenReturn(compressionRatioHistogram);
+    // A static data key instead of KMS, the same key for every EncryptionService of a test
+    JceMasterKey masterKey =
+        JceMasterKey.getInstance(
+            new SecretKeySpec(new byte[32], "AES"), "test", "test-key", "AES/GCM/NoPadding");
+    CryptoMaterialsManager cryptoMaterialsManager = new DefaultCryptoMaterialsManager(masterKey);
+    return new EncryptionService(
+        new AwsCrypto(),
+        CMK_ARNS,
+        cryptoMaterialsManager,
+        cryptoMaterialsManager,
+        Region.getRegion(Regions.US_WEST_2),
+        metricsService,
+        compressionEnabled,
+        256);
+  }
+
+  private static boolean isCompressed(String ciphertext) {
+    return isCompressed(CiphertextUtils.parse(ciphertext));
+  }
+
+  private static boolean isCompressed(byte[] ciphertext) {
+    return isCompressed(CiphertextUtils.parse(ciphertext));
+  }
+
+  private static boolean isCompressed(ParsedCiphertext parsedCiphertext) {
+    return parsedCiphertext
+        .getEncryptionContextMap()
+        .containsKey(EncryptionService.CONTENT_ENCODING_PROPERTY_NAME);
+  }
 }
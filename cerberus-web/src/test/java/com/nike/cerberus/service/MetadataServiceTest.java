@@ -17,7 +17,9 @@
 package com.nike.cerberus.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -33,6 +35,7 @@ import com.nike.cerberus.domain.SDBMetadataResult;
 import com.nike.cerberus.domain.SafeDepositBoxV2;
 import com.nike.cerberus.domain.UserGroupPermission;
 import com.nike.cerberus.record.RoleRecord;
+import com.nike.cerberus.util.PaginationCursor;
 import com.nike.cerberus.util.UuidSupplier;
 import java.io.IOException;
 import java.io.InputStream;
@@ -79,6 +82,8 @@ public class MetadataServiceTest {
     when(safeDepositBoxService.getTotalNumberOfSafeDepositBoxes()).thenReturn(totalSDBs);
 
     SDBMetadata sdbMD = new SDBMetadata();
+    sdbMD.setId("sdb-id");
+    sdbMD.setCreatedTs(OffsetDateTime.parse("2016-09-08T15:39:31Z"));
     doReturn(Arrays.asList(sdbMD)).when(metadataServiceSpy).getSDBMetadataList(limit, offset, null);
 
     SDBMetadataResult actual = metadataServiceSpy.getSDBMetadata(limit, offset, null);
@@ -90,7 +95,9 @@ public class MetadataServiceTest {
     assertEquals("expected there to be another page of results", true, actual.isHasNext());
     assertEquals("expected the sdb count to equal 1", 1, actual.getSdbCountInResult());
     assertEquals(
-        "expected total sdbs to equal the sdb total count", totalSDBs, actual.getTotalSDBCount());
+        "expected total sdbs to equal the sdb total count",
+        Integer.valueOf(totalSDBs),
+        actual.getTotalSDBCount());
   }
 
   @Test
@@ -112,7 +119,49 @@ public class MetadataServiceTest {
     assertEquals("expected there to be another page of results", false, actual.isHasNext());
     assertEquals("expected the sdb count to equal 1", 1, actual.getSdbCountInResult());
     assertEquals(
-        "expected total sdbs to equal the sdb total count", totalSDBs, actual.getTotalSDBCount());
+        "expected total sdbs to equal the sdb total count",
+        Integer.valueOf(totalSDBs),
+        actual.getTotalSDBCount());
+  }
+
+  @Test
+  public void test_that_get_sdb_metadata_by_name_without_the_total_count_has_no_next_page() {
+    String sdbName = "my-sdb";
+    doReturn(Arrays.asList(new SDBMetadata()))
+        .when(metadataServiceSpy)
+        .getSDBMetadataList(5, 0, sdbName);
+
+    SDBMetadataResult actual = metadataServiceSpy.getSDBMetadata(5, 0, sdbName, null, false);
+
+    verify(safeDepositBoxService, never()).getTotalNumberOfSafeDepositBoxes();
+    assertNull(actual.getTotalSDBCount());
+    assertEquals(false, actual.isHasNext());
+    assertNull(actual.getNextCursor());
+    assertEquals(1, actual.getSdbCountInResult());
+  }
+
+  @Test
+  public void test_that_get_sdb_metadata_pages_after_the_cursor_without_counting() {
+    int limit = 1;
+    OffsetDateTime createdTs = OffsetDateTime.parse("2016-09-08T15:39:31Z");
+    PaginationCursor cursor = new PaginationCursor(createdTs, "sdb-2");
+    SafeDepositBoxV2 first =
+        SafeDepositBoxV2.Builder.create().withId("sdb-1").withCreatedTs(createdTs).build();
+    SafeDepositBoxV2 second =
+        SafeDepositBoxV2.Builder.create().withId("sdb-0").withCreatedTs(createdTs).build();
+    when(safeDepositBoxService.getSafeDepositBoxesCreatedBefore(createdTs, "sdb-2", limit + 1))
+        .thenReturn(Arrays.asList(first, second));
+
+    SDBMetadataResult actual =
+        metadataService.getSDBMetadata(limit, 0, null, cursor.encode(), false);
+
+    verify(safeDepositBoxService, never()).getTotalNumberOfSafeDepositBoxes();
+    assertNull(actual.getTotalSDBCount());
+    assertEquals(true, actual.isHasNext());
+    assertEquals(0, actual.getNextOffset());
+    assertEquals(1, actual.getSdbCountInResult());
+    assertEquals("sdb-1", actual.getSafeDepositBoxMetadata().get(0).getId());
+    assertEquals("sdb-1", PaginationCursor.decode(actual.getNextCursor()).getKey());
   }
 
   @Test
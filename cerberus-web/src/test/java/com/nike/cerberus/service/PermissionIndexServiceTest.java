@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static com.nike.cerberus.record.RoleRecord.ROLE_OWNER;
+import static com.nike.cerberus.record.RoleRecord.ROLE_READ;
+import static com.nike.cerberus.record.RoleRecord.ROLE_WRITE;
+import static java.time.ZoneOffset.UTC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.nike.cerberus.dao.PermissionsDao;
+import com.nike.cerberus.event.SafeDepositBoxChangedEvent;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.SdbPermissionChangeRecord;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import com.nike.cerberus.util.DateTimeSupplier;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
+
+public class PermissionIndexServiceTest {
+
+  private static final Set<String> READ_ROLES = Set.of(ROLE_OWNER, ROLE_WRITE, ROLE_READ);
+  private static final Set<String> WRITE_ROLES = Set.of(ROLE_OWNER, ROLE_WRITE);
+
+  private static final String SDB_ID = "sdb-id";
+  private static final String ROLE_ARN = "arn:aws:iam::1111111111:role/reader";
+  private static final String ROOT_ARN = "arn:aws:iam::1111111111:root";
+
+  @Mock private PermissionsDao permissionsDao;
+  @Mock private DateTimeSupplier dateTimeSupplier;
+  @Mock private MetricsService metricsService;
+  @Mock private ApplicationEventPublisher applicationEventPublisher;
+
+  private OffsetDateTime now;
+  private PermissionIndexService permissionIndexService;
+
+  @Before
+  public void before() {
+    initMocks(this);
+    now = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, UTC);
+    when(dateTimeSupplier.get()).thenAnswer(invocation -> now);
+    when(permissionsDao.getIamPrincipalPermissions(null))
+        .thenReturn(List.of(permission(SDB_ID, ROLE_ARN, ROLE_READ)));
+    when(permissionsDao.getUserGroupPermissions(null))
+        .thenReturn(List.of(permission(SDB_ID, "Group-A", ROLE_OWNER)));
+    when(permissionsDao.getSdbPermissionChangesSince(any())).thenReturn(List.of());
+
+    permissionIndexService = createPermissionIndexService(true);
+  }
+
+  @Test
+  public void test_that_the_index_can_not_answer_before_it_has_been_built() {
+    assertEquals(
+        Optional.empty(),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROLE_ARN)));
+  }
+
+  @Test
+  public void test_that_iam_principal_roles_are_answered_from_the_index() {
+    permissionIndexService.refresh();
+
+    assertEquals(
+        Optional.of(true),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID,
+            READ_ROLES,
+            List.of("arn:aws:sts::1111111111:assumed-role/reader/session", ROLE_ARN)));
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, WRITE_ROLES, List.of(ROLE_ARN)));
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROOT_ARN)));
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            "other-sdb", READ_ROLES, List.of(ROLE_ARN)));
+  }
+
+  @Test
+  public void test_that_user_group_roles_are_answered_from_the_index() {
+    permissionIndexService.refresh();
+
+    assertEquals(
+        Optional.of(true),
+        permissionIndexService.doesUserGroupHaveRoleForSdb(
+            SDB_ID, WRITE_ROLES, Set.of("Group-A", "Group-B"), true));
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesUserGroupHaveRoleForSdb(
+            SDB_ID, WRITE_ROLES, Set.of("group-a"), true));
+    assertEquals(
+        Optional.of(true),
+        permissionIndexService.doesUserGroupHaveRoleForSdb(
+            SDB_ID, WRITE_ROLES, Set.of("group-a"), false));
+  }
+
+  @Test
+  public void test_that_a_stale_index_can_not_answer() {
+    permissionIndexService.refresh();
+    now = now.plusSeconds(31);
+
+    assertEquals(
+        Optional.empty(),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROLE_ARN)));
+  }
+
+  @Test
+  public void test_that_refresh_reloads_each_changed_sdb_once() {
+    permissionIndexService.refresh();
+    SdbPermissionChangeRecord change =
+        new SdbPermissionChangeRecord().setVersion(7L).setSdboxId(SDB_ID).setCreatedTs(now);
+    when(permissionsDao.getSdbPermissionChangesSince(any())).thenReturn(List.of(change));
+    when(permissionsDao.getIamPrincipalPermissions(Set.of(SDB_ID)))
+        .thenReturn(List.of(permission(SDB_ID, ROLE_ARN, ROLE_WRITE)));
+    when(permissionsDao.getUserGroupPermissions(Set.of(SDB_ID))).thenReturn(List.of());
+
+    now = now.plusSeconds(2);
+    permissionIndexService.refresh();
+    now = now.plusSeconds(2);
+    permissionIndexService.refresh();
+
+    verify(permissionsDao, times(1)).getIamPrincipalPermissions(Set.of(SDB_ID));
+    verify(applicationEventPublisher, times(1))
+        .publishEvent(any(SafeDepositBoxChangedEvent.class));
+    assertEquals(
+        Optional.of(true),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, WRITE_ROLES, List.of(ROLE_ARN)));
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesUserGroupHaveRoleForSdb(
+            SDB_ID, READ_ROLES, Set.of("Group-A"), true));
+  }
+
+  @Test
+  public void test_that_a_local_change_is_answered_from_the_database_until_reloaded() {
+    permissionIndexService.refresh();
+
+    permissionIndexService.recordPermissionChange(SDB_ID);
+
+    verify(permissionsDao).createSdbPermissionChange(SDB_ID, now);
+    assertEquals(
+        Optional.empty(),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROLE_ARN)));
+
+    when(permissionsDao.getIamPrincipalPermissions(Set.of(SDB_ID))).thenReturn(List.of());
+    when(permissionsDao.getUserGroupPermissions(Set.of(SDB_ID))).thenReturn(List.of());
+    now = now.plusSeconds(2);
+    permissionIndexService.refresh();
+
+    assertEquals(
+        Optional.of(false),
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROLE_ARN)));
+  }
+
+  @Test
+  public void test_that_a_rebuild_deletes_old_permission_changes() {
+    permissionIndexService.refresh();
+
+    verify(permissionsDao).deleteSdbPermissionChangesOlderThan(eq(now.minusHours(24)), anyInt());
+  }
+
+  @Test
+  public void test_that_nothing_is_recorded_or_answered_when_disabled() {
+    PermissionIndexService disabled = createPermissionIndexService(false);
+
+    disabled.recordPermissionChange(SDB_ID);
+
+    verify(permissionsDao, never()).createSdbPermissionChange(any(), any());
+    verify(applicationEventPublisher).publishEvent(any(SafeDepositBoxChangedEvent.class));
+    assertFalse(
+        disabled.doesIamPrincipalHaveRoleForSdb(SDB_ID, READ_ROLES, List.of(ROLE_ARN)).isPresent());
+  }
+
+  @Test
+  public void test_that_a_refresh_after_the_max_staleness_rebuilds_the_index() {
+    permissionIndexService.refresh();
+    now = now.plusSeconds(60);
+    permissionIndexService.refresh();
+
+    verify(permissionsDao, times(2)).getIamPrincipalPermissions(null);
+    assertTrue(
+        permissionIndexService.doesIamPrincipalHaveRoleForSdb(
+            SDB_ID, READ_ROLES, List.of(ROLE_ARN)).get());
+  }
+
+  private PermissionIndexService createPermissionIndexService(boolean enabled) {
+    return new PermissionIndexService(
+        permissionsDao,
+        dateTimeSupplier,
+        metricsService,
+        applicationEventPublisher,
+        enabled,
+        30,
+        60,
+        24,
+        3600);
+  }
+
+  private SdbPermissionRecord permission(String sdbId, String principalName, String roleName) {
+    return new SdbPermissionRecord()
+        .setSdboxId(sdbId)
+        .setPrincipalName(principalName)
+        .setRoleName(roleName);
+  }
+}
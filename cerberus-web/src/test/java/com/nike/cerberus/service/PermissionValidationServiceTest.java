@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static com.nike.cerberus.domain.SecureDataPermissionDecision.ALLOWED;
+import static com.nike.cerberus.domain.SecureDataPermissionDecision.DENIED;
+import static com.nike.cerberus.domain.SecureDataPermissionDecision.INVALID;
+import static com.nike.cerberus.domain.SecureDataPermissionDecision.SDB_NOT_FOUND;
+import static com.nike.cerberus.record.RoleRecord.ROLE_READ;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.PrincipalType;
+import com.nike.cerberus.dao.PermissionsDao;
+import com.nike.cerberus.domain.CerberusAuthToken;
+import com.nike.cerberus.domain.SafeDepositBoxV2;
+import com.nike.cerberus.domain.SecureDataPermissionCheck;
+import com.nike.cerberus.domain.SecureDataPermissionCheckResult;
+import com.nike.cerberus.domain.SecureDataPermissionDecision;
+import com.nike.cerberus.event.filter.AuditLoggingFilterDetails;
+import com.nike.cerberus.record.SdbPermissionRecord;
+import com.nike.cerberus.security.AuthorizationContextFactory;
+import com.nike.cerberus.security.CerberusPrincipal;
+import com.nike.cerberus.util.AwsIamRoleArnParser;
+import com.nike.cerberus.util.SdbAccessRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class PermissionValidationServiceTest {
+
+  private static final String ASSUMED_ROLE_ARN =
+      "arn:aws:sts::1111111111:assumed-role/deployer/session";
+  private static final String ROLE_ARN = "arn:aws:iam::1111111111:role/deployer";
+  private static final String ROOT_ARN = "arn:aws:iam::1111111111:root";
+
+  @Mock private UserGroupPermissionService userGroupPermissionService;
+  @Mock private PermissionsDao permissionsDao;
+  @Mock private SafeDepositBoxService safeDepositBoxService;
+  @Mock private SdbAccessRequest sdbAccessRequest;
+  @Mock private AuditLoggingFilterDetails auditLoggingFilterDetails;
+  @Mock private PermissionIndexService permissionIndexService;
+
+  private PermissionValidationService permissionValidationService;
+
+  @Before
+  public void before() {
+    initMocks(this);
+    permissionValidationService =
+        new PermissionValidationService(
+            userGroupPermissionService,
+            permissionsDao,
+            false,
+            safeDepositBoxService,
+            sdbAccessRequest,
+            auditLoggingFilterDetails,
+            permissionIndexService,
+            3);
+
+    when(safeDepositBoxService.getSafeDepositBoxIdsByPaths(any()))
+        .thenReturn(Map.of("app/my-sdb/", "sdb-id", "app/other-sdb/", "other-sdb-id"));
+    when(permissionIndexService.doesIamPrincipalHaveRoleForSdb(anyString(), any(), any()))
+        .thenReturn(Optional.empty());
+    when(permissionIndexService.doesUserGroupHaveRoleForSdb(
+            anyString(), any(), any(), anyBoolean()))
+        .thenReturn(Optional.empty());
+  }
+
+  @After
+  public void after() {
+    RequestContextHolder.resetRequestAttributes();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void test_that_all_paths_are_checked_with_one_query_when_the_index_can_not_answer() {
+    when(permissionsDao.getIamPrincipalPermissionsForPrincipals(any(), any()))
+        .thenReturn(List.of(permission("sdb-id", ROLE_ARN, ROLE_READ)));
+
+    List<SecureDataPermissionCheckResult> results =
+        permissionValidationService.checkSecureDataPermissions(
+            iamPrincipal(),
+            List.of(
+                check("app/my-sdb/db-credentials", "read"),
+                check("/app/my-sdb/db-credentials", "WRITE"),
+                check("app/other-sdb/config", "read")));
+
+    assertEquals(List.of(ALLOWED, DENIED, DENIED), decisions(results));
+    verify(permissionsDao)
+        .getIamPrincipalPermissionsForPrincipals(
+            Set.of("sdb-id", "other-sdb-id"), List.of(ASSUMED_ROLE_ARN, ROLE_ARN, ROOT_ARN));
+    verify(safeDepositBoxService)
+        .getSafeDepositBoxIdsByPaths(Set.of("app/my-sdb/", "app/other-sdb/"));
+  }
+
+  @Test
+  public void test_that_the_database_is_not_queried_when_the_index_can_answer() {
+    when(permissionIndexService.doesIamPrincipalHaveRoleForSdb(eq("sdb-id"), any(), any()))
+        .thenReturn(Optional.of(true));
+
+    List<SecureDataPermissionCheckResult> results =
+        permissionValidationService.checkSecureDataPermissions(
+            iamPrincipal(), List.of(check("app/my-sdb/db-credentials", "read")));
+
+    assertEquals(List.of(ALLOWED), decisions(results));
+    verify(permissionsDao, never()).getIamPrincipalPermissionsForPrincipals(any(), any());
+  }
+
+  @Test
+  public void test_that_invalid_and_unknown_paths_are_reported_without_checking_permissions() {
+    List<SecureDataPermissionCheckResult> results =
+        permissionValidationService.checkSecureDataPermissions(
+            iamPrincipal(),
+            List.of(
+                check("app/missing-sdb/config", "read"),
+                check("app", "read"),
+                check("app/my-sdb/config", "list")));
+
+    assertEquals(List.of(SDB_NOT_FOUND, INVALID, INVALID), decisions(results));
+    assertEquals("app/missing-sdb/config", results.get(0).getPath());
+    assertEquals("list", results.get(2).getAction());
+    verify(permissionsDao, never()).getIamPrincipalPermissionsForPrincipals(any(), any());
+  }
+
+  @Test
+  public void test_that_user_group_permissions_are_checked_with_the_configured_case_sensitivity() {
+    CerberusPrincipal principal = userPrincipal("Group-A");
+    when(permissionsDao.getUserGroupPermissionsForUserGroups(any(), any(), anyBoolean()))
+        .thenReturn(List.of(permission("other-sdb-id", "group-a", ROLE_READ)));
+
+    List<SecureDataPermissionCheckResult> results =
+        permissionValidationService.checkSecureDataPermissions(
+            principal,
+            List.of(check("app/my-sdb/config", "read"), check("app/other-sdb/config", "read")));
+
+    assertEquals(List.of(DENIED, ALLOWED), decisions(results));
+    verify(permissionsDao)
+        .getUserGroupPermissionsForUserGroups(
+            Set.of("sdb-id", "other-sdb-id"), Set.of("group-a"), false);
+  }
+
+  @Test
+  public void test_that_sdb_ownership_is_checked_against_the_normalized_user_groups() {
+    when(safeDepositBoxService.getSafeDepositBoxDangerouslyWithoutPermissionValidation("sdb-id"))
+        .thenReturn(
+            SafeDepositBoxV2.Builder.create().withId("sdb-id").withOwner("GROUP-A").build());
+
+    assertTrue(
+        permissionValidationService.doesPrincipalHaveOwnerPermissions(
+            userPrincipal("Group-A"), "sdb-id"));
+    assertFalse(
+        permissionValidationService.doesPrincipalHaveOwnerPermissions(
+            userPrincipal("Group-B"), "sdb-id"));
+  }
+
+  @Test
+  public void test_that_every_secure_data_endpoint_can_check_sdb_permissions() {
+    mockSdbPermissionsRequest();
+
+    for (String servletPath :
+        List.of(
+            "/v1/secret",
+            "/v1/secrets",
+            "/v1/secret-versions",
+            "/v1/sdb-secret-version-paths",
+            "/v1/secure-file",
+            "/v1/secure-files")) {
+      setServletPath(servletPath + "/app/my-sdb/config");
+
+      assertTrue(permissionValidationService.doesPrincipalHaveSdbPermissionsForAction("READ"));
+    }
+  }
+
+  @Test
+  public void test_that_endpoints_that_only_share_a_prefix_can_not_check_sdb_permissions() {
+    mockSdbPermissionsRequest();
+
+    for (String servletPath : List.of("/v1/secretsx", "/v1/secret.json", "/v1/secure-filez")) {
+      setServletPath(servletPath + "/app/my-sdb/config");
+
+      try {
+        permissionValidationService.doesPrincipalHaveSdbPermissionsForAction("READ");
+        fail("Expected the permission check to be rejected for " + servletPath);
+      } catch (RuntimeException e) {
+        assertEquals(
+            "Only secure data endpoints can use this perms checking method", e.getMessage());
+      }
+    }
+  }
+
+  @Test(expected = ApiException.class)
+  public void test_that_too_many_checks_are_rejected() {
+    permissionValidationService.checkSecureDataPermissions(
+        iamPrincipal(), Collections.nCopies(4, check("app/my-sdb/config", "read")));
+  }
+
+  @Test(expected = ApiException.class)
+  public void test_that_no_checks_are_rejected() {
+    permissionValidationService.checkSecureDataPermissions(iamPrincipal(), List.of());
+  }
+
+  private void mockSdbPermissionsRequest() {
+    when(sdbAccessRequest.getCategory()).thenReturn("app");
+    when(sdbAccessRequest.getSdbSlug()).thenReturn("my-sdb");
+    when(safeDepositBoxService.getSafeDepositBoxIdByPath("app/my-sdb/"))
+        .thenReturn(Optional.of("sdb-id"));
+    when(permissionIndexService.doesIamPrincipalHaveRoleForSdb(eq("sdb-id"), any(), any()))
+        .thenReturn(Optional.of(true));
+    SecurityContextHolder.getContext().setAuthentication(iamPrincipal());
+  }
+
+  private void setServletPath(String servletPath) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setServletPath(servletPath);
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  private CerberusPrincipal iamPrincipal() {
+    return new AuthorizationContextFactory(new AwsIamRoleArnParser(true, false))
+        .createPrincipal(
+            CerberusAuthToken.builder()
+                .principalType(PrincipalType.IAM)
+                .principal(ASSUMED_ROLE_ARN)
+                .build());
+  }
+
+  private CerberusPrincipal userPrincipal(String groups) {
+    return new CerberusPrincipal(
+        CerberusAuthToken.builder()
+            .principalType(PrincipalType.USER)
+            .principal("user@example.com")
+            .groups(groups)
+            .build());
+  }
+
+  private SecureDataPermissionCheck check(String path, String action) {
+    return new SecureDataPermissionCheck().setPath(path).setAction(action);
+  }
+
+  private SdbPermissionRecord permission(String sdbId, String principalName, String roleName) {
+    return new SdbPermissionRecord()
+        .setSdboxId(sdbId)
+        .setPrincipalName(principalName)
+        .setRoleName(roleName);
+  }
+
+  private List<SecureDataPermissionDecision> decisions(
+      List<SecureDataPermissionCheckResult> results) {
+    return results.stream()
+        .map(SecureDataPermissionCheckResult::getDecision)
+        .collect(Collectors.toList());
+  }
+}
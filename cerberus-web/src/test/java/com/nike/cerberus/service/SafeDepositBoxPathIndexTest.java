@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nike.cerberus.dao.SafeDepositBoxDao;
+import com.nike.cerberus.metric.MetricsService;
+import com.nike.cerberus.record.SafeDepositBoxRecord;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class SafeDepositBoxPathIndexTest {
+
+  private static final String SDB_ID = "sdb-id";
+  private static final String SDB_PATH = "app/my-sdb/";
+
+  @Mock private SafeDepositBoxDao safeDepositBoxDao;
+  @Mock private MetricsService metricsService;
+
+  private SafeDepositBoxPathIndex safeDepositBoxPathIndex;
+
+  @Before
+  public void before() {
+    initMocks(this);
+    safeDepositBoxPathIndex = createSafeDepositBoxPathIndex(true);
+  }
+
+  @Test
+  public void test_that_indexed_paths_are_resolved_without_the_database() {
+    safeDepositBoxPathIndex.put(SDB_ID, SDB_PATH);
+
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    verify(safeDepositBoxDao, never()).getSafeDepositBoxIdByPath(anyString());
+  }
+
+  @Test
+  public void test_that_paths_missing_from_the_index_are_loaded_from_the_database_once() {
+    when(safeDepositBoxDao.getSafeDepositBoxIdByPath(SDB_PATH)).thenReturn(SDB_ID);
+
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    verify(safeDepositBoxDao, times(1)).getSafeDepositBoxIdByPath(SDB_PATH);
+  }
+
+  @Test
+  public void test_that_unknown_paths_are_remembered_until_an_sdb_is_created_with_the_path() {
+    assertEquals(Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    assertEquals(Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    verify(safeDepositBoxDao, times(1)).getSafeDepositBoxIdByPath(SDB_PATH);
+
+    safeDepositBoxPathIndex.put(SDB_ID, SDB_PATH);
+
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+  }
+
+  @Test
+  public void test_that_removed_sdbs_are_no_longer_resolved_from_the_index() {
+    safeDepositBoxPathIndex.put(SDB_ID, SDB_PATH);
+    safeDepositBoxPathIndex.remove(SDB_ID);
+
+    assertEquals(Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    verify(safeDepositBoxDao).getSafeDepositBoxIdByPath(SDB_PATH);
+  }
+
+  @Test
+  public void test_that_put_replaces_the_previous_path_of_the_sdb() {
+    safeDepositBoxPathIndex.put(SDB_ID, SDB_PATH);
+    safeDepositBoxPathIndex.put(SDB_ID, "app/renamed-sdb/");
+
+    assertEquals(Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    assertEquals(
+        Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath("app/renamed-sdb/"));
+  }
+
+  @Test
+  public void test_that_reconcile_replaces_the_index_with_the_database_paths() {
+    safeDepositBoxPathIndex.put("deleted-sdb-id", "app/deleted-sdb/");
+    when(safeDepositBoxDao.getSafeDepositBoxPaths()).thenReturn(List.of(sdb(SDB_ID, SDB_PATH)));
+
+    safeDepositBoxPathIndex.reconcile();
+
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    assertEquals(
+        Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath("app/deleted-sdb/"));
+    verify(safeDepositBoxDao, never()).getSafeDepositBoxIdByPath(SDB_PATH);
+  }
+
+  @Test
+  public void test_that_the_database_is_used_when_the_index_is_disabled() {
+    safeDepositBoxPathIndex = createSafeDepositBoxPathIndex(false);
+    when(safeDepositBoxDao.getSafeDepositBoxIdByPath(SDB_PATH)).thenReturn(SDB_ID);
+
+    safeDepositBoxPathIndex.put(SDB_ID, SDB_PATH);
+    safeDepositBoxPathIndex.reconcile();
+
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    assertEquals(Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath(SDB_PATH));
+    verify(safeDepositBoxDao, times(2)).getSafeDepositBoxIdByPath(SDB_PATH);
+    verify(safeDepositBoxDao, never()).getSafeDepositBoxPaths();
+  }
+
+  @Test
+  public void test_that_batch_lookups_resolve_paths_that_only_differ_in_case_from_the_sdb_path() {
+    when(safeDepositBoxDao.getSafeDepositBoxIdsByPaths(Set.of("App/My-Sdb/", SDB_PATH)))
+        .thenReturn(List.of(sdb(SDB_ID, SDB_PATH)));
+
+    assertEquals(
+        Map.of("App/My-Sdb/", SDB_ID, SDB_PATH, SDB_ID),
+        safeDepositBoxPathIndex.getSafeDepositBoxIdsByPaths(Set.of("App/My-Sdb/", SDB_PATH)));
+  }
+
+  @Test
+  public void test_that_batch_lookups_only_remember_paths_that_matched_no_sdb_as_unknown() {
+    when(safeDepositBoxDao.getSafeDepositBoxIdsByPaths(Set.of("App/My-Sdb/", "app/missing-sdb/")))
+        .thenReturn(List.of(sdb(SDB_ID, SDB_PATH)));
+
+    safeDepositBoxPathIndex.getSafeDepositBoxIdsByPaths(Set.of("App/My-Sdb/", "app/missing-sdb/"));
+
+    assertEquals(
+        Optional.of(SDB_ID), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath("App/My-Sdb/"));
+    assertEquals(
+        Optional.empty(), safeDepositBoxPathIndex.getSafeDepositBoxIdByPath("app/missing-sdb/"));
+    verify(safeDepositBoxDao, never()).getSafeDepositBoxIdByPath(anyString());
+  }
+
+  private SafeDepositBoxPathIndex createSafeDepositBoxPathIndex(boolean enabled) {
+    return new SafeDepositBoxPathIndex(
+        safeDepositBoxDao, Caffeine.newBuilder().build(), metricsService, enabled);
+  }
+
+  private SafeDepositBoxRecord sdb(String id, String path) {
+    return new SafeDepositBoxRecord().setId(id).setPath(path);
+  }
+}
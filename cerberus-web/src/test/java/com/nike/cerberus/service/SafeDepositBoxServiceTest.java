@@ -41,6 +41,7 @@ import com.nike.cerberus.domain.SafeDepositBoxV2;
 import com.nike.cerberus.domain.UserGroupPermission;
 import com.nike.cerberus.record.RoleRecord;
 import com.nike.cerberus.record.SafeDepositBoxRecord;
+import com.nike.cerberus.security.AuthorizationContext;
 import com.nike.cerberus.security.CerberusPrincipal;
 import com.nike.cerberus.util.AwsIamRoleArnParser;
 import com.nike.cerberus.util.DateTimeSupplier;
@@ -51,12 +52,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.assertj.core.util.Lists;
 import org.assertj.core.util.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
 
 public class SafeDepositBoxServiceTest {
 
@@ -84,6 +87,12 @@ public class SafeDepositBoxServiceTest {
 
   @Mock private SecureDataVersionDao secureDataVersionDao;
 
+  @Mock private SafeDepositBoxPathIndex safeDepositBoxPathIndex;
+
+  @Mock private AssociatedSafeDepositBoxCache associatedSafeDepositBoxCache;
+
+  @Mock private ApplicationEventPublisher applicationEventPublisher;
+
   @InjectMocks private SafeDepositBoxService safeDepositBoxService;
 
   private SafeDepositBoxService safeDepositBoxServiceSpy;
@@ -91,6 +100,8 @@ public class SafeDepositBoxServiceTest {
   @Before
   public void before() {
     initMocks(this);
+    when(associatedSafeDepositBoxCache.get(any(), any()))
+        .thenAnswer(invocation -> ((Supplier<?>) invocation.getArguments()[1]).get());
 
     safeDepositBoxServiceSpy = spy(safeDepositBoxService);
   }
@@ -370,6 +381,7 @@ public class SafeDepositBoxServiceTest {
     verify(iamPrincipalPermissionService).deleteIamPrincipalPermissions(sdbId);
     verify(userGroupPermissionService).deleteUserGroupPermissions(sdbId);
     verify(secureDataVersionDao).deleteAllVersionsThatStartWithPartialPath(sdbPathNoCategory);
+    verify(secureDataService).deleteAllFileChunks(sdbId);
     verify(secureDataService)
         .deleteAllSecretsThatStartWithGivenPartialPath(sdbId, sdbPathNoCategory);
   }
@@ -396,10 +408,9 @@ public class SafeDepositBoxServiceTest {
     CerberusPrincipal AssumedRoleArnPrincipal = mock(CerberusPrincipal.class);
     doReturn(PrincipalType.IAM).when(AssumedRoleArnPrincipal).getPrincipalType();
     doReturn(assumedRoleArn).when(AssumedRoleArnPrincipal).getName();
-
-    when(awsIamRoleArnParser.isAssumedRoleArn(assumedRoleArn)).thenReturn(true);
-    when(awsIamRoleArnParser.convertPrincipalArnToRoleArn(assumedRoleArn)).thenReturn(iamRoleArn);
-    when(awsIamRoleArnParser.convertPrincipalArnToRootArn(assumedRoleArn)).thenReturn(rootArn);
+    doReturn(new AuthorizationContext(null, assumedRoleArn, iamRoleArn, rootArn))
+        .when(AssumedRoleArnPrincipal)
+        .getAuthorizationContext();
 
     SafeDepositBoxRecord safeDepositBoxRecord1 = new SafeDepositBoxRecord();
     SafeDepositBoxRecord safeDepositBoxRecord2 = new SafeDepositBoxRecord();
@@ -424,12 +435,12 @@ public class SafeDepositBoxServiceTest {
     List<SafeDepositBoxRecord> roleArnRecords = Lists.newArrayList(safeDepositBoxRecord1);
     when(safeDepositBoxDao.getIamPrincipalAssociatedSafeDepositBoxes(iamRoleArn, rootArn))
         .thenReturn(roleArnRecords);
-    when(awsIamRoleArnParser.isAssumedRoleArn(iamRoleArn)).thenReturn(false);
-    when(awsIamRoleArnParser.convertPrincipalArnToRootArn(iamRoleArn)).thenReturn(rootArn);
-
     CerberusPrincipal roleArnPrincipal = mock(CerberusPrincipal.class);
     doReturn(PrincipalType.IAM).when(roleArnPrincipal).getPrincipalType();
     doReturn(iamRoleArn).when(roleArnPrincipal).getName();
+    doReturn(new AuthorizationContext(null, iamRoleArn, null, rootArn))
+        .when(roleArnPrincipal)
+        .getAuthorizationContext();
 
     List<SafeDepositBoxSummary> roleArnSdbSummaries =
         safeDepositBoxServiceSpy.getAssociatedSafeDepositBoxes(roleArnPrincipal);
@@ -19,38 +19,70 @@ package com.nike.cerberus.service;
 import static com.nike.cerberus.service.AuthenticationService.SYSTEM_USER;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.dao.SecureDataChunkDao;
 import com.nike.cerberus.dao.SecureDataDao;
 import com.nike.cerberus.dao.SecureDataVersionDao;
 import com.nike.cerberus.domain.SecureData;
 import com.nike.cerberus.domain.SecureDataType;
+import com.nike.cerberus.domain.SecureFileStream;
+import com.nike.cerberus.domain.SecureFileSummaryResult;
+import com.nike.cerberus.error.DefaultApiError;
 import com.nike.cerberus.metric.MetricsService;
 import com.nike.cerberus.record.SecureDataRecord;
 import com.nike.cerberus.record.SecureDataVersionRecord;
 import com.nike.cerberus.util.DateTimeSupplier;
+import com.nike.cerberus.util.PaginationCursor;
+import com.nike.cerberus.util.SecureDataEntityTag;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 import org.mockito.Mock;
 
 public class SecureDataServiceTest {
@@ -75,6 +107,7 @@ public class SecureDataServiceTest {
   @Mock private DateTimeSupplier dateTimeSupplier;
   @Mock private SecureDataVersionDao secureDataVersionDao;
   @Mock private MetricsService metricsService;
+  @Mock private SecureDataChunkDao secureDataChunkDao;
   private ObjectMapper objectMapper;
 
   private SecureDataService secureDataService;
@@ -83,6 +116,12 @@ public class SecureDataServiceTest {
   public void before() {
     initMocks(this);
     objectMapper = new ObjectMapper();
+    when(metricsService.getOrCreateCounter(anyString(), any())).thenReturn(new Counter());
+    when(metricsService.getOrCreateHistogram(anyString(), any()))
+        .thenReturn(new Histogram(new UniformReservoir()));
+    when(secureDataDao.updateSecureData(any(SecureDataRecord.class))).thenReturn(1);
+    when(secureDataVersionDao.updateSecureDataVersion(any(SecureDataVersionRecord.class)))
+        .thenReturn(1);
     secureDataService =
         new SecureDataService(
             secureDataDao,
@@ -90,7 +129,13 @@ public class SecureDataServiceTest {
             objectMapper,
             dateTimeSupplier,
             secureDataVersionDao,
-            metricsService);
+            metricsService,
+            false,
+            MoreExecutors.directExecutor(),
+            2,
+            secureDataChunkDao,
+            false,
+            TransactionOperations.withoutTransaction());
   }
 
   @After
@@ -108,7 +153,8 @@ public class SecureDataServiceTest {
     when(secureDataRecord.getType()).thenReturn(SecureDataType.OBJECT);
     when(secureDataRecord.getCreatedBy()).thenReturn(SYSTEM_USER);
     when(secureDataRecord.getCreatedTs()).thenReturn(now);
-    when(secureDataDao.readSecureDataByPath(sdbId, path)).thenReturn(Optional.of(secureDataRecord));
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, path))
+        .thenReturn(Optional.of(secureDataRecord));
 
     secureDataService.writeSecret(sdbId, path, secret, principal);
     verify(secureDataDao)
@@ -126,6 +172,44 @@ public class SecureDataServiceTest {
             null);
   }
 
+  @Test
+  public void test_that_writeSecret_rejects_payloads_that_are_not_a_json_object() {
+    for (String payload :
+        List.of("", "not json", "[\"1\",\"2\"]", "{\"k1\":\"val\"", "{\"k1\":\"val\"} {}")) {
+      try {
+        secureDataService.writeSecret(sdbId, path, payload, principal);
+        fail("expected the payload to be rejected: " + payload);
+      } catch (ApiException e) {
+        assertEquals(DefaultApiError.INVALID_SECRET_PAYLOAD, e.getApiErrors().get(0));
+      }
+    }
+    verify(encryptionService, never()).encrypt(anyString(), anyString());
+  }
+
+  @Test
+  public void test_that_writeSecret_counts_only_the_top_level_kv_pairs() {
+    String nestedSecret = "{\"k1\":{\"a\":1,\"b\":[1,2]},\"k2\":null,\"k3\":[{}]}";
+    when(encryptionService.encrypt(nestedSecret, path)).thenReturn(ciphertext);
+    OffsetDateTime now = OffsetDateTime.now(ZoneId.of("UTC"));
+    when(dateTimeSupplier.get()).thenReturn(now);
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, path)).thenReturn(Optional.empty());
+
+    secureDataService.writeSecret(sdbId, path, nestedSecret, principal);
+
+    verify(secureDataDao)
+        .writeSecureData(
+            sdbId,
+            path,
+            ciphertextBytes,
+            3,
+            SecureDataType.OBJECT,
+            nestedSecret.getBytes(StandardCharsets.UTF_8).length,
+            principal,
+            now,
+            principal,
+            now);
+  }
+
   @Test
   public void test_that_readSecret_returns_empty_optional_if_dao_returns_nothing() {
     when(secureDataDao.readSecureDataByPathAndType(sdbId, path, SecureDataType.OBJECT))
@@ -149,6 +233,174 @@ public class SecureDataServiceTest {
     assertTrue(result.get().getData().equals(secret));
   }
 
+  @Test
+  public void test_that_readSecrets_decrypts_every_secret_under_the_partial_path_in_order() {
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    when(secureDataDao.readSecureDataByPartialPathAndType(
+            sdbId, partialPath, SecureDataType.OBJECT, 3))
+        .thenReturn(
+            List.of(
+                new SecureDataRecord().setPath(keysRes[0]).setEncryptedBlob(ciphertextBytes),
+                new SecureDataRecord().setPath(keysRes[1]).setEncryptedBlob(ciphertextBytes)));
+    when(encryptionService.decrypt(ciphertext, keysRes[0])).thenReturn("{\"k\":\"0\"}");
+    when(encryptionService.decrypt(ciphertext, keysRes[1])).thenReturn("{\"k\":\"1\"}");
+
+    Map<String, String> result = new LinkedHashMap<>();
+    secureDataService.readSecrets(sdbId, partialPath, null, result::put);
+
+    assertEquals(List.of(keysRes[0], keysRes[1]), List.copyOf(result.keySet()));
+    assertEquals("{\"k\":\"0\"}", result.get(keysRes[0]));
+    assertEquals("{\"k\":\"1\"}", result.get(keysRes[1]));
+  }
+
+  @Test
+  public void test_that_readSecrets_reads_only_the_requested_paths() {
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    List<String> paths = List.of(keysRes[1]);
+    when(secureDataDao.readSecureDataByPathsAndType(sdbId, paths, SecureDataType.OBJECT))
+        .thenReturn(
+            List.of(new SecureDataRecord().setPath(keysRes[1]).setEncryptedBlob(ciphertextBytes)));
+    when(encryptionService.decrypt(ciphertext, keysRes[1])).thenReturn(secret);
+
+    Map<String, String> result = new LinkedHashMap<>();
+    secureDataService.readSecrets(sdbId, partialPath, paths, result::put);
+
+    assertEquals(Map.of(keysRes[1], secret), result);
+    verify(secureDataDao, never())
+        .readSecureDataByPartialPathAndType(anyString(), anyString(), any(), anyInt());
+  }
+
+  @Test
+  public void test_that_readSecrets_rejects_reading_more_than_the_max_secrets() {
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    SecureDataRecord secureDataRecord = new SecureDataRecord().setEncryptedBlob(ciphertextBytes);
+    when(secureDataDao.readSecureDataByPartialPathAndType(
+            sdbId, partialPath, SecureDataType.OBJECT, 3))
+        .thenReturn(List.of(secureDataRecord, secureDataRecord, secureDataRecord));
+
+    try {
+      secureDataService.readSecrets(sdbId, partialPath, null, (secretPath, plaintext) -> {});
+      fail("expected the bulk read to be rejected");
+    } catch (ApiException e) {
+      assertEquals(DefaultApiError.TOO_MANY_SECRETS_REQUESTED, e.getApiErrors().get(0));
+    }
+    verify(encryptionService, never()).decrypt(anyString(), anyString());
+  }
+
+  @Test
+  public void test_that_readSecrets_fails_when_the_decryption_executor_rejects_the_secrets() {
+    ApiException rejection = new ApiException(DefaultApiError.SERVICE_UNAVAILABLE);
+    SecureDataService rejectingSecureDataService =
+        new SecureDataService(
+            secureDataDao,
+            encryptionService,
+            objectMapper,
+            dateTimeSupplier,
+            secureDataVersionDao,
+            metricsService,
+            false,
+            runnable -> {
+              throw rejection;
+            },
+            2,
+            secureDataChunkDao,
+            false,
+            TransactionOperations.withoutTransaction());
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    when(secureDataDao.readSecureDataByPartialPathAndType(
+            sdbId, partialPath, SecureDataType.OBJECT, 3))
+        .thenReturn(
+            List.of(new SecureDataRecord().setPath(keysRes[0]).setEncryptedBlob(ciphertextBytes)));
+
+    try {
+      rejectingSecureDataService.readSecrets(
+          sdbId, partialPath, null, (secretPath, plaintext) -> fail("nothing should be written"));
+      fail("expected the bulk read to be rejected");
+    } catch (ApiException e) {
+      assertEquals(rejection, e);
+    }
+  }
+
+  @Test
+  public void test_that_readEntityTag_only_reads_the_metadata() {
+    OffsetDateTime lastUpdatedTs = OffsetDateTime.parse("2020-03-04T05:06:07.089Z");
+    String revisionId = "6f1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+    when(secureDataDao.readMetadataByPathAndType(sdbId, path, SecureDataType.OBJECT))
+        .thenReturn(
+            Optional.of(
+                new SecureDataRecord()
+                    .setPath(path)
+                    .setLastUpdatedTs(lastUpdatedTs)
+                    .setRevisionId(revisionId)));
+
+    Optional<String> result =
+        secureDataService.readEntityTag(sdbId, path, SecureDataType.OBJECT);
+
+    assertEquals(Optional.of(SecureDataEntityTag.of(path, lastUpdatedTs, revisionId)), result);
+    verify(secureDataDao, never()).readSecureDataByPathAndType(anyString(), anyString(), any());
+    verify(encryptionService, never()).decrypt(anyString(), anyString());
+  }
+
+  @Test
+  public void test_that_readEntityTag_changes_between_writes_within_the_same_second() {
+    OffsetDateTime lastUpdatedTs = OffsetDateTime.parse("2020-03-04T05:06:07Z");
+    when(secureDataDao.readMetadataByPathAndType(sdbId, path, SecureDataType.OBJECT))
+        .thenReturn(
+            Optional.of(
+                new SecureDataRecord()
+                    .setPath(path)
+                    .setLastUpdatedTs(lastUpdatedTs)
+                    .setRevisionId("6f1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d")))
+        .thenReturn(
+            Optional.of(
+                new SecureDataRecord()
+                    .setPath(path)
+                    .setLastUpdatedTs(lastUpdatedTs)
+                    .setRevisionId("0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d")));
+
+    Optional<String> first = secureDataService.readEntityTag(sdbId, path, SecureDataType.OBJECT);
+    Optional<String> second = secureDataService.readEntityTag(sdbId, path, SecureDataType.OBJECT);
+
+    assertFalse(SecureDataEntityTag.matches(first.get(), second.get()));
+  }
+
+  @Test
+  public void test_that_readEntityTag_returns_a_strong_tag_for_files() {
+    OffsetDateTime lastUpdatedTs = OffsetDateTime.parse("2020-03-04T05:06:07.089Z");
+    String revisionId = "6f1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+    when(secureDataDao.readMetadataByPathAndType(sdbId, path, SecureDataType.FILE))
+        .thenReturn(
+            Optional.of(
+                new SecureDataRecord()
+                    .setPath(path)
+                    .setLastUpdatedTs(lastUpdatedTs)
+                    .setRevisionId(revisionId)));
+
+    Optional<String> result = secureDataService.readEntityTag(sdbId, path, SecureDataType.FILE);
+
+    assertEquals(Optional.of(SecureDataEntityTag.ofFile(path, lastUpdatedTs, revisionId)), result);
+    assertFalse(result.get().startsWith("W/"));
+  }
+
+  @Test
+  public void test_that_readFileRange_returns_only_the_bytes_in_the_range() throws Exception {
+    SecureFileStream secureFile =
+        new SecureFileStream().setContent(new ByteArrayInputStream(plaintextBytes));
+
+    try (InputStream range = secureDataService.readFileRange(secureFile, 3, 5)) {
+      assertArrayEquals(Arrays.copyOfRange(plaintextBytes, 3, 8), ByteStreams.toByteArray(range));
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void test_that_readFileRange_fails_for_a_range_after_the_end_of_the_file()
+      throws Exception {
+    SecureFileStream secureFile =
+        new SecureFileStream().setContent(new ByteArrayInputStream(plaintextBytes));
+
+    secureDataService.readFileRange(secureFile, plaintextBytes.length + 1, 1);
+  }
+
   @Test
   public void test_that_listKeys_appends_a_slash_to_the_partial_path_if_not_present() {
     when(secureDataDao.getPathsByPartialPathAndType(
@@ -248,12 +500,67 @@ public class SecureDataServiceTest {
     assertTrue(res.contains("sub-folder"));
   }
 
+  @Test
+  public void test_that_listSecureFilesSummaries_counts_and_lists_only_the_sdb_file_metadata() {
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    SecureDataRecord fileRecord =
+        new SecureDataRecord()
+            .setSdboxId(sdbId)
+            .setPath(partialPath + "cert.pem")
+            .setType(SecureDataType.FILE)
+            .setSizeInBytes(2048)
+            .setCreatedTs(OffsetDateTime.now(ZoneId.of("UTC")));
+    when(secureDataDao.countByPartialPathAndType(sdbId, partialPath, SecureDataType.FILE))
+        .thenReturn(3);
+    when(secureDataDao.listMetadataByPartialPathAndType(
+            sdbId, partialPath, SecureDataType.FILE, 1, 0))
+        .thenReturn(List.of(fileRecord));
+
+    SecureFileSummaryResult result =
+        secureDataService.listSecureFilesSummaries(sdbId, partialPathWithoutTrailingSlash, 1, 0);
+
+    assertEquals(Integer.valueOf(3), result.getTotalFileCount());
+    assertEquals(1, result.getFileCountInResult());
+    assertEquals("cert.pem", result.getSecureFileSummaries().get(0).getName());
+    assertEquals(2048, result.getSecureFileSummaries().get(0).getSizeInBytes());
+    assertTrue(result.isHasNext());
+  }
+
+  @Test
+  public void test_that_listSecureFilesSummaries_seeks_past_the_cursor_without_counting() {
+    String partialPath = partialPathWithoutTrailingSlash + "/";
+    OffsetDateTime createdTs = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    String cursor = new PaginationCursor(createdTs, partialPath + "b.pem").encode();
+    SecureDataRecord first =
+        new SecureDataRecord().setPath(partialPath + "a.pem").setCreatedTs(createdTs);
+    SecureDataRecord second =
+        new SecureDataRecord().setPath(partialPath + "0.pem").setCreatedTs(createdTs);
+    when(secureDataDao.listMetadataByPartialPathAndTypeCreatedBefore(
+            sdbId, partialPath, SecureDataType.FILE, createdTs, partialPath + "b.pem", 2))
+        .thenReturn(List.of(first, second));
+
+    SecureFileSummaryResult result =
+        secureDataService.listSecureFilesSummaries(sdbId, partialPath, 1, 0, cursor, false);
+
+    verify(secureDataDao, never())
+        .countByPartialPathAndType(anyString(), anyString(), any(SecureDataType.class));
+    assertNull(result.getTotalFileCount());
+    assertNull(result.getNextOffset());
+    assertTrue(result.isHasNext());
+    assertEquals(1, result.getFileCountInResult());
+    assertEquals("a.pem", result.getSecureFileSummaries().get(0).getName());
+    assertEquals(
+        partialPath + "a.pem", PaginationCursor.decode(result.getNextCursor()).getKey());
+  }
+
   @Test
   public void test_that_deleteAllSecretsThatStartWithGivenPartialPath_proxies_to_dao() {
     secureDataService.deleteAllSecretsThatStartWithGivenPartialPath(
         sdbId, partialPathWithoutTrailingSlash);
     verify(secureDataDao)
         .deleteAllSecretsThatStartWithGivenPartialPath(sdbId, partialPathWithoutTrailingSlash);
+    verify(secureDataDao)
+        .deletePathTreeUnderPartialPath(sdbId, partialPathWithoutTrailingSlash);
   }
 
   @Test
@@ -290,7 +597,7 @@ public class SecureDataServiceTest {
     OffsetDateTime now = OffsetDateTime.now(ZoneId.of("UTC"));
     when(dateTimeSupplier.get()).thenReturn(now);
 
-    when(secureDataDao.readSecureDataByPath(sdbId, path)).thenReturn(Optional.empty());
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, path)).thenReturn(Optional.empty());
 
     secureDataService.restoreSdbSecrets(sdbId, data, principal);
     verify(secureDataDao)
@@ -305,16 +612,7 @@ public class SecureDataServiceTest {
             now,
             principal,
             now);
-  }
-
-  @Test
-  public void test_that_getTopLevelKVPairCount_returns_proper_count() {
-    assertEquals(2, secureDataService.getTopLevelKVPairCount("{\"k1\":\"val\",\"k2\":\"val\"}"));
-  }
-
-  @Test
-  public void test_that_getTopLevelKVPairCount_returns_1_on_failure() {
-    assertEquals(1, secureDataService.getTopLevelKVPairCount("{[\"1\",\"2\"]}"));
+    verify(secureDataDao).addToPathTree(sdbId, secretPath, SecureDataType.OBJECT);
   }
 
   @Test
@@ -360,12 +658,23 @@ public class SecureDataServiceTest {
     assertFalse(secureDataService.secureDataHasBeenUpdated(secureDataRecord));
   }
 
+  @Test
+  public void test_that_getSecureDataRecordForPath_does_not_lock_the_record() {
+    when(secureDataDao.readSecureDataByPath(sdbId, path))
+        .thenReturn(Optional.of(secureDataRecord));
+
+    assertEquals(
+        Optional.of(secureDataRecord), secureDataService.getSecureDataRecordForPath(sdbId, path));
+    verify(secureDataDao, never()).readSecureDataByPathLocking(sdbId, path);
+  }
+
   @Test(expected = ApiException.class)
   public void test_that_writeSecret_does_now_allow_other_types_to_be_overwritten() {
     String pathToFile = "app/sdb/file.pem";
     SecureDataRecord fileRecord = new SecureDataRecord().setType(SecureDataType.FILE);
     when(encryptionService.encrypt(secret, pathToFile)).thenReturn(ciphertext);
-    when(secureDataDao.readSecureDataByPath(sdbId, pathToFile)).thenReturn(Optional.of(fileRecord));
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, pathToFile))
+        .thenReturn(Optional.of(fileRecord));
 
     secureDataService.writeSecret(sdbId, pathToFile, secret, "principal");
   }
@@ -374,7 +683,7 @@ public class SecureDataServiceTest {
   public void test_that_writeFile_does_now_allow_other_types_to_be_overwritten() {
     String pathToObject = "app/sdb/object";
     SecureDataRecord objectRecord = new SecureDataRecord().setType(SecureDataType.OBJECT);
-    when(secureDataDao.readSecureDataByPath(sdbId, pathToObject))
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, pathToObject))
         .thenReturn(Optional.of(objectRecord));
 
     secureDataService.writeSecureFile(sdbId, pathToObject, new byte[] {}, 0, pathToObject);
@@ -414,6 +723,230 @@ public class SecureDataServiceTest {
     verify(secureDataDao).readSecureDataByPathAndType(sdbId, pathToFile, SecureDataType.FILE);
   }
 
+  @Test
+  public void test_that_writeSecureFile_stream_stores_a_single_blob_when_streaming_is_disabled()
+      throws Exception {
+    String pathToFile = "app/sdb/file.pem";
+    when(encryptionService.encrypt(plaintextBytes, pathToFile)).thenReturn(ciphertextBytes);
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, pathToFile))
+        .thenReturn(Optional.empty());
+
+    secureDataService.writeSecureFile(
+        sdbId, pathToFile, new ByteArrayInputStream(plaintextBytes), principal);
+
+    verify(secureDataDao)
+        .writeSecureData(
+            eq(sdbId),
+            eq(pathToFile),
+            eq(ciphertextBytes),
+            eq(0),
+            eq(SecureDataType.FILE),
+            eq(plaintextBytes.length),
+            eq(principal),
+            any(),
+            eq(principal),
+            any());
+    verify(secureDataChunkDao, never()).writeChunkSet(anyString());
+  }
+
+  @Test
+  public void test_that_writeSecureFile_stream_stores_the_ciphertext_in_chunks() throws Exception {
+    String pathToFile = "app/sdb/file.pem";
+    byte[] reference = "cerberus-chunk-set:chunk-set-id".getBytes(StandardCharsets.UTF_8);
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet =
+        mock(SecureDataChunkDao.ChunkSetOutputStream.class);
+    when(chunkSet.getReference()).thenReturn(reference);
+    when(secureDataChunkDao.writeChunkSet(sdbId)).thenReturn(chunkSet);
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    when(encryptionService.encryptingStream(chunkSet, pathToFile)).thenReturn(encrypted);
+    when(secureDataDao.readSecureDataByPathLocking(sdbId, pathToFile))
+        .thenReturn(Optional.empty());
+
+    newFileStreamingSecureDataService()
+        .writeSecureFile(sdbId, pathToFile, new ByteArrayInputStream(plaintextBytes), principal);
+
+    assertArrayEquals(plaintextBytes, encrypted.toByteArray());
+    verify(secureDataDao)
+        .writeSecureData(
+            eq(sdbId),
+            eq(pathToFile),
+            eq(reference),
+            eq(0),
+            eq(SecureDataType.FILE),
+            eq(plaintextBytes.length),
+            eq(principal),
+            any(),
+            eq(principal),
+            any());
+    verify(encryptionService, never()).encrypt(any(byte[].class), anyString());
+  }
+
+  @Test
+  public void test_that_decryptFile_reads_a_file_stored_in_chunks() throws Exception {
+    String pathToFile = "app/sdb/file.pem";
+    byte[] reference = "cerberus-chunk-set:chunk-set-id".getBytes(StandardCharsets.UTF_8);
+    InputStream chunks = new ByteArrayInputStream(ciphertextBytes);
+    when(secureDataChunkDao.readChunkSet("chunk-set-id")).thenReturn(chunks);
+    when(encryptionService.decryptingStream(chunks, pathToFile))
+        .thenReturn(new ByteArrayInputStream(plaintextBytes));
+
+    assertArrayEquals(plaintextBytes, secureDataService.decryptFile(reference, pathToFile));
+    verify(encryptionService, never()).decrypt(any(byte[].class), anyString());
+  }
+
+  @Test
+  public void test_that_reencrypt_file_stored_in_chunks_replaces_its_chunk_set() throws Exception {
+    String id = "secure data id";
+    String pathToFile = "app/sdb/file.pem";
+    byte[] reference = "cerberus-chunk-set:old-chunk-set".getBytes(StandardCharsets.UTF_8);
+    byte[] newReference = "cerberus-chunk-set:new-chunk-set".getBytes(StandardCharsets.UTF_8);
+    when(dateTimeSupplier.get()).thenReturn(OffsetDateTime.now(ZoneId.of("UTC")));
+    SecureDataRecord record =
+        new SecureDataRecord()
+            .setType(SecureDataType.FILE)
+            .setSdboxId(sdbId)
+            .setPath(pathToFile)
+            .setEncryptedBlob(reference)
+            .setSizeInBytes(plaintextBytes.length);
+    when(secureDataDao.readSecureDataByIdLocking(id)).thenReturn(Optional.of(record));
+    InputStream chunks = new ByteArrayInputStream(ciphertextBytes);
+    when(secureDataChunkDao.readChunkSet("old-chunk-set")).thenReturn(chunks);
+    when(encryptionService.decryptingStream(chunks, pathToFile))
+        .thenReturn(new ByteArrayInputStream(plaintextBytes));
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet =
+        mock(SecureDataChunkDao.ChunkSetOutputStream.class);
+    when(chunkSet.getReference()).thenReturn(newReference);
+    when(secureDataChunkDao.writeChunkSet(sdbId)).thenReturn(chunkSet);
+    when(encryptionService.encryptingStream(chunkSet, pathToFile))
+        .thenReturn(new ByteArrayOutputStream());
+
+    secureDataService.reencryptData(id);
+
+    InOrder inOrder = inOrder(secureDataDao, secureDataChunkDao);
+    ArgumentCaptor<SecureDataRecord> argument = ArgumentCaptor.forClass(SecureDataRecord.class);
+    inOrder.verify(secureDataDao).updateSecureData(argument.capture());
+    inOrder.verify(secureDataChunkDao).deleteChunkSet("old-chunk-set");
+    assertArrayEquals(newReference, argument.getValue().getEncryptedBlob());
+    verify(encryptionService, never()).reencrypt(any(byte[].class), anyString());
+  }
+
+  @Test
+  public void test_that_reencrypt_file_keeps_a_chunk_set_that_is_still_referenced()
+      throws Exception {
+    String id = "secure data id";
+    String pathToFile = "app/sdb/file.pem";
+    byte[] reference = "cerberus-chunk-set:old-chunk-set".getBytes(StandardCharsets.UTF_8);
+    stubChunkSetReencryption(pathToFile, "old-chunk-set", "new-chunk-set");
+    when(secureDataDao.readSecureDataByIdLocking(id))
+        .thenReturn(Optional.of(newFileRecord(pathToFile, reference)));
+    when(secureDataChunkDao.isChunkSetReferenced(sdbId, reference)).thenReturn(true);
+
+    secureDataService.reencryptData(id);
+
+    verify(secureDataDao).updateSecureData(any(SecureDataRecord.class));
+    verify(secureDataChunkDao, never()).deleteChunkSet(anyString());
+  }
+
+  @Test
+  public void test_that_reencrypt_file_deletes_the_new_chunk_set_if_the_row_is_not_updated()
+      throws Exception {
+    String id = "secure data id";
+    String pathToFile = "app/sdb/file.pem";
+    byte[] reference = "cerberus-chunk-set:old-chunk-set".getBytes(StandardCharsets.UTF_8);
+    stubChunkSetReencryption(pathToFile, "old-chunk-set", "new-chunk-set");
+    when(secureDataDao.readSecureDataByIdLocking(id))
+        .thenReturn(Optional.of(newFileRecord(pathToFile, reference)));
+    when(secureDataDao.updateSecureData(any(SecureDataRecord.class))).thenReturn(0);
+
+    try {
+      secureDataService.reencryptData(id);
+      fail("expected the re-encryption to fail");
+    } catch (IllegalStateException e) {
+      verify(secureDataChunkDao).deleteChunkSet("new-chunk-set");
+      verify(secureDataChunkDao, never()).deleteChunkSet("old-chunk-set");
+    }
+  }
+
+  @Test
+  public void test_that_reencrypt_reads_and_updates_the_record_in_a_transaction() {
+    String id = "secure data id";
+    String pathToObject = "app/sdb/secret";
+    AtomicBoolean inTransaction = new AtomicBoolean(false);
+    TransactionOperations transactionOperations =
+        new TransactionOperations() {
+          @Override
+          public <T> T execute(TransactionCallback<T> action) {
+            inTransaction.set(true);
+            try {
+              return action.doInTransaction(null);
+            } finally {
+              inTransaction.set(false);
+            }
+          }
+        };
+    SecureDataService transactionalSecureDataService =
+        new SecureDataService(
+            secureDataDao,
+            encryptionService,
+            objectMapper,
+            dateTimeSupplier,
+            secureDataVersionDao,
+            metricsService,
+            false,
+            MoreExecutors.directExecutor(),
+            2,
+            secureDataChunkDao,
+            false,
+            transactionOperations);
+    when(dateTimeSupplier.get()).thenReturn(OffsetDateTime.now(ZoneId.of("UTC")));
+    when(encryptionService.reencrypt(ciphertext, pathToObject)).thenReturn(ciphertext);
+    when(secureDataDao.readSecureDataByIdLocking(id))
+        .thenAnswer(
+            invocation -> {
+              assertTrue(inTransaction.get());
+              return Optional.of(
+                  new SecureDataRecord()
+                      .setType(SecureDataType.OBJECT)
+                      .setPath(pathToObject)
+                      .setEncryptedBlob(ciphertextBytes));
+            });
+    when(secureDataDao.updateSecureData(any(SecureDataRecord.class)))
+        .thenAnswer(
+            invocation -> {
+              assertTrue(inTransaction.get());
+              return 1;
+            });
+
+    transactionalSecureDataService.reencryptData(id);
+
+    verify(secureDataDao).updateSecureData(any(SecureDataRecord.class));
+  }
+
+  private SecureDataRecord newFileRecord(String pathToFile, byte[] encryptedBlob) {
+    return new SecureDataRecord()
+        .setType(SecureDataType.FILE)
+        .setSdboxId(sdbId)
+        .setPath(pathToFile)
+        .setEncryptedBlob(encryptedBlob)
+        .setSizeInBytes(plaintextBytes.length);
+  }
+
+  private void stubChunkSetReencryption(
+      String pathToFile, String oldChunkSetId, String newChunkSetId) throws Exception {
+    when(dateTimeSupplier.get()).thenReturn(OffsetDateTime.now(ZoneId.of("UTC")));
+    InputStream chunks = new ByteArrayInputStream(ciphertextBytes);
+    when(secureDataChunkDao.readChunkSet(oldChunkSetId)).thenReturn(chunks);
+    when(encryptionService.decryptingStream(chunks, pathToFile))
+        .thenReturn(new ByteArrayInputStream(plaintextBytes));
+    SecureDataChunkDao.ChunkSetOutputStream chunkSet =
+        mock(SecureDataChunkDao.ChunkSetOutputStream.class);
+    when(chunkSet.getReference())
+        .thenReturn(("cerberus-chunk-set:" + newChunkSetId).getBytes(StandardCharsets.UTF_8));
+    when(secureDataChunkDao.writeChunkSet(sdbId)).thenReturn(chunkSet);
+    when(encryptionService.encryptingStream(chunkSet, pathToFile))
+        .thenReturn(new ByteArrayOutputStream());
+  }
+
   @Test
   public void test_that_reencrypt_file_calls_reencrypt_bytes() {
     String id = "secure data id";
@@ -551,5 +1084,49 @@ public class SecureDataServiceTest {
             null,
             principal,
             null);
+    verify(secureDataDao).removeFromPathTree(sdbId, pathToFile, SecureDataType.FILE);
+  }
+
+  private SecureDataService newFileStreamingSecureDataService() {
+    return new SecureDataService(
+        secureDataDao,
+        encryptionService,
+        objectMapper,
+        dateTimeSupplier,
+        secureDataVersionDao,
+        metricsService,
+        false,
+        MoreExecutors.directExecutor(),
+        2,
+        secureDataChunkDao,
+        true,
+        TransactionOperations.withoutTransaction());
+  }
+
+  @Test
+  public void test_that_listKeys_reads_only_the_direct_children_from_the_path_tree() {
+    SecureDataService pathTreeSecureDataService =
+        new SecureDataService(
+            secureDataDao,
+            encryptionService,
+            objectMapper,
+            dateTimeSupplier,
+            secureDataVersionDao,
+            metricsService,
+            true,
+            MoreExecutors.directExecutor(),
+            2,
+            secureDataChunkDao,
+            false,
+            TransactionOperations.withoutTransaction());
+    when(secureDataDao.getPathTreeChildNames(
+            sdbId, partialPathWithoutTrailingSlash + "/", SecureDataType.OBJECT))
+        .thenReturn(new String[] {"sub-folder/", "sub-folder", "splunk-api-key"});
+
+    Set<String> res = pathTreeSecureDataService.listKeys(sdbId, partialPathWithoutTrailingSlash);
+
+    assertEquals(ImmutableSet.of("sub-folder/", "sub-folder", "splunk-api-key"), res);
+    verify(secureDataDao, never())
+        .getPathsByPartialPathAndType(anyString(), anyString(), any(SecureDataType.class));
   }
 }
@@ -17,6 +17,11 @@
 package com.nike.cerberus.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -25,6 +30,7 @@ import com.nike.cerberus.dao.SecureDataVersionDao;
 import com.nike.cerberus.domain.SecureDataVersionSummary;
 import com.nike.cerberus.domain.SecureDataVersionsResult;
 import com.nike.cerberus.record.SecureDataVersionRecord;
+import com.nike.cerberus.util.PaginationCursor;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -93,4 +99,63 @@ public class SecureDataVersionServiceTest {
     assertEquals(record.getVersionCreatedBy(), result.getVersionCreatedBy());
     assertEquals(record.getVersionCreatedTs(), result.getVersionCreatedTs());
   }
+
+  @Test
+  public void test_that_getSecureDataVersionsByPath_pages_after_the_cursor_without_counting() {
+    String pathToSecureData = "path to secure data";
+    String sdbId = "sdb id";
+    OffsetDateTime actionTs = OffsetDateTime.parse("2020-01-01T00:00:00Z");
+    String cursor = new PaginationCursor(actionTs, "version-2").encode();
+    List<SecureDataVersionRecord> versions =
+        Lists.newArrayList(
+            new SecureDataVersionRecord()
+                .setId("version-1")
+                .setPath(pathToSecureData)
+                .setActionTs(actionTs),
+            new SecureDataVersionRecord()
+                .setId("version-0")
+                .setPath(pathToSecureData)
+                .setActionTs(actionTs));
+    when(secureDataVersionDao.listSecureDataVersionByPathBefore(
+            pathToSecureData, actionTs, "version-2", 2))
+        .thenReturn(versions);
+
+    SecureDataVersionsResult result =
+        secureDataVersionService.getSecureDataVersionSummariesByPath(
+            sdbId, pathToSecureData, "sdb category", 1, 0, cursor, false);
+
+    verify(secureDataVersionDao, never()).getTotalNumVersionsForPath(pathToSecureData);
+    verify(secureDataService, never()).getSecureDataRecordForPath(sdbId, pathToSecureData);
+    assertNull(result.getTotalVersionCount());
+    assertNull(result.getNextOffset());
+    assertTrue(result.isHasNext());
+    assertEquals(1, result.getVersionCountInResult());
+    assertEquals("version-1", result.getSecureDataVersionSummaries().get(0).getId());
+    assertEquals("version-1", PaginationCursor.decode(result.getNextCursor()).getKey());
+  }
+
+  @Test
+  public void test_that_getSecureDataVersionsByPath_starts_at_the_newest_version_after_current() {
+    String pathToSecureData = "path to secure data";
+    OffsetDateTime lastUpdatedTs = OffsetDateTime.parse("2020-01-01T00:00:00Z");
+    String cursor =
+        new PaginationCursor(
+                lastUpdatedTs, SecureDataVersionService.DEFAULT_ID_FOR_CURRENT_VERSIONS)
+            .encode();
+    SecureDataVersionRecord newest =
+        new SecureDataVersionRecord()
+            .setId("version-1")
+            .setPath(pathToSecureData)
+            .setActionTs(lastUpdatedTs);
+    when(secureDataVersionDao.listSecureDataVersionByPath(pathToSecureData, 2, 0))
+        .thenReturn(Lists.newArrayList(newest));
+
+    SecureDataVersionsResult result =
+        secureDataVersionService.getSecureDataVersionSummariesByPath(
+            "sdb id", pathToSecureData, "sdb category", 1, 0, cursor, false);
+
+    assertFalse(result.isHasNext());
+    assertNull(result.getNextCursor());
+    assertEquals("version-1", result.getSecureDataVersionSummaries().get(0).getId());
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.nike.cerberus.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.nike.cerberus.record.AuthTokenRecord;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthTokenSignerTest {
+
+  private static final String KEY_1 = "key1:" + Base64.getEncoder().encodeToString(new byte[32]);
+  private static final String KEY_2 =
+      "key2:" + Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+  private AuthTokenSigner authTokenSigner;
+  private AuthTokenRecord tokenRecord;
+
+  @Before
+  public void before() {
+    authTokenSigner = new AuthTokenSigner(true, KEY_1 + "," + KEY_2);
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC).withNano(0);
+    tokenRecord =
+        new AuthTokenRecord()
+            .setId("f3e6b6a4-3c57-4c41-a0b6-0e4c1b5a1d13")
+            .setCreatedTs(now)
+            .setExpiresTs(now.plusHours(1))
+            .setPrincipal("arn:aws:iam::111111111111:role/example")
+            .setPrincipalType("iam")
+            .setIsAdmin(true)
+            .setGroups("registered-iam-principals,admin-iam-principals")
+            .setRefreshCount(2);
+  }
+
+  @Test
+  public void test_that_a_signed_token_can_be_verified_and_contains_the_token_data() {
+    String token = authTokenSigner.sign(tokenRecord);
+
+    assertTrue(AuthTokenSigner.isSignedToken(token));
+    AuthTokenRecord verified = authTokenSigner.verify(token).orElseThrow();
+    assertEquals(tokenRecord.getId(), verified.getId());
+    assertEquals(tokenRecord.getPrincipal(), verified.getPrincipal());
+    assertEquals(tokenRecord.getPrincipalType(), verified.getPrincipalType());
+    assertEquals(tokenRecord.getGroups(), verified.getGroups());
+    assertEquals(tokenRecord.getIsAdmin(), verified.getIsAdmin());
+    assertEquals(tokenRecord.getRefreshCount(), verified.getRefreshCount());
+    assertTrue(tokenRecord.getCreatedTs().isEqual(verified.getCreatedTs()));
+    assertTrue(tokenRecord.getExpiresTs().isEqual(verified.getExpiresTs()));
+  }
+
+  @Test
+  public void test_that_a_tampered_token_is_rejected() {
+    String token = authTokenSigner.sign(tokenRecord);
+    String[] parts = token.split("\\.");
+    AuthTokenRecord tampered = tokenRecord.setPrincipal("arn:aws:iam::222222222222:role/other");
+    String tamperedClaims = authTokenSigner.sign(tampered).split("\\.")[2];
+
+    assertFalse(
+        authTokenSigner
+            .verify(parts[0] + "." + parts[1] + "." + tamperedClaims + "." + parts[3])
+            .isPresent());
+  }
+
+  @Test
+  public void test_that_tokens_signed_with_an_old_key_are_accepted_after_rotation() {
+    String token = new AuthTokenSigner(true, KEY_2).sign(tokenRecord);
+
+    assertTrue(authTokenSigner.verify(token).isPresent());
+  }
+
+  @Test
+  public void test_that_tokens_signed_with_an_unknown_key_are_rejected() {
+    String token = authTokenSigner.sign(tokenRecord);
+
+    assertFalse(new AuthTokenSigner(true, KEY_2).verify(token).isPresent());
+  }
+
+  @Test
+  public void test_that_database_tokens_are_not_signed_tokens() {
+    String token = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789ab";
+
+    assertFalse(AuthTokenSigner.isSignedToken(token));
+    assertEquals(Optional.empty(), authTokenSigner.verify(token));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_that_keys_are_required_when_enabled() {
+    new AuthTokenSigner(true, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_that_short_keys_are_rejected() {
+    new AuthTokenSigner(true, "key:" + Base64.getEncoder().encodeToString(new byte[16]));
+  }
+}
@@ -19,8 +19,12 @@ package com.nike.cerberus.util;
 import static com.nike.cerberus.domain.DomainConstants.IAM_PRINCIPAL_ARN_PATTERN_ALLOWED;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -360,4 +364,123 @@ public class AwsIamRoleArnParserTest {
   public void iamPrincipalPartitionCheck_fails_on_root_arn_with_disabled_aws_global_partition() {
     awsChinaIamRoleArnParser.iamPrincipalPartitionCheck("arn:aws:iam::1111111111:root");
   }
+
+  @Test
+  public void parse_exposes_the_parts_of_an_assumed_role_arn() {
+    AwsIamPrincipalArn arn =
+        awsGlobalIamRoleArnParser.parse(
+            "arn:aws:sts::2222222222:assumed-role/sir/alfred/role/session-name");
+
+    assertTrue(arn.isValid());
+    assertEquals("aws", arn.getPartition());
+    assertEquals("sts", arn.getService());
+    assertEquals("2222222222", arn.getAccountId());
+    assertEquals("assumed-role", arn.getType());
+    assertEquals("sir/alfred/role", arn.getRoleName());
+    assertEquals("session-name", arn.getSession());
+    assertTrue(arn.isAssumedRoleArn());
+    assertFalse(arn.isRoleArn());
+    assertEquals(
+        "arn:aws:iam::2222222222:role/sir/alfred/role",
+        awsGlobalIamRoleArnParser.convertPrincipalArnToRoleArn(arn));
+    assertEquals(
+        "arn:aws:iam::2222222222:root",
+        awsGlobalIamRoleArnParser.convertPrincipalArnToRootArn(arn));
+  }
+
+  @Test
+  public void parse_returns_an_invalid_arn_instead_of_throwing() {
+    AwsIamPrincipalArn arn = awsGlobalIamRoleArnParser.parse("hullabaloo");
+
+    assertFalse(arn.isValid());
+    assertNull(arn.getAccountId());
+    assertFalse(arn.isAllowed());
+    assertFalse(awsGlobalIamRoleArnParser.parse(null).isValid());
+    // the regexes tolerate a single trailing line terminator, the parser does not
+    assertFalse(awsGlobalIamRoleArnParser.parse("arn:aws:iam::1111111111:role/name\n").isValid());
+  }
+
+  @Test
+  public void parse_memoizes_the_parsed_arn() {
+    String arn = "arn:aws:iam::1111111111:role/name";
+
+    assertSame(awsGlobalIamRoleArnParser.parse(arn), awsGlobalIamRoleArnParser.parse(arn));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void convertPrincipalArnToRootArn_fails_on_parsed_arn_in_disabled_partition() {
+    awsChinaIamRoleArnParser.convertPrincipalArnToRootArn(
+        awsChinaIamRoleArnParser.parse("arn:aws:sts::1111111111:assumed-role/role/session"));
+  }
+
+  @Test
+  public void parse_agrees_with_the_regex_patterns() {
+    List<String> arns =
+        List.of(
+            "arn:aws:iam::1111111111:role/name",
+            "arn:aws:iam::1111111111:role/fancy/role/path",
+            "arn:aws:iam::1111111111:role/",
+            "arn:aws:iam::1111111111:role//",
+            "arn:aws:iam::1111111111:role/some-role ",
+            "arn:aws:iam::1111111111:role/some-role\t",
+            "arn:aws:iam::1111111111:roles/name",
+            "arn:aws:iam::1111111111:user/bar",
+            "arn:aws:iam::1111111111:root",
+            "arn:aws:iam::1111111111:root/",
+            "arn:aws:sts::1111111111:root",
+            "arn:aws:iam::1111111111:group/path/to/group",
+            "arn:aws:iam::1111111111:instance-profile/some-profile",
+            "arn:aws:iam::1111111111:other/some-value",
+            "arn:aws:iam::1111111111:/leading/slash",
+            "arn:aws:iam::1111111111:some-role",
+            "arn:aws:iam::1111111111:",
+            "arn:aws:iam::1111111111:assumed-role/happy/path",
+            "arn:aws:sts::1111111111:assumed-role/role/session",
+            "arn:aws:sts::1111111111:assumed-role/sir/alfred/role/session",
+            "arn:aws:sts::1111111111:assumed-role/role/session/",
+            "arn:aws:sts::1111111111:assumed-role/blah",
+            "arn:aws:sts::1111111111:assumed-role//session",
+            "arn:aws:sts::1111111111:assumed-role/",
+            "arn:aws:sts::1111111111:federated-user/my_user",
+            "arn:aws-cn:sts::1111111111:assumed-role/role/session",
+            "arn:aws-cn:iam::1111111111:root",
+            "arn:aws-us-gov:iam::1111111111:role/name",
+            "arn:aws:iam:us-west-2:1111111111:role/name",
+            "arn:aws:iam:::role/some-role",
+            "arn:aws:iam::11a1:role/some-role",
+            "arn:aws:s3:::bucket/key",
+            "arn::iam::1111111111:role/some-role",
+            ":aws:iam::1111111111:role/some-role",
+            "arn:aws",
+            "foobar");
+
+    List<AwsIamRoleArnParser> parsers =
+        List.of(awsGlobalIamRoleArnParser, awsChinaIamRoleArnParser);
+    for (AwsIamRoleArnParser parser : parsers) {
+      for (String arn : arns) {
+        AwsIamPrincipalArn parsed = parser.parse(arn);
+        assertEquals(arn, parser.isRoleArn(arn), parsed.isRoleArn());
+        assertEquals(arn, parser.isAssumedRoleArn(arn), parsed.isAssumedRoleArn());
+        assertEquals(arn, parser.isAccountRootArn(arn), parsed.isAccountRootArn());
+        assertEquals(
+            arn, IAM_PRINCIPAL_ARN_PATTERN_ALLOWED.matcher(arn).find(), parsed.isAllowed());
+        assertEquals(
+            arn,
+            outcome(() -> parser.convertPrincipalArnToRoleArn(arn)),
+            outcome(() -> parser.convertPrincipalArnToRoleArn(parsed)));
+        assertEquals(
+            arn,
+            outcome(() -> parser.convertPrincipalArnToRootArn(arn)),
+            outcome(() -> parser.convertPrincipalArnToRootArn(parsed)));
+      }
+    }
+  }
+
+  private String outcome(Supplier<String> conversion) {
+    try {
+      return conversion.get();
+    } catch (RuntimeException e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nike.cerberus.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.nike.backstopper.exception.ApiException;
+import com.nike.cerberus.error.DefaultApiError;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import org.junit.Test;
+
+public class PaginationCursorTest {
+
+  @Test
+  public void test_that_a_cursor_survives_encoding() {
+    OffsetDateTime timestamp = OffsetDateTime.parse("2020-03-04T05:06:07.089Z");
+    String key = "app/my-sdb/path:with:colons";
+
+    PaginationCursor decoded =
+        PaginationCursor.decode(new PaginationCursor(timestamp, key).encode());
+
+    assertEquals(timestamp, decoded.getTimestamp());
+    assertEquals(key, decoded.getKey());
+  }
+
+  @Test
+  public void test_that_decode_rejects_cursors_that_were_not_encoded() {
+    assertInvalid("not base64!");
+    assertInvalid(encode("123"));
+    assertInvalid(encode("123:"));
+    assertInvalid(encode(":key"));
+    assertInvalid(encode("abc:key"));
+  }
+
+  private static String encode(String raw) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void assertInvalid(String cursor) {
+    try {
+      PaginationCursor.decode(cursor);
+      fail("expected the cursor to be rejected: " + cursor);
+    } catch (ApiException e) {
+      assertEquals(DefaultApiError.INVALID_PAGINATION_CURSOR, e.getApiErrors().get(0));
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.Test;
+
+public class SecureDataEntityTagTest {
+
+  private static final String PATH = "my-sdb/some/secret";
+  private static final OffsetDateTime LAST_UPDATED_TS =
+      OffsetDateTime.parse("2020-03-04T05:06:07.089Z");
+  private static final String REVISION_ID = "6f1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+  private static final String OTHER_REVISION_ID = "0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+
+  @Test
+  public void test_that_the_tag_is_weak_and_derived_from_the_id_last_updated_ts_and_revision() {
+    String entityTag = SecureDataEntityTag.of(PATH, LAST_UPDATED_TS, REVISION_ID);
+
+    assertEquals(
+        String.format(
+            "W/\"%08x-%x-%s\"",
+            PATH.hashCode(), LAST_UPDATED_TS.toInstant().toEpochMilli(), REVISION_ID),
+        entityTag);
+    OffsetDateTime sameInstant = LAST_UPDATED_TS.withOffsetSameInstant(ZoneOffset.ofHours(-7));
+    assertEquals(entityTag, SecureDataEntityTag.of(PATH, sameInstant, REVISION_ID));
+    assertNotEquals(
+        entityTag,
+        SecureDataEntityTag.of(PATH, LAST_UPDATED_TS.plusNanos(1_000_000), REVISION_ID));
+    assertNotEquals(entityTag, SecureDataEntityTag.of(PATH + "2", LAST_UPDATED_TS, REVISION_ID));
+  }
+
+  @Test
+  public void test_that_the_tag_changes_with_every_write_within_the_same_second() {
+    OffsetDateTime sameSecond = LAST_UPDATED_TS.withNano(0);
+
+    assertNotEquals(
+        SecureDataEntityTag.of(PATH, sameSecond, REVISION_ID),
+        SecureDataEntityTag.of(PATH, sameSecond, OTHER_REVISION_ID));
+  }
+
+  @Test
+  public void test_that_the_tag_of_a_file_is_strong() {
+    String entityTag = SecureDataEntityTag.ofFile(PATH, LAST_UPDATED_TS, REVISION_ID);
+
+    assertTrue(entityTag.startsWith("\""));
+    assertTrue(SecureDataEntityTag.matches("W/" + entityTag, entityTag));
+  }
+
+  @Test
+  public void test_that_the_tag_of_a_file_changes_with_every_write_within_the_same_second() {
+    OffsetDateTime sameSecond = LAST_UPDATED_TS.withNano(0);
+
+    assertNotEquals(
+        SecureDataEntityTag.ofFile(PATH, sameSecond, REVISION_ID),
+        SecureDataEntityTag.ofFile(PATH, sameSecond, OTHER_REVISION_ID));
+  }
+
+  @Test
+  public void test_that_the_tag_of_a_file_without_a_revision_id_is_weak() {
+    String entityTag = SecureDataEntityTag.ofFile(PATH, LAST_UPDATED_TS, "");
+
+    assertEquals(
+        String.format("W/\"%08x-%x\"", PATH.hashCode(), LAST_UPDATED_TS.toInstant().toEpochMilli()),
+        entityTag);
+    assertEquals(entityTag, SecureDataEntityTag.ofFile(PATH, LAST_UPDATED_TS, null));
+    assertFalse(SecureDataEntityTag.matchesIfRange(entityTag, entityTag));
+  }
+
+  @Test
+  public void test_that_matchesIfRange_uses_strong_comparison() {
+    String entityTag = SecureDataEntityTag.ofFile(PATH, LAST_UPDATED_TS, REVISION_ID);
+
+    assertTrue(SecureDataEntityTag.matchesIfRange(null, entityTag));
+    assertTrue(SecureDataEntityTag.matchesIfRange(" " + entityTag, entityTag));
+    assertFalse(SecureDataEntityTag.matchesIfRange("W/" + entityTag, entityTag));
+    assertFalse(SecureDataEntityTag.matchesIfRange("\"other\"", entityTag));
+    assertFalse(SecureDataEntityTag.matchesIfRange("Wed, 04 Mar 2020 05:06:07 GMT", entityTag));
+    String weakTag = SecureDataEntityTag.of(PATH, LAST_UPDATED_TS, REVISION_ID);
+    assertFalse(SecureDataEntityTag.matchesIfRange(weakTag, weakTag));
+  }
+
+  @Test
+  public void test_that_matches_uses_weak_comparison() {
+    String entityTag = SecureDataEntityTag.of(PATH, LAST_UPDATED_TS, REVISION_ID);
+    String opaqueTag = entityTag.substring(2);
+
+    assertTrue(SecureDataEntityTag.matches(entityTag, entityTag));
+    assertTrue(SecureDataEntityTag.matches(opaqueTag, entityTag));
+    assertTrue(SecureDataEntityTag.matches("\"other\", " + entityTag, entityTag));
+    assertTrue(SecureDataEntityTag.matches("*", entityTag));
+    assertFalse(SecureDataEntityTag.matches("W/\"other\"", entityTag));
+    assertFalse(SecureDataEntityTag.matches(null, entityTag));
+  }
+}
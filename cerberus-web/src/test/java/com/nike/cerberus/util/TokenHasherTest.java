@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nike.cerberus.util;
+
+import static com.nike.cerberus.util.TokenHasher.HMAC_SHA256_HASH_VERSION;
+import static com.nike.cerberus.util.TokenHasher.PBKDF2_HASH_VERSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Base64;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenHasherTest {
+
+  private static final String SALT = Base64.getEncoder().encodeToString(new byte[64]);
+
+  private TokenHasher tokenHasher;
+
+  @Before
+  public void before() {
+    tokenHasher =
+        new TokenHasher(SALT, "PBKDF2WithHmacSHA512", 256, 100, HMAC_SHA256_HASH_VERSION);
+  }
+
+  @Test
+  public void test_that_hashToken_uses_the_configured_hash_version() {
+    assertEquals(
+        tokenHasher.hashToken("token", HMAC_SHA256_HASH_VERSION), tokenHasher.hashToken("token"));
+  }
+
+  @Test
+  public void test_that_the_hash_versions_produce_different_stable_hashes() {
+    String hmacHash = tokenHasher.hashToken("token", HMAC_SHA256_HASH_VERSION);
+    String pbkdf2Hash = tokenHasher.hashToken("token", PBKDF2_HASH_VERSION);
+
+    assertNotEquals(hmacHash, pbkdf2Hash);
+    assertEquals(hmacHash, tokenHasher.hashToken("token", HMAC_SHA256_HASH_VERSION));
+    assertEquals(pbkdf2Hash, tokenHasher.hashToken("token", PBKDF2_HASH_VERSION));
+    assertEquals(64, hmacHash.length());
+    assertEquals(64, pbkdf2Hash.length());
+  }
+
+  @Test
+  public void test_that_the_legacy_hash_is_unchanged_by_the_hash_version() {
+    TokenHasher legacyTokenHasher =
+        new TokenHasher(SALT, "PBKDF2WithHmacSHA512", 256, 100, PBKDF2_HASH_VERSION);
+
+    assertEquals(
+        legacyTokenHasher.hashToken("token"),
+        tokenHasher.hashToken("token", PBKDF2_HASH_VERSION));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_that_an_unknown_hash_version_is_rejected() {
+    new TokenHasher(SALT, "PBKDF2WithHmacSHA512", 256, 100, 3);
+  }
+}
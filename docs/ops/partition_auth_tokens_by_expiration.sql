@@ -0,0 +1,23 @@
+###
+#
+# Opt-in, this is not a Flyway migration and has to be applied by an operator before
+# cerberus.jobs.expiredTokenCleanUpJob.partitions.enabled is turned on.
+#
+# Partitions AUTH_TOKENS by EXPIRES_TS so that the expired token clean up job can remove expired tokens by
+# dropping whole partitions. The table starts with a single catch all partition that the job splits up.
+#
+# MySQL requires every unique key of a partitioned table to include the partitioning column, so the unique
+# index on TOKEN_HASH becomes a plain index and the AuthTokenDao rejects any hash that matches more than one token.
+#
+# Everything is done in a single ALTER so that the table is only rebuilt once.
+#
+###
+
+ALTER TABLE AUTH_TOKENS
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (ID, EXPIRES_TS),
+  DROP INDEX `IX_AUTH_TOKENS_TOKEN_HASH`,
+  ADD INDEX `IX_AUTH_TOKENS_TOKEN_HASH` (TOKEN_HASH)
+  PARTITION BY RANGE COLUMNS(EXPIRES_TS) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+  );